@@ -45,6 +45,7 @@ import tlc2.tool.impl.ParameterizedSpecObj;
 import tlc2.tool.impl.ParameterizedSpecObj.PostCondition;
 import tlc2.tool.impl.Tool;
 import tlc2.tool.management.ModelCheckerMXWrapper;
+import tlc2.tool.management.OpenMetricsExporter;
 import tlc2.tool.management.TLCStandardMBean;
 import tlc2.util.DotStateWriter;
 import tlc2.util.FP64;
@@ -1164,6 +1165,7 @@ public class TLC {
         
         // a JMX wrapper that exposes runtime statistics 
         TLCStandardMBean modelCheckerMXWrapper = TLCStandardMBean.getNullTLCStandardMBean();
+        OpenMetricsExporter openMetricsExporter = null;
         
 		// SZ Feb 20, 2009: extracted this method to separate the 
         // parameter handling from the actual processing
@@ -1240,6 +1242,7 @@ public class TLC {
 							FPSetFactory.getFPSetInitialized(fpSetConfiguration, metadir, new File(mainFile).getName()),
 							startTime);
 					modelCheckerMXWrapper = new ModelCheckerMXWrapper((ModelChecker) TLCGlobals.mainChecker, this);
+					openMetricsExporter = OpenMetricsExporter.create((ModelChecker) TLCGlobals.mainChecker);
 					result = TLCGlobals.mainChecker.modelCheck();
                 } else
                 {
@@ -1280,6 +1283,9 @@ public class TLC {
 				} catch (IOException e) { }
         	}
 			modelCheckerMXWrapper.unregister();
+			if (openMetricsExporter != null) {
+				openMetricsExporter.stop();
+			}
 			// In tool mode print runtime in milliseconds, in non-tool mode print human
 			// readable runtime (days, hours, minutes, ...).
 			final long runtime = System.currentTimeMillis() - startTime;
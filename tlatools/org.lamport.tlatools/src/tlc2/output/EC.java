@@ -230,6 +230,7 @@ public interface EC
     public static final int TLC_CHECKING_TEMPORAL_PROPS = 2192;
     public static final int TLC_CHECKING_TEMPORAL_PROPS_END = 2267;
     public static final int TLC_SUCCESS = 2193;
+    public static final int TLC_BITSTATE_COVERAGE = 2285;
     public static final int TLC_SEARCH_DEPTH = 2194;
     public static final int TLC_STATE_GRAPH_OUTDEGREE = 2268;
     public static final int TLC_CHECKPOINT_START = 2195;
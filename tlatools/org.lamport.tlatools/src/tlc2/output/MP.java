@@ -1047,6 +1047,12 @@ public class MP
             			+ "  calculated (optimistic):  %1%\n" + "  based on the actual fingerprints:  %2%");
             }
             break;
+        case EC.TLC_BITSTATE_COVERAGE:
+			b.append("Bitstate hashing (%1% hash functions, %2% bits, %3% bits per state) might have missed states\n"
+					+ "  because their bits had been set by other states:\n"
+					+ "  estimated coverage:  %4%\n"
+					+ "  probability that an unseen state is missed:  %5%");
+            break;
         case EC.TLC_SEARCH_DEPTH:
 			b.append("The depth of the complete state graph search is %1%.");
             break;
@@ -1085,6 +1091,10 @@ public class MP
         	} else if (parameters.length == 6) {
         		b.append("Progress(%1%) at " + now() + ": %2% states generated ("
         				+ "%5% s/min), %3% distinct states found (%6% ds/min), %4% states left on queue.");
+        	} else if (parameters.length == 7) {
+        		b.append("Progress(%1%) at " + now() + ": %2% states generated ("
+        				+ "%5% s/min), %3% distinct states found (%6% ds/min), %4% states left on queue, "
+        				+ "%7% fingerprint cache hits.");
         	}
             break;
         case EC.TLC_PROGRESS_START_STATS_DFID:
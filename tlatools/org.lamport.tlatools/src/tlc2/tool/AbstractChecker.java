@@ -203,17 +203,35 @@ public abstract class AbstractChecker
     }
     
     public static final double calculateOptimisticProbability(final long numOfDistinctStates, final long numOfGenStates) {
-        return numOfDistinctStates * ((numOfGenStates - numOfDistinctStates) / Math.pow(2, 64));
+        return calculateOptimisticProbability(numOfDistinctStates, numOfGenStates, Long.SIZE);
+    }
+
+    /**
+     * @param fpBits The number of bits of the fingerprints that are stored in the set
+     *               of seen states (64 unless the set compacts fingerprints).
+     */
+    public static final double calculateOptimisticProbability(final long numOfDistinctStates, final long numOfGenStates, final int fpBits) {
+        return numOfDistinctStates * ((numOfGenStates - numOfDistinctStates) / Math.pow(2, fpBits));
     }
     
 	public static final void reportSuccess(final long numOfDistinctStates, final long numOfGenStates)
 			throws IOException {
-		final double optimisticProb = calculateOptimisticProbability(numOfDistinctStates, numOfGenStates);
+		reportSuccess(numOfDistinctStates, numOfGenStates, Long.SIZE);
+	}
+
+	public static final void reportSuccess(final long numOfDistinctStates, final long numOfGenStates,
+			final int fpBits) throws IOException {
+		final double optimisticProb = calculateOptimisticProbability(numOfDistinctStates, numOfGenStates, fpBits);
 		MP.printMessage(EC.TLC_SUCCESS, new String[] { "val = " + ProbabilityToString(optimisticProb, 2) });
 	}
    
 	public static final void reportSuccess(final long numOfDistinctStates, final long actualDistance,
 			final long numOfGenStates) throws IOException {
+		reportSuccess(numOfDistinctStates, actualDistance, numOfGenStates, Long.SIZE);
+	}
+
+	public static final void reportSuccess(final long numOfDistinctStates, final long actualDistance,
+			final long numOfGenStates, final int fpBits) throws IOException {
 		// Prevent div-by-zero when calculating collision probabilities when no states
 		// are generated.
 		if (numOfDistinctStates == numOfGenStates && numOfGenStates == 0) {
@@ -224,7 +242,7 @@ public abstract class AbstractChecker
 		}
 		// shown as 'calculated' in Toolbox
 		final String optimisticProbStr = "val = "
-				+ ProbabilityToString(calculateOptimisticProbability(numOfDistinctStates, numOfGenStates), 2);
+				+ ProbabilityToString(calculateOptimisticProbability(numOfDistinctStates, numOfGenStates, fpBits), 2);
 
 		// shown as 'observed' in Toolbox
 		final BigDecimal actualProb = BigDecimal.valueOf(1d).divide(BigDecimal.valueOf(actualDistance),
@@ -587,6 +605,17 @@ public abstract class AbstractChecker
 	public int getProgress() {
 		return -1;
 	}
+
+	/**
+	 * @return The workers or null if they have not been started yet.
+	 */
+	public IWorker[] getWorkers() {
+		return workers;
+	}
+
+	public ILiveCheck getLiveCheck() {
+		return liveCheck;
+	}
 	
 	public void stop() {
 		throw new UnsupportedOperationException("stop not implemented");
@@ -44,8 +44,8 @@ import tlc2.util.Context;
 import tlc2.util.ObjLongTable;
 import tlc2.util.Vect;
 import tlc2.value.IFcnLambdaValue;
-import tlc2.value.IMVPerm;
 import tlc2.value.IValue;
+import tlc2.value.impl.MVPerms;
 import util.FilenameToStream;
 
 public interface ITool extends TraceApp {
@@ -153,8 +153,8 @@ public interface ITool extends TraceApp {
 	/* Reconstruct the info for s1.   */
 	TLCStateInfo getState(TLCState s1, TLCState s);
 
-	/* Return the set of all permutations under the symmetry assumption. */
-	IMVPerm[] getSymmetryPerms();
+	/* Return the group of all permutations under the symmetry assumption. */
+	MVPerms getSymmetryPerms();
 
 	boolean hasSymmetry();
 
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool;
+
+import java.util.BitSet;
+
+import tlc2.TLCGlobals;
+import tlc2.tool.impl.Footprint;
+import tlc2.tool.impl.Tool.Mode;
+
+/**
+ * {@link IncrementalInvariants} determines which invariants {@link Worker} has
+ * to evaluate on a new successor state: An invariant whose variables are not
+ * written by the action that generated the successor has the same value in the
+ * successor as in the predecessor. The predecessor satisfies all invariants
+ * because it has been checked when it was found, thus the invariant is
+ * inherited and can be skipped.
+ * <p>
+ * The read sets of the invariants and the write sets of the actions are the
+ * {@link Footprint}s of their definitions, i.e. UNCHANGED and x' = x do not
+ * count as writes. An invariant or action whose footprint cannot be determined
+ * statically (e.g. because it calls TLCGet) reads and writes all variables.
+ * <p>
+ * Incremental invariant checking is off by default and can be turned on with
+ * -Dtlc2.tool.IncrementalInvariants.on=true. It stays off if TLC continues
+ * after an invariant violation (the predecessor might violate an invariant),
+ * collects coverage (which counts invariant evaluations), or runs the debugger.
+ */
+public final class IncrementalInvariants {
+
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(IncrementalInvariants.class.getName() + ".on");
+	}
+
+	/**
+	 * @return An {@link IncrementalInvariants} for the actions and invariants of
+	 *         the given tool or null if it is disabled, not applicable, or no
+	 *         invariant would ever be skipped.
+	 */
+	public static IncrementalInvariants create(final ITool tool) {
+		if (!isEnabled() || TLCGlobals.continuation || TLCGlobals.isCoverageEnabled()
+				|| tool.getMode() == Mode.MC_DEBUG || tool.getInvariants().length == 0) {
+			return null;
+		}
+		final IncrementalInvariants incInv = new IncrementalInvariants(tool);
+		return incInv.getSkippedCount() > 0 ? incInv : null;
+	}
+
+	/**
+	 * actions[id] is the action with {@link Action#getId()} id (or null).
+	 */
+	private final Action[] actions;
+	/**
+	 * affected[id][k] is true iff the action with id might change the value of
+	 * the k-th invariant.
+	 */
+	private final boolean[][] affected;
+
+	IncrementalInvariants(final ITool tool) {
+		final Action[] invariants = tool.getInvariants();
+		final BitSet[] reads = new BitSet[invariants.length];
+		for (int k = 0; k < invariants.length; k++) {
+			reads[k] = Footprint.of(tool, invariants[k]).getReads();
+		}
+
+		int maxId = -1;
+		for (Action action : tool.getActions()) {
+			maxId = Math.max(maxId, action.getId());
+		}
+		this.actions = new Action[maxId + 1];
+		this.affected = new boolean[maxId + 1][];
+		for (Action action : tool.getActions()) {
+			final int id = action.getId();
+			if (id < 0 || actions[id] != null) {
+				// Ids are not unique, thus check all invariants for this action.
+				continue;
+			}
+			final Footprint footprint = Footprint.of(tool, action);
+			actions[id] = action;
+			affected[id] = new boolean[invariants.length];
+			for (int k = 0; k < invariants.length; k++) {
+				affected[id][k] = footprint.writesAny(reads[k]);
+			}
+		}
+	}
+
+	/**
+	 * @return affected[k] is true iff the given action might change the value of
+	 *         the k-th invariant. Null if all invariants are affected.
+	 */
+	public final boolean[] getAffected(final Action action) {
+		final int id = action.getId();
+		if (id >= 0 && id < actions.length && actions[id] == action) {
+			return affected[id];
+		}
+		return null;
+	}
+
+	/**
+	 * @return The number of (action, invariant) pairs for which the invariant is
+	 *         skipped.
+	 */
+	int getSkippedCount() {
+		int cnt = 0;
+		for (boolean[] a : affected) {
+			if (a != null) {
+				for (boolean b : a) {
+					cnt += b ? 0 : 1;
+				}
+			}
+		}
+		return cnt;
+	}
+}
@@ -8,9 +8,12 @@ package tlc2.tool;
 
 import java.io.File;
 import java.io.IOException;
+import java.text.DecimalFormat;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
@@ -18,15 +21,22 @@ import tla2sany.semantic.OpDeclNode;
 import tlc2.TLCGlobals;
 import tlc2.output.EC;
 import tlc2.output.MP;
+import tlc2.tool.coverage.SamplingProfiler;
+import tlc2.tool.fp.BitstateFPSet;
+import tlc2.tool.fp.CompactFPSet;
+import tlc2.tool.fp.DDDFPSet;
 import tlc2.tool.fp.FPSet;
 import tlc2.tool.fp.FPSetConfiguration;
 import tlc2.tool.fp.FPSetFactory;
 import tlc2.tool.impl.CallStackTool;
 import tlc2.tool.liveness.LiveCheck;
+import tlc2.tool.queue.DDDStateQueue;
 import tlc2.tool.queue.DiskByteArrayQueue;
 import tlc2.tool.queue.DiskStateQueue;
 import tlc2.tool.queue.IStateQueue;
+import tlc2.tool.queue.WorkStealingStateQueue;
 import tlc2.util.IStateWriter;
+import tlc2.util.SetAssociativeCache;
 import tlc2.util.SetOfStates;
 import tlc2.util.statistics.BucketStatistics;
 import tlc2.value.impl.CounterExample;
@@ -53,10 +63,31 @@ public class ModelChecker extends AbstractChecker
 	 * If the state/ dir should be cleaned up after a successful model run
 	 */
 	public static final boolean VETO_CLEANUP = Boolean.getBoolean(ModelChecker.class.getName() + ".vetoCleanup");
+	/**
+	 * If true, periodic checkpoints only suspend the workers while a consistent
+	 * snapshot of the state queue, the trace, the fingerprint set, and the
+	 * behavior graphs (if liveness is checked) is taken
+	 * (see {@link #beginCheckpoint()}). A background thread then persists the
+	 * snapshot while the workers continue model checking (see
+	 * {@link #commitCheckpoint()}). The snapshot of the state queue only copies
+	 * the references to its in-memory states (see
+	 * {@link tlc2.tool.queue.DiskStateQueue#beginChkpt()} and
+	 * {@link tlc2.tool.queue.WorkStealingStateQueue#beginChkpt()}), which are
+	 * serialized by the background thread.
+	 */
+	public static final boolean CONCURRENT_CHECKPOINT = Boolean.getBoolean(ModelChecker.class.getName() + ".concurrentCheckpoint");
 
 	private long numberOfInitialStates;
     public FPSet theFPSet; // the set of reachable states (SZ: note the type)
     public IStateQueue theStateQueue; // the state queue
+    /**
+     * Null unless partial order reduction is enabled and applicable.
+     */
+    public final PartialOrderReduction por;
+    /**
+     * Null unless incremental invariant checking is enabled and applicable.
+     */
+    public final IncrementalInvariants incInv;
     public final ConcurrentTLCTrace trace; // the trace file
     // used to calculate the spm metric
     public long distinctStatesPerMinute, statesPerMinute = 0L;
@@ -69,12 +100,30 @@ public class ModelChecker extends AbstractChecker
 	 * Flag set via JMX if liveness checking should be triggered.
 	 */
 	private boolean forceLiveCheck = false;
+	/**
+	 * The number of periodic liveness checks run so far and the accumulated
+	 * wall clock time (in milliseconds) they took.
+	 */
+	private volatile long liveCheckCnt, liveCheckTime = 0L;
+	/**
+	 * The checkpoint currently persisted by checkpointExecutor (null if none).
+	 */
+	private Future<Void> pendingCheckpoint;
+	private ExecutorService checkpointExecutor;
+	/**
+	 * The highest level of a state dequeued by a worker so far and the flight
+	 * recorder event of that level (see {@link #levelReached(int)}).
+	 */
+	volatile int dequeuedLevel = 0;
+	private Object levelEvent;
+	private final Object levelLock = new Object();
 
     /* Constructors  */
     public ModelChecker(ITool tool, String metadir, final IStateWriter stateWriter, boolean deadlock, String fromChkpt,
             final Future<FPSet> future, long startTime) throws EvalException, IOException, InterruptedException, ExecutionException {
     	this(tool, metadir, stateWriter, deadlock, fromChkpt, startTime);
     	this.theFPSet = future.get();
+    	this.theStateQueue = createStateQueue();
 
         // Initialize all the workers:
         this.workers = new Worker[TLCGlobals.getNumWorkers()];
@@ -88,6 +137,7 @@ public class ModelChecker extends AbstractChecker
             final FPSetConfiguration fpSetConfig, long startTime) throws EvalException, IOException {
     	this(tool, metadir, stateWriter, deadlock, fromChkpt, startTime);
     	this.theFPSet = FPSetFactory.getFPSet(fpSetConfig).init(TLCGlobals.getNumWorkers(), metadir, tool.getRootName());
+    	this.theStateQueue = createStateQueue();
 
         // Initialize all the workers:
         this.workers = new Worker[TLCGlobals.getNumWorkers()];
@@ -108,15 +158,27 @@ public class ModelChecker extends AbstractChecker
         // call the abstract constructor
         super(tool, metadir, stateWriter, deadlock, fromChkpt, startTime);
 
-		this.theStateQueue = useByteArrayQueue()
-				? new DiskByteArrayQueue(this.metadir)
-				: new DiskStateQueue(this.metadir);
-        // this.theStateQueue = new MemStateQueue(this.metadir);
+        this.por = PartialOrderReduction.create(this.tool, this.checkLiveness);
+        this.incInv = IncrementalInvariants.create(this.tool);
 
         // Finally, initialize the trace file:
         this.trace = new ConcurrentTLCTrace(this.metadir, this.tool.getRootName(), this.tool);
     }
 
+	/**
+	 * Creates the state queue once theFPSet is known: Delayed duplicate detection
+	 * ({@link DDDFPSet}) requires the {@link DDDStateQueue}.
+	 */
+	private IStateQueue createStateQueue() throws IOException {
+		if (this.theFPSet instanceof DDDFPSet) {
+			return new DDDStateQueue(this.metadir, (DDDFPSet) this.theFPSet);
+		}
+		if (useWorkStealingQueue()) {
+			return new WorkStealingStateQueue(this.metadir);
+		}
+		return useByteArrayQueue() ? new DiskByteArrayQueue(this.metadir) : new DiskStateQueue(this.metadir);
+	}
+
     /**
      * This method does model checking on a TLA+ spec. All the visited
      * states are stored in the variable theFPSet. All the states whose
@@ -689,6 +751,11 @@ public class ModelChecker extends AbstractChecker
 			// It stops all workers.
 			return EC.NO_ERROR;
 		}
+		
+		// Liveness checking and the next checkpoint must not overlap with a checkpoint
+		// that is still being persisted in the background. Wait for it before
+		// suspending the workers such that they do not have to wait too.
+		awaitCheckpoint();
    	
         if (this.theStateQueue.suspendAll())
         {
@@ -704,14 +771,21 @@ public class ModelChecker extends AbstractChecker
                     return result;
                 }
                 forceLiveCheck = false;
-                updateRuntimeRatio(System.currentTimeMillis() - preLivenessChecking);
+                final long livenessChecking = System.currentTimeMillis() - preLivenessChecking;
+                liveCheckCnt++;
+                liveCheckTime += livenessChecking;
+                updateRuntimeRatio(livenessChecking);
             } else if (runtimeRatio > TLCGlobals.livenessRatio) {
             	updateRuntimeRatio(0L);
             }
 
             if (createCheckPoint) {
             	// Checkpoint:
-            	checkpoint();
+            	if (CONCURRENT_CHECKPOINT) {
+            		checkpointConcurrently();
+            	} else {
+            		checkpoint();
+            	}
             } else {
 				// Just resume worker threads when checkpointing is skipped
             	this.theStateQueue.resumeAll();
@@ -721,17 +795,64 @@ public class ModelChecker extends AbstractChecker
     }
 
 	protected void checkpoint() throws IOException {
+		awaitCheckpoint();
+		beginCheckpoint();
+		commitCheckpoint();
+	}
+
+	/**
+	 * Like {@link #checkpoint()} except that the second phase of checkpointing,
+	 * {@link #commitCheckpoint()}, is executed by a background thread. Thus, the
+	 * workers which have been suspended by the caller resume as soon as the
+	 * snapshot has been taken.
+	 */
+	protected void checkpointConcurrently() throws IOException {
+		awaitCheckpoint();
+		beginCheckpoint();
+		if (this.checkpointExecutor == null) {
+			this.checkpointExecutor = Executors.newSingleThreadExecutor(r -> {
+				final Thread t = new Thread(r, "TLC Checkpoint");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		this.pendingCheckpoint = this.checkpointExecutor.submit(() -> {
+			commitCheckpoint();
+			return null;
+		});
+	}
+
+	/**
+	 * Takes a snapshot of the state queue, the trace, the fingerprint set and the
+	 * behavior graphs and resumes the (suspended) workers. The snapshot is
+	 * consistent because the workers are suspended, i.e. no state is in flight
+	 * between the data structures.
+	 */
+	private void beginCheckpoint() throws IOException {
 		// start checkpointing:
        	MP.printMessage(EC.TLC_CHECKPOINT_START, this.metadir);
+		final Object event = TLAFlightRecorder.beginCheckpoint();
 		this.theStateQueue.beginChkpt();
 		this.trace.beginChkpt();
 		this.theFPSet.beginChkpt();
-		this.theStateQueue.resumeAll();
-		UniqueString.internTbl.beginChkpt(this.metadir);
 		if (this.checkLiveness)
 		{
+			// The workers extend the behavior graphs (see
+			// LiveCheck#addNextState) and thus the graphs' positions have to be
+			// recorded while they are suspended.
 			liveCheck.beginChkpt();
 		}
+		TLAFlightRecorder.endCheckpoint(event, "snapshot");
+		this.theStateQueue.resumeAll();
+	}
+
+	/**
+	 * Persists the snapshot taken by {@link #beginCheckpoint()}. Does not require
+	 * the workers to be suspended.
+	 */
+	private void commitCheckpoint() throws IOException {
+		final Object event = TLAFlightRecorder.beginCheckpoint();
+		UniqueString.internTbl.beginChkpt(this.metadir);
 		// commit checkpoint:
 		this.theStateQueue.commitChkpt();
 		this.trace.commitChkpt();
@@ -741,9 +862,57 @@ public class ModelChecker extends AbstractChecker
 		{
 			liveCheck.commitChkpt();
 		}
+		TLAFlightRecorder.endCheckpoint(event, "commit");
     	MP.printMessage(EC.TLC_CHECKPOINT_END);
 	}
 
+	/**
+	 * Called by a worker that dequeued a state whose level is greater than
+	 * {@link #dequeuedLevel}, which (approximately) marks the end of the previous
+	 * level of the breadth-first search.
+	 */
+	final void levelReached(final int level) {
+		synchronized (this.levelLock) {
+			if (level <= this.dequeuedLevel) {
+				return;
+			}
+			endLevel();
+			this.dequeuedLevel = level;
+			this.levelEvent = TLAFlightRecorder.beginLevel();
+		}
+	}
+
+	private void endLevel() {
+		if (this.levelEvent != null) {
+			TLAFlightRecorder.endLevel(this.levelEvent, this.dequeuedLevel, getStatesGenerated(),
+					this.theFPSet.size(), this.theStateQueue.size());
+			this.levelEvent = null;
+		}
+	}
+
+	/**
+	 * Blocks until the checkpoint that is being persisted in the background (if
+	 * any) is done and re-throws its failure.
+	 */
+	private void awaitCheckpoint() throws IOException {
+		if (this.pendingCheckpoint == null) {
+			return;
+		}
+		try {
+			this.pendingCheckpoint.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			this.pendingCheckpoint = null;
+		}
+	}
+
 	public void forceLiveCheck() {
 		forceLiveCheck = true;
 	}
@@ -784,6 +953,21 @@ public class ModelChecker extends AbstractChecker
     	return runtimeRatio;
     }
 
+	/**
+	 * @return The number of periodic liveness checks run so far.
+	 */
+	public long getLiveCheckCount() {
+		return liveCheckCnt;
+	}
+
+	/**
+	 * @return The accumulated wall clock time (in milliseconds) of the periodic
+	 *         liveness checks run so far.
+	 */
+	public long getLiveCheckTime() {
+		return liveCheckTime;
+	}
+
     public final boolean recover() throws IOException
     {
         boolean recovered = false;
@@ -823,6 +1007,11 @@ public class ModelChecker extends AbstractChecker
     {
     	boolean vetoCleanup = VETO_CLEANUP;
     	
+    	awaitCheckpoint();
+    	if (this.checkpointExecutor != null) {
+    		this.checkpointExecutor.shutdown();
+    	}
+
 		// If model checking is not done, checkpoints are (explicitly) enabled, and
 		// either and error has been found or time-bound model checking is enabled, take
 		// a snapshot to allow users to continue model checking if needed.
@@ -867,6 +1056,15 @@ public class ModelChecker extends AbstractChecker
         // the number states above.
 		MP.printMessage(EC.TLC_SEARCH_DEPTH,
 				String.valueOf(getStatesGenerated() == 0L ? 0 : this.trace.getLevelForReporting()));
+		if (this.por != null) {
+			this.por.printStatistics();
+		}
+		if (SamplingProfiler.ENABLED) {
+			SamplingProfiler.write(this.tool);
+		}
+		synchronized (this.levelLock) {
+			endLevel();
+		}
         if (success)
         {
 			
@@ -905,13 +1103,31 @@ public class ModelChecker extends AbstractChecker
         distinctStatesPerMinute = (long) ((fpSetSize - oldFPSetSize) / factor);
         oldFPSetSize = fpSetSize;
         
-		MP.printMessage(EC.TLC_PROGRESS_STATS, new String[] {
-                String.valueOf(this.trace.getLevelForReporting()),
-                MP.format(l),
-                MP.format(fpSetSize),
-                MP.format(this.theStateQueue.size()),
-                MP.format(statesPerMinute),
-                MP.format(distinctStatesPerMinute) });
+		if (Worker.CACHE > 0) {
+			// Aggregate the hit rate of the worker-local fingerprint caches.
+			long hits = 0L, misses = 0L;
+			for (IWorker worker : workers) {
+				final SetAssociativeCache cache = ((Worker) worker).getCache();
+				hits += cache.getHitRate();
+				misses += cache.getMissRate();
+			}
+			MP.printMessage(EC.TLC_PROGRESS_STATS, new String[] {
+	                String.valueOf(this.trace.getLevelForReporting()),
+	                MP.format(l),
+	                MP.format(fpSetSize),
+	                MP.format(this.theStateQueue.size()),
+	                MP.format(statesPerMinute),
+	                MP.format(distinctStatesPerMinute),
+	                new DecimalFormat("##0.0%").format(hits + misses == 0L ? 0d : hits / (double) (hits + misses)) });
+		} else {
+			MP.printMessage(EC.TLC_PROGRESS_STATS, new String[] {
+	                String.valueOf(this.trace.getLevelForReporting()),
+	                MP.format(l),
+	                MP.format(fpSetSize),
+	                MP.format(this.theStateQueue.size()),
+	                MP.format(statesPerMinute),
+	                MP.format(distinctStatesPerMinute) });
+		}
 		
 		TLAFlightRecorder.progress(isFinal, this.trace.getLevelForReporting(), l, fpSetSize, this.theStateQueue.size(),
 				statesPerMinute, distinctStatesPerMinute);
@@ -920,13 +1136,23 @@ public class ModelChecker extends AbstractChecker
     public static final void reportSuccess(final FPSet anFpSet, final long numOfGenStates) throws IOException
     {
         final long numOfDistinctStates = anFpSet.size();
-        final double optimisticProb = calculateOptimisticProbability(numOfDistinctStates, numOfGenStates);
+        if (anFpSet instanceof BitstateFPSet) {
+			// Fingerprints are not stored, thus there is no actual probability. Instead,
+			// report the probability that states have been missed due to hashing.
+        	reportSuccess(numOfDistinctStates, numOfGenStates);
+        	((BitstateFPSet) anFpSet).reportCoverage();
+        	return;
+        }
+		// A CompactFPSet only stores a prefix of each fingerprint, which is what
+		// determines the likelihood of a collision.
+        final int fpBits = anFpSet instanceof CompactFPSet ? ((CompactFPSet) anFpSet).getFingerprintBits() : Long.SIZE;
+        final double optimisticProb = calculateOptimisticProbability(numOfDistinctStates, numOfGenStates, fpBits);
         if (optimisticProb < 1E-10) {
 			// If the optimistic probability is sufficiently low, don't waste time
 			// calculating the actual probability.
-        	reportSuccess(numOfDistinctStates, numOfGenStates);
+        	reportSuccess(numOfDistinctStates, numOfGenStates, fpBits);
         } else {
-        	reportSuccess(numOfDistinctStates, anFpSet.checkFPs(), numOfGenStates);
+        	reportSuccess(numOfDistinctStates, anFpSet.checkFPs(), numOfGenStates, fpBits);
         }
     }
 
@@ -1007,9 +1233,22 @@ public class ModelChecker extends AbstractChecker
 		return Boolean.getBoolean(ModelChecker.class.getName() + ".BAQueue");
 	}
 
+	/**
+	 * @see WorkStealingStateQueue
+	 */
+	private static boolean useWorkStealingQueue() {
+		return Boolean.getBoolean(ModelChecker.class.getName() + ".WSQueue");
+	}
+
 	public static String getStateQueueName() {
 		// Ideally, this wouldn't hard-code the simple name of the classes but we don't
 		// have access to the class file yet.
+		if (DDDFPSet.class.getName().equals(System.getProperty(FPSetFactory.IMPL_PROPERTY))) {
+			return "DDDStateQueue";
+		}
+		if (useWorkStealingQueue()) {
+			return "WorkStealingStateQueue";
+		}
 		return useByteArrayQueue() ? "DiskByteArrayQueue" : "DiskStateQueue";
 	}
 
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+
+import tla2sany.semantic.SemanticNode;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.impl.Footprint;
+import tlc2.tool.impl.Tool.Mode;
+
+/**
+ * {@link PartialOrderReduction} implements (static) stubborn set partial order
+ * reduction for the breadth-first search of {@link ModelChecker}: Instead of
+ * all enabled actions of a state, {@link Worker} only explores the ones in an
+ * ample set, which is computed from the {@link Footprint}s of the actions:
+ * <ul>
+ * <li>Two actions are dependent iff their footprints conflict. An action that
+ * writes a variable read by a state constraint is dependent on all actions.</li>
+ * <li>Starting from an enabled action, the stubborn set is closed under the
+ * actions that are dependent on its enabled actions and the actions that might
+ * enable (write a variable read by) its disabled actions. Thus, no action
+ * outside of the set can interfere with its enabled actions (C0, C1).</li>
+ * <li>An ample set must not contain a visible action, i.e. one that writes a
+ * variable read by an invariant (C2).</li>
+ * <li>A state is fully expanded if a successor of its ample set has been seen
+ * before, which makes sure that every cycle of the reduced state graph has a
+ * fully expanded state (C3, the BFS cycle proviso).</li>
+ * </ul>
+ * The reduced state graph preserves deadlocks and invariant violations but not
+ * the number of distinct states or the diameter. Partial order reduction is
+ * therefore off by default, enabled with
+ * -Dtlc2.tool.PartialOrderReduction.enabled=true, and falls back to the full
+ * state graph if liveness, action properties, action constraints, symmetry, or
+ * a view are part of the model.
+ */
+public final class PartialOrderReduction {
+
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(PartialOrderReduction.class.getName() + ".enabled");
+	}
+
+	/**
+	 * @return A {@link PartialOrderReduction} for the actions of the given tool or
+	 *         null if partial order reduction is disabled or not applicable.
+	 */
+	public static PartialOrderReduction create(final ITool tool, final boolean checkLiveness) {
+		if (!isEnabled()) {
+			return null;
+		}
+		final String reason = getInapplicableReason(tool, checkLiveness);
+		if (reason != null) {
+			MP.printWarning(EC.GENERAL, "Partial order reduction is disabled because " + reason + ".");
+			return null;
+		}
+		final PartialOrderReduction por = new PartialOrderReduction(tool);
+		MP.printMessage(EC.GENERAL, String.format(
+				"Partial order reduction: %s of %s actions are invisible, %s of %s pairs of actions are independent.",
+				por.getInvisibleCount(), por.actions.length, por.getIndependentPairCount(),
+				por.actions.length * (por.actions.length - 1L) / 2L));
+		return por;
+	}
+
+	private static String getInapplicableReason(final ITool tool, final boolean checkLiveness) {
+		if (checkLiveness) {
+			return "liveness is checked";
+		}
+		if (tool.getImpliedActions().length > 0) {
+			return "action properties are checked";
+		}
+		if (tool.getActionConstraints().length > 0) {
+			return "the model has action constraints";
+		}
+		if (tool.hasSymmetry()) {
+			return "the model defines symmetry";
+		}
+		if (tool.getViewSpec() != null) {
+			return "the model defines a view";
+		}
+		if (tool.getMode() == Mode.MC_DEBUG) {
+			return "the debugger is enabled";
+		}
+		return null;
+	}
+
+	private final Action[] actions;
+	/**
+	 * dependents[i] are the actions dependent on action i (including i).
+	 */
+	private final BitSet[] dependents;
+	/**
+	 * enablers[i] are the actions that might enable action i.
+	 */
+	private final BitSet[] enablers;
+	private final boolean[] visible;
+
+	private final LongAdder reduced = new LongAdder();
+	private final LongAdder expanded = new LongAdder();
+
+	PartialOrderReduction(final ITool tool) {
+		this.actions = tool.getActions();
+		final int n = actions.length;
+
+		final Footprint[] footprints = new Footprint[n];
+		for (int i = 0; i < n; i++) {
+			footprints[i] = Footprint.of(tool, actions[i]);
+		}
+
+		final BitSet visibleVars = new BitSet();
+		for (Action inv : tool.getInvariants()) {
+			visibleVars.or(Footprint.of(tool, inv).getReads());
+		}
+		final BitSet constraintVars = new BitSet();
+		for (SemanticNode constraint : tool.getModelConstraints()) {
+			constraintVars.or(Footprint.of(tool, constraint).getReads());
+		}
+
+		this.dependents = new BitSet[n];
+		this.enablers = new BitSet[n];
+		this.visible = new boolean[n];
+		for (int i = 0; i < n; i++) {
+			dependents[i] = new BitSet(n);
+			enablers[i] = new BitSet(n);
+		}
+		for (int i = 0; i < n; i++) {
+			visible[i] = footprints[i].writesAny(visibleVars);
+			final boolean constrained = footprints[i].writesAny(constraintVars);
+			for (int j = 0; j < n; j++) {
+				if (i == j || constrained || footprints[i].conflicts(footprints[j])) {
+					dependents[i].set(j);
+					dependents[j].set(i);
+				}
+				if (footprints[j].writesAny(footprints[i].getReads())) {
+					enablers[i].set(j);
+				}
+			}
+		}
+	}
+
+	public Action[] getActions() {
+		return actions;
+	}
+
+	int getInvisibleCount() {
+		int cnt = 0;
+		for (boolean v : visible) {
+			cnt += v ? 0 : 1;
+		}
+		return cnt;
+	}
+
+	long getIndependentPairCount() {
+		long cnt = 0L;
+		for (int i = 0; i < actions.length; i++) {
+			cnt += actions.length - dependents[i].cardinality();
+		}
+		return cnt / 2L;
+	}
+
+	/**
+	 * @param enabled
+	 *            Whether the i-th action is enabled in the current state.
+	 *            Evaluated lazily and at most for the actions of candidate ample
+	 *            sets.
+	 * @param proviso
+	 *            Whether none of the successors of the i-th (enabled) action has
+	 *            been seen before (C3).
+	 * @return The actions to explore in the current state, i.e. an ample set, or
+	 *         null if all actions have to be explored.
+	 */
+	public BitSet getAmpleSet(final IntPredicate enabled, final IntPredicate proviso) {
+		final int n = actions.length;
+		for (int seed = 0; seed < n; seed++) {
+			if (visible[seed] || !enabled.test(seed)) {
+				continue;
+			}
+			final BitSet stubborn = getStubbornSet(seed, enabled);
+			if (stubborn == null) {
+				continue;
+			}
+			// The ample set are the enabled actions of the stubborn set.
+			final BitSet ample = new BitSet(n);
+			for (int i = stubborn.nextSetBit(0); i >= 0; i = stubborn.nextSetBit(i + 1)) {
+				if (enabled.test(i)) {
+					if (!proviso.test(i)) {
+						expanded.increment();
+						return null;
+					}
+					ample.set(i);
+				}
+			}
+			reduced.increment();
+			return ample;
+		}
+		expanded.increment();
+		return null;
+	}
+
+	/**
+	 * @return The stubborn set of seed, or null if it contains all actions or a
+	 *         visible enabled action.
+	 */
+	private BitSet getStubbornSet(final int seed, final IntPredicate enabled) {
+		final int n = actions.length;
+		final BitSet stubborn = new BitSet(n);
+		final int[] work = new int[n];
+		int top = 0;
+		stubborn.set(seed);
+		work[top++] = seed;
+		while (top > 0) {
+			final int t = work[--top];
+			final BitSet closure;
+			if (enabled.test(t)) {
+				if (visible[t]) {
+					return null;
+				}
+				closure = dependents[t];
+			} else {
+				closure = enablers[t];
+			}
+			for (int i = closure.nextSetBit(0); i >= 0; i = closure.nextSetBit(i + 1)) {
+				if (!stubborn.get(i)) {
+					stubborn.set(i);
+					work[top++] = i;
+				}
+			}
+		}
+		return stubborn.cardinality() == n ? null : stubborn;
+	}
+
+	/**
+	 * @return The number of states whose successors have been reduced to an ample
+	 *         set.
+	 */
+	public long getReducedStates() {
+		return reduced.sum();
+	}
+
+	public void printStatistics() {
+		final long r = reduced.sum();
+		final long total = r + expanded.sum();
+		MP.printMessage(EC.GENERAL, String.format(
+				"Partial order reduction explored an ample set of actions in %s of %s states (%.1f%%).", r, total,
+				total == 0 ? 0d : r * 100d / total));
+	}
+}
@@ -23,11 +23,12 @@ import tla2sany.semantic.SymbolNode;
 import tlc2.TLCGlobals;
 import tlc2.util.Context;
 import tlc2.util.FP64;
-import tlc2.value.IMVPerm;
 import tlc2.value.IValue;
 import tlc2.value.IValueInputStream;
 import tlc2.value.IValueOutputStream;
 import tlc2.value.Values;
+import tlc2.value.impl.MVPerms;
+import tlc2.value.impl.SymmetryCanonicalizer;
 import tlc2.value.impl.Value;
 import util.UniqueString;
 import util.WrongInvocationException;
@@ -47,10 +48,16 @@ public final class TLCStateMutExt extends TLCState implements Serializable {
   private static SemanticNode viewMap = null;
 
   /**
-   * If non-null, perms denotes the set of permutations under the
+   * If non-null, perms denotes the group of permutations under the
    * symmetry assumption.
    */
-  private static IMVPerm[] perms = null;
+  private static MVPerms perms = null;
+
+  /**
+   * If non-null, canonicalizer computes the representative of a state
+   * under the symmetry assumption instead of applying all perms.
+   */
+  private static SymmetryCanonicalizer canonicalizer = null;
 
   private TLCStateMutExt(IValue[] vals) { this.values = vals; }
   
@@ -75,6 +82,7 @@ public final class TLCStateMutExt extends TLCState implements Serializable {
     mytool = tool;
     viewMap = tool.getViewSpec();
     perms = tool.getSymmetryPerms();
+    canonicalizer = SymmetryCanonicalizer.create(perms);
   }
 
   public final TLCState createEmpty() {
@@ -201,50 +209,21 @@ public final class TLCStateMutExt extends TLCState implements Serializable {
 		// If this state is not the lexicographically smallest state ss, its current
 		// minVals will be replaced temporarily with the values of ss for the
 		// calculation of the fingerprint.
+		//
+		// If the symmetry sets are defined with Permutations (the symmetry group is
+		// the product of full symmetric groups), SymmetryCanonicalizer finds a
+		// representative by partition refinement instead and falls back to
+		// enumerating permutations only for model values it cannot tell apart.
 		IValue[] minVals = this.values;
-		if (perms != null) {
-			IValue[] vals = new IValue[sz];
-			// The following for loop converges to the smallest state ss under symmetry by
-			// looping over all permutations applying each. If the outcome turns out to be
-			// lexicographically smaller than the currently smallest, it replaces the
-			// current smallest. Once all permutations (perms) have been processed, we know
-			// we have found the smallest state.
-			NEXT_PERM: for (int i = 0; i < perms.length; i++) {
-				int cmp = 0;
-				// For each value in values succinctly permute the current value
-				// and compare it to its corresponding minValue in minVals.
-				for (int j = 0; j < sz; j++) {
-					vals[j] = this.values[j].permute(perms[i]);
-					if (cmp == 0) {
-						// Only compare unless an earlier compare has found a
-						// difference already (if a difference has been found
-						// earlier, still permute the remaining values of the
-						// state to fully permute all state values).
-						cmp = vals[j].compareTo(minVals[j]);
-						if (cmp > 0) {
-							// When cmp evaluates to >0, all subsequent
-							// applications of perms[i] for the remaining values
-							// won't make the resulting vals[] smaller than
-							// minVals. Thus, exit preemptively from the loop
-							// over vals. This works because perms is the cross
-							// product of all symmetry sets.
-							continue NEXT_PERM;
-						}
-					}
-				}
-				// cmp < 0 means the current state is part of a symmetry
-				// permutation set/group and not the "smallest" one.
-				if (cmp < 0) {
-					if (minVals == this.values) {
-						minVals = vals;
-						vals = new IValue[sz];
-					} else {
-						IValue[] temp = minVals;
-						minVals = vals;
-						vals = temp;
-					}
-				}
-			}
+		if (canonicalizer != null) {
+			minVals = canonicalizer.canonicalize(this.values);
+		} else if (perms != null) {
+			// Converges to the smallest state ss under symmetry by applying the
+			// permutations of the group. Permutations are skipped in bulk if they agree
+			// on the leading values of the state and these already turn out to be
+			// lexicographically larger than the currently smallest (see
+			// MVPerms#smallest).
+			minVals = perms.smallest(this.values);
 		}
 		// Fingerprint the state:
 		long fp = FP64.New();
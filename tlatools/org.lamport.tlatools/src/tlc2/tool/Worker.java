@@ -10,19 +10,26 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.LinkedList;
+import java.util.function.IntPredicate;
 
 import tlc2.TLCGlobals;
 import tlc2.output.EC;
 import tlc2.output.MP;
+import tlc2.tool.coverage.SamplingProfiler;
+import tlc2.tool.fp.DDDFPSet;
 import tlc2.tool.fp.FPSet;
 import tlc2.tool.impl.CallStackTool;
 import tlc2.tool.impl.Tool;
 import tlc2.tool.impl.Tool.Mode;
 import tlc2.tool.queue.IStateQueue;
 import tlc2.util.BufferedRandomAccessFile;
+import tlc2.util.BitVector;
 import tlc2.util.IStateWriter;
 import tlc2.util.IdThread;
+import tlc2.util.LongVec;
+import tlc2.util.SetAssociativeCache;
 import tlc2.util.SetOfStates;
 import tlc2.util.statistics.FixedSizedBucketStatistics;
 import tlc2.util.statistics.IBucketStatistics;
@@ -37,6 +44,25 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 	protected static final boolean coverage = TLCGlobals.isCoverageEnabled();
 	private static final int INITIAL_CAPACITY = 16;
 	
+	/**
+	 * If true, the successors of a state are collected into a worker-local buffer
+	 * and handed off to the {@link FPSet} ({@link FPSet#putBlock(LongVec)}) and the
+	 * {@link IStateQueue} ({@link IStateQueue#sEnqueue(StateVec)}) in bulk once
+	 * the next-state relation has been fully evaluated for the state. This trades
+	 * one lock acquisition (memory barrier) per successor for one per state.
+	 */
+	static final boolean BATCH = Boolean.getBoolean(Worker.class.getName() + ".batch");
+	
+	/**
+	 * If n > 0, each worker keeps the fingerprints of the successors it has
+	 * recently put into the {@link FPSet} in a worker-local
+	 * {@link SetAssociativeCache} with room for 2^n * 4 fingerprints (see
+	 * {@link #isSeenState(TLCState, TLCState, Action)}). A hit in the cache saves
+	 * the (synchronized) {@link FPSet#put(long)} of duplicate successors that are
+	 * generated over and over again, e.g. by sibling states.
+	 */
+	static final int CACHE = Integer.getInteger(Worker.class.getName() + ".cache", 0);
+	
 	/**
 	 * Multi-threading helps only when running on multiprocessors. TLC can
 	 * pretty much eat up all the cycles of a processor running single threaded.
@@ -52,6 +78,27 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 	private final String filename;
 	private final BufferedRandomAccessFile raf;
 	private final boolean checkDeadlock;
+	/**
+	 * With delayed duplicate detection, a successor state might have been visited
+	 * in an earlier level even though it is unseen (see {@link DDDFPSet#put(long)}).
+	 * Thus, the diameter is derived from the states dequeued instead.
+	 */
+	private final boolean delayedDuplicateDetection;
+	/**
+	 * Null unless partial order reduction is enabled (see
+	 * {@link PartialOrderReduction}).
+	 */
+	private final PartialOrderReduction por;
+	private final StateVec[] porSuccessors;
+	/**
+	 * Null unless incremental invariant checking is enabled (see
+	 * {@link IncrementalInvariants}).
+	 */
+	private final IncrementalInvariants incInv;
+	/**
+	 * Null unless {@link #CACHE} > 0.
+	 */
+	private final SetAssociativeCache cache;
 
 	private long lastPtr;
 	private long statesGenerated;
@@ -70,12 +117,29 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		this.mode = this.tool.getMode();
 		this.squeue = this.tlc.theStateQueue;
 		this.theFPSet = this.tlc.theFPSet;
+		this.delayedDuplicateDetection = this.theFPSet instanceof DDDFPSet;
+		this.por = this.tlc.por;
+		this.porSuccessors = this.por != null ? new StateVec[this.por.getActions().length] : null;
+		this.incInv = this.tlc.incInv;
+		this.cache = CACHE > 0 ? new SetAssociativeCache(CACHE) : null;
 		this.allStateWriter = this.tlc.allStateWriter;
 		this.outDegree = new FixedSizedBucketStatistics(this.getName(), 32); // maximum outdegree of 32 appears sufficient for now.
 		this.setName("TLCWorkerThread-" + String.format("%03d", id));
 
 		this.filename = metadir + FileUtil.separator + specFile + "-" + myGetId();
 		this.raf = new BufferedRandomAccessFile(filename + TLCTrace.EXT, "rw");
+		
+		if (BATCH) {
+			this.batchStates = new StateVec(INITIAL_CAPACITY);
+			this.batchActions = new Action[INITIAL_CAPACITY];
+			this.batchFPs = new LongVec(INITIAL_CAPACITY);
+			this.batchUnseen = new StateVec(INITIAL_CAPACITY);
+		} else {
+			this.batchStates = null;
+			this.batchActions = null;
+			this.batchFPs = null;
+			this.batchUnseen = null;
+		}
 	}
 
 	/**
@@ -104,6 +168,12 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 					return;
 				}
 				setCurrentState(curState);
+				if (curState.getLevel() > this.tlc.dequeuedLevel) {
+					this.tlc.levelReached(curState.getLevel());
+				}
+				if (delayedDuplicateDetection) {
+					maxLevel = Math.max(curState.getLevel(), maxLevel);
+				}
 				
 				if (this.checkLiveness || mode == Mode.MC_DEBUG) {
 					// Allocate iff liveness is checked.
@@ -112,13 +182,26 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 				
 				final long preNext = this.statesGenerated;
 				try {
-					this.tool.getNextStates(this, curState);
+					if (this.por != null) {
+						getNextStatesReduced(curState);
+					} else {
+						this.tool.getNextStates(this, curState);
+					}
+					if (BATCH) {
+						flushBatch(curState);
+					}
 				} catch (final WrappingRuntimeException e) {
 					// The next-state relation couldn't be evaluated. If doNextFailed itself throws
 					// a Throwable, the catch block below will handle it.
 					this.tlc.doNextFailed(curState, e.unwrapState(), e.unwrapExp());
 				} catch (final Throwable notExpectedToHappen) {
 					this.tlc.doNextFailed(curState, null, notExpectedToHappen);
+				} finally {
+					if (BATCH) {
+						// getNextStates might have thrown before flushBatch,
+						// which must not see curState's successors.
+						clearBatch();
+					}
 				}
 				
 				if (this.checkDeadlock && preNext == this.statesGenerated) {
@@ -259,6 +342,13 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 	public final IBucketStatistics getOutDegree() {
 		return this.outDegree;
 	}
+
+	/**
+	 * @return Null unless {@link #CACHE} > 0.
+	 */
+	public final SetAssociativeCache getCache() {
+		return this.cache;
+	}
 	
 	public final int getMaxLevel() {
 		return maxLevel;
@@ -298,7 +388,9 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 
 	public final synchronized void writeState(final TLCState curState, final long sucStateFp, final TLCState sucState) throws IOException {
 		// Keep track of maximum diameter.
-		maxLevel = Math.max(curState.getLevel() + 1, maxLevel);
+		if (!delayedDuplicateDetection) {
+			maxLevel = Math.max(curState.getLevel() + 1, maxLevel);
+		}
 		
 		// Write to trace file.
 		this.lastPtr = this.raf.getFilePointer();
@@ -432,6 +524,13 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 			final boolean inModel = (this.tool.isInModel(succState.setPredecessor(curState).setAction(action))
 					&& this.tool.isInActions(curState, succState));
 			
+			if (BATCH && inModel) {
+				// Defer fingerprint set lookup, invariant and implied-action checks,
+				// and enqueueing to flushBatch.
+				addToBatch(action, succState);
+				return this;
+			}
+			
 			// Check if state is new or has been seen earlier.
 			boolean unseen = true;
 			if (inModel) {
@@ -442,7 +541,7 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 			
 			// Check if succState violates any invariant:
 			if (unseen) {
-				if (this.doNextCheckInvariants(curState, succState)) {
+				if (this.doNextCheckInvariants(curState, action, succState)) {
 					throw new InvariantViolatedException();
 				}
 			}
@@ -470,6 +569,130 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		}
 	}
 	
+	/* Partial order reduction (see PartialOrderReduction) */
+
+	/**
+	 * Like {@link Tool#getNextStates(INextStateFunctor, TLCState)} but only adds
+	 * the successor states of the ample set of curState.
+	 */
+	private final void getNextStatesReduced(final TLCState curState) {
+		final Action[] actions = this.por.getActions();
+		final StateVec[] successors = this.porSuccessors;
+		// Evaluate each action at most once and only if needed.
+		final IntPredicate enabled = i -> {
+			if (successors[i] == null) {
+				successors[i] = new StateVec(0);
+				this.tool.getNextStates(successors[i], curState, actions[i]);
+			}
+			return !successors[i].empty();
+		};
+		try {
+			final BitSet ample = this.por.getAmpleSet(enabled, i -> noneSeen(successors[i]));
+			for (int i = 0; i < actions.length; i++) {
+				if (ample == null || ample.get(i)) {
+					enabled.test(i);
+					final StateVec succStates = successors[i];
+					for (int j = 0; j < succStates.size(); j++) {
+						this.addElement(curState, actions[i], succStates.elementAt(j));
+					}
+				}
+			}
+		} finally {
+			Arrays.fill(successors, null);
+		}
+	}
+
+	private final boolean noneSeen(final StateVec succStates) {
+		for (int j = 0; j < succStates.size(); j++) {
+			final TLCState succState = succStates.elementAt(j);
+			try {
+				if (this.theFPSet.contains(succState.fingerPrint())) {
+					return false;
+				}
+			} catch (IOException e) {
+				throw new WrappingRuntimeException(e, succState);
+			}
+		}
+		return true;
+	}
+
+	/* Batching (see BATCH) */
+	
+	private final StateVec batchStates;
+	private Action[] batchActions;
+	private final LongVec batchFPs;
+	private final StateVec batchUnseen;
+	
+	private final void addToBatch(final Action action, final TLCState succState) {
+		final int idx = this.batchStates.size();
+		if (idx == this.batchActions.length) {
+			this.batchActions = Arrays.copyOf(this.batchActions, idx * 2);
+		}
+		this.batchActions[idx] = action;
+		this.batchStates.addElement(succState);
+		this.batchFPs.addElement(succState.fingerPrint());
+	}
+
+	/**
+	 * Performs the checks of addElement(TLCState, Action, TLCState), which have
+	 * been deferred for the in-model successors of curState, with a single
+	 * {@link FPSet#putBlock(LongVec)} and a single
+	 * {@link IStateQueue#sEnqueue(StateVec)}. The buffer is empty afterwards
+	 * even if a check fails (see clearBatch()).
+	 */
+	private final void flushBatch(final TLCState curState) {
+		final int size = this.batchStates.size();
+		if (size == 0) {
+			return;
+		}
+		TLCState succState = null;
+		try {
+			// A set bit in the BitVector means that the fingerprint has *not* been
+			// seen before (see FPSet#putBlock).
+			final BitVector unseen = this.theFPSet.putBlock(this.batchFPs);
+			for (int i = 0; i < size; i++) {
+				succState = this.batchStates.elementAt(i);
+				final Action action = this.batchActions[i];
+				final long fp = this.batchFPs.elementAt(i);
+				final boolean isUnseen = unseen.get(i);
+
+				// see isSeenState
+				this.allStateWriter.writeState(curState, succState, isUnseen ? IStateWriter.IsUnseen : IStateWriter.IsSeen, action);
+				if (isUnseen) {
+					this.writeState(curState, fp, succState);
+					if (coverage) {	action.cm.incSecondary(); }
+				}
+				if (this.checkLiveness || mode == Mode.MC_DEBUG) {
+					this.setOfStates.put(fp, succState);
+				}
+				
+				if (isUnseen && this.doNextCheckInvariants(curState, action, succState)) {
+					throw new InvariantViolatedException();
+				}
+				if (this.doNextCheckImplied(curState, succState)) {
+					throw new InvariantViolatedException();
+				}
+				if (isUnseen) {
+					this.batchUnseen.addElement(succState);
+				}
+			}
+			if (!this.batchUnseen.empty()) {
+				this.squeue.sEnqueue(this.batchUnseen);
+			}
+		} catch (Exception e) {
+			throw new WrappingRuntimeException(e, succState);
+		} finally {
+			clearBatch();
+		}
+	}
+
+	private final void clearBatch() {
+		Arrays.fill(this.batchActions, 0, this.batchStates.size(), null);
+		this.batchStates.clear();
+		this.batchFPs.reset();
+		this.batchUnseen.clear();
+	}
+	
 	@SuppressWarnings("serial")
 	private static class WrappingRuntimeException extends RuntimeException {
 
@@ -493,7 +716,9 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 	private final boolean isSeenState(final TLCState curState, final TLCState succState, final Action action)
 			throws IOException {
 		final long fp = succState.fingerPrint();
-		final boolean seen = this.theFPSet.put(fp);
+		// A fingerprint in the cache has been put into theFPSet by this worker
+		// earlier, thus the state has been seen.
+		final boolean seen = (this.cache != null && this.cache.hit(fp)) || this.theFPSet.put(fp);
 		// Write out succState when needed:
 		this.allStateWriter.writeState(curState, succState, seen ? IStateWriter.IsSeen : IStateWriter.IsUnseen, action);
 		if (!seen) {
@@ -516,13 +741,18 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		return seen;
 	}
 
-	private final boolean doNextCheckInvariants(final TLCState curState, final TLCState succState) throws IOException, WorkerException, Exception {
+	private final boolean doNextCheckInvariants(final TLCState curState, final Action action, final TLCState succState) throws IOException, WorkerException, Exception {
+		// The invariants not affected by action are inherited from curState.
+		final boolean[] affected = this.incInv != null ? this.incInv.getAffected(action) : null;
         int k = 0;
 		try
         {
 			for (k = 0; k < this.tool.getInvariants().length; k++)
             {
-                if (!tool.isValid(this.tool.getInvariants()[k], succState))
+				if (affected != null && !affected[k]) {
+					continue;
+				}
+                if (!isValidInvariant(k, succState))
                 {
                     // We get here because of invariant violation:
                 	if (TLCGlobals.continuation) {
@@ -547,6 +777,22 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 		return false;
 	}
 
+	private final boolean isValidInvariant(final int k, final TLCState succState) {
+		if (SamplingProfiler.ENABLED) {
+			// Attribute the invariant to the sampled action that generated succState.
+			final SamplingProfiler.Profile profile = SamplingProfiler.current();
+			if (profile != null) {
+				profile.enter(this.tool.getInvNames()[k]);
+				try {
+					return tool.isValid(this.tool.getInvariants()[k], succState);
+				} finally {
+					profile.exit();
+				}
+			}
+		}
+		return tool.isValid(this.tool.getInvariants()[k], succState);
+	}
+
 	private final boolean doNextCheckImplied(final TLCState curState, final TLCState succState) throws IOException, WorkerException, Exception {
 		int k = 0;
         try
@@ -580,8 +826,20 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
         return false;
 	}
 	
+	/**
+	 * With delayed duplicate detection, the first state that violates a property
+	 * is not a duplicate (the violation would have been found earlier otherwise).
+	 * Thus, its level counts towards the diameter even though it is never dequeued.
+	 */
+	private void updateErrorLevel(final TLCState succState) {
+		if (delayedDuplicateDetection && succState != null) {
+			maxLevel = Math.max(succState.getLevel(), maxLevel);
+		}
+	}
+
 	private boolean doNextSetErr(TLCState curState, TLCState succState, boolean keep, int ec, String param) throws IOException, WorkerException {
 		synchronized (this.tlc) {
+			updateErrorLevel(succState);
 			final boolean doNextSetErr = this.tlc.doNextSetErr(curState, succState, keep, ec, param);
 
 			// Invoke PostCondition
@@ -593,6 +851,7 @@ public final class Worker extends IdThread implements IWorker, INextStateFunctor
 	
 	private boolean doNextSetErr(TLCState curState, TLCState succState, Action action) throws IOException, WorkerException {
 		synchronized (this.tlc) {
+			updateErrorLevel(succState);
 			final boolean doNextSetErr = this.tlc.doNextSetErr(curState, succState, action);
 
 			// Invoke PostCondition
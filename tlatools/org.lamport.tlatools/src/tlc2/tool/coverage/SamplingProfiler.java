@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.coverage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.ITool;
+
+/**
+ * {@link SamplingProfiler} is a low-overhead alternative to -coverage: It
+ * evaluates one in {@link #RATE} next-state relations of an action with
+ * profiling and attributes the wall time, CPU time, and allocated bytes of the
+ * evaluation to the action, the user-defined operators it applies, and the
+ * invariants checked on its successor states. The other evaluations merely
+ * increment a counter.
+ * <p>
+ * The profile is written as collapsed stacks (one line per stack of frames
+ * separated by ';' followed by the exclusive value of the top-most frame), which
+ * is understood by flame graph tools such as flamegraph.pl or speedscope. The
+ * values are scaled by {@link #RATE} to estimate the totals of the run. Note
+ * that TLC evaluates the conjuncts following an operator application in an
+ * action in the scope of the application, thus they show up as its children.
+ * The wall time includes the time a worker is blocked or descheduled. The
+ * (calibrated) cost of the measurements is subtracted, but reading the CPU time
+ * of a thread is a system call that still slows down a sampled evaluation. Thus,
+ * the relative values of the frames are more meaningful than the absolute ones.
+ * <p>
+ * The profiler is enabled with -Dtlc2.tool.coverage.SamplingProfiler.rate=N and
+ * writes [spec].wall.collapsed, [spec].cpu.collapsed, and [spec].alloc.collapsed
+ * next to the spec or to the prefix given by
+ * -Dtlc2.tool.coverage.SamplingProfiler.out=prefix.
+ */
+public final class SamplingProfiler {
+
+	public static final int RATE = Integer.getInteger(SamplingProfiler.class.getName() + ".rate", 0);
+
+	public static final boolean ENABLED = RATE > 0;
+
+	private static final ThreadMXBean MX = ManagementFactory.getThreadMXBean();
+	private static final boolean CPU = MX.isCurrentThreadCpuTimeSupported() && MX.isThreadCpuTimeEnabled();
+	private static final boolean ALLOC = MX instanceof com.sun.management.ThreadMXBean
+			&& ((com.sun.management.ThreadMXBean) MX).isThreadAllocatedMemorySupported()
+			&& ((com.sun.management.ThreadMXBean) MX).isThreadAllocatedMemoryEnabled();
+
+	private static final int WALL_IDX = 0, CPU_IDX = 1, ALLOC_IDX = 2;
+	private static final String[] METRICS = { "wall", "cpu", "alloc" };
+
+	/**
+	 * The cost of a single {@link Profile#measure(long[], int)} in each metric,
+	 * which is subtracted from the exclusive values of a frame for each of the
+	 * two measurements of its children.
+	 */
+	private static final long[] OVERHEAD = calibrate();
+
+	private static final List<Profile> PROFILES = new ArrayList<>();
+	private static final ThreadLocal<Profile> PROFILE = ThreadLocal.withInitial(() -> {
+		final Profile profile = new Profile();
+		synchronized (PROFILES) {
+			PROFILES.add(profile);
+		}
+		return profile;
+	});
+
+	private SamplingProfiler() {
+		// no instantiation.
+	}
+
+	private static long[] calibrate() {
+		final int n = 10_000;
+		final long[] before = new long[METRICS.length];
+		final long[] after = new long[METRICS.length];
+		// Warm up first.
+		for (int i = 0; i < n; i++) {
+			Profile.measure(after, 0);
+		}
+		Profile.measure(before, 0);
+		for (int i = 0; i < n; i++) {
+			Profile.measure(after, 0);
+		}
+		final long[] overhead = new long[METRICS.length];
+		for (int m = 0; m < METRICS.length; m++) {
+			overhead[m] = Math.max(0L, (after[m] - before[m]) / (n + 1));
+		}
+		return overhead;
+	}
+
+	/**
+	 * @return The profile of the calling thread iff this evaluation of the
+	 *         next-state relation of the given action is sampled. The caller has
+	 *         to {@link Profile#exit()} the profile afterwards.
+	 */
+	public static Profile begin(final String action) {
+		final Profile profile = PROFILE.get();
+		if (profile.active || ++profile.calls % RATE != 0) {
+			return null;
+		}
+		profile.active = true;
+		profile.samples++;
+		profile.enter(action);
+		return profile;
+	}
+
+	/**
+	 * @return The profile of the calling thread iff it is currently sampling.
+	 */
+	public static Profile current() {
+		final Profile profile = PROFILE.get();
+		return profile.active ? profile : null;
+	}
+
+	/**
+	 * Writes the collapsed stacks of all threads.
+	 */
+	public static void write(final ITool tool) throws IOException {
+		final String prefix = System.getProperty(SamplingProfiler.class.getName() + ".out",
+				tool.getSpecDir().isEmpty() ? tool.getRootName()
+						: tool.getSpecDir() + File.separator + tool.getRootName());
+
+		long calls = 0L, samples = 0L;
+		final Map<String, long[]> stacks = new TreeMap<>();
+		synchronized (PROFILES) {
+			for (Profile profile : PROFILES) {
+				synchronized (profile) {
+					calls += profile.calls;
+					samples += profile.samples;
+					profile.collapse(stacks);
+				}
+			}
+		}
+
+		final List<String> files = new ArrayList<>();
+		for (int m = 0; m < METRICS.length; m++) {
+			if ((m == CPU_IDX && !CPU) || (m == ALLOC_IDX && !ALLOC)) {
+				continue;
+			}
+			final String file = prefix + "." + METRICS[m] + ".collapsed";
+			try (PrintWriter pw = new PrintWriter(file)) {
+				for (Map.Entry<String, long[]> e : stacks.entrySet()) {
+					final long value = e.getValue()[m] * RATE;
+					if (value > 0L) {
+						pw.println(e.getKey() + " " + value);
+					}
+				}
+			}
+			files.add(file);
+		}
+		MP.printMessage(EC.GENERAL,
+				String.format("Sampling profiler: %s of %s next-state evaluations sampled, collapsed stacks written to %s.",
+						samples, calls, String.join(", ", files)));
+	}
+
+	private static final class Node {
+		private final String name;
+		private final Map<String, Node> children = new HashMap<>();
+		/**
+		 * The exclusive wall time, CPU time, and allocated bytes of this frame.
+		 */
+		private final long[] self = new long[METRICS.length];
+
+		Node(final String name) {
+			this.name = name;
+		}
+
+		Node getChild(final String name) {
+			return children.computeIfAbsent(name, Node::new);
+		}
+
+		void collapse(final String parent, final Map<String, long[]> stacks) {
+			final String stack = parent.isEmpty() ? name : parent + ";" + name;
+			final long[] values = stacks.computeIfAbsent(stack, s -> new long[METRICS.length]);
+			for (int m = 0; m < values.length; m++) {
+				values[m] += self[m];
+			}
+			for (Node child : children.values()) {
+				child.collapse(stack, stacks);
+			}
+		}
+	}
+
+	/**
+	 * The (thread-confined) profile of a worker thread. It is only locked to
+	 * safely write it while workers are still running, e.g. after a violation.
+	 */
+	public static final class Profile {
+		private final Node root = new Node("");
+		private long calls;
+		private long samples;
+		private boolean active;
+
+		private int depth;
+		private Node[] frames = new Node[16];
+		/**
+		 * start[d * 3 + m] is the value of metric m when frame d has been entered,
+		 * children[d * 3 + m] the inclusive value of its children.
+		 */
+		private long[] start = new long[16 * METRICS.length];
+		private long[] children = new long[16 * METRICS.length];
+		/**
+		 * entered[d] is the number of children frame d has entered.
+		 */
+		private int[] entered = new int[16];
+		private final long[] now = new long[METRICS.length];
+
+		public synchronized void enter(final String name) {
+			if (depth == frames.length) {
+				frames = Arrays.copyOf(frames, depth * 2);
+				start = Arrays.copyOf(start, start.length * 2);
+				children = Arrays.copyOf(children, children.length * 2);
+				entered = Arrays.copyOf(entered, depth * 2);
+			}
+			if (depth > 0) {
+				entered[depth - 1]++;
+			}
+			frames[depth] = (depth == 0 ? root : frames[depth - 1]).getChild(name);
+			final int idx = depth * METRICS.length;
+			Arrays.fill(children, idx, idx + METRICS.length, 0L);
+			entered[depth] = 0;
+			depth++;
+			measure(start, idx);
+		}
+
+		public synchronized void exit() {
+			final int idx = (depth - 1) * METRICS.length;
+			measure(now, 0);
+			depth--;
+			for (int m = 0; m < METRICS.length; m++) {
+				final long total = now[m] - start[idx + m];
+				final long self = total - children[idx + m] - 2L * OVERHEAD[m] * entered[depth];
+				frames[depth].self[m] += Math.max(0L, self);
+				if (depth > 0) {
+					children[idx - METRICS.length + m] += total;
+				}
+			}
+			frames[depth] = null;
+			if (depth == 0) {
+				active = false;
+			}
+		}
+
+		/**
+		 * Adds the exclusive values of the stacks of this profile to the given ones.
+		 */
+		synchronized void collapse(final Map<String, long[]> stacks) {
+			for (Node child : root.children.values()) {
+				child.collapse("", stacks);
+			}
+		}
+
+		private static void measure(final long[] values, final int idx) {
+			values[idx + WALL_IDX] = System.nanoTime();
+			values[idx + CPU_IDX] = CPU ? MX.getCurrentThreadCpuTime() : 0L;
+			values[idx + ALLOC_IDX] = ALLOC
+					? ((com.sun.management.ThreadMXBean) MX).getThreadAllocatedBytes(Thread.currentThread().getId())
+					: 0L;
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.concurrent.atomic.LongAdder;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.TLCTrace;
+import tlc2.tool.TLCTrace.Enumerator;
+
+/**
+ * A {@link BitstateFPSet} implements Holzmann's bitstate hashing (supertrace):
+ * A fingerprint is represented by k bits in a large off-heap bit array, i.e.
+ * the set uses (a few) bits per state instead of the 64 bits of a
+ * fingerprint. It never goes to disk.
+ * <p>
+ * The price is completeness: A new fingerprint whose k bits happen to be set by
+ * other fingerprints is wrongly reported as seen and its successors are not
+ * explored. The expected coverage is reported at the end of model checking (see
+ * {@link #reportCoverage()}).
+ * <p>
+ * The k bit positions are derived from the fingerprint by double hashing. The
+ * number of hash functions can be set with
+ * -Dtlc2.tool.fp.BitstateFPSet.k=3 (default).
+ * <p>
+ * Selected with -Dtlc2.tool.fp.FPSet.impl=tlc2.tool.fp.BitstateFPSet and sized
+ * with -XX:MaxDirectMemorySize.
+ */
+@SuppressWarnings("serial")
+public class BitstateFPSet extends FPSet {
+
+	private static final int K = Math.max(1, Integer.getInteger(BitstateFPSet.class.getName() + ".k", 3));
+
+	/**
+	 * The bit array with (mask + 1) bits.
+	 */
+	private final transient LongArray array;
+	private final long mask;
+	private final int k;
+
+	/**
+	 * The number of fingerprints which set at least one bit, i.e. have been
+	 * reported as new.
+	 */
+	private final LongAdder size = new LongAdder();
+	/**
+	 * The number of set bits in array.
+	 */
+	private final LongAdder bitsSet = new LongAdder();
+
+	protected BitstateFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+		this(fpSetConfig, K);
+	}
+
+	BitstateFPSet(final FPSetConfiguration fpSetConfig, final int k) throws RemoteException {
+		super(fpSetConfig);
+		this.k = k;
+		// The largest power of two number of bits that fits into the given memory.
+		// Use at least one word.
+		final long bits = Math.max(Long.SIZE, Long.highestOneBit(fpSetConfig.getMemoryInBytes() * 8L));
+		this.mask = bits - 1L;
+		this.array = new LongArray(bits / Long.SIZE);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#init(int, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public FPSet init(final int numThreads, final String metadir, final String filename) throws IOException {
+		array.zeroMemory(numThreads);
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#size()
+	 */
+	@Override
+	public long size() {
+		return size.sum();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#put(long)
+	 */
+	@Override
+	public boolean put(final long fp) throws IOException {
+		final long h2 = hash2(fp);
+		boolean isNew = false;
+		for (int i = 0; i < k; i++) {
+			isNew |= setBit((fp + i * h2) & mask);
+		}
+		if (isNew) {
+			size.increment();
+		}
+		return !isNew;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#contains(long)
+	 */
+	@Override
+	public boolean contains(final long fp) throws IOException {
+		final long h2 = hash2(fp);
+		for (int i = 0; i < k; i++) {
+			if (!isSet((fp + i * h2) & mask)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static long hash2(final long fp) {
+		// Odd, such that the k positions of a fingerprint are distinct.
+		return (Long.rotateLeft(fp, 32) * 0x9E3779B97F4A7C15L) | 1L;
+	}
+
+	/**
+	 * @return true iff this thread changed the bit from zero to one.
+	 */
+	private boolean setBit(final long bit) {
+		final long position = bit >>> 6;
+		final long b = 1L << (bit & 63L);
+		long word;
+		do {
+			word = array.get(position);
+			if ((word & b) != 0L) {
+				return false;
+			}
+		} while (!array.trySet(position, word, word | b));
+		bitsSet.increment();
+		return true;
+	}
+
+	private boolean isSet(final long bit) {
+		return (array.get(bit >>> 6) & (1L << (bit & 63L))) != 0L;
+	}
+
+	/**
+	 * @return The probability that a new fingerprint is wrongly reported as seen
+	 *         given the current occupancy of the bit array.
+	 */
+	public double getOmissionProbability() {
+		return Math.pow(bitsSet.doubleValue() / (mask + 1d), k);
+	}
+
+	/**
+	 * @return The expected number of states that have been omitted, i.e. whose
+	 *         fingerprint was wrongly reported as seen. The i-th insertion is
+	 *         omitted with probability (1 - e^(-k*i/m))^k; the sum over all
+	 *         insertions is approximated numerically.
+	 */
+	public double getExpectedOmissions() {
+		final double n = size.doubleValue();
+		final double m = mask + 1d;
+		final int steps = 1024;
+		final double width = n / steps;
+		double omissions = 0d;
+		for (int j = 0; j < steps; j++) {
+			final double i = (j + .5d) * width;
+			omissions += Math.pow(1d - Math.exp(-k * i / m), k) * width;
+		}
+		return omissions;
+	}
+
+	/**
+	 * @return The estimated fraction of the generated, distinct states that have
+	 *         been explored. States only reachable via missed states are not
+	 *         accounted for, thus this is an upper bound of the actual coverage.
+	 */
+	public double getCoverage() {
+		final double n = size.doubleValue();
+		if (n == 0d) {
+			return 1d;
+		}
+		return n / (n + getExpectedOmissions());
+	}
+
+	public void reportCoverage() {
+		MP.printMessage(EC.TLC_BITSTATE_COVERAGE,
+				new String[] { String.valueOf(k), String.valueOf(mask + 1L),
+						String.format("%.1f", (mask + 1d) / Math.max(1d, size.doubleValue())),
+						String.format("%.4f%%", getCoverage() * 100d),
+						String.valueOf(getOmissionProbability()) });
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#checkFPs()
+	 */
+	@Override
+	public long checkFPs() throws IOException {
+		// Fingerprints are not stored, hence the distance between them is unknown.
+		return Long.MAX_VALUE;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt()
+	 */
+	@Override
+	public void beginChkpt() throws IOException {
+		// The set is recreated from the trace (see recover(TLCTrace)).
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt()
+	 */
+	@Override
+	public void commitChkpt() throws IOException {
+		// See beginChkpt.
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(tlc2.tool.TLCTrace)
+	 */
+	@Override
+	public void recover(final TLCTrace trace) throws IOException {
+		final Enumerator elements = trace.elements();
+		while (elements.nextPos() != -1) {
+			this.recoverFP(elements.nextFP());
+		}
+		elements.close();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recoverFP(long)
+	 */
+	@Override
+	public void recoverFP(final long fp) throws IOException {
+		// Unlike DiskFPSet, do not assert uniqueness: a recovered fingerprint might
+		// collide with the bits of the ones recovered before.
+		put(fp);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt(java.lang.String)
+	 */
+	@Override
+	public void beginChkpt(final String filename) throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt(java.lang.String)
+	 */
+	@Override
+	public void commitChkpt(final String filename) throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(java.lang.String)
+	 */
+	@Override
+	public void recover(final String filename) throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A blocked Bloom filter of fingerprints: All k bits of a fingerprint are
+ * within a single block of 512 bits (a cache line), thus a query causes at most
+ * one cache miss. The price is a slightly higher false positive rate than the
+ * one of a standard Bloom filter of the same size.
+ * <p>
+ * {@link #put(long)} may be called concurrently with other puts (e.g. by the
+ * threads of a concurrent flusher) and with {@link #mightContain(long)} (e.g.
+ * by the background flusher while workers look up fingerprints). Bits are only
+ * ever set (atomically), never cleared. Thus, {@link #mightContain(long)} never
+ * returns false for a fingerprint whose put happened-before, but it may return
+ * false for a fingerprint whose put is still in progress.
+ */
+public final class BlockedBloomFilter {
+
+	private static final int WORDS_PER_BLOCK = 8;
+	/**
+	 * The number of bits set per fingerprint. Six is optimal for ~9 bits per
+	 * fingerprint.
+	 */
+	private static final int K = 6;
+
+	private final AtomicLongArray words;
+	private final int blockBits;
+
+	/**
+	 * @param bytes The maximum amount of memory occupied by the filter. The
+	 *              actual size is the largest power of two number of blocks that
+	 *              fits into the given memory (at least one block).
+	 */
+	public BlockedBloomFilter(final long bytes) {
+		// AtomicLongArray is int-indexed, thus at most 2^27 blocks (8 GB).
+		final long blocks = Math.min(1L << 27,
+				Math.max(1L, Long.highestOneBit(bytes / (WORDS_PER_BLOCK * Long.BYTES))));
+		this.blockBits = Long.numberOfTrailingZeros(blocks);
+		this.words = new AtomicLongArray((int) (blocks * WORDS_PER_BLOCK));
+	}
+
+	private int block(final long fp) {
+		if (blockBits == 0) {
+			return 0;
+		}
+		return (int) ((fp * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - blockBits)) * WORDS_PER_BLOCK;
+	}
+
+	private static long probes(final long fp) {
+		// Nine bits (word in block and bit in word) per probe.
+		final long h = (fp ^ (fp >>> 29)) * 0xBF58476D1CE4E5B9L;
+		return h ^ (h >>> 32);
+	}
+
+	public void put(final long fp) {
+		final int block = block(fp);
+		long probes = probes(fp);
+		for (int i = 0; i < K; i++, probes >>>= 9) {
+			final int word = block + (int) ((probes >>> 6) & (WORDS_PER_BLOCK - 1));
+			final long bit = 1L << (probes & 63L);
+			long value = words.get(word);
+			while ((value & bit) == 0L && !words.compareAndSet(word, value, value | bit)) {
+				value = words.get(word);
+			}
+		}
+	}
+
+	/**
+	 * @return false iff the fingerprint has definitely not been put into the filter.
+	 */
+	public boolean mightContain(final long fp) {
+		final int block = block(fp);
+		long probes = probes(fp);
+		for (int i = 0; i < K; i++, probes >>>= 9) {
+			final int word = block + (int) ((probes >>> 6) & (WORDS_PER_BLOCK - 1));
+			if ((words.get(word) & (1L << (probes & 63L))) == 0L) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The size of the filter in bits.
+	 */
+	public long size() {
+		return words.length() * (long) Long.SIZE;
+	}
+}
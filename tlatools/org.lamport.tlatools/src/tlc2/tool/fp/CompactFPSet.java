@@ -0,0 +1,371 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.IOException;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.TLCTrace;
+import tlc2.tool.TLCTrace.Enumerator;
+
+/**
+ * A {@link CompactFPSet} is an in-memory (off-heap) set of compacted
+ * fingerprints that follows the quotienting idea of Cleary's compact hash
+ * tables: The q most significant bits of a fingerprint (its quotient) select
+ * the bucket and are thus implied by the position of the fingerprint in the
+ * table. A slot only stores the next r bits (the remainder) and a small
+ * displacement. Compared to {@link OffHeapDiskFPSet}, which stores full 64 bit
+ * fingerprints, this packs two (32 bit slots) or three (21 bit slots)
+ * fingerprints into the memory of a single one.
+ * <p>
+ * The price is that the set effectively works with fingerprints of q + r bits,
+ * i.e. the least significant bits of a fingerprint are ignored (hash
+ * compaction). The increased likelihood of a collision is accounted for by
+ * {@link #checkFPs()} and {@link #getFingerprintBits()}.
+ * <p>
+ * A bucket is a cache line (8 longs). A fingerprint is stored in the first
+ * empty slot of its home bucket or one of the next three buckets; the
+ * displacement (0..3) is stored along with the remainder such that the
+ * quotient can be recovered (like the bounded disorder of
+ * {@link OffHeapDiskFPSet}). The slots of a fingerprint are probed in a fixed
+ * order and never freed, thus insertion is a lock-free CAS of the word with the
+ * first empty slot. Fingerprints for which all four buckets are full go to an
+ * (on-heap) overflow set, which is not expected to grow large unless the table
+ * is (almost) full.
+ * <p>
+ * Selected with -Dtlc2.tool.fp.FPSet.impl=tlc2.tool.fp.CompactFPSet and sized
+ * with -XX:MaxDirectMemorySize. The number of slots per long can be set with
+ * -Dtlc2.tool.fp.CompactFPSet.slots=2 (default) or 3.
+ */
+@SuppressWarnings("serial")
+public class CompactFPSet extends FPSet {
+
+	private static final int SLOTS_PER_WORD = Math.min(3,
+			Math.max(2, Integer.getInteger(CompactFPSet.class.getName() + ".slots", 2)));
+
+	/**
+	 * A bucket is a single cache line.
+	 */
+	static final int WORDS_PER_BUCKET = 8;
+	/**
+	 * A fingerprint is stored in its home bucket or one of the next
+	 * (2^DISPLACEMENT_BITS) - 1 buckets.
+	 */
+	private static final int DISPLACEMENT_BITS = 2;
+	private static final int BUCKETS_PER_PROBE = 1 << DISPLACEMENT_BITS;
+
+	private final transient LongArray array;
+
+	private final int slotsPerWord;
+	private final int slotBits;
+	private final long slotMask;
+	private final int slotsPerBucket;
+
+	/**
+	 * The number of buckets minus one.
+	 */
+	private final long bucketMask;
+	/**
+	 * The number of bits of the quotient and remainder.
+	 */
+	private final int quotientBits;
+	private final int remainderBits;
+	private final long remainderMask;
+
+	/**
+	 * Compacted fingerprints (see {@link #compact(long, long)}) which did not
+	 * fit into their buckets.
+	 */
+	private final Set<Long> overflow = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean overflowReported = new AtomicBoolean();
+
+	private final LongAdder size = new LongAdder();
+
+	protected CompactFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+		this(fpSetConfig, SLOTS_PER_WORD);
+	}
+
+	CompactFPSet(final FPSetConfiguration fpSetConfig, final int slotsPerWord) throws RemoteException {
+		super(fpSetConfig);
+		this.slotsPerWord = slotsPerWord;
+		this.slotBits = Long.SIZE / slotsPerWord;
+		this.slotMask = (1L << slotBits) - 1L;
+		this.slotsPerBucket = WORDS_PER_BUCKET * slotsPerWord;
+
+		// The largest power of two number of buckets that fits into the given memory.
+		// Have at least as many buckets as are probed.
+		final long buckets = Math.max(BUCKETS_PER_PROBE,
+				Long.highestOneBit(fpSetConfig.getMemoryInBytes() / (WORDS_PER_BUCKET * Long.BYTES)));
+		this.bucketMask = buckets - 1L;
+		this.quotientBits = Long.numberOfTrailingZeros(buckets);
+		this.remainderBits = slotBits - DISPLACEMENT_BITS;
+		this.remainderMask = (1L << remainderBits) - 1L;
+
+		this.array = new LongArray(buckets * WORDS_PER_BUCKET);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#init(int, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public FPSet init(final int numThreads, final String metadir, final String filename) throws IOException {
+		array.zeroMemory(numThreads);
+		return this;
+	}
+
+	/**
+	 * @return The number of bits of a fingerprint that are effectively stored
+	 *         (quotient + remainder).
+	 */
+	public int getFingerprintBits() {
+		return quotientBits + remainderBits;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#size()
+	 */
+	@Override
+	public long size() {
+		return size.sum();
+	}
+
+	private long quotient(final long fp) {
+		return fp >>> (Long.SIZE - quotientBits);
+	}
+
+	private long remainder(final long fp) {
+		final long r = (fp >>> (Long.SIZE - quotientBits - remainderBits)) & remainderMask;
+		// Zero marks an empty slot. Remainder zero is thus mapped to one, which
+		// slightly increases the collision probability of the two.
+		return r == 0L ? 1L : r;
+	}
+
+	private long compact(final long quotient, final long remainder) {
+		return (quotient << remainderBits) | remainder;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#put(long)
+	 */
+	@Override
+	public boolean put(final long fp) throws IOException {
+		final long quotient = quotient(fp);
+		final long remainder = remainder(fp);
+		for (int d = 0; d < BUCKETS_PER_PROBE; d++) {
+			final long value = ((long) d << remainderBits) | remainder;
+			final long bucket = ((quotient + d) & bucketMask) * WORDS_PER_BUCKET;
+			for (int w = 0; w < WORDS_PER_BUCKET; w++) {
+				final long position = bucket + w;
+				for (int s = 0; s < slotsPerWord; s++) {
+					final int shift = s * slotBits;
+					while (true) {
+						final long word = array.get(position);
+						final long slot = (word >>> shift) & slotMask;
+						if (slot == value) {
+							return true;
+						}
+						if (slot != 0L) {
+							// Occupied by another fingerprint, try next slot.
+							break;
+						}
+						if (array.trySet(position, word, word | (value << shift))) {
+							size.increment();
+							return false;
+						}
+						// Another thread changed the word; re-read the slot.
+					}
+				}
+			}
+		}
+		// All buckets are full and will remain full.
+		if (overflow.add(compact(quotient, remainder))) {
+			if (overflowReported.compareAndSet(false, true)) {
+				MP.printWarning(EC.GENERAL, String.format(
+						"%s is (almost) full. Fingerprints are now also stored on the Java heap, "
+								+ "consider increasing -XX:MaxDirectMemorySize.",
+						getClass().getSimpleName()));
+			}
+			size.increment();
+			return false;
+		}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#contains(long)
+	 */
+	@Override
+	public boolean contains(final long fp) throws IOException {
+		final long quotient = quotient(fp);
+		final long remainder = remainder(fp);
+		for (int d = 0; d < BUCKETS_PER_PROBE; d++) {
+			final long value = ((long) d << remainderBits) | remainder;
+			final long bucket = ((quotient + d) & bucketMask) * WORDS_PER_BUCKET;
+			for (int w = 0; w < WORDS_PER_BUCKET; w++) {
+				final long word = array.get(bucket + w);
+				for (int s = 0; s < slotsPerWord; s++) {
+					final long slot = (word >>> (s * slotBits)) & slotMask;
+					if (slot == value) {
+						return true;
+					}
+					if (slot == 0L) {
+						return false;
+					}
+				}
+			}
+		}
+		return overflow.contains(compact(quotient, remainder));
+	}
+
+	/**
+	 * @return The fraction of occupied slots.
+	 */
+	public double getLoadFactor() {
+		final double slots = (bucketMask + 1d) * slotsPerBucket;
+		return (size.doubleValue() - overflow.size()) / slots;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#checkFPs()
+	 */
+	@Override
+	public long checkFPs() throws IOException {
+		// The minimum distance between the compacted fingerprints (which are
+		// getFingerprintBits() wide). The fingerprints of a quotient are spread
+		// across its home bucket and the next BUCKETS_PER_PROBE - 1 buckets and
+		// the overflow set. Thus, visit the quotients in order, collect and sort
+		// their fingerprints and compare them to the largest fingerprint of the
+		// previous quotient.
+		final long[] overflows = new long[overflow.size()];
+		int o = 0;
+		for (Long fp : overflow) {
+			overflows[o++] = fp;
+		}
+		Arrays.sort(overflows);
+		o = 0;
+
+		long[] fps = new long[BUCKETS_PER_PROBE * slotsPerBucket];
+		long distance = Long.MAX_VALUE;
+		long previous = 0L;
+		boolean first = true;
+		for (long quotient = 0L; quotient <= bucketMask; quotient++) {
+			int cnt = 0;
+			for (int d = 0; d < BUCKETS_PER_PROBE; d++) {
+				final long bucket = ((quotient + d) & bucketMask) * WORDS_PER_BUCKET;
+				for (int w = 0; w < WORDS_PER_BUCKET; w++) {
+					final long word = array.get(bucket + w);
+					for (int s = 0; s < slotsPerWord; s++) {
+						final long slot = (word >>> (s * slotBits)) & slotMask;
+						if (slot != 0L && (slot >>> remainderBits) == d) {
+							fps[cnt++] = compact(quotient, slot & remainderMask);
+						}
+					}
+				}
+			}
+			while (o < overflows.length && (overflows[o] >>> remainderBits) == quotient) {
+				if (cnt == fps.length) {
+					fps = Arrays.copyOf(fps, fps.length * 2);
+				}
+				fps[cnt++] = overflows[o++];
+			}
+			Arrays.sort(fps, 0, cnt);
+			for (int i = 0; i < cnt; i++) {
+				if (!first) {
+					distance = Math.min(distance, fps[i] - previous);
+				}
+				previous = fps[i];
+				first = false;
+			}
+		}
+		return distance;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt()
+	 */
+	@Override
+	public void beginChkpt() throws IOException {
+		// The set is recreated from the trace (see recover(TLCTrace)).
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt()
+	 */
+	@Override
+	public void commitChkpt() throws IOException {
+		// See beginChkpt.
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(tlc2.tool.TLCTrace)
+	 */
+	@Override
+	public void recover(final TLCTrace trace) throws IOException {
+		final Enumerator elements = trace.elements();
+		while (elements.nextPos() != -1) {
+			this.recoverFP(elements.nextFP());
+		}
+		elements.close();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recoverFP(long)
+	 */
+	@Override
+	public void recoverFP(final long fp) throws IOException {
+		// Unlike DiskFPSet, do not assert uniqueness: Two recovered fingerprints
+		// might be equal after compaction.
+		put(fp);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt(java.lang.String)
+	 */
+	@Override
+	public void beginChkpt(final String filename) throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt(java.lang.String)
+	 */
+	@Override
+	public void commitChkpt(final String filename) throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(java.lang.String)
+	 */
+	@Override
+	public void recover(final String filename) throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+}
@@ -0,0 +1,370 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.TLCTrace;
+import tlc2.tool.queue.DDDStateQueue;
+import tlc2.util.SetOfLong;
+
+/**
+ * A {@link DDDFPSet} implements delayed duplicate detection (Stern and Dill,
+ * "Using Magnetic Disk instead of Main Memory in the Murphi Verifier"): Rather
+ * than looking up every fingerprint on disk (see
+ * {@link DiskFPSet#diskLookup(long)}), {@link DDDFPSet#put(long)} only
+ * consults an in-memory window with the fingerprints of the current BFS level.
+ * Its successors are kept on disk by the {@link DDDStateQueue} until the level
+ * is done. Then, {@link DDDFPSet#merge()} sorts the window and removes the
+ * fingerprints already visited by a single sequential merge with the sorted
+ * file of visited fingerprints. Only the states whose fingerprints survive the
+ * merge are explored in the next level.
+ * <p>
+ * Thus, the size of the window is bounded by the number of distinct
+ * successors of a single level (not by the number of distinct states), and
+ * disk is read and written sequentially only. Since the window may contain
+ * fingerprints that have been visited in an earlier level,
+ * {@link DDDFPSet#size()} over-approximates the number of distinct states
+ * between merges. The window and the fresh fingerprints returned by
+ * {@link DDDFPSet#merge()} are Java arrays, so a single level may have at most
+ * {@link DDDFPSet#MAX_WINDOW} distinct successors (about 2^31).
+ * <p>
+ * Selected with -Dtlc2.tool.fp.FPSet.impl=tlc2.tool.fp.DDDFPSet, which also
+ * makes {@link tlc2.tool.ModelChecker} use the {@link DDDStateQueue}.
+ * Checkpoints are not supported.
+ */
+@SuppressWarnings("serial")
+public final class DDDFPSet extends FPSet {
+
+	/**
+	 * The window is split into 2^LogPartitions partitions/locks.
+	 */
+	private static final int LogPartitions = 8;
+	private static final int Partitions = 1 << LogPartitions;
+
+	private final SetOfLong[] window = new SetOfLong[Partitions];
+	private final LongAdder windowCnt = new LongAdder();
+
+	/**
+	 * The largest number of fingerprints the window of a single level can hold.
+	 */
+	static final int MAX_WINDOW = Integer.MAX_VALUE - 8;
+
+	/**
+	 * The number of fingerprints in the (sorted) file of visited fingerprints.
+	 */
+	private volatile long visitedCnt;
+	private RandomAccessFile visited;
+
+	private String metadir;
+	private String filename;
+
+	private boolean chkptWarned;
+
+	public DDDFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+		super(fpSetConfig);
+		for (int i = 0; i < window.length; i++) {
+			window[i] = new SetOfLong(1024);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#init(int, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public FPSet init(final int numThreads, final String metadir, final String filename) throws IOException {
+		this.metadir = metadir;
+		this.filename = filename;
+		new File(metadir).mkdirs();
+		final File file = getFile();
+		file.delete();
+		this.visited = new RandomAccessFile(file, "rw");
+		return this;
+	}
+
+	private File getFile() {
+		return new File(this.metadir + File.separator + this.filename + ".fp");
+	}
+
+	private static SetOfLong getPartition(final SetOfLong[] window, final long fp) {
+		return window[(int) (fp >>> (Long.SIZE - LogPartitions))];
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#size()
+	 */
+	@Override
+	public long size() {
+		return visitedCnt + windowCnt.sum();
+	}
+
+	/**
+	 * @return The number of fingerprints in the window, i.e. of states not yet
+	 *         merged.
+	 */
+	public long windowSize() {
+		return windowCnt.sum();
+	}
+
+	/**
+	 * @return true iff fp is in the window. A fingerprint that has been visited
+	 *         in an earlier level but is not in the window yields false (the
+	 *         duplicate is removed by {@link DDDFPSet#merge()}).
+	 * @see tlc2.tool.fp.FPSet#put(long)
+	 */
+	@Override
+	public boolean put(final long fp) throws IOException {
+		final SetOfLong partition = getPartition(window, fp);
+		synchronized (partition) {
+			if (partition.put(fp)) {
+				return true;
+			}
+		}
+		windowCnt.increment();
+		return false;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#contains(long)
+	 */
+	@Override
+	public boolean contains(final long fp) throws IOException {
+		final SetOfLong partition = getPartition(window, fp);
+		synchronized (partition) {
+			if (partition.contains(fp)) {
+				return true;
+			}
+		}
+		return visitedLookup(fp);
+	}
+
+	private synchronized boolean visitedLookup(final long fp) throws IOException {
+		long lo = 0, hi = visitedCnt - 1;
+		while (lo <= hi) {
+			final long mid = (lo + hi) >>> 1;
+			visited.seek(mid * Long.BYTES);
+			final long x = visited.readLong();
+			if (x < fp) {
+				lo = mid + 1;
+			} else if (x > fp) {
+				hi = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Merges the window into the file of visited fingerprints and empties the
+	 * window. The caller has to make sure that no other thread accesses this
+	 * set during the merge.
+	 * 
+	 * @return The sorted fingerprints of the window that have not been visited
+	 *         before.
+	 * @throws OutOfMemoryError if the window holds more than
+	 *         {@link DDDFPSet#MAX_WINDOW} fingerprints.
+	 */
+	public synchronized long[] merge() throws IOException {
+		// Sort the window...
+		final long windowSize = windowCnt.sum();
+		if (windowSize > MAX_WINDOW) {
+			throw new OutOfMemoryError(
+					"Too many distinct successors (" + windowSize + ") in a single level for delayed duplicate detection");
+		}
+		final long[] fresh = new long[(int) windowSize];
+		int len = 0;
+		for (int i = 0; i < window.length; i++) {
+			len = window[i].toArray(fresh, len);
+			window[i] = new SetOfLong(1024);
+		}
+		windowCnt.reset();
+		Arrays.parallelSort(fresh, 0, len);
+
+		// ...and merge it with the visited fingerprints. A fingerprint of the
+		// window that is a duplicate is dropped from fresh, which is compacted
+		// in place.
+		final File tmp = new File(this.metadir + File.separator + this.filename + ".tmp");
+		visited.close();
+		int freshCnt = 0;
+		long cnt = 0L;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(getFile()), 1 << 16));
+				DataOutputStream out = new DataOutputStream(
+						new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+			long remaining = visitedCnt;
+			boolean hasX = remaining-- > 0;
+			long x = hasX ? in.readLong() : 0L;
+			for (int i = 0; i < len; i++) {
+				final long fp = fresh[i];
+				while (hasX && x < fp) {
+					out.writeLong(x);
+					cnt++;
+					hasX = remaining-- > 0;
+					if (hasX) {
+						x = in.readLong();
+					}
+				}
+				if (hasX && x == fp) {
+					// Visited in an earlier level.
+					continue;
+				}
+				out.writeLong(fp);
+				cnt++;
+				fresh[freshCnt++] = fp;
+			}
+			while (hasX) {
+				out.writeLong(x);
+				cnt++;
+				hasX = remaining-- > 0;
+				if (hasX) {
+					x = in.readLong();
+				}
+			}
+		} catch (EOFException e) {
+			throw new IOException("Premature end of " + getFile(), e);
+		}
+		Files.move(tmp.toPath(), getFile().toPath(), StandardCopyOption.REPLACE_EXISTING);
+		this.visited = new RandomAccessFile(getFile(), "rw");
+		this.visitedCnt = cnt;
+		return Arrays.copyOf(fresh, freshCnt);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#close()
+	 */
+	@Override
+	public void close() {
+		try {
+			visited.close();
+		} catch (IOException e) {
+			// Nothing to be done
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#checkFPs()
+	 */
+	@Override
+	public synchronized long checkFPs() throws IOException {
+		merge();
+		long distance = Long.MAX_VALUE;
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(getFile()), 1 << 16))) {
+			if (visitedCnt > 0) {
+				long x = in.readLong();
+				for (long i = 1; i < visitedCnt; i++) {
+					final long y = in.readLong();
+					final long d = y - x;
+					if (d > 0) {
+						distance = Math.min(distance, d);
+					}
+					x = y;
+				}
+			}
+		}
+		return distance;
+	}
+
+	/**
+	 * Warns that checkpoints are not supported. The warning is printed only
+	 * once instead of at every checkpoint interval.
+	 */
+	private synchronized void warnChkpt() {
+		if (!chkptWarned) {
+			chkptWarned = true;
+			MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt()
+	 */
+	@Override
+	public void beginChkpt() throws IOException {
+		warnChkpt();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt()
+	 */
+	@Override
+	public void commitChkpt() throws IOException {
+		// Not supported, see beginChkpt.
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(tlc2.tool.TLCTrace)
+	 */
+	@Override
+	public void recover(final TLCTrace trace) throws IOException {
+		warnChkpt();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recoverFP(long)
+	 */
+	@Override
+	public void recoverFP(final long fp) throws IOException {
+		put(fp);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt(java.lang.String)
+	 */
+	@Override
+	public void beginChkpt(final String fname) throws IOException {
+		beginChkpt();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt(java.lang.String)
+	 */
+	@Override
+	public void commitChkpt(final String fname) throws IOException {
+		// Not supported, see beginChkpt.
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(java.lang.String)
+	 */
+	@Override
+	public void recover(final String fname) throws IOException {
+		warnChkpt();
+	}
+}
@@ -2,6 +2,8 @@
 // Portions Copyright (c) 2003 Microsoft Corporation.  All rights reserved.
 package tlc2.tool.fp;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileOutputStream;
@@ -26,6 +28,7 @@ import tlc2.util.BufferedRandomAccessFile;
 import tlc2.util.IdThread;
 import util.Assert;
 import util.FileUtil;
+import util.TLAFlightRecorder;
 
 
 /**
@@ -132,6 +135,8 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	protected LongAdder diskWriteCnt = new LongAdder();
 	private LongAdder diskSeekCnt = new LongAdder();
 	private LongAdder diskSeekCache = new LongAdder();
+	private LongAdder bloomFilterSkipCnt = new LongAdder();
+	private LongAdder bloomFilterFalsePositiveCnt = new LongAdder();
 	
 	// indicate how many cp or disk grow in put(long) has occurred
 	private int checkPointMark;
@@ -162,7 +167,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	 * Accumulated wall clock time it has taken to flush this {@link FPSet} to
 	 * disk
 	 */
-	protected long flushTime = 0L;
+	protected final LongAdder flushTime = new LongAdder();
 	
 	/**
 	 * 
@@ -174,6 +179,44 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	 */
 	protected volatile boolean forceFlush = false;
 
+	/**
+	 * If true, {@link #beginChkpt(String)} does not copy the complete disk file
+	 * but only persists the fingerprints which have been flushed to disk since the
+	 * previous checkpoint (a delta). {@link #recover(String)} replays the chain of
+	 * deltas listed in the checkpoint's manifest.
+	 * <p>
+	 * Only the fingerprint servers of distributed TLC checkpoint via
+	 * {@link #beginChkpt(String)} (see TLCServer#checkpoint). A local
+	 * ModelChecker does not write the fingerprint set to a checkpoint at all
+	 * ({@link #beginChkpt()} is a no-op) but rebuilds it from the trace on
+	 * recovery, so this setting does not affect it.
+	 */
+	protected final boolean deltaChkpt = Boolean.getBoolean(DiskFPSet.class.getName() + ".deltaCheckpoint");
+	/**
+	 * The fingerprints flushed to disk since the previous checkpoint (null if none
+	 * have been flushed yet).
+	 */
+	private BufferedRandomAccessFile deltaRAF;
+	/**
+	 * The number of deltas that make up the (current) checkpoint.
+	 */
+	private int deltaCnt;
+	/**
+	 * Replaying a delta chain must not append the fingerprints to the next delta.
+	 */
+	private boolean recovering;
+
+	/**
+	 * An optional filter of the fingerprints on disk which lets
+	 * {@link #diskLookup(long)} skip the disk for (most) new fingerprints. Its
+	 * size in megabytes (shared by all nested DiskFPSets of a {@link MultiFPSet})
+	 * is set with -Dtlc2.tool.fp.DiskFPSet.bloomFilter=N (default 0 = no filter).
+	 * The filter is allocated on the Java heap and does not grow, thus its false
+	 * positive rate increases with the number of fingerprints on disk (see
+	 * {@link #getBloomFilterFalsePositiveRate()}).
+	 */
+	private final BlockedBloomFilter bloomFilter;
+
 	/**
 	 * Construct a new <code>DiskFPSet2</code> object whose internal memory
 	 * buffer of new fingerprints can contain up to
@@ -195,6 +238,11 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		this.flusherChosen = new AtomicBoolean(false);
 		this.index = null;
 		
+		final long bloomFilterMem = Long.getLong(DiskFPSet.class.getName() + ".bloomFilter", 0L) * 1024L * 1024L;
+		this.bloomFilter = bloomFilterMem > 0L
+				? new BlockedBloomFilter(bloomFilterMem / fpSetConfig.getMultiFPSetCnt())
+				: null;
+		
 		try {
 			diskFPSetMXWrapper = new DiskFPSetMXWrapper(this);
 		} catch (NotCompliantMBeanException e) {
@@ -373,7 +421,28 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		if (this.index == null) {
 			return false;
 		}
-		
+		if (this.bloomFilter == null) {
+			return diskLookup0(fp);
+		}
+		if (!this.bloomFilter.mightContain(fp)) {
+			this.bloomFilterSkipCnt.increment();
+			return false;
+		}
+		final boolean diskHit = diskLookup0(fp);
+		if (!diskHit) {
+			this.bloomFilterFalsePositiveCnt.increment();
+		}
+		return diskHit;
+	}
+
+	private final boolean diskLookup0(long fp) throws IOException {
+		final Object event = TLAFlightRecorder.beginDiskLookup();
+		final boolean found = diskLookup1(fp);
+		TLAFlightRecorder.endDiskLookup(event, found);
+		return found;
+	}
+
+	private final boolean diskLookup1(long fp) throws IOException {
 		// Increment disk lookup counter
 		this.diskLookupCnt.increment();
 		
@@ -553,6 +622,16 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	protected int currIndex;
 	protected int counter;
 
+	/**
+	 * Has to be called for each fingerprint that is (newly) written to the
+	 * backing disk file.
+	 */
+	protected final void addToBloomFilter(final long fp) {
+		if (this.bloomFilter != null) {
+			this.bloomFilter.put(fp);
+		}
+	}
+
 	protected final void writeFP(RandomAccessFile outRAF, long fp)
 			throws IOException {
 		outRAF.writeLong(fp);
@@ -599,6 +678,12 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			}
 		}
 		this.poolIndex = 0;
+		if (this.deltaRAF != null) {
+			try {
+				this.deltaRAF.close();
+			} catch (IOException e) { /* SKIP */
+			}
+		}
 	}
 
 	/* (non-Javadoc)
@@ -655,18 +740,77 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		acquireTblWriteLock();
 		
 		flusher.flushTable();
-		FileUtil.copyFile(this.fpFilename,
-				this.getChkptName(fname, "tmp"));
+		if (this.deltaChkpt) {
+			beginDeltaChkpt(fname);
+		} else {
+			FileUtil.copyFile(this.fpFilename,
+					this.getChkptName(fname, "tmp"));
+		}
 		checkPointMark++;
 
 		releaseTblWriteLock();
 		this.flusherChosen.set(false);
 	}
 
+	/**
+	 * Turns the fingerprints flushed since the previous checkpoint into the next
+	 * delta and writes a manifest that lists the chain of deltas. Requires the
+	 * table write lock and an empty table, i.e. the table has to be flushed.
+	 */
+	protected final void beginDeltaChkpt(String fname) throws IOException {
+		if (this.deltaRAF == null) {
+			// Nothing flushed since the previous checkpoint. An empty delta keeps the
+			// chain gapless.
+			openDeltaLog();
+		}
+		this.deltaRAF.close();
+		this.deltaRAF = null;
+		FileUtil.replaceFile(this.getDeltaLogName(), this.getChkptName(fname, this.deltaCnt + ".delta"));
+		this.deltaCnt++;
+
+		final DataOutputStream dos = FileUtil.newDFOS(this.getChkptName(fname, "tmp"));
+		dos.writeInt(this.deltaCnt);
+		dos.writeLong(this.fileCnt);
+		dos.close();
+	}
+
+	/**
+	 * Appends the fingerprints which the flusher is about to merge into the disk
+	 * file to the current delta. Requires the table write lock.
+	 */
+	final void logFlushedEntries() throws IOException {
+		logFlushedEntries(this.flusher);
+	}
+
+	final void logFlushedEntries(final Flusher aFlusher) throws IOException {
+		if (!this.deltaChkpt || this.recovering) {
+			return;
+		}
+		if (this.deltaRAF == null) {
+			openDeltaLog();
+		}
+		aFlusher.writeNewEntries(this.deltaRAF);
+	}
+
+	private void openDeltaLog() throws IOException {
+		// Discard a leftover of a previous (crashed) run.
+		final File file = new File(this.getDeltaLogName());
+		file.delete();
+		this.deltaRAF = new BufferedRandomAccessFile(file, "rw");
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSet#commitChkpt(java.lang.String)
 	 */
 	public void commitChkpt(String fname) throws IOException {
+		commitChkptFile(fname);
+	}
+
+	/**
+	 * Replaces the previous checkpoint (or manifest of deltas) with the one
+	 * written by {@link #beginChkpt(String)}.
+	 */
+	protected final void commitChkptFile(String fname) throws IOException {
 		File oldChkpt = new File(this.getChkptName(fname, "chkpt"));
 		File newChkpt = new File(this.getChkptName(fname, "tmp"));
 		if (!newChkpt.renameTo(oldChkpt)) {
@@ -679,6 +823,10 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	 * @see tlc2.tool.fp.FPSet#recover(java.lang.String)
 	 */
 	public void recover(String fname) throws IOException {
+		if (this.deltaChkpt) {
+			recoverDeltaChkpt(fname);
+			return;
+		}
 		RandomAccessFile chkptRAF = new BufferedRandomAccessFile(
 				this.getChkptName(fname, "chkpt"), "r");
 		RandomAccessFile currRAF = new BufferedRandomAccessFile(
@@ -696,6 +844,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			while (true) {
 				fp = chkptRAF.readLong();
 				this.writeFP(currRAF, fp);
+				this.addToBloomFilter(fp);
 				// check invariant
 				Assert.check(predecessor < fp, EC.SYSTEM_INDEX_ERROR);
 				predecessor = fp;
@@ -726,6 +875,40 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		this.poolIndex = 0;
 	}
 
+	/**
+	 * Replays the deltas listed in the checkpoint's manifest. Subsequent
+	 * checkpoints extend the chain.
+	 */
+	protected final void recoverDeltaChkpt(String fname) throws IOException {
+		final DataInputStream dis = FileUtil.newDFIS(this.getChkptName(fname, "chkpt"));
+		final int cnt = dis.readInt();
+		final long fpCnt = dis.readLong();
+		dis.close();
+
+		this.recovering = true;
+		try {
+			for (int i = 0; i < cnt; i++) {
+				final RandomAccessFile deltaRAF = new BufferedRandomAccessFile(
+						this.getChkptName(fname, i + ".delta"), "r");
+				try {
+					final long len = deltaRAF.length() / LongSize;
+					for (long j = 0; j < len; j++) {
+						this.recoverFP(deltaRAF.readLong());
+					}
+				} finally {
+					deltaRAF.close();
+				}
+			}
+			// Flush the recovered fingerprints now to not append them to the next delta.
+			this.flusher.flushTable();
+		} finally {
+			this.recovering = false;
+		}
+		Assert.check(this.fileCnt == fpCnt, EC.SYSTEM_CHECKPOINT_RECOVERY_CORRUPT,
+				"fingerprint set has " + this.fileCnt + " fingerprints but the checkpoint " + fpCnt);
+		this.deltaCnt = cnt;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSet#beginChkpt()
 	 */
@@ -794,6 +977,10 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		return this.metadir + FileUtil.separator + fname + ".fp." + name;
 	}
 
+	private String getDeltaLogName() {
+		return this.fpFilename + ".delta";
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.FPSet#checkInvariant()
 	 */
@@ -896,6 +1083,28 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		return diskLookupCnt.sum();
 	}
 
+	/**
+	 * @return the number of disk lookups skipped because the Bloom filter ruled
+	 *         out the fingerprint
+	 */
+	public long getBloomFilterSkipCnt() {
+		return bloomFilterSkipCnt.sum();
+	}
+
+	/**
+	 * @return the fraction of fingerprints not on disk which have not been ruled
+	 *         out by the Bloom filter, i.e. caused a disk lookup; -1 if there is
+	 *         no Bloom filter
+	 */
+	public double getBloomFilterFalsePositiveRate() {
+		if (bloomFilter == null) {
+			return -1d;
+		}
+		final long falsePositives = bloomFilterFalsePositiveCnt.sum();
+		final long negatives = falsePositives + bloomFilterSkipCnt.sum();
+		return negatives == 0L ? 0d : falsePositives / (double) negatives;
+	}
+
 	/**
 	 * @return the diskHitCnt
 	 */
@@ -949,7 +1158,7 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 	 * @see DiskFPSet#flushTime
 	 */
 	public long getFlushTime() {
-		return flushTime;
+		return flushTime.sum();
 	}
 	
 	public void forceFlush() {
@@ -1047,8 +1256,13 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			if (getTblCnt() == 0)
 				return;
 			
+			final Object event = TLAFlightRecorder.beginFPSetFlush();
+			final long flushed = getTblCnt();
+			
 			prepareTable();
 			
+			logFlushedEntries();
+			
 //			// reset statistic counters
 //			this.memHitCnt = 0;
 //
@@ -1069,6 +1283,8 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 			tblCnt.reset();
 			bucketsCapacity = 0;
 			tblLoad.reset();
+			
+			TLAFlightRecorder.endFPSetFlush(event, flushed, fileCnt, false);
 		}
 
 		/**
@@ -1129,7 +1345,14 @@ public abstract class DiskFPSet extends FPSet implements FPSetStatistic {
 		}
 		
 		protected abstract void mergeNewEntries(BufferedRandomAccessFile[] inRAFs, RandomAccessFile outRAF) throws IOException;
-		
+
+		/**
+		 * Write the (sorted) fingerprints that are going to be merged into the
+		 * backing disk file by {@link #mergeNewEntries()} to "out". Called after
+		 * {@link #prepareTable()} if incremental checkpoints are enabled, and must
+		 * not mark any fingerprint flushed.
+		 */
+		protected abstract void writeNewEntries(RandomAccessFile out) throws IOException;
 	}
 	
 	private static boolean checkFile(BufferedRandomAccessFile braf, long[] index, long elements) throws IOException {
@@ -51,6 +51,12 @@ public class FPSetConfiguration implements Serializable {
 	 *         {@link FPSet} sees).
 	 */
 	public int getFpBits() {
+		if (FPSetFactory.isSharedFPSet(implementation)) {
+			// The (lock-free or striped) table of e.g. a BitstateFPSet is shared by all workers.
+			// Nesting would only split the table and, for a CompactFPSet, waste
+			// the fixed quotient bits.
+			return 0;
+		}
 		if (fpBits == 0 && FPSetFactory.isDiskFPSet(implementation)) {
 			// DiskFPSets always require two instances. A single DiskFPSet
 			// essentially only uses 63. fingerprint bits and thus increases the
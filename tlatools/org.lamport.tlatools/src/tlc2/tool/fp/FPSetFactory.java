@@ -26,7 +26,8 @@ public abstract class FPSetFactory {
 	public static final String IMPL_PROPERTY = FPSet.class.getName() + ".impl";
 	
 	private static boolean allocatesOnHeap(final Class<? extends FPSet> clazz) {
-		return !OffHeapDiskFPSet.class.isAssignableFrom(clazz);
+		return !OffHeapDiskFPSet.class.isAssignableFrom(clazz) && !BitstateFPSet.class.isAssignableFrom(clazz)
+				&& !CompactFPSet.class.isAssignableFrom(clazz);
 	}
 
 	public static boolean allocatesOnHeap(final String clazz) {
@@ -55,7 +56,8 @@ public abstract class FPSetFactory {
 
 	private static boolean supports32Bits(final Class<? extends FPSet> clazz) {
 		if (TLCRuntime.getInstance().getArchitecture() == TLCRuntime.ARCH.x86
-				&& OffHeapDiskFPSet.class.isAssignableFrom(clazz)) {
+				&& (OffHeapDiskFPSet.class.isAssignableFrom(clazz) || BitstateFPSet.class.isAssignableFrom(clazz)
+						|| CompactFPSet.class.isAssignableFrom(clazz))) {
 			return false;
 		}
 		return true;
@@ -77,6 +79,23 @@ public abstract class FPSetFactory {
 		}
 	}
 
+	/**
+	 * @return true iff the given {@link FPSet} is a single (lock-free or
+	 *         internally striped) set that should not be partitioned by a
+	 *         {@link MultiFPSet}.
+	 */
+	static boolean isSharedFPSet(final String clazz) {
+		try {
+			final ClassLoader classLoader = FPSet.class.getClassLoader();
+			final Class<?> cls = classLoader.loadClass(clazz);
+			return BitstateFPSet.class.isAssignableFrom(cls) || CompactFPSet.class.isAssignableFrom(cls)
+					|| LSMFPSet.class.isAssignableFrom(cls)
+					|| DDDFPSet.class.isAssignableFrom(cls);
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
 	/**
 	 * @see getFPSet
 	 * @return
@@ -153,6 +172,11 @@ public abstract class FPSetFactory {
 		l.add(MSBDiskFPSet.class.getName());
 		l.add(LSBDiskFPSet.class.getName());
 		l.add(OffHeapDiskFPSet.class.getName());
+		l.add(BitstateFPSet.class.getName());
+		l.add(CompactFPSet.class.getName());
+		l.add(LSMFPSet.class.getName());
+		// DDDFPSet is not listed: its put answers are tentative until the
+		// DDDStateQueue merges a level, which no generic FPSet client does.
 
 		return l.toArray(new String[l.size()]);
 	}
@@ -51,6 +51,16 @@ public interface FPSetStatistic {
 	 */
 	public long getDiskLookupCnt();
 
+	/**
+	 * @return the number of disk lookups skipped by the Bloom filter
+	 */
+	public long getBloomFilterSkipCnt();
+
+	/**
+	 * @return the false positive rate of the Bloom filter
+	 */
+	public double getBloomFilterFalsePositiveRate();
+
 	/**
 	 * @return the diskHitCnt
 	 */
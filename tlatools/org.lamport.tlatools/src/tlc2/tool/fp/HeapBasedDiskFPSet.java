@@ -317,7 +317,7 @@ public abstract class HeapBasedDiskFPSet extends DiskFPSet {
 			this.flusherChosen.set(false);
 
 			long l = System.currentTimeMillis() - timestamp;
-			flushTime += l;
+			flushTime.add(l);
 			
 			LOGGER.log(Level.FINE, "Flushed disk {0} {1}. time, in {2} sec after {3} insertions.", new Object[] {
 					((DiskFPSetMXWrapper) diskFPSetMXWrapper).getObjectName(), getGrowDiskMark(), l, insertions});
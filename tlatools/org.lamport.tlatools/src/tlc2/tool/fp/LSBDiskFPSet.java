@@ -73,6 +73,16 @@ public class LSBDiskFPSet extends HeapBasedDiskFPSet {
 			Arrays.sort(buff, 0, buff.length);
 		}
 
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#writeNewEntries(java.io.RandomAccessFile)
+		 */
+		@Override
+		protected void writeNewEntries(RandomAccessFile out) throws IOException {
+			for (int i = 0; i < buff.length; i++) {
+				out.writeLong(buff[i]);
+			}
+		}
+
 		/* (non-Javadoc)
 		 * @see tlc2.tool.fp.DiskFPSet.Flusher#mergeNewEntries(java.io.RandomAccessFile, java.io.RandomAccessFile)
 		 */
@@ -121,6 +131,7 @@ public class LSBDiskFPSet extends HeapBasedDiskFPSet {
 						Assert.check(false, EC.TLC_FP_VALUE_ALREADY_ON_DISK,
 								String.valueOf(value));
 					}
+					addToBloomFilter(buff[i]);
 					writeFP(outRAF, buff[i++]);
 				}
 			}
@@ -128,6 +139,7 @@ public class LSBDiskFPSet extends HeapBasedDiskFPSet {
 			// write elements of remaining list
 			if (eof) {
 				while (i < buffLen) {
+					addToBloomFilter(buff[i]);
 					writeFP(outRAF, buff[i++]);
 				}
 			} else {
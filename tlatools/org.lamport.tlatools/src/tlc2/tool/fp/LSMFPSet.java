@@ -0,0 +1,924 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+import tlc2.output.EC;
+import tlc2.tool.TLCTrace;
+import tlc2.tool.TLCTrace.Enumerator;
+import tlc2.util.LongVec;
+import tlc2.util.Striped;
+import util.Assert;
+import util.FileUtil;
+
+/**
+ * An {@link LSMFPSet} organizes fingerprints like a log-structured merge tree:
+ * <ul>
+ * <li>New fingerprints go to an in-memory table (the memtable), which is split
+ * into segments by the most significant bits of the fingerprints. Each segment
+ * is an open addressing hash table guarded by a (striped) lock.</li>
+ * <li>A full memtable is frozen and replaced by an empty one. A background
+ * thread writes the frozen memtable to disk as an immutable, sorted run.
+ * Workers keep inserting into the new memtable meanwhile. Until the run has
+ * been written, lookups consult the frozen memtable.</li>
+ * <li>Each run has a fence index (the first fingerprint of each disk page) and
+ * a {@link BlockedBloomFilter}, thus a lookup of a fingerprint that is not in a
+ * run rarely reads from disk, and reads a single page otherwise.</li>
+ * <li>Runs are merged in tiers: Once a level has <code>fanout</code> runs,
+ * another background thread merges them into a single run of the next
+ * level.</li>
+ * </ul>
+ * Unlike {@link DiskFPSet#flushTable()}, which rewrites the complete disk file
+ * on every flush, a fingerprint is rewritten once per level, i.e.
+ * logarithmically often in the number of fingerprints.
+ * <p>
+ * Selected with -Dtlc2.tool.fp.FPSet.impl=tlc2.tool.fp.LSMFPSet. The number of
+ * runs merged at once can be set with -Dtlc2.tool.fp.LSMFPSet.fanout=4
+ * (default), the Bloom filter bits per fingerprint with
+ * -Dtlc2.tool.fp.LSMFPSet.bloomBits=8 (default, 0 disables the filters).
+ */
+@SuppressWarnings("serial")
+public class LSMFPSet extends FPSet {
+
+	private static final int FANOUT = Math.max(2, Integer.getInteger(LSMFPSet.class.getName() + ".fanout", 4));
+	private static final int BLOOM_BITS = Math.max(0, Integer.getInteger(LSMFPSet.class.getName() + ".bloomBits", 8));
+
+	/**
+	 * The memtable is split into 2^LogSegments segments/locks.
+	 */
+	private static final int LogSegments = 10;
+	private static final int Segments = 1 << LogSegments;
+
+	/**
+	 * Fingerprints per disk page (see {@link DiskFPSet#NumEntriesPerPage}).
+	 */
+	private static final int PageSize = DiskFPSet.NumEntriesPerPage;
+
+	private final Striped locks = Striped.readWriteLock(Segments);
+
+	/**
+	 * The capacity of a memtable segment (power of two) and the number of
+	 * fingerprints at which a segment is full.
+	 */
+	private final int segmentCapacity;
+	private final int segmentLimit;
+
+	/**
+	 * The memtable that receives new fingerprints.
+	 */
+	private volatile Memtable active;
+	/**
+	 * The memtable that is being written to disk (null if none). A memtable
+	 * whose run has been written is recycled.
+	 */
+	private volatile Memtable frozen;
+	private volatile Memtable spare;
+	/**
+	 * The immutable runs ordered by level. The list is replaced (never
+	 * modified) while all locks are held.
+	 */
+	private volatile List<Run> runs = Collections.emptyList();
+
+	private final LongAdder size = new LongAdder();
+	private final AtomicLong runCnt = new AtomicLong();
+
+	private String metadir;
+	private String filename;
+
+	private ExecutorService flusher;
+	private ExecutorService merger;
+	private Future<?> pendingFlush;
+	private volatile Throwable mergeFailure;
+
+	public LSMFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
+		super(fpSetConfig);
+		// Two memtables (the active and the frozen one) share the memory.
+		final long perSegment = fpSetConfig.getMemoryInFingerprintCnt() / 2L / Segments;
+		this.segmentCapacity = (int) Math.min(1 << 30, Math.max(16L, Long.highestOneBit(perSegment)));
+		// Load factor 0.75
+		this.segmentLimit = segmentCapacity - (segmentCapacity >> 2);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#init(int, java.lang.String, java.lang.String)
+	 */
+	@Override
+	public FPSet init(final int numThreads, final String metadir, final String filename) throws IOException {
+		this.metadir = metadir;
+		this.filename = filename;
+		new File(metadir).mkdirs();
+		this.active = new Memtable();
+		this.flusher = Executors.newSingleThreadExecutor(r -> {
+			final Thread t = new Thread(r, "TLC LSMFPSet Flusher");
+			t.setDaemon(true);
+			return t;
+		});
+		this.merger = Executors.newSingleThreadExecutor(r -> {
+			final Thread t = new Thread(r, "TLC LSMFPSet Merger");
+			t.setDaemon(true);
+			return t;
+		});
+		return this;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#size()
+	 */
+	@Override
+	public long size() {
+		return size.sum();
+	}
+
+	private static long checkValid(final long fp) {
+		// Zero marks an empty slot of a memtable.
+		return fp == 0L ? Long.MIN_VALUE : fp;
+	}
+
+	/**
+	 * @return The segment of fp such that all fingerprints of segment i are
+	 *         smaller than the ones of segment i + 1.
+	 */
+	private static int getSegment(final long fp) {
+		return (int) ((fp >> (Long.SIZE - LogSegments)) + (Segments >> 1));
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#put(long)
+	 */
+	@Override
+	public boolean put(long fp) throws IOException {
+		fp = checkValid(fp);
+		final int segment = getSegment(fp);
+		while (true) {
+			final Memtable memtable;
+			final Lock lock = locks.getAt(segment).writeLock();
+			lock.lock();
+			try {
+				memtable = this.active;
+				if (memtable.contains(segment, fp) || containsImmutable(segment, fp)) {
+					return true;
+				}
+				if (memtable.insert(segment, fp)) {
+					size.increment();
+					return false;
+				}
+				// The segment is full, rotate the memtable and try again.
+			} finally {
+				lock.unlock();
+			}
+			rotate(memtable);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#contains(long)
+	 */
+	@Override
+	public boolean contains(long fp) throws IOException {
+		fp = checkValid(fp);
+		final int segment = getSegment(fp);
+		final Lock lock = locks.getAt(segment).readLock();
+		lock.lock();
+		try {
+			return this.active.contains(segment, fp) || containsImmutable(segment, fp);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requires the lock of segment. Runs and memtables are retired while all
+	 * locks are held, thus they remain open/unchanged during the lookup.
+	 */
+	private boolean containsImmutable(final int segment, final long fp) throws IOException {
+		final Memtable f = this.frozen;
+		if (f != null && f.contains(segment, fp)) {
+			return true;
+		}
+		for (Run run : this.runs) {
+			if (run.contains(fp)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Freezes the given (full) memtable unless another thread has done so
+	 * already, and submits it to the flusher.
+	 */
+	private synchronized void rotate(final Memtable expected) throws IOException {
+		if (this.active != expected) {
+			return;
+		}
+		// Wait for the previous flush to free its memtable. This bounds the
+		// memory to two memtables.
+		awaitFlush();
+		checkMergeFailure();
+
+		final Memtable next = this.spare != null ? this.spare.clear() : new Memtable();
+		this.spare = null;
+
+		locks.acquireAllLocks();
+		try {
+			this.frozen = expected;
+			this.active = next;
+		} finally {
+			locks.releaseAllLocks();
+		}
+		this.pendingFlush = flusher.submit(() -> {
+			flush(expected);
+			return null;
+		});
+	}
+
+	private void awaitFlush() throws IOException {
+		if (this.pendingFlush == null) {
+			return;
+		}
+		try {
+			this.pendingFlush.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		} finally {
+			this.pendingFlush = null;
+		}
+	}
+
+	private void checkMergeFailure() throws IOException {
+		final Throwable t = this.mergeFailure;
+		if (t != null) {
+			throw t instanceof IOException ? (IOException) t : new IOException(t);
+		}
+	}
+
+	/**
+	 * Writes the given frozen memtable to disk as a run of level zero (runs on
+	 * the flusher thread).
+	 */
+	private void flush(final Memtable memtable) throws IOException {
+		final RunWriter writer = new RunWriter(newRunFile(), 0, memtable.size());
+		final long[] buf = new long[segmentCapacity];
+		// Segments are ordered, thus sorting each segment sorts the run.
+		for (int i = 0; i < Segments; i++) {
+			final int n = memtable.copy(i, buf);
+			Arrays.sort(buf, 0, n);
+			for (int j = 0; j < n; j++) {
+				writer.write(buf[j]);
+			}
+		}
+		final Run run = writer.finish();
+
+		locks.acquireAllLocks();
+		try {
+			this.runs = with(this.runs, Collections.<Run> emptyList(), run);
+			this.frozen = null;
+		} finally {
+			locks.releaseAllLocks();
+		}
+		// Picked up by the next rotation (after awaitFlush).
+		this.spare = memtable;
+		merger.submit(() -> {
+			try {
+				compact();
+			} catch (IOException | RuntimeException e) {
+				mergeFailure = e;
+			}
+		});
+	}
+
+	/**
+	 * Merges the runs of a level into a single run of the next level as long as
+	 * there is a level with FANOUT runs (runs on the merger thread).
+	 */
+	private void compact() throws IOException {
+		List<Run> candidates;
+		while (!(candidates = getMergeCandidates()).isEmpty()) {
+			long count = 0L;
+			for (Run run : candidates) {
+				count += run.count;
+			}
+			final RunWriter writer = new RunWriter(newRunFile(), candidates.get(0).level + 1, count);
+			try (MergeIterator itr = new MergeIterator(candidates)) {
+				while (itr.hasNext()) {
+					writer.write(itr.next());
+				}
+			}
+			final Run run = writer.finish();
+
+			locks.acquireAllLocks();
+			try {
+				this.runs = with(this.runs, candidates, run);
+			} finally {
+				locks.releaseAllLocks();
+			}
+			// No lookup can be reading from the merged runs anymore.
+			for (Run merged : candidates) {
+				merged.delete();
+			}
+		}
+	}
+
+	private List<Run> getMergeCandidates() {
+		final List<Run> current = this.runs;
+		for (int i = 0; i + FANOUT <= current.size(); i++) {
+			final int level = current.get(i).level;
+			if (current.get(i + FANOUT - 1).level == level) {
+				return new ArrayList<>(current.subList(i, i + FANOUT));
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * @return A copy of runs without the given ones and with the given run
+	 *         inserted at the position of its level.
+	 */
+	private static List<Run> with(final List<Run> runs, final List<Run> without, final Run run) {
+		final List<Run> result = new ArrayList<>(runs.size() + 1);
+		for (Run r : runs) {
+			if (!without.contains(r)) {
+				result.add(r);
+			}
+		}
+		int i = 0;
+		while (i < result.size() && result.get(i).level <= run.level) {
+			i++;
+		}
+		result.add(i, run);
+		return Collections.unmodifiableList(result);
+	}
+
+	private File newRunFile() {
+		return new File(metadir, filename + ".run." + runCnt.getAndIncrement());
+	}
+
+	/**
+	 * Writes the memtable(s) to disk and waits for all merges to finish.
+	 * Requires that no fingerprints are inserted concurrently.
+	 */
+	private void flushAll() throws IOException {
+		if (this.active.size() > 0L) {
+			rotate(this.active);
+		}
+		synchronized (this) {
+			awaitFlush();
+		}
+		try {
+			// The merger is single-threaded, thus a no-op task completes after all
+			// previously submitted merges.
+			merger.submit(() -> {}).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+		checkMergeFailure();
+	}
+
+	/**
+	 * @return The number of runs per level (for tests and statistics).
+	 */
+	int[] getRunsPerLevel() {
+		final List<Run> current = this.runs;
+		final int levels = current.isEmpty() ? 0 : current.get(current.size() - 1).level + 1;
+		final int[] result = new int[levels];
+		for (Run run : current) {
+			result[run.level]++;
+		}
+		return result;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#checkFPs()
+	 */
+	@Override
+	public long checkFPs() throws IOException {
+		flushAll();
+		long distance = Long.MAX_VALUE;
+		try (MergeIterator itr = new MergeIterator(this.runs)) {
+			if (itr.hasNext()) {
+				long x = itr.next();
+				while (itr.hasNext()) {
+					final long y = itr.next();
+					// A negative difference overflowed, i.e. is larger than Long.MAX_VALUE.
+					if (y - x > 0L) {
+						distance = Math.min(distance, y - x);
+					}
+					x = y;
+				}
+			}
+		}
+		return distance;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#close()
+	 */
+	@Override
+	public void close() {
+		if (flusher != null) {
+			flusher.shutdownNow();
+			merger.shutdownNow();
+		}
+		for (Run run : this.runs) {
+			run.close();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt()
+	 */
+	@Override
+	public void beginChkpt() throws IOException {
+		// Like DiskFPSet, recreate the set from the trace (see recover(TLCTrace)).
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt()
+	 */
+	@Override
+	public void commitChkpt() throws IOException {
+		// See beginChkpt.
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(tlc2.tool.TLCTrace)
+	 */
+	@Override
+	public void recover(final TLCTrace trace) throws IOException {
+		final Enumerator elements = trace.elements();
+		while (elements.nextPos() != -1) {
+			this.recoverFP(elements.nextFP());
+		}
+		elements.close();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recoverFP(long)
+	 */
+	@Override
+	public void recoverFP(final long fp) throws IOException {
+		Assert.check(!put(fp), EC.SYSTEM_CHECKPOINT_RECOVERY_CORRUPT, "");
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#beginChkpt(java.lang.String)
+	 */
+	@Override
+	public void beginChkpt(final String fname) throws IOException {
+		// Runs are immutable, thus a checkpoint only has to link (or copy) the
+		// current runs and write a manifest listing them.
+		flushAll();
+		final List<Run> current = this.runs;
+		try (DataOutputStream dos = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(getChkptName(fname, "tmp"))))) {
+			dos.writeInt(current.size());
+			for (Run run : current) {
+				final File link = new File(metadir, fname + ".fp." + run.file.getName());
+				if (!link.exists()) {
+					linkOrCopy(run.file, link);
+				}
+				dos.writeInt(run.level);
+				dos.writeLong(run.count);
+				dos.writeUTF(link.getName());
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#commitChkpt(java.lang.String)
+	 */
+	@Override
+	public void commitChkpt(final String fname) throws IOException {
+		final File chkpt = new File(getChkptName(fname, "chkpt"));
+		final List<String> previous = chkpt.exists() ? readManifest(chkpt, null) : Collections.<String> emptyList();
+		final List<String> next = readManifest(new File(getChkptName(fname, "tmp")), null);
+		FileUtil.replaceFile(getChkptName(fname, "tmp"), chkpt.getPath());
+		// Delete the runs only referenced by the previous checkpoint.
+		for (String name : previous) {
+			if (!next.contains(name)) {
+				new File(metadir, name).delete();
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.FPSet#recover(java.lang.String)
+	 */
+	@Override
+	public void recover(final String fname) throws IOException {
+		final List<Run> recovered = new ArrayList<>();
+		readManifest(new File(getChkptName(fname, "chkpt")), recovered);
+		long count = 0L;
+		List<Run> result = Collections.emptyList();
+		for (Run run : recovered) {
+			result = with(result, Collections.<Run> emptyList(), run);
+			count += run.count;
+		}
+		this.runs = result;
+		this.size.reset();
+		this.size.add(count);
+	}
+
+	/**
+	 * @param runs if non-null, the runs listed by the manifest are re-created.
+	 * @return The file names listed by the manifest.
+	 */
+	private List<String> readManifest(final File manifest, final List<Run> runs) throws IOException {
+		final List<String> names = new ArrayList<>();
+		try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(manifest)))) {
+			final int n = dis.readInt();
+			for (int i = 0; i < n; i++) {
+				final int level = dis.readInt();
+				final long count = dis.readLong();
+				final String name = dis.readUTF();
+				names.add(name);
+				if (runs != null) {
+					final File file = newRunFile();
+					linkOrCopy(new File(metadir, name), file);
+					final Run run = Run.open(file, level);
+					Assert.check(run.count == count, EC.SYSTEM_CHECKPOINT_RECOVERY_CORRUPT,
+							"Checkpointed run " + name + " has " + run.count + " fingerprints but " + count
+									+ " are expected.");
+					runs.add(run);
+				}
+			}
+		}
+		return names;
+	}
+
+	private static void linkOrCopy(final File from, final File to) throws IOException {
+		Files.deleteIfExists(to.toPath());
+		try {
+			Files.createLink(to.toPath(), from.toPath());
+		} catch (IOException | UnsupportedOperationException e) {
+			Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private String getChkptName(final String fname, final String name) {
+		return this.metadir + FileUtil.separator + fname + ".fp." + name;
+	}
+
+	/**
+	 * A set of hash tables (one per segment). A segment is modified only while
+	 * its lock is held.
+	 */
+	private final class Memtable {
+
+		private final long[][] tables = new long[Segments][];
+		private final int[] counts = new int[Segments];
+
+		private long[] table(final int segment) {
+			// Allocate lazily to not allocate all of the memory at startup.
+			long[] table = tables[segment];
+			if (table == null) {
+				table = tables[segment] = new long[segmentCapacity];
+			}
+			return table;
+		}
+
+		boolean contains(final int segment, final long fp) {
+			final long[] table = tables[segment];
+			if (table == null) {
+				return false;
+			}
+			final int mask = table.length - 1;
+			for (int i = hash(fp) & mask;; i = (i + 1) & mask) {
+				final long l = table[i];
+				if (l == fp) {
+					return true;
+				}
+				if (l == 0L) {
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * @return false iff the segment is full.
+		 */
+		boolean insert(final int segment, final long fp) {
+			if (counts[segment] >= segmentLimit) {
+				return false;
+			}
+			final long[] table = table(segment);
+			final int mask = table.length - 1;
+			int i = hash(fp) & mask;
+			while (table[i] != 0L) {
+				i = (i + 1) & mask;
+			}
+			table[i] = fp;
+			counts[segment]++;
+			return true;
+		}
+
+		/**
+		 * Copies the fingerprints of the segment to buf.
+		 * 
+		 * @return The number of fingerprints copied.
+		 */
+		int copy(final int segment, final long[] buf) {
+			final long[] table = tables[segment];
+			if (table == null) {
+				return 0;
+			}
+			int n = 0;
+			for (int i = 0; i < table.length; i++) {
+				if (table[i] != 0L) {
+					buf[n++] = table[i];
+				}
+			}
+			return n;
+		}
+
+		long size() {
+			long size = 0L;
+			for (int i = 0; i < Segments; i++) {
+				size += counts[i];
+			}
+			return size;
+		}
+
+		Memtable clear() {
+			for (int i = 0; i < Segments; i++) {
+				if (tables[i] != null) {
+					Arrays.fill(tables[i], 0L);
+				}
+				counts[i] = 0;
+			}
+			return this;
+		}
+	}
+
+	private static int hash(final long fp) {
+		// The most significant bits are fixed per segment.
+		return (int) ((fp ^ (fp >>> 29)) * 0x9E3779B97F4A7C15L);
+	}
+
+	/**
+	 * An immutable, sorted file of fingerprints.
+	 */
+	static final class Run {
+
+		private static final ThreadLocal<ByteBuffer> PAGE = ThreadLocal
+				.withInitial(() -> ByteBuffer.allocate(PageSize * (int) LongSize));
+
+		final File file;
+		final int level;
+		final long count;
+		/**
+		 * The first fingerprint of each page.
+		 */
+		private final long[] fence;
+		private final long max;
+		private final BlockedBloomFilter bloom;
+		private final FileChannel channel;
+
+		private Run(final File file, final int level, final long count, final long[] fence, final long max,
+				final BlockedBloomFilter bloom) throws IOException {
+			this.file = file;
+			this.level = level;
+			this.count = count;
+			this.fence = fence;
+			this.max = max;
+			this.bloom = bloom;
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		}
+
+		/**
+		 * Re-creates the fence index and the Bloom filter of an existing run.
+		 */
+		static Run open(final File file, final int level) throws IOException {
+			final RunWriter builder = new RunWriter(null, level, file.length() / LongSize);
+			try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+				for (long i = file.length() / LongSize; i > 0; i--) {
+					builder.add(dis.readLong());
+				}
+			}
+			return builder.finish(file);
+		}
+
+		boolean contains(final long fp) throws IOException {
+			if (count == 0L || fp < fence[0] || fp > max) {
+				return false;
+			}
+			if (bloom != null && !bloom.mightContain(fp)) {
+				return false;
+			}
+			// The last page whose first fingerprint is less or equal to fp.
+			int page = Arrays.binarySearch(fence, fp);
+			if (page >= 0) {
+				return true;
+			}
+			page = -page - 2;
+
+			final ByteBuffer buf = PAGE.get();
+			buf.clear();
+			final long position = page * (long) PageSize * LongSize;
+			while (buf.hasRemaining()) {
+				if (channel.read(buf, position + buf.position()) < 0) {
+					break;
+				}
+			}
+			buf.flip();
+			int lo = 0;
+			int hi = buf.limit() / (int) LongSize - 1;
+			while (lo <= hi) {
+				final int mid = (lo + hi) >>> 1;
+				final long v = buf.getLong(mid * (int) LongSize);
+				if (v < fp) {
+					lo = mid + 1;
+				} else if (v > fp) {
+					hi = mid - 1;
+				} else {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// SKIP
+			}
+		}
+
+		void delete() {
+			close();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Writes a sorted sequence of fingerprints to a run file and builds its
+	 * fence index and Bloom filter.
+	 */
+	private static final class RunWriter {
+
+		private final File file;
+		private final DataOutputStream dos;
+		private final int level;
+		private final LongVec fence = new LongVec();
+		private final BlockedBloomFilter bloom;
+		private long count = 0L;
+		private long max = Long.MIN_VALUE;
+
+		/**
+		 * @param file null if the fingerprints are not to be written.
+		 */
+		RunWriter(final File file, final int level, final long expected) throws IOException {
+			this.file = file;
+			this.level = level;
+			this.dos = file == null ? null
+					: new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+			this.bloom = BLOOM_BITS > 0 ? new BlockedBloomFilter(Math.max(1L, expected * BLOOM_BITS / 8L)) : null;
+		}
+
+		void write(final long fp) throws IOException {
+			dos.writeLong(fp);
+			add(fp);
+		}
+
+		void add(final long fp) {
+			assert count == 0L || max < fp : "Run not sorted";
+			if (count % PageSize == 0L) {
+				fence.addElement(fp);
+			}
+			if (bloom != null) {
+				bloom.put(fp);
+			}
+			max = fp;
+			count++;
+		}
+
+		Run finish() throws IOException {
+			dos.close();
+			return finish(file);
+		}
+
+		Run finish(final File f) throws IOException {
+			final long[] index = new long[fence.size()];
+			for (int i = 0; i < index.length; i++) {
+				index[i] = fence.elementAt(i);
+			}
+			return new Run(f, level, count, index, max, bloom);
+		}
+	}
+
+	/**
+	 * Merges sorted runs.
+	 */
+	private static final class MergeIterator implements AutoCloseable {
+
+		private final DataInputStream[] streams;
+		private final long[] remaining;
+		private final long[] heads;
+
+		MergeIterator(final List<Run> runs) throws IOException {
+			this.streams = new DataInputStream[runs.size()];
+			this.remaining = new long[runs.size()];
+			this.heads = new long[runs.size()];
+			for (int i = 0; i < streams.length; i++) {
+				streams[i] = new DataInputStream(
+						new BufferedInputStream(new FileInputStream(runs.get(i).file), 1 << 16));
+				remaining[i] = runs.get(i).count;
+				advance(i);
+			}
+		}
+
+		private void advance(final int i) throws IOException {
+			if (remaining[i]-- > 0L) {
+				try {
+					heads[i] = streams[i].readLong();
+				} catch (EOFException e) {
+					Assert.fail(EC.GENERAL, "Truncated run of fingerprints.");
+				}
+			}
+		}
+
+		boolean hasNext() {
+			for (int i = 0; i < remaining.length; i++) {
+				if (remaining[i] >= 0L) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		long next() throws IOException {
+			int min = -1;
+			for (int i = 0; i < remaining.length; i++) {
+				if (remaining[i] >= 0L && (min == -1 || heads[i] < heads[min])) {
+					min = i;
+				}
+			}
+			final long fp = heads[min];
+			advance(min);
+			return fp;
+		}
+
+		@Override
+		public void close() throws IOException {
+			for (DataInputStream dis : streams) {
+				dis.close();
+			}
+		}
+	}
+}
@@ -153,6 +153,7 @@ public class MSBDiskFPSet extends HeapBasedDiskFPSet {
 						
 					}
 					writeFP(outRAF, fp);
+					addToBloomFilter(fp);
 					// we used one fp up, thus move to next one
 					try {
 						fp = itr.next();
@@ -174,6 +175,22 @@ public class MSBDiskFPSet extends HeapBasedDiskFPSet {
 			// maintain object invariants
 			fileCnt += buffLen;
 		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#writeNewEntries(java.io.RandomAccessFile)
+		 */
+		@Override
+		protected void writeNewEntries(RandomAccessFile out) throws IOException {
+			// Same traversal as TLCIterator minus marking the fps flushed.
+			for (int j = 0; j < tbl.length; j++) {
+				final long[] bucket = tbl[j];
+				if (bucket != null) {
+					for (int k = 0; k < bucket.length && bucket[k] > 0; k++) {
+						out.writeLong(bucket[k]);
+					}
+				}
+			}
+		}
 	}
 
 	/**
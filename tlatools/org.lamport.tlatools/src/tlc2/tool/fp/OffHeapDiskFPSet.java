@@ -31,6 +31,8 @@ import tlc2.tool.fp.LongArrays.LongComparator;
 import tlc2.tool.fp.management.DiskFPSetMXWrapper;
 import tlc2.util.BufferedRandomAccessFile;
 import util.Assert;
+import util.FileUtil;
+import util.TLAFlightRecorder;
 
 /**
  * see OpenAddressing.tla
@@ -61,6 +63,11 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 				for (OffHeapDiskFPSet set : sets) {
 					set.evict();
 				}
+				// Take the checkpoints requested by beginChkpt(String) while the
+				// workers still wait.
+				for (OffHeapDiskFPSet set : sets) {
+					set.checkpointIfPending();
+				}
 
 				// Release exclusive access. It has to be done by the runnable
 				// before workers waiting on the barrier wake up again.
@@ -120,7 +127,12 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		return LongArray.isSupported();
 	}
 
-	private final transient LongArray array;
+	/**
+	 * The (primary) in-memory hash table workers insert into. Only replaced by
+	 * {@link #evict()} in double-buffered mode, which runs while all workers wait
+	 * at the barrier.
+	 */
+	private transient LongArray array;
 	
 	/**
 	 * The indexer maps a fingerprint to a in-memory bucket and the associated lock
@@ -129,13 +141,58 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 
 	private int numThreads;
 
+	/**
+	 * If true, the available memory is split into two tables. When the active
+	 * table is full, {@link #evict()} only swaps it with the other (empty) table
+	 * and the full table gets merged into the disk file by a background thread.
+	 * Workers meanwhile continue to insert into the fresh table and
+	 * {@link #put(long)} and {@link #contains(long)} look up both tables. The
+	 * merged disk file is swapped in by the next eviction. Thus, workers only
+	 * wait for the disk if they fill a table faster than the background thread
+	 * merges the other one. Turned on with
+	 * -Dtlc2.tool.fp.OffHeapDiskFPSet.doubleBuffer=true.
+	 */
+	private final boolean doubleBuffer = Boolean.getBoolean(OffHeapDiskFPSet.class.getName() + ".doubleBuffer");
+	/**
+	 * The (full) table that is being merged into the disk file by the background
+	 * flusher. It is not modified until the merge has been installed by
+	 * {@link #awaitFlush()}. null if no merge is pending.
+	 */
+	private transient LongArray flushing;
+	/**
+	 * The number of fingerprints in {@link #flushing}.
+	 */
+	private long flushingCnt;
+	/**
+	 * The empty table that becomes the active table with the next eviction. null
+	 * while the second table is {@link #flushing}.
+	 */
+	private transient LongArray spare;
+	private transient ExecutorService flushExecutor;
+	/**
+	 * The pending merge of {@link #flushing} which yields the index of the new disk file.
+	 */
+	private transient Future<long[]> pendingFlush;
+
+	/**
+	 * The name of the checkpoint requested by {@link #beginChkpt(String)} (null
+	 * if none) and its failure.
+	 */
+	private transient String pendingChkpt;
+	private transient IOException chkptFailure;
+
 	protected OffHeapDiskFPSet(final FPSetConfiguration fpSetConfig) throws RemoteException {
 		super(fpSetConfig);
 		
-		final long positions = fpSetConfig.getMemoryInFingerprintCnt();
+		final long positions = doubleBuffer ? fpSetConfig.getMemoryInFingerprintCnt() / 2L
+				: fpSetConfig.getMemoryInFingerprintCnt();
 		
 		// Determine base address which varies depending on machine architecture.
 		this.array = new LongArray(positions);
+		if (doubleBuffer) {
+			this.spare = new LongArray(positions);
+			this.maxTblCnt = positions;
+		}
 		
 		// If Hamming weight is 1, the logical index address can be calculated
 		// significantly faster by bit-shifting. However, with large memory
@@ -169,6 +226,14 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		this.numThreads = numThreads;
 		
 		array.zeroMemory(numThreads);
+		if (doubleBuffer) {
+			spare.zeroMemory(numThreads);
+			flushExecutor = Executors.newSingleThreadExecutor(r -> {
+				final Thread t = new Thread(r, "TLC OffHeapDiskFPSet Flusher");
+				t.setDaemon(true);
+				return t;
+			});
+		}
 		return this;
 	}
 	
@@ -181,6 +246,15 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 	}
 
 	public void evict() {
+		if (doubleBuffer) {
+			try {
+				swapTables();
+			} catch (IOException e) {
+				throw new OffHeapRuntimeException(e);
+			}
+			return;
+		}
+		
 		// statistics
 		growDiskMark++;
 		final long timestamp = System.currentTimeMillis();
@@ -211,13 +285,100 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 
 		// statistics and logging again.
 		final long l = System.currentTimeMillis() - timestamp;
-		flushTime += l;
+		flushTime.add(l);
 		LOGGER.log(Level.FINE,
 				"Finished eviction of disk {0} the {1}. time at {2}, in {3} sec after {4} insertions, load factor {5} and reprobe of {6}.",
 				new Object[] { ((DiskFPSetMXWrapper) diskFPSetMXWrapper).getObjectName(), getGrowDiskMark(), l,
 						System.currentTimeMillis(), insertions, lf, PROBE_LIMIT });
 	}
 
+	/**
+	 * Makes the full table the {@link #flushing} table whose merge into the disk
+	 * file then runs in the background, and continues with the (empty) spare
+	 * table. Requires exclusive access, i.e. all workers wait at the barrier.
+	 */
+	private void swapTables() throws IOException {
+		// Have to install the previous merge (if any) first, because its table is
+		// the one to continue with. This is where workers wait for the disk.
+		awaitFlush();
+		
+		final long insertions = tblCnt.sum();
+		if (insertions == 0L) {
+			return;
+		}
+		growDiskMark++;
+		LOGGER.log(Level.FINE, "Started background eviction of disk {0} the {1}. time after {2} insertions.",
+				new Object[] { ((DiskFPSetMXWrapper) diskFPSetMXWrapper).getObjectName(), getGrowDiskMark(),
+						insertions });
+		
+		assert checkInput(array, indexer, PROBE_LIMIT) : "Table violates invariants prior to eviction: "
+				+ array.toString();
+		
+		flushing = array;
+		flushingCnt = insertions;
+		array = spare;
+		spare = null;
+		tblCnt.reset();
+		// The synchronous flusher (see checkFPs or recovery) has to operate on the
+		// active table.
+		flusher = new OffHeapMSBFlusher(array);
+		
+		pendingFlush = flushExecutor.submit(new DoubleBufferedFlusher(flushing, flushingCnt));
+	}
+
+	/**
+	 * Waits for the pending background merge (if any) to finish and swaps in the
+	 * new disk file. The flushed table is cleared to become the spare table.
+	 * Requires exclusive access.
+	 */
+	private void awaitFlush() throws IOException {
+		if (pendingFlush == null) {
+			return;
+		}
+		final long[] newIndex;
+		try {
+			newIndex = pendingFlush.get();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new OffHeapRuntimeException(ie);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new OffHeapRuntimeException(e);
+		} finally {
+			pendingFlush = null;
+		}
+		
+		// Reopen the readers on the merged file (see Flusher#mergeNewEntries).
+		for (int i = 0; i < braf.length; i++) {
+			braf[i].close();
+		}
+		for (int i = 0; i < brafPool.length; i++) {
+			brafPool[i].close();
+		}
+		try {
+			FileUtil.replaceFile(tmpFilename, fpFilename);
+		} catch (IOException e) {
+			Assert.fail(EC.SYSTEM_UNABLE_NOT_RENAME_FILE, e);
+		}
+		for (int i = 0; i < braf.length; i++) {
+			braf[i] = new BufferedRandomAccessFile(fpFilename, "r");
+		}
+		for (int i = 0; i < brafPool.length; i++) {
+			brafPool[i] = new BufferedRandomAccessFile(fpFilename, "r");
+		}
+		poolIndex = 0;
+
+		index = newIndex;
+		fileCnt += flushingCnt;
+		
+		flushing.zeroMemory(numThreads);
+		spare = flushing;
+		flushing = null;
+		flushingCnt = 0L;
+	}
+
 	private Flusher getFlusher(final int numThreads, final long insertions) {
 		if (array.size() >= 8192 && Math.floor(array.size() / (double) numThreads) > 2 * PROBE_LIMIT) {
 			return new ConcurrentOffHeapMSBFlusher(array, PROBE_LIMIT, numThreads, insertions);
@@ -239,11 +400,19 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 	 */
 	public long sizeof() {
 		long size = 44; // approx size of this DiskFPSet object
-		size += maxTblCnt * LongSize;
+		size += maxTblCnt * LongSize * (doubleBuffer ? 2L : 1L);
 		size += getIndexCapacity() * 4;
 		return size;
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.DiskFPSet#size()
+	 */
+	@Override
+	public long size() {
+		return super.size() + flushingCnt;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#needsDiskFlush()
 	 */
@@ -293,6 +462,25 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		return free;
 	}
 
+	/**
+	 * Looks up fp0 in the table that is being merged into the disk file.
+	 */
+	private final boolean flushingLookup(final long fp0) {
+		final LongArray a = flushing;
+		if (a == null) {
+			return false;
+		}
+		for (int i = 0; i <= PROBE_LIMIT; i++) {
+			final long l = a.get(indexer.getIdx(fp0, i));
+			if (fp0 == (l & FLUSHED_MASK)) {
+				return true;
+			} else if (l == EMPTY) {
+				return false;
+			}
+		}
+		return false;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#memInsert(long)
 	 */
@@ -351,16 +539,23 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		// zeros the msb
 		final long fp0 = fp & FLUSHED_MASK;
 
-		// Only check primary and disk iff there exists a disk file. index is
-		// created when we wait and thus cannot race.
+		// Only check primary and disk iff there exists a disk file (or a table
+		// being merged into it). index is created when we wait and thus cannot
+		// race.
 		int start = 0;
-		if (index != null) {
+		if (index != null || flushing != null) {
 			// Lookup primary memory
 			if ((start = memLookup0(fp0)) == FOUND) {
 				this.memHitCnt.increment();
 				return true;
 			}
 			
+			// Lookup the table being flushed
+			if (flushingLookup(fp0)) {
+				this.memHitCnt.increment();
+				return true;
+			}
+			
 			// Lookup on disk
 			if (this.diskLookup(fp0)) {
 				this.diskHitCnt.increment();
@@ -386,7 +581,7 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		final long fp0 = fp & FLUSHED_MASK;
 		
 		// Lookup in primary
-		if (memLookup(fp0)) {
+		if (memLookup(fp0) || flushingLookup(fp0)) {
 			return true;
 		}
 		
@@ -406,6 +601,65 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		SYNC.evict();
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.NonCheckpointableDiskFPSet#beginChkpt(java.lang.String)
+	 */
+	@Override
+	public void beginChkpt(final String fname) throws IOException {
+		if (deltaChkpt) {
+			// Checkpoint as part of an eviction, i.e. with exclusive access to the
+			// table like evict (see OffHeapSynchronizer#phaser).
+			this.pendingChkpt = fname;
+			this.chkptFailure = null;
+			forceFlush();
+			SYNC.awaitEviction();
+			if (this.chkptFailure != null) {
+				throw this.chkptFailure;
+			}
+		} else {
+			super.beginChkpt(fname);
+		}
+	}
+
+	private void checkpointIfPending() {
+		if (this.pendingChkpt == null) {
+			return;
+		}
+		try {
+			// In double-buffered mode, evict has only started to merge the table.
+			flusher.flushTable();
+			beginDeltaChkpt(this.pendingChkpt);
+		} catch (IOException e) {
+			this.chkptFailure = e;
+		} finally {
+			this.pendingChkpt = null;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.NonCheckpointableDiskFPSet#commitChkpt(java.lang.String)
+	 */
+	@Override
+	public void commitChkpt(final String fname) throws IOException {
+		if (deltaChkpt) {
+			commitChkptFile(fname);
+		} else {
+			super.commitChkpt(fname);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.NonCheckpointableDiskFPSet#recover(java.lang.String)
+	 */
+	@Override
+	public void recover(final String fname) throws IOException {
+		if (deltaChkpt) {
+			recoverDeltaChkpt(fname);
+		} else {
+			super.recover(fname);
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#acquireTblWriteLock()
 	 */
@@ -438,7 +692,7 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 	 * @see tlc2.tool.fp.DiskFPSet#getOverallCapacity()
 	 */
 	public long getOverallCapacity() {
-		return array.size();
+		return array.size() * (doubleBuffer ? 2L : 1L);
 	}
 	
 	/* (non-Javadoc)
@@ -455,6 +709,8 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 	 */
 	@Override
 	public long checkFPs() throws IOException {
+		// Only the active table is considered (see below).
+		awaitFlush();
 		if (getTblCnt() <= 0) {
 			return Long.MAX_VALUE;
 		}
@@ -1052,6 +1308,17 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 			a = array;
 		}
 
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#flushTable()
+		 */
+		@Override
+		void flushTable() throws IOException {
+			// A synchronous flush (checkpoint, recovery, ...) must not race with the
+			// background merge of the other table in double-buffered mode.
+			awaitFlush();
+			super.flushTable();
+		}
+
 		/* (non-Javadoc)
 		 * @see tlc2.tool.fp.DiskFPSet.Flusher#prepareTable()
 		 */
@@ -1091,6 +1358,19 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 			fileCnt += buffLen;
 		}
 
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#writeNewEntries(java.io.RandomAccessFile)
+		 */
+		@Override
+		protected void writeNewEntries(RandomAccessFile out) throws IOException {
+			// The table has been sorted by prepareTable. Unlike markNext, next does
+			// not mark the elements evicted.
+			final Iterator itr = new Iterator(array, tblCnt.sum(), indexer);
+			while (itr.hasNext()) {
+				out.writeLong(itr.next());
+			}
+		}
+
 		protected void mergeNewEntries(BufferedRandomAccessFile[] inRAFs, RandomAccessFile outRAF, Iterator itr)
 				throws IOException {
 			inRAFs[0].seek(0);
@@ -1123,6 +1403,7 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 				// From memory/table
 		        if (tableReads > 0 && (fp < value || diskReads == 0)) {
 					outRAF.writeLong(fp);
+					addToBloomFilter(fp);
 					tableReads--;
 					diskWriteCnt.increment();
 					// Read next value if any.
@@ -1155,6 +1436,134 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		}
 	}
 	
+	/**
+	 * Merges the full table into a new disk file (tmpFilename) in the background
+	 * (see {@link OffHeapDiskFPSet#doubleBuffer}). Unlike the other flushers, it
+	 * does not sort the table in place but reads it in order with a
+	 * {@link SortingIterator}, so that workers can look up the table while it is
+	 * merged. The new file and index get installed by
+	 * {@link OffHeapDiskFPSet#awaitFlush()}.
+	 */
+	public class DoubleBufferedFlusher extends Flusher implements Callable<long[]> {
+
+		private final LongArray a;
+		private final long insertions;
+
+		public DoubleBufferedFlusher(final LongArray array, final long insertions) {
+			this.a = array;
+			this.insertions = insertions;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Callable#call()
+		 */
+		@Override
+		public long[] call() throws IOException {
+			final long timestamp = System.currentTimeMillis();
+			final Object event = TLAFlightRecorder.beginFPSetFlush();
+			
+			logFlushedEntries(this);
+
+			final File tmpFile = new File(tmpFilename);
+			tmpFile.delete();
+			final BufferedRandomAccessFile outRAF = new BufferedRandomAccessFile(tmpFile, "rw");
+			// A reader of its own because the workers continue to use theirs.
+			final BufferedRandomAccessFile inRAF = new BufferedRandomAccessFile(fpFilename, "r");
+			try {
+				outRAF.setLength((insertions + fileCnt) * LongSize);
+				mergeNewEntries(new BufferedRandomAccessFile[] { inRAF }, outRAF);
+				
+				final long[] newIndex = new long[calculateIndexLen(insertions)];
+				final long length = (outRAF.length() / LongSize) - 1L;
+				writeIndex(newIndex, outRAF, length);
+				assert checkIndex(newIndex) : "Broken disk index.";
+				assert checkIndex(newIndex, outRAF, length) : "Misaligned disk index.";
+				// fileCnt is updated by awaitFlush.
+				TLAFlightRecorder.endFPSetFlush(event, insertions, insertions + fileCnt, true);
+				return newIndex;
+			} finally {
+				inRAF.close();
+				outRAF.close();
+				
+				final long l = System.currentTimeMillis() - timestamp;
+				// Updated concurrently with evictions of the active table.
+				flushTime.add(l);
+				LOGGER.log(Level.FINE, "Finished background eviction of disk {0} in {1} ms after {2} insertions.",
+						new Object[] { ((DiskFPSetMXWrapper) diskFPSetMXWrapper).getObjectName(), l, insertions });
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#mergeNewEntries(tlc2.util.BufferedRandomAccessFile[], java.io.RandomAccessFile)
+		 */
+		@Override
+		protected void mergeNewEntries(final BufferedRandomAccessFile[] inRAFs, final RandomAccessFile outRAF)
+				throws IOException {
+			final BufferedRandomAccessFile inRAF = inRAFs[0];
+			final SortingIterator itr = new SortingIterator(a, insertions, indexer, PROBE_LIMIT);
+			
+			// See OffHeapMSBFlusher#mergeNewEntries(..., long) except that the
+			// table's elements are not marked evicted.
+			long diskReads = fileCnt;
+			long value = 0L;
+			if (diskReads > 0) {
+				value = inRAF.readLong();
+			}
+			
+			long tableReads = insertions;
+			long fp = itr.next();
+			
+			do {
+				if (value == fp) {
+					MP.printWarning(EC.TLC_FP_VALUE_ALREADY_ON_DISK, String.valueOf(value));
+				}
+				assert fp > EMPTY : "Wrote an invalid fingerprint to disk.";
+				
+				// From memory/table
+				if (tableReads > 0 && (fp < value || diskReads == 0)) {
+					outRAF.writeLong(fp);
+					// Workers concurrently query the filter (see BlockedBloomFilter).
+					// A fingerprint not yet added is found in the flushing table.
+					addToBloomFilter(fp);
+					tableReads--;
+					diskWriteCnt.increment();
+					if (tableReads > 0) {
+						final long nextFP = itr.next();
+						assert nextFP > fp : nextFP + " > " + fp + " from table";
+						fp = nextFP;
+					}
+				}
+				
+				// From file/disk
+				if (diskReads > 0 && (value < fp || tableReads == 0)) {
+					outRAF.writeLong(value);
+					diskReads--;
+					diskWriteCnt.increment();
+					if (diskReads > 0) {
+						final long nextValue = inRAF.readLong();
+						assert value < nextValue;
+						value = nextValue;
+					}
+				}
+			} while (diskReads > 0 || tableReads > 0);
+			
+			// both sets used up completely
+			Assert.check(diskReads == 0L && tableReads == 0L, EC.GENERAL);
+			assert !itr.hasNext();
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.fp.DiskFPSet.Flusher#writeNewEntries(java.io.RandomAccessFile)
+		 */
+		@Override
+		protected void writeNewEntries(final RandomAccessFile out) throws IOException {
+			final SortingIterator itr = new SortingIterator(a, insertions, indexer, PROBE_LIMIT);
+			while (itr.hasNext()) {
+				out.writeLong(itr.next());
+			}
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.DiskFPSet#calculateIndexLen(long)
 	 */
@@ -1298,6 +1707,111 @@ public final class OffHeapDiskFPSet extends NonCheckpointableDiskFPSet implement
 		}
 	}
 
+	/**
+	 * A non-thread safe iterator which returns the elements of an unsorted table
+	 * in ascending order without modifying the table. An element at position pos
+	 * has an index in [pos - (reprobe - 1), pos] unless it wrapped around the end
+	 * of the table. Thus, after scanning pos, an element whose index is smaller
+	 * than pos - (reprobe - 1) is smaller than all elements not yet scanned. The
+	 * iterator keeps the remaining (at most reprobe) elements in a min-heap. The
+	 * wrapped elements are the largest ones and returned last.
+	 */
+	static class SortingIterator {
+
+		private final LongArray array;
+		private final long elements;
+		private final Indexer indexer;
+		private final int reprobe;
+
+		private final long[] heap;
+		private int heapSize = 0;
+		private final long[] wrapped;
+		private int wrappedCnt = 0;
+
+		private long pos = 0L;
+		private long elementsRead = 0L;
+
+		SortingIterator(final LongArray array, final long elements, final Indexer indexer, final int reprobe) {
+			this.array = array;
+			this.elements = elements;
+			this.indexer = indexer;
+			this.reprobe = reprobe;
+			this.heap = new long[2 * reprobe + 1];
+			this.wrapped = new long[reprobe];
+		}
+
+		/**
+		 * @return the next largest element of the table.
+		 * @exception NoSuchElementException
+		 *                iteration has no more elements.
+		 */
+		long next() {
+			final long size = array.size();
+			while (pos < size) {
+				if (heapSize > 0 && indexer.getIdx(heap[0]) < pos - (reprobe - 1)) {
+					return poll();
+				}
+				final long elem = array.get(pos);
+				if (elem > EMPTY) {
+					if (indexer.getIdx(elem) > pos) {
+						wrapped[wrappedCnt++] = elem;
+					} else {
+						push(elem);
+					}
+				}
+				pos++;
+			}
+			if (wrappedCnt > 0) {
+				// The table has been scanned completely.
+				for (int i = 0; i < wrappedCnt; i++) {
+					push(wrapped[i]);
+				}
+				wrappedCnt = 0;
+			}
+			if (heapSize > 0) {
+				return poll();
+			}
+			throw new NoSuchElementException();
+		}
+
+		boolean hasNext() {
+			return elementsRead < elements;
+		}
+
+		private void push(final long elem) {
+			int i = heapSize++;
+			while (i > 0) {
+				final int parent = (i - 1) >>> 1;
+				if (heap[parent] <= elem) {
+					break;
+				}
+				heap[i] = heap[parent];
+				i = parent;
+			}
+			heap[i] = elem;
+		}
+
+		private long poll() {
+			final long min = heap[0];
+			final long last = heap[--heapSize];
+			int i = 0;
+			int child;
+			while ((child = 2 * i + 1) < heapSize) {
+				if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+					child++;
+				}
+				if (last <= heap[child]) {
+					break;
+				}
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = last;
+			elementsRead++;
+			return min;
+		}
+	}
+
 	public static class OffHeapRuntimeException extends RuntimeException {
 
 		public OffHeapRuntimeException(Exception ie) {
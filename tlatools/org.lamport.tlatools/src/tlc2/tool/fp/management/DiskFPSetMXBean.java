@@ -26,6 +26,14 @@ public interface DiskFPSetMXBean {
 	 * @see DiskFPSet#getDiskLookupCnt()
 	 */
 	long getDiskLookupCnt();
+	/**
+	 * @see DiskFPSet#getBloomFilterSkipCnt()
+	 */
+	long getBloomFilterSkipCnt();
+	/**
+	 * @see DiskFPSet#getBloomFilterFalsePositiveRate()
+	 */
+	double getBloomFilterFalsePositiveRate();
 	/**
 	 * @see DiskFPSet#getDiskSeekCnt()
 	 */
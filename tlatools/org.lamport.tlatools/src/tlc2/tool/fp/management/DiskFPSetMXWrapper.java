@@ -60,6 +60,20 @@ public class DiskFPSetMXWrapper extends TLCStandardMBean implements DiskFPSetMXB
 		return fpset.getDiskLookupCnt();
 	}
 
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.management.DiskFPSetMXBean#getBloomFilterSkipCnt()
+	 */
+	public long getBloomFilterSkipCnt() {
+		return fpset.getBloomFilterSkipCnt();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.fp.management.DiskFPSetMXBean#getBloomFilterFalsePositiveRate()
+	 */
+	public double getBloomFilterFalsePositiveRate() {
+		return fpset.getBloomFilterFalsePositiveRate();
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.fp.management.DiskFPSetSamplerMXBean#getMemHitCnt()
 	 */
@@ -0,0 +1,572 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import tla2sany.semantic.APSubstInNode;
+import tla2sany.semantic.ASTConstants;
+import tla2sany.semantic.ExprNode;
+import tla2sany.semantic.ExprOrOpArgNode;
+import tla2sany.semantic.FormalParamNode;
+import tla2sany.semantic.LabelNode;
+import tla2sany.semantic.LetInNode;
+import tla2sany.semantic.ModuleNode;
+import tla2sany.semantic.OpApplNode;
+import tla2sany.semantic.OpArgNode;
+import tla2sany.semantic.OpDefNode;
+import tla2sany.semantic.SemanticNode;
+import tla2sany.semantic.Subst;
+import tla2sany.semantic.SubstInNode;
+import tla2sany.semantic.SymbolNode;
+import tlc2.tool.Action;
+import tlc2.tool.BuiltInOPs;
+import tlc2.tool.ITool;
+import tlc2.tool.TLCState;
+import tlc2.tool.ToolGlobals;
+import tlc2.util.Context;
+import tlc2.value.impl.LazyValue;
+
+/**
+ * A {@link Footprint} over-approximates the variables that an expression reads
+ * and the ones that it writes, i.e. primes. The footprint is derived statically
+ * from the semantic tree by following the definitions of user-defined
+ * operators (with their overrides in the model), substitutions of instantiated
+ * modules, and operator arguments.
+ * <p>
+ * <code>UNCHANGED v</code> and <code>v' = v</code> with v a variable, a tuple
+ * of variables, or a definition thereof neither read nor write v: The identity
+ * commutes with every other action. However, every variable an action writes is
+ * also considered to be read, because TLC evaluates <code>v' = v</code> as a
+ * check once v' has been assigned.
+ * <p>
+ * Expressions that TLC cannot analyze, such as action composition, operators
+ * with side effects (TLCGet, TLCSet, Trace, ...), or operators passed as
+ * arguments, have the unknown footprint that reads and writes all variables.
+ */
+public final class Footprint {
+
+	/**
+	 * Operators whose value does not only depend on the variables in their
+	 * arguments, qualified by the standard module that defines them. An
+	 * operator is matched by its source definition (see
+	 * {@link OpDefNode#getSource()}), because its name is prefixed if the
+	 * module is instantiated (e.g. T!TLCGet with T == INSTANCE TLC).
+	 */
+	private static final Set<String> IMPURE = new HashSet<>();
+	static {
+		IMPURE.add("TLC!TLCGet");
+		IMPURE.add("TLC!TLCSet");
+		IMPURE.add("TLCExt!Trace");
+		IMPURE.add("TLCExt!CounterExample");
+	}
+
+	private static boolean isImpure(final OpDefNode op) {
+		final OpDefNode src = op.getSource();
+		final ModuleNode module = src.getOriginallyDefinedInModuleNode();
+		return module != null && IMPURE.contains(module.getName() + "!" + src.getName());
+	}
+
+	/**
+	 * The maximum number of nodes visited to compute a footprint (definitions
+	 * are expanded at each application).
+	 */
+	private static final int BUDGET = Integer.getInteger(Footprint.class.getName() + ".budget", 1 << 20);
+
+	private final BitSet reads;
+	private final BitSet writes;
+	private final boolean unknown;
+
+	private Footprint(final BitSet reads, final BitSet writes, final boolean unknown) {
+		this.reads = reads;
+		this.writes = writes;
+		this.unknown = unknown;
+	}
+
+	/**
+	 * @return The footprint of the given action (in its context).
+	 */
+	public static Footprint of(final ITool tool, final Action action) {
+		return of(tool, action.pred, action.con);
+	}
+
+	/**
+	 * @return The footprint of the given expression.
+	 */
+	public static Footprint of(final ITool tool, final SemanticNode expr) {
+		return of(tool, expr, Context.Empty);
+	}
+
+	/**
+	 * @return The footprint of the given expression in the given context.
+	 */
+	public static Footprint of(final ITool tool, final SemanticNode expr, final Context c) {
+		final Analyzer analyzer = new Analyzer(tool);
+		try {
+			analyzer.visit(expr, Binding.of(c), false, false);
+		} catch (UnknownFootprint e) {
+			return unknown(analyzer.numVars);
+		}
+		// See class comment.
+		analyzer.reads.or(analyzer.writes);
+		return new Footprint(analyzer.reads, analyzer.writes, false);
+	}
+
+	/**
+	 * @return The union of the footprints of the given expressions.
+	 */
+	public static Footprint of(final ITool tool, final List<? extends SemanticNode> exprs) {
+		final int numVars = getNumVars();
+		final BitSet reads = new BitSet(numVars);
+		final BitSet writes = new BitSet(numVars);
+		for (SemanticNode expr : exprs) {
+			final Footprint fp = of(tool, expr);
+			if (fp.isUnknown()) {
+				return fp;
+			}
+			reads.or(fp.reads);
+			writes.or(fp.writes);
+		}
+		return new Footprint(reads, writes, false);
+	}
+
+	private static Footprint unknown(final int numVars) {
+		final BitSet all = new BitSet(numVars);
+		all.set(0, numVars);
+		return new Footprint(all, all, true);
+	}
+
+	private static int getNumVars() {
+		return TLCState.Empty.getVars().length;
+	}
+
+	/**
+	 * @return true iff the footprint could not be determined and, thus, reads and
+	 *         writes all variables.
+	 */
+	public boolean isUnknown() {
+		return unknown;
+	}
+
+	/**
+	 * @return The indices (see UniqueString#getVarLoc()) of the variables read.
+	 */
+	public BitSet getReads() {
+		return (BitSet) reads.clone();
+	}
+
+	/**
+	 * @return The indices (see UniqueString#getVarLoc()) of the variables
+	 *         written.
+	 */
+	public BitSet getWrites() {
+		return (BitSet) writes.clone();
+	}
+
+	public boolean readsAny(final BitSet vars) {
+		return reads.intersects(vars);
+	}
+
+	public boolean writesAny(final BitSet vars) {
+		return writes.intersects(vars);
+	}
+
+	/**
+	 * @return true iff this and the other footprint conflict, i.e. one writes a
+	 *         variable that the other reads or writes. Actions whose footprints do
+	 *         not conflict are independent: Neither enables or disables the
+	 *         other, and they commute.
+	 */
+	public boolean conflicts(final Footprint other) {
+		return writes.intersects(other.reads) || other.writes.intersects(reads);
+	}
+
+	@Override
+	public String toString() {
+		return unknown ? "Footprint [unknown]" : "Footprint [reads=" + reads + ", writes=" + writes + "]";
+	}
+
+	@SuppressWarnings("serial")
+	private static final class UnknownFootprint extends RuntimeException {
+		UnknownFootprint() {
+			super(null, null, false, false);
+		}
+	}
+
+	/**
+	 * Binds a formal parameter or a substituted constant/variable to the
+	 * expression it stands for (in the scope of its own bindings).
+	 */
+	private static final class Binding {
+		private final SymbolNode symbol;
+		private final SemanticNode expr;
+		private final Binding scope;
+		private final Binding next;
+
+		Binding(final SymbolNode symbol, final SemanticNode expr, final Binding scope, final Binding next) {
+			this.symbol = symbol;
+			this.expr = expr;
+			this.scope = scope;
+			this.next = next;
+		}
+
+		/**
+		 * @return The bindings of the formal parameters in the given context of
+		 *         an action to the (lazily evaluated) arguments. Parameters
+		 *         bound to values are omitted, they do not refer to variables.
+		 */
+		static Binding of(final Context c) {
+			final List<Context> entries = new ArrayList<>();
+			for (Context cur = c; cur != null && !cur.isEmpty(); cur = cur.next()) {
+				if (cur.getName() != null) {
+					entries.add(cur);
+				}
+			}
+			Binding res = null;
+			for (int i = entries.size() - 1; i >= 0; i--) {
+				final Context entry = entries.get(i);
+				final Object value = entry.getValue();
+				if (value instanceof LazyValue) {
+					final LazyValue lv = (LazyValue) value;
+					res = new Binding(entry.getName(), lv.expr, of(lv.con), res);
+				} else if (value instanceof OpDefNode) {
+					res = new Binding(entry.getName(), (OpDefNode) value, null, res);
+				}
+			}
+			return res;
+		}
+
+		static Binding lookup(Binding b, final SymbolNode symbol) {
+			while (b != null) {
+				if (b.symbol == symbol) {
+					return b;
+				}
+				b = b.next;
+			}
+			return null;
+		}
+	}
+
+	private static final ExprOrOpArgNode[] NO_ARGS = new ExprOrOpArgNode[0];
+
+	private static final class Analyzer {
+		private final ITool tool;
+		private final int numVars;
+		private final BitSet reads;
+		private final BitSet writes;
+		private final List<OpDefNode> stack = new ArrayList<>();
+		private int budget = BUDGET;
+
+		Analyzer(final ITool tool) {
+			this.tool = tool;
+			this.numVars = getNumVars();
+			this.reads = new BitSet(numVars);
+			this.writes = new BitSet(numVars);
+		}
+
+		void visit(final SemanticNode node, final Binding b, final boolean primed, final boolean enabled) {
+			if (node == null) {
+				return;
+			}
+			if (--budget < 0) {
+				throw new UnknownFootprint();
+			}
+			switch (node.getKind()) {
+			case ASTConstants.OpApplKind:
+				visitAppl((OpApplNode) node, b, primed, enabled);
+				return;
+			case ASTConstants.LetInKind:
+				visit(((LetInNode) node).getBody(), b, primed, enabled);
+				return;
+			case ASTConstants.SubstInKind: {
+				final SubstInNode subst = (SubstInNode) node;
+				visit(subst.getBody(), bind(subst.getSubsts(), b), primed, enabled);
+				return;
+			}
+			case ASTConstants.APSubstInKind: {
+				final APSubstInNode subst = (APSubstInNode) node;
+				visit(subst.getBody(), bind(subst.getSubsts(), b), primed, enabled);
+				return;
+			}
+			case ASTConstants.LabelKind:
+				visit(((LabelNode) node).getBody(), b, primed, enabled);
+				return;
+			case ASTConstants.NumeralKind:
+			case ASTConstants.DecimalKind:
+			case ASTConstants.StringKind:
+			case ASTConstants.AtNodeKind:
+				// @ refers to the function of the EXCEPT, which is visited anyway.
+				return;
+			case ASTConstants.OpArgKind:
+				visitSymbol(((OpArgNode) node).getOp(), NO_ARGS, b, b, primed, enabled);
+				return;
+			case ASTConstants.UserDefinedOpKind:
+				// An operator bound by the context of an action.
+				visitUserDefined((OpDefNode) node, NO_ARGS, b, b, primed, enabled);
+				return;
+			default:
+				throw new UnknownFootprint();
+			}
+		}
+
+		private static Binding bind(final Subst[] substs, final Binding b) {
+			Binding res = b;
+			for (Subst subst : substs) {
+				res = new Binding(subst.getOp(), subst.getExpr(), b, res);
+			}
+			return res;
+		}
+
+		private void visitAll(final SemanticNode[] nodes, final Binding b, final boolean primed,
+				final boolean enabled) {
+			if (nodes != null) {
+				for (SemanticNode node : nodes) {
+					visit(node, b, primed, enabled);
+				}
+			}
+		}
+
+		private void visitAppl(final OpApplNode node, final Binding b, final boolean primed, final boolean enabled) {
+			// The bounds of quantifiers, set comprehensions, ...
+			visitAll(node.getBdedQuantBounds(), b, primed, enabled);
+			visitSymbol(node.getOperator(), node.getArgs(), b, b, primed, enabled);
+		}
+
+		/**
+		 * Visits the application of op to args, where the arguments are in the
+		 * scope of argScope and op in the one of opScope.
+		 */
+		private void visitSymbol(final SymbolNode op, final ExprOrOpArgNode[] args, final Binding argScope,
+				final Binding opScope, final boolean primed, final boolean enabled) {
+			final Binding binding = Binding.lookup(opScope, op);
+			if (binding != null) {
+				if (binding.expr instanceof OpArgNode) {
+					// An operator passed as an argument is applied to args.
+					visitSymbol(((OpArgNode) binding.expr).getOp(), args, argScope, binding.scope, primed, enabled);
+				} else if (binding.expr instanceof OpDefNode) {
+					visitUserDefined((OpDefNode) binding.expr, args, argScope, binding.scope, primed, enabled);
+				} else {
+					visit(binding.expr, binding.scope, primed, enabled);
+					visitAll(args, argScope, primed, enabled);
+				}
+				return;
+			}
+
+			switch (op.getKind()) {
+			case ASTConstants.VariableDeclKind: {
+				final int idx = op.getName().getVarLoc();
+				if (idx < 0 || idx >= numVars) {
+					throw new UnknownFootprint();
+				}
+				if (primed && !enabled) {
+					writes.set(idx);
+				} else {
+					reads.set(idx);
+				}
+				return;
+			}
+			case ASTConstants.ConstantDeclKind: {
+				// A constant operator might be overridden by a definition in the model.
+				final Object val = tool.lookup(op);
+				if (val instanceof OpDefNode) {
+					visitUserDefined((OpDefNode) val, args, argScope, null, primed, enabled);
+				} else {
+					visitAll(args, argScope, primed, enabled);
+				}
+				return;
+			}
+			case ASTConstants.FormalParamKind:
+				// Bound to a value by the context of the action or by a quantifier.
+				// However, an operator bound by the context is unknown.
+				if (args.length > 0) {
+					throw new UnknownFootprint();
+				}
+				return;
+			case ASTConstants.BuiltInKind:
+				visitBuiltIn(BuiltInOPs.getOpCode(op.getName()), args, argScope, primed, enabled);
+				return;
+			case ASTConstants.UserDefinedOpKind:
+				visitUserDefined((OpDefNode) op, args, argScope, opScope, primed, enabled);
+				return;
+			default:
+				throw new UnknownFootprint();
+			}
+		}
+
+		private void visitBuiltIn(final int opcode, final ExprOrOpArgNode[] args, final Binding b,
+				final boolean primed, final boolean enabled) {
+			switch (opcode) {
+			case ToolGlobals.OPCODE_prime:
+				visit(args[0], b, true, enabled);
+				return;
+			case ToolGlobals.OPCODE_enabled:
+				visit(args[0], b, primed, true);
+				return;
+			case ToolGlobals.OPCODE_unchanged:
+				visitUnchanged(args[0], b, primed, enabled);
+				return;
+			case ToolGlobals.OPCODE_sa:
+				// [A]_v
+				visit(args[0], b, primed, enabled);
+				visitUnchanged(args[1], b, primed, enabled);
+				return;
+			case ToolGlobals.OPCODE_eq:
+				if (!enabled && !primed && isIdentity(args, b)) {
+					return;
+				}
+				visitAll(args, b, primed, enabled);
+				return;
+			case ToolGlobals.OPCODE_cdot:
+				throw new UnknownFootprint();
+			default:
+				visitAll(args, b, primed, enabled);
+				return;
+			}
+		}
+
+		private void visitUserDefined(final OpDefNode op, final ExprOrOpArgNode[] args, final Binding b,
+				final Binding opScope, final boolean primed, final boolean enabled) {
+			if (isImpure(op)) {
+				throw new UnknownFootprint();
+			}
+			final OpDefNode def = resolve(op);
+			if (def == null) {
+				// A constant or an operator overridden by Java.
+				visitAll(args, b, primed, enabled);
+				return;
+			}
+			final int opcode = BuiltInOPs.getOpCode(def.getName());
+			if (opcode != 0) {
+				// Overridden by a built-in operator in the model.
+				visitBuiltIn(opcode, args, b, primed, enabled);
+				return;
+			}
+			if (stack.contains(def)) {
+				// A recursive definition, whose body is being visited. Its arguments
+				// might be primed by the body.
+				visitAll(args, b, primed, enabled);
+				visitAll(args, b, true, enabled);
+				return;
+			}
+			final FormalParamNode[] params = def.getParams();
+			Binding bodyScope = opScope;
+			for (int i = 0; i < params.length && i < args.length; i++) {
+				bodyScope = new Binding(params[i], args[i], b, bodyScope);
+			}
+			stack.add(def);
+			visit(def.getBody(), bodyScope, primed, enabled);
+			stack.remove(stack.size() - 1);
+		}
+
+		/**
+		 * @return The definition that TLC evaluates for op, or null if op evaluates
+		 *         to a value (a constant definition or a Java override).
+		 */
+		private OpDefNode resolve(final OpDefNode op) {
+			final Object val = tool.lookup(op);
+			if (val instanceof OpDefNode) {
+				return (OpDefNode) val;
+			}
+			if (val == op || val == null) {
+				return op;
+			}
+			return null;
+		}
+
+		private void visitUnchanged(final ExprOrOpArgNode expr, final Binding b, final boolean primed,
+				final boolean enabled) {
+			if (enabled || primed) {
+				visit(expr, b, primed, enabled);
+			} else if (!isIdentity(expr, b, 0)) {
+				visit(expr, b, false, false);
+				visit(expr, b, true, false);
+			}
+		}
+
+		/**
+		 * @return true iff args are <code>v'</code> and <code>v</code>.
+		 */
+		private boolean isIdentity(final ExprOrOpArgNode[] args, final Binding b) {
+			if (args.length != 2 || !(args[0] instanceof OpApplNode) || !(args[1] instanceof OpApplNode)) {
+				return false;
+			}
+			final OpApplNode lhs = (OpApplNode) args[0];
+			final OpApplNode rhs = (OpApplNode) args[1];
+			if (BuiltInOPs.getOpCode(lhs.getOperator().getName()) != ToolGlobals.OPCODE_prime
+					|| !(lhs.getArgs()[0] instanceof OpApplNode)) {
+				return false;
+			}
+			final SymbolNode var = ((OpApplNode) lhs.getArgs()[0]).getOperator();
+			return var.getKind() == ASTConstants.VariableDeclKind && var == rhs.getOperator()
+					&& Binding.lookup(b, var) == null;
+		}
+
+		/**
+		 * @return true iff expr is a variable, a tuple of variables, or a definition
+		 *         thereof (see <code>UNCHANGED vars</code>).
+		 */
+		private boolean isIdentity(final SemanticNode expr, final Binding b, final int depth) {
+			if (!(expr instanceof OpApplNode) || depth > 32) {
+				return false;
+			}
+			final OpApplNode appl = (OpApplNode) expr;
+			final SymbolNode op = appl.getOperator();
+			final Binding binding = Binding.lookup(b, op);
+			if (binding != null) {
+				return appl.getArgs().length == 0 && isIdentity(binding.expr, binding.scope, depth + 1);
+			}
+			switch (op.getKind()) {
+			case ASTConstants.VariableDeclKind:
+				return true;
+			case ASTConstants.BuiltInKind:
+				if (BuiltInOPs.getOpCode(op.getName()) != ToolGlobals.OPCODE_tup) {
+					return false;
+				}
+				for (ExprOrOpArgNode arg : appl.getArgs()) {
+					if (!isIdentity(arg, b, depth + 1)) {
+						return false;
+					}
+				}
+				return true;
+			case ASTConstants.UserDefinedOpKind: {
+				final OpDefNode def = resolve((OpDefNode) op);
+				if (def == null || def.getArity() != 0 || BuiltInOPs.getOpCode(def.getName()) != 0) {
+					return false;
+				}
+				final ExprNode body = def.getBody();
+				if (body instanceof SubstInNode) {
+					final SubstInNode subst = (SubstInNode) body;
+					return isIdentity(subst.getBody(), bind(subst.getSubsts(), b), depth + 1);
+				}
+				return isIdentity(body, b, depth + 1);
+			}
+			default:
+				return false;
+			}
+		}
+	}
+}
@@ -8,6 +8,8 @@
 package tlc2.tool.impl;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -52,6 +54,7 @@ import tlc2.tool.TLCStateMut;
 import tlc2.tool.TLCStateMutExt;
 import tlc2.tool.ToolGlobals;
 import tlc2.tool.coverage.CostModel;
+import tlc2.tool.coverage.SamplingProfiler;
 import tlc2.util.Context;
 import tlc2.util.ExpectInlined;
 import tlc2.util.IdThread;
@@ -875,8 +878,17 @@ public abstract class Tool
   }
 
   public boolean getNextStates(final INextStateFunctor functor, final TLCState state, final Action action) {
-		this.getNextStates(action, action.pred, ActionItemList.Empty, action.con, state,
-				TLCState.Empty.createEmpty().setPredecessor(state).setAction(action), functor, action.cm);
+		final SamplingProfiler.Profile profile = SamplingProfiler.ENABLED
+				? SamplingProfiler.begin(action.getName().toString())
+				: null;
+		try {
+			this.getNextStates(action, action.pred, ActionItemList.Empty, action.con, state,
+					TLCState.Empty.createEmpty().setPredecessor(state).setAction(action), functor, action.cm);
+		} finally {
+			if (profile != null) {
+				profile.exit();
+			}
+		}
 		return false;
   }
   
@@ -1075,6 +1087,9 @@ public abstract class Tool
 				final OpDefNode opDef = (OpDefNode) val;
 				opcode = BuiltInOPs.getOpCode(opDef.getName());
 				if (opcode == 0) {
+					if (SamplingProfiler.ENABLED) {
+						return this.getNextStatesSampled(action, opDef, acts, this.getOpContext(opDef, args, c, true, cm, toolId), s0, s1, nss, cm);
+					}
 					return this.getNextStates(action, opDef.getBody(), acts, this.getOpContext(opDef, args, c, true, cm, toolId), s0, s1, nss, cm);
 	            }
           }
@@ -1114,6 +1129,20 @@ public abstract class Tool
         return getNextStatesApplSwitch(action, pred, acts, c, s0, s1, nss, cm, args, alen, opcode);
   }
   
+  private final TLCState getNextStatesSampled(final Action action, final OpDefNode opDef, final ActionItemList acts,
+		  final Context c, final TLCState s0, final TLCState s1, final INextStateFunctor nss, final CostModel cm) {
+	  final SamplingProfiler.Profile profile = SamplingProfiler.current();
+	  if (profile == null) {
+		  return this.getNextStates(action, opDef.getBody(), acts, c, s0, s1, nss, cm);
+	  }
+	  profile.enter(opDef.getName().toString());
+	  try {
+		  return this.getNextStates(action, opDef.getBody(), acts, c, s0, s1, nss, cm);
+	  } finally {
+		  profile.exit();
+	  }
+  }
+
   private final Object getNextStatesApplEvalAppl(final int alen, final ExprOrOpArgNode[] args, final Context c,
 			final TLCState s0, final TLCState s1, final CostModel cm, final Object val) {
       if (val instanceof OpValue) { // EvaluatingValue sub-class of OpValue!
@@ -1807,6 +1836,20 @@ public abstract class Tool
   /* evalAppl */
   
   @ExpectInlined
+  private final Value evalSampled(final OpDefNode opDef, final Context c, final TLCState s0, final TLCState s1,
+		  final int control, final CostModel cm) {
+	  final SamplingProfiler.Profile profile = SamplingProfiler.current();
+	  if (profile == null) {
+		  return this.eval(opDef.getBody(), c, s0, s1, control, cm);
+	  }
+	  profile.enter(opDef.getName().toString());
+	  try {
+		  return this.eval(opDef.getBody(), c, s0, s1, control, cm);
+	  } finally {
+		  profile.exit();
+	  }
+  }
+
   protected abstract Value evalAppl(final OpApplNode expr, Context c, TLCState s0,
           TLCState s1, final int control, final CostModel cm);
 
@@ -1946,7 +1989,11 @@ public abstract class Tool
             opcode = BuiltInOPs.getOpCode(opDef.getName());
             if (opcode == 0) {
               Context c1 = this.getOpContext(opDef, args, c, true, cm, toolId);
-              res = this.eval(opDef.getBody(), c1, s0, s1, control, cm);
+              if (SamplingProfiler.ENABLED) {
+                res = this.evalSampled(opDef, c1, s0, s1, control, cm);
+              } else {
+                res = this.eval(opDef.getBody(), c1, s0, s1, control, cm);
+              }
             }
           }
           else if (val instanceof Value) {
@@ -3690,9 +3737,9 @@ public abstract class Tool
     return null;
   }
 
-  /* Return the set of all permutations under the symmetry assumption. */
+  /* Return the group of all permutations under the symmetry assumption. */
   @Override
-  public final IMVPerm[] getSymmetryPerms() {
+  public final MVPerms getSymmetryPerms() {
     final String name = this.config.getSymmetry();
     if (name.length() == 0) { return null; }
     final Object symm = this.unprocessedDefns.get(name);
@@ -3703,8 +3750,110 @@ public abstract class Tool
       Assert.fail("The symmetry function " + name + " must specify a set of permutations.");
     }
     final OpDefNode opDef = (OpDefNode)symm;
-    // This calls tlc2.module.TLC.Permutations(Value) and returns a Value of |fcns|
-    // = n! where n is the capacity of the symmetry set.
+    final StringBuilder cardinalityOneSetList = new StringBuilder();
+    int offenderCount = 0;
+
+    final List<OpApplNode> permutations = new ArrayList<>();
+    final IMVPerm[] generators;
+    if (collectPermutations(opDef.getBody(), permutations)) {
+      // The common case of Permutations(S1) \cup ... \cup Permutations(Sn): Generate
+      // the group from a transposition and a cycle of each Si instead of evaluating
+      // the |S1|! + ... + |Sn|! functions of the Permutations.
+      final List<IMVPerm> gens = new ArrayList<>();
+      for (final OpApplNode node : permutations) {
+        final IValue set = this.eval(node.getArgs()[0], Context.Empty, TLCState.Empty, CostModel.DO_NOT_RECORD);
+        final Value enumValue = ((Value) set).toSetEnum();
+        if (!(enumValue instanceof SetEnumValue)) {
+          throw new EvalException(EC.TLC_MODULE_APPLYING_TO_WRONG_VALUE, new String[] { "Permutations",
+              "a finite set", Values.ppr(set.toString()) });
+        }
+        final IMVPerm[] symGens = MVPerms.symmetricGroupGenerators((SetEnumValue) enumValue);
+        if (symGens.length == 0) {
+          addToSubTwoSizedSymmetrySetList(node, cardinalityOneSetList);
+          offenderCount++;
+        }
+        gens.addAll(Arrays.asList(symGens));
+      }
+      generators = gens.toArray(new IMVPerm[gens.size()]);
+    } else {
+      generators = getSymmetryGenerators(opDef);
+      if (generators == null) {
+        return null;
+      }
+      final HashSet<ModelValue> subgroupMembers = new HashSet<>();
+      for (final IMVPerm imvp : generators) {
+        if (imvp instanceof MVPerm) { // should always be the case
+          subgroupMembers.addAll(((MVPerm)imvp).getAllModelValues());
+        }
+      }
+      for (final ExprOrOpArgNode node : ((OpApplNode)opDef.getBody()).getArgs()) {
+        final SetEnumValue enumValue = getSetEnumValueFromArgumentNode(node);
+        if (enumValue != null) {
+          final ValueEnumeration ve = enumValue.elements();
+          boolean found = false;
+          Value v;
+          while ((v = ve.nextElement()) != null) {
+            if ((v instanceof ModelValue) && subgroupMembers.contains(v)) {
+              found = true;
+              break;
+            }
+          }
+          if (!found) {
+            addToSubTwoSizedSymmetrySetList(node, cardinalityOneSetList);
+            offenderCount++;
+          }
+        }
+      }
+    }
+    
+    if (offenderCount > 0) {
+      final String plurality = (offenderCount > 1) ? "s" : "";
+      final String antiPlurality = (offenderCount > 1) ? "" : "s";
+      final String toHaveConjugation = (offenderCount > 1) ? "have" : "has";
+      
+      MP.printWarning(EC.TLC_SYMMETRY_SET_TOO_SMALL,
+    		  	  	  new String[] { plurality, cardinalityOneSetList.toString(), toHaveConjugation, antiPlurality });
+    }
+    
+    if (generators.length == 0) {
+      return null;
+    }
+    return new MVPerms(generators);
+  }
+
+  /**
+   * @return true iff expr is a union of applications of TLC!Permutations, which
+   *         are then added to permutations.
+   */
+  private boolean collectPermutations(final ExprOrOpArgNode expr, final List<OpApplNode> permutations) {
+    if (!(expr instanceof OpApplNode)) {
+      return false;
+    }
+    final OpApplNode node = (OpApplNode) expr;
+    final SymbolNode operator = node.getOperator();
+    if (BuiltInOPs.getOpCode(operator.getName()) == OPCODE_cup) {
+      for (final ExprOrOpArgNode arg : node.getArgs()) {
+        if (!collectPermutations(arg, permutations)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (operator instanceof OpDefNode
+        && TLAConstants.BuiltInOperators.PERMUTATIONS.equals(operator.getName().toString())
+        && node.getArgs().length == 1) {
+      permutations.add(node);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return The generators of the group generated by the set of functions the
+   *         body of opDef evaluates to, or null if all of its symmetry sets
+   *         contain less than two elements.
+   */
+  private IMVPerm[] getSymmetryGenerators(final OpDefNode opDef) {
     final IValue fcns = this.eval(opDef.getBody(), Context.Empty, TLCState.Empty, CostModel.DO_NOT_RECORD);
     if (!(fcns instanceof Enumerable) || !(fcns instanceof SetEnumValue)) {
       Assert.fail("The symmetry operator must specify a set of functions.", opDef.getBody());
@@ -3718,61 +3867,21 @@ public abstract class Tool
     final ExprOrOpArgNode[] argNodes = ((OpApplNode)opDef.getBody()).getArgs();
     // In the case where the config defines more than one set which is symmetric, they will pass through the
     //		enumerable size() check even if they are single element sets
-    final StringBuilder cardinalityOneSetList = new StringBuilder();
-    int offenderCount = 0;
     if (argNodes.length >= values.size()) {
     	// If equal, we have as many values as we have permuted sets => we have all 1-element sets;
     	//		if greater than, then we have a heterogenous cardinality of sets, including 0 element sets.
+    	final StringBuilder cardinalityOneSetList = new StringBuilder();
     	for (final ExprOrOpArgNode node : argNodes) {
 			addToSubTwoSizedSymmetrySetList(node, cardinalityOneSetList);
-			offenderCount++;
     	}
+    	final String plurality = (argNodes.length > 1) ? "s" : "";
+    	final String antiPlurality = (argNodes.length > 1) ? "" : "s";
+    	final String toHaveConjugation = (argNodes.length > 1) ? "have" : "has";
+    	MP.printWarning(EC.TLC_SYMMETRY_SET_TOO_SMALL,
+    			new String[] { plurality, cardinalityOneSetList.toString(), toHaveConjugation, antiPlurality });
+    	return null;
     }
-    
-    final IMVPerm[] subgroup;
-    if (offenderCount == 0) {
-        subgroup = MVPerms.permutationSubgroup((Enumerable)fcns);
-        final HashSet<ModelValue> subgroupMembers = new HashSet<>();
-        for (final IMVPerm imvp : subgroup) {
-        	if (imvp instanceof MVPerm) { // should always be the case
-        		subgroupMembers.addAll(((MVPerm)imvp).getAllModelValues());
-        	}
-        }
-        for (final ExprOrOpArgNode node : argNodes) {
-        	final SetEnumValue enumValue = getSetEnumValueFromArgumentNode(node);
-        	
-        	if (enumValue != null) {
-        		final ValueEnumeration ve = enumValue.elements();
-        		
-        		boolean found = false;
-        		Value v;
-        		while ((v = ve.nextElement()) != null) {
-        			if ((v instanceof ModelValue) && subgroupMembers.contains(v)) {
-        				found = true;
-        				break;
-        			}
-        		}
-        		
-        		if (!found) {
-    				addToSubTwoSizedSymmetrySetList(node, cardinalityOneSetList);
-    				offenderCount++;
-        		}
-        	}
-        }
-    } else {
-    	subgroup = null;
-    }
-    
-    if (offenderCount > 0) {
-      final String plurality = (offenderCount > 1) ? "s" : "";
-      final String antiPlurality = (offenderCount > 1) ? "" : "s";
-      final String toHaveConjugation = (offenderCount > 1) ? "have" : "has";
-      
-      MP.printWarning(EC.TLC_SYMMETRY_SET_TOO_SMALL,
-    		  	  	  new String[] { plurality, cardinalityOneSetList.toString(), toHaveConjugation, antiPlurality });
-    }
-    
-    return subgroup;
+    return MVPerms.generators((Enumerable)fcns);
   }
   
   /**
@@ -72,6 +72,13 @@ public abstract class AbstractDiskGraph {
 	/* Links are from MAX_PTR and MAX_LINK. */
 	public static final long MAX_LINK = 0x7FFFFFFFFFFFFFFFL;
 
+	/**
+	 * Store the nodes in a {@link MappedNodeFile} instead of a
+	 * {@link BufferedRandomAccessFile}. The two file formats differ, thus a
+	 * checkpoint can only be recovered with the setting it was taken with.
+	 */
+	static final boolean MAPPED = Boolean.getBoolean(AbstractDiskGraph.class.getName() + ".mapped");
+
 	public static boolean isFilePointer(long loc) {
 		// TODO Does not check >= 0 and thus accepts TableauDiskGraph.UNDONE as
 		// ptr.
@@ -85,6 +92,10 @@ public abstract class AbstractDiskGraph {
 	 */
 	protected final BufferedRandomAccessFile nodeRAF;
 	protected final BufferedRandomAccessFile nodePtrRAF;
+	/**
+	 * Replaces {@link #nodeRAF} (which is then null) iff {@link #MAPPED}.
+	 */
+	protected final MappedNodeFile nodeFile;
 	protected final LongVec initNodes;
 	/**
 	 * In-memory cache
@@ -96,11 +107,21 @@ public abstract class AbstractDiskGraph {
 	private long sizeAtCheck = 1; // initialize with 1 to avoid div by zero
 
 	public AbstractDiskGraph(String metadir, int soln, IBucketStatistics graphStats) throws IOException {
+		this(metadir, soln, graphStats, MAPPED);
+	}
+
+	AbstractDiskGraph(String metadir, int soln, IBucketStatistics graphStats, boolean mapped) throws IOException {
 		this.metadir = metadir;
 		this.outDegreeGraphStats = graphStats;
 		this.chkptName = metadir + FileUtil.separator + "dgraph_" + soln;
 		String fnameForNodes = metadir + FileUtil.separator + "nodes_" + soln;
-		this.nodeRAF = new BufferedRandomAccessFile(fnameForNodes, "rw");
+		if (mapped) {
+			this.nodeRAF = null;
+			this.nodeFile = new MappedNodeFile(fnameForNodes);
+		} else {
+			this.nodeRAF = new BufferedRandomAccessFile(fnameForNodes, "rw");
+			this.nodeFile = null;
+		}
 		String fnameForPtrs = metadir + FileUtil.separator + "ptrs_" + soln;
 		this.nodePtrRAF = new BufferedRandomAccessFile(fnameForPtrs, "rw");
 		this.initNodes = new LongVec(1);
@@ -142,7 +163,11 @@ public abstract class AbstractDiskGraph {
 
 	/* Close the disk files. */
 	public final void close() throws IOException {
-		this.nodeRAF.close();
+		if (this.nodeFile != null) {
+			this.nodeFile.close();
+		} else {
+			this.nodeRAF.close();
+		}
 		this.nodePtrRAF.close();
 	}
 
@@ -169,7 +194,7 @@ public abstract class AbstractDiskGraph {
 	public final long addNode(GraphNode node) throws IOException {
 		outDegreeGraphStats.addSample(node.succSize());
 		
-		long ptr = this.nodeRAF.getFilePointer();
+		long ptr = getNodeFilePointer();
 
 		// Write node to nodePtrTbl:
 		putNode(node, ptr);
@@ -181,9 +206,25 @@ public abstract class AbstractDiskGraph {
 		this.nodePtrRAF.writeInt(node.tindex);
 		this.nodePtrRAF.writeLongNat(ptr);
 		// Write fields of node to nodeRAF:
-		node.write(this.nodeRAF);
+		if (this.nodeFile != null) {
+			this.nodeFile.append(node);
+		} else {
+			node.write(this.nodeRAF);
+		}
 		return ptr;
 	}
+
+	protected final long getNodeFilePointer() {
+		return this.nodeFile != null ? this.nodeFile.getFilePointer() : this.nodeRAF.getFilePointer();
+	}
+
+	protected final void resetNodeFile() throws IOException {
+		if (this.nodeFile != null) {
+			this.nodeFile.reset();
+		} else {
+			this.nodeRAF.reset();
+		}
+	}
 	
 	/**
 	 * @return true iff the given {@link GraphNode} has already been added to
@@ -213,7 +254,16 @@ public abstract class AbstractDiskGraph {
 	protected abstract void putNode(GraphNode node, long ptr);
 
 	/* Get the graph node at the file location ptr. */
-	public synchronized final GraphNode getNode(final long stateFP, final int tidx, final long ptr) throws IOException {
+	public final GraphNode getNode(final long stateFP, final int tidx, final long ptr) throws IOException {
+		if (this.nodeFile != null) {
+			// Decoding a node from the mapped file is cheap enough to not
+			// synchronize on the in-memory cache.
+			return getNodeFromDisk(stateFP, tidx, ptr);
+		}
+		return getCachedNode(stateFP, tidx, ptr);
+	}
+
+	private synchronized GraphNode getCachedNode(final long stateFP, final int tidx, final long ptr) throws IOException {
 		// Get from memory cache if cached:
 		//TODO Adapt mask to array length iff array length is a func of available memory
 		int idx = (int) (stateFP + tidx) & 0xFFFF;
@@ -230,14 +280,21 @@ public abstract class AbstractDiskGraph {
 		return gnode1;
 	}
 	
-	protected synchronized final GraphNode getNodeFromDisk(final long stateFP, final int tidx, final long ptr) throws IOException {
+	protected final GraphNode getNodeFromDisk(final long stateFP, final int tidx, final long ptr) throws IOException {
 		// If the node is not found in the in-memory cache, the ptr has to be
 		// positive. BufferedRandomAccessFile#seek will throw an IOException due
 		// to "negative seek offset" anyway. Lets catch it early on!
 		if (ptr < 0) {
 			throw new IllegalArgumentException("Invalid negative file pointer: " + ptr);
 		}
+		if (this.nodeFile != null) {
+			// Lock-free (see MappedNodeFile).
+			return this.nodeFile.read(stateFP, tidx, ptr);
+		}
+		return readNode(stateFP, tidx, ptr);
+	}
 
+	private synchronized GraphNode readNode(final long stateFP, final int tidx, final long ptr) throws IOException {
 		// Have to get the node from disk:
 		long curPtr = this.nodeRAF.getFilePointer();
 		this.nodeRAF.seek(ptr);
@@ -414,7 +471,7 @@ public abstract class AbstractDiskGraph {
 	 * @throws IOException
 	 */
 	public long getSizeOnDisk() throws IOException {
-		return this.nodePtrRAF.length() + this.nodeRAF.length();
+		return this.nodePtrRAF.length() + (this.nodeFile != null ? this.nodeFile.length() : this.nodeRAF.length());
 	}
 	
 	public long getSizeAtLastCheck() {
@@ -509,11 +566,15 @@ public abstract class AbstractDiskGraph {
 
 	/* Checkpoint. */
 	public synchronized final void beginChkpt() throws IOException {
-		this.nodeRAF.flush();
+		if (this.nodeFile != null) {
+			this.nodeFile.force();
+		} else {
+			this.nodeRAF.flush();
+		}
 		this.nodePtrRAF.flush();
 		FileOutputStream fos = new FileOutputStream(this.chkptName + ".chkpt.tmp");
 		DataOutputStream dos = new DataOutputStream(fos);
-		dos.writeLong(this.nodeRAF.getFilePointer());
+		dos.writeLong(getNodeFilePointer());
 		dos.writeLong(this.nodePtrRAF.getFilePointer());
 		dos.close();
 		fos.close();
@@ -536,7 +597,11 @@ public abstract class AbstractDiskGraph {
 		fis.close();
 
 		this.makeNodePtrTbl(nodePtrRAFPos);
-		this.nodeRAF.seek(nodeRAFPos);
+		if (this.nodeFile != null) {
+			this.nodeFile.seek(nodeRAFPos);
+		} else {
+			this.nodeRAF.seek(nodeRAFPos);
+		}
 		this.nodePtrRAF.seek(nodePtrRAFPos);
 	}
 
@@ -547,10 +612,19 @@ public abstract class AbstractDiskGraph {
 	public void calculateOutDegreeDiskGraph(final IBucketStatistics outDegreeGraphStats) throws IOException {
 		try {
 			this.nodePtrRAF.flush();
-			this.nodeRAF.flush();
+			if (this.nodeFile == null) {
+				this.nodeRAF.flush();
+			}
 			this.nodePtrRAF.seek(0); // rewind to start
 			long len = this.nodePtrRAF.length();
 			while (this.nodePtrRAF.getFilePointer() < len) {
+				if (this.nodeFile != null) {
+					final long fp = nodePtrRAF.readLong();
+					final int tidx = nodePtrRAF.readInt();
+					final long ptr = nodePtrRAF.readLongNat();
+					outDegreeGraphStats.addSample(this.nodeFile.read(fp, tidx, ptr).succSize());
+					continue;
+				}
 				// skip fingerprint a tableaux id
 				nodePtrRAF.seek(nodePtrRAF.getFilePointer() + 8 + 4);
 
@@ -580,26 +654,40 @@ public abstract class AbstractDiskGraph {
 		// a node appears only once in the nodePtrRAF, the same node is potentially
 		// listed in nodeRAF multiple times.
 		try {
-			this.nodeRAF.flush();
-			this.nodeRAF.seek(0); // rewind to start
-			long len = this.nodeRAF.length();
-			while (this.nodeRAF.getFilePointer() < len) {
-				// Get the next cnt nodes from disk:
-				int cnt = nodeRAF.readNat() / 3;
-				// for each node increment the in arc counter
-				for (int i = 0; i < cnt; i++) {
-					NodeRAFRecord record = new NodeRAFRecord();
-					record.read(this.nodeRAF);
-					Integer inArcCounter = nodes2count.get(record);
-					if (inArcCounter == null) {
-						inArcCounter = new Integer(0);
+			if (this.nodeFile != null) {
+				// The records of the mapped file are only decodable given the
+				// fingerprint and tableau index of their node (see
+				// MappedNodeFile), thus reach them via the ptr file.
+				this.nodePtrRAF.flush();
+				final long ptrPos = this.nodePtrRAF.getFilePointer();
+				this.nodePtrRAF.seek(0); // rewind to start
+				final long len = this.nodePtrRAF.length();
+				while (this.nodePtrRAF.getFilePointer() < len) {
+					final GraphNode gnode = this.nodeFile.read(nodePtrRAF.readLong(), nodePtrRAF.readInt(),
+							nodePtrRAF.readLongNat());
+					for (int i = 0; i < gnode.succSize(); i++) {
+						countInArc(nodes2count, new NodeRAFRecord(gnode.getStateFP(i), gnode.getTidx(i)));
+					}
+				}
+				this.nodePtrRAF.seek(ptrPos);
+			} else {
+				this.nodeRAF.flush();
+				this.nodeRAF.seek(0); // rewind to start
+				long len = this.nodeRAF.length();
+				while (this.nodeRAF.getFilePointer() < len) {
+					// Get the next cnt nodes from disk:
+					int cnt = nodeRAF.readNat() / 3;
+					// for each node increment the in arc counter
+					for (int i = 0; i < cnt; i++) {
+						NodeRAFRecord record = new NodeRAFRecord();
+						record.read(this.nodeRAF);
+						countInArc(nodes2count, record);
 					}
-					nodes2count.put(record, inArcCounter + 1);
+					// Skip checks
+					// (we don't care for the checks) 
+					int checksLen = nodeRAF.readNat();
+					nodeRAF.seek(nodeRAF.getFilePointer() + (checksLen * 8)); // 8 bytes is long
 				}
-				// Skip checks
-				// (we don't care for the checks) 
-				int checksLen = nodeRAF.readNat();
-				nodeRAF.seek(nodeRAF.getFilePointer() + (checksLen * 8)); // 8 bytes is long
 			}
 		} catch (IOException e) {
 			MP.printError(EC.SYSTEM_DISKGRAPH_ACCESS, e);
@@ -612,6 +700,13 @@ public abstract class AbstractDiskGraph {
 		}
 	}
 	
+	/**
+	 * Increments the in-arc counter of the given (successor) node.
+	 */
+	private static void countInArc(final Map<NodeRAFRecord, Integer> nodes2count, final NodeRAFRecord record) {
+		nodes2count.merge(record, 1, Integer::sum);
+	}
+	
 	/**
 	 * A {@link NodeRAFRecord} is the technical representation of each
 	 * record in the NodeRAF file
@@ -621,6 +716,14 @@ public abstract class AbstractDiskGraph {
 		private long fp;
 		private int tidx;
 
+		public NodeRAFRecord() {
+		}
+
+		public NodeRAFRecord(final long fp, final int tidx) {
+			this.fp = fp;
+			this.tidx = tidx;
+		}
+
 		public void read(BufferedRandomAccessFile nodeRAF) throws IOException {
 			long high = nodeRAF.readInt();
 			long low = nodeRAF.readInt();
@@ -30,6 +30,11 @@ public class DiskGraph extends AbstractDiskGraph {
 		nodePtrTbl = new NodePtrTable(255);
 	}
 
+	DiskGraph(String metadir, int soln, IBucketStatistics graphStats, boolean mapped) throws IOException {
+		super(metadir, soln, graphStats, mapped);
+		nodePtrTbl = new NodePtrTable(255);
+	}
+
 	public final GraphNode getNode(long fp, int tidx) throws IOException {
 		return getNode(fp);
 	}
@@ -60,7 +65,7 @@ public class DiskGraph extends AbstractDiskGraph {
 
 	public void reset() throws IOException {
 		this.nodePtrRAF.reset();
-		this.nodeRAF.reset();
+		resetNodeFile();
 		this.nodePtrTbl = new NodePtrTable(255);
 	}
 	
@@ -146,7 +151,6 @@ public class DiskGraph extends AbstractDiskGraph {
 		
 		StringBuffer sb = new StringBuffer();
 		try {
-			long nodePtr = this.nodeRAF.getFilePointer();
 			long nodePtrPtr = this.nodePtrRAF.getFilePointer();
 			long len = this.nodePtrRAF.length();
 			this.nodePtrRAF.seek(0);
@@ -162,7 +166,6 @@ public class DiskGraph extends AbstractDiskGraph {
 				}
 				sb.append("\n");
 			}
-			this.nodeRAF.seek(nodePtr);
 			this.nodePtrRAF.seek(nodePtrPtr);
 		} catch (IOException e) {
 			MP.printError(EC.SYSTEM_DISKGRAPH_ACCESS, e);
@@ -196,7 +199,6 @@ public class DiskGraph extends AbstractDiskGraph {
 			sb.append(toDotVizLegend(oos));
 			sb.append("subgraph cluster_graph {\n"); 
 	        sb.append("color=\"white\";\n"); // no border.
-			long nodePtr = this.nodeRAF.getFilePointer();
 			long nodePtrPtr = this.nodePtrRAF.getFilePointer();
 			long len = this.nodePtrRAF.length();
 			this.nodePtrRAF.seek(0);
@@ -208,7 +210,6 @@ public class DiskGraph extends AbstractDiskGraph {
 				sb.append(gnode.toDotViz(isInitState(gnode), false, slen, alen));
 			}
 			sb.append("}}");
-			this.nodeRAF.seek(nodePtr);
 			this.nodePtrRAF.seek(nodePtrPtr);
 		} catch (IOException e) {
 			MP.printError(EC.SYSTEM_DISKGRAPH_ACCESS, e);
@@ -43,7 +43,7 @@ public class GraphNode extends AbstractGraphNode {
 		this(fp, tindex, emptyIntArr, new BitVector(0));
 	}
 
-	private GraphNode(long fp, int tindex, int[] nnodes, BitVector checks) {
+	GraphNode(long fp, int tindex, int[] nnodes, BitVector checks) {
 		super(checks);
 		this.stateFP = fp;
 		this.tindex = tindex;
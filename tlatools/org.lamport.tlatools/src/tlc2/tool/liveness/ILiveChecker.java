@@ -48,10 +48,25 @@ public interface ILiveChecker {
 	void addNextState(ITool tool, TLCState s0, long fp0, SetOfStates nextStates,
 			BitVector checkActionResults, boolean[] checkStateResults) throws IOException;
 
+	/**
+	 * Adds the nodes that have been buffered by
+	 * {@link ILiveChecker#addNextState(ITool, TLCState, long, SetOfStates, BitVector, boolean[])}
+	 * but not yet been added to the behavior graph. Has to be called before
+	 * the behavior graph is checked or checkpointed.
+	 */
+	void flush() throws IOException;
+
 	AbstractDiskGraph getDiskGraph();
 
 	OrderOfSolution getSolution();
 
+	/**
+	 * @return The {@link IncrementalSccSearch} that keeps the components of the
+	 *         behavior graph w.r.t. the pemIdx-th {@link PossibleErrorModel} of
+	 *         {@link ILiveChecker#getSolution()} across liveness checks.
+	 */
+	IncrementalSccSearch getIncrementalSccSearch(int pemIdx);
+
 	void close() throws IOException;
 
 }
\ No newline at end of file
@@ -0,0 +1,610 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.util.BufferedRandomAccessFile;
+
+/**
+ * {@link IncrementalSccSearch} keeps the SCC decomposition of an
+ * {@link AbstractDiskGraph} (restricted to the transitions that satisfy the
+ * PEM's EAAction) in memory across periodic liveness checks. Each check only
+ * reads the nodes that have been appended to the ptr file since the previous
+ * check and searches for the components that the new nodes close:
+ * <ul>
+ * <li>The components found so far are the nodes of a condensation, which is
+ * a DAG. Thus, every new (non-trivial) component contains at least one new
+ * node and is found by Tarjan's algorithm rooted at the new nodes only.
+ * Components that Tarjan merges are united in a union-find forest.</li>
+ * <li>A component is <em>closed</em> once no path leads from it to a node
+ * whose successors are still unknown. A closed component never becomes part
+ * of a larger component, which is why the search does not enter closed
+ * components. The search hence visits the part of the graph that can still
+ * reach the frontier of the model checker's breadth-first search rather than
+ * the whole graph.</li>
+ * <li>The results of the PEM's AEState, AEAction and promise checks are
+ * folded into one bit mask per component, which is why this only works for
+ * up to 64 of each. A component is checked when it has been created or has
+ * grown.</li>
+ * </ul>
+ * A node that occurs more than once in the ptr file, or a graph that does not
+ * fit into memory, makes the search give up for good. The caller then has to
+ * fall back to the full search of {@link LiveWorker#checkSccs}.
+ */
+public final class IncrementalSccSearch {
+
+	private final AbstractDiskGraph dg;
+	private final OrderOfSolution oos;
+	private final PossibleErrorModel pem;
+
+	private final long aeStateMask;
+	private final long aeActionMask;
+	private final long promiseMask;
+
+	/* The offset into the ptr file up to which nodes have been read. */
+	private long ptrOffset = 0L;
+	private boolean usable;
+
+	/*
+	 * The nodes, including the ones that are only known as the successor of
+	 * another node so far (their loc is -1). slots is an open addressing table
+	 * from <<fp, tidx>> to a node's id (plus one).
+	 */
+	private int numNodes;
+	private int[] slots;
+	private long[] fps;
+	private int[] tidxs;
+	private long[] locs;
+
+	/*
+	 * The union-find forest of components. The remaining per-node arrays are
+	 * only meaningful for the representative of a component. Its members are a
+	 * linked list (memberNext) that starts at the representative.
+	 */
+	private int[] parent;
+	private int[] memberNext;
+	private int[] memberTail;
+	private long[] aeStates;
+	private long[] aeActions;
+	private long[] promises;
+	private boolean[] cyclic;
+	private boolean[] closed;
+	private int[] edgeHead;
+
+	/*
+	 * The transitions (satisfying EAAction) leaving a component as linked lists
+	 * with a free list of recycled entries. The target is a node that is not
+	 * necessarily the representative of its component.
+	 */
+	private int numEdges;
+	private int freeEdge = -1;
+	private int[] edgeTarget;
+	private int[] edgeNext;
+	private long[] edgeActions;
+
+	/* Tarjan's bookkeeping, reset after each search. */
+	private int[] index;
+	private int[] low;
+	private int[] cursor;
+	private boolean[] onStack;
+
+	private int counterExample = -1;
+
+	IncrementalSccSearch(final AbstractDiskGraph dg, final OrderOfSolution oos, final PossibleErrorModel pem) {
+		this.dg = dg;
+		this.oos = oos;
+		this.pem = pem;
+		this.aeStateMask = mask(pem.AEState.length);
+		this.aeActionMask = mask(pem.AEAction.length);
+		this.promiseMask = mask(oos.getPromises().length);
+		this.usable = pem.AEState.length <= Long.SIZE && pem.AEAction.length <= Long.SIZE
+				&& oos.getPromises().length <= Long.SIZE;
+	}
+
+	private static long mask(final int len) {
+		return len >= Long.SIZE ? -1L : (1L << len) - 1L;
+	}
+
+	/**
+	 * Adds the nodes that have been added to the disk graph since the last
+	 * invocation and searches the components they create. Does not modify the
+	 * disk graph's nodePtrTbl.
+	 * 
+	 * @return false iff the search has given up (see class comment), in which
+	 *         case the caller has to search the complete graph.
+	 */
+	boolean update() throws IOException {
+		if (!this.usable) {
+			return false;
+		}
+		try {
+			if (this.slots == null) {
+				allocate(1024);
+			}
+			final int[] fresh = read();
+			if (fresh == null) {
+				release();
+				return false;
+			}
+			search(fresh);
+			if (this.counterExample != -1) {
+				// The search stopped half-way, thus some components might
+				// not have been merged yet.
+				this.usable = false;
+			}
+			return true;
+		} catch (final OutOfMemoryError oom) {
+			release();
+			System.gc();
+			MP.printWarning(EC.GENERAL, "The behavior graph does not fit into memory for the incremental SCC search. "
+					+ "Falling back to searching the complete graph.");
+			return false;
+		}
+	}
+
+	/**
+	 * @return true iff the last {@link IncrementalSccSearch#update()} has found
+	 *         a component that satisfies the PEM.
+	 */
+	boolean hasCounterExample() {
+		return this.counterExample != -1;
+	}
+
+	/**
+	 * @return The component satisfying the PEM as a table of <<fp, tidx,
+	 *         loc>>, which is the format expected by
+	 *         {@link LiveWorker#printTrace}.
+	 */
+	TableauNodePtrTable getComponent() {
+		final TableauNodePtrTable com = new TableauNodePtrTable(128);
+		for (int v = this.counterExample; v != -1; v = this.memberNext[v]) {
+			com.put(this.fps[v], this.tidxs[v], this.locs[v]);
+		}
+		return com;
+	}
+
+	/**
+	 * @return The fingerprint of the node at which the trace through the
+	 *         component (see {@link IncrementalSccSearch#getComponent()})
+	 *         starts.
+	 */
+	long getState() {
+		return this.fps[this.counterExample];
+	}
+
+	int getTidx() {
+		return this.tidxs[this.counterExample];
+	}
+
+	/**
+	 * Reads the nodes appended to the ptr file since the last invocation
+	 * including their transitions.
+	 * 
+	 * @return The ids of the new nodes or null if a node has been added before.
+	 */
+	private int[] read() throws IOException {
+		final BufferedRandomAccessFile ptrRAF = this.dg.nodePtrRAF;
+		final long ptrPos = ptrRAF.getFilePointer();
+		final long ptrLen = ptrRAF.length();
+		int[] fresh = new int[64];
+		int n = 0;
+		try {
+			ptrRAF.seek(this.ptrOffset);
+			while (ptrRAF.getFilePointer() < ptrLen) {
+				final long fp = ptrRAF.readLong();
+				final int tidx = ptrRAF.readInt();
+				final long loc = ptrRAF.readLongNat();
+				if (!this.pem.appliesTo(tidx)) {
+					// A node of another solution sharing the graph, which
+					// is not connected to the ones of this PEM.
+					continue;
+				}
+				final int v = lookup(fp, tidx);
+				if (this.locs[v] != -1L) {
+					return null;
+				}
+				this.locs[v] = loc;
+				if (n == fresh.length) {
+					fresh = Arrays.copyOf(fresh, n * 2);
+				}
+				fresh[n++] = v;
+			}
+			this.ptrOffset = ptrLen;
+		} finally {
+			ptrRAF.seek(ptrPos);
+		}
+
+		final int slen = this.oos.getCheckState().length;
+		final int alen = this.oos.getCheckAction().length;
+		final int aeslen = this.pem.AEState.length;
+		final int aealen = this.pem.AEAction.length;
+		final int plen = this.oos.getPromises().length;
+		for (int k = 0; k < n; k++) {
+			final int v = fresh[k];
+			final GraphNode gnode = this.dg.getNode(this.fps[v], this.tidxs[v], this.locs[v]);
+			for (int i = 0; i < aeslen; i++) {
+				if (gnode.getCheckState(this.pem.AEState[i])) {
+					this.aeStates[v] |= 1L << i;
+				}
+			}
+			if (plen > 0) {
+				final TBPar par = gnode.getTNode(this.oos.getTableau()).getPar();
+				for (int i = 0; i < plen; i++) {
+					if (par.isFulfilling(this.oos.getPromises()[i])) {
+						this.promises[v] |= 1L << i;
+					}
+				}
+			}
+			final int succCnt = gnode.succSize();
+			for (int i = 0; i < succCnt; i++) {
+				if (!gnode.getCheckAction(slen, alen, i, this.pem.EAAction)) {
+					continue;
+				}
+				long actions = 0L;
+				for (int j = 0; j < aealen; j++) {
+					if (gnode.getCheckAction(slen, alen, i, this.pem.AEAction[j])) {
+						actions |= 1L << j;
+					}
+				}
+				// lookup might grow the arrays, thus no local copies of them.
+				final int w = lookup(gnode.getStateFP(i), gnode.getTidx(i));
+				if (w == v) {
+					this.cyclic[v] = true;
+					if (aealen > 0) {
+						this.aeActions[v] |= actions;
+					}
+				} else {
+					addEdge(v, w, actions);
+				}
+			}
+		}
+		return Arrays.copyOf(fresh, n);
+	}
+
+	/**
+	 * Tarjan's algorithm (iteratively) on the condensation, rooted at the new
+	 * nodes.
+	 */
+	private void search(final int[] roots) {
+		final Ints dfs = new Ints();
+		final Ints scc = new Ints();
+		final Ints visited = new Ints();
+		int counter = 0;
+		try {
+			for (int k = 0; k < roots.length && this.counterExample == -1; k++) {
+				final int root = find(roots[k]);
+				if (this.index[root] != 0 || this.closed[root]) {
+					continue;
+				}
+				counter = visit(root, counter, dfs, scc, visited);
+				while (dfs.size > 0 && this.counterExample == -1) {
+					final int v = dfs.peek();
+					final int e = this.cursor[v];
+					if (e != -1) {
+						this.cursor[v] = this.edgeNext[e];
+						final int w = find(this.edgeTarget[e]);
+						if (w == v || this.closed[w] || this.locs[w] == -1L) {
+							// Stale transition within v's component, a component
+							// that cannot be part of a cycle, or a node whose
+							// successors are still unknown.
+							continue;
+						}
+						if (this.index[w] == 0) {
+							counter = visit(w, counter, dfs, scc, visited);
+						} else if (this.onStack[w]) {
+							this.low[v] = Math.min(this.low[v], this.index[w]);
+						}
+					} else {
+						dfs.pop();
+						if (dfs.size > 0) {
+							final int u = dfs.peek();
+							this.low[u] = Math.min(this.low[u], this.low[v]);
+						}
+						if (this.low[v] == this.index[v]) {
+							complete(v, scc);
+						}
+					}
+				}
+			}
+		} finally {
+			for (int i = 0; i < visited.size; i++) {
+				this.index[visited.elems[i]] = 0;
+				this.onStack[visited.elems[i]] = false;
+			}
+		}
+	}
+
+	private int visit(final int v, int counter, final Ints dfs, final Ints scc, final Ints visited) {
+		counter++;
+		this.index[v] = counter;
+		this.low[v] = counter;
+		this.cursor[v] = this.edgeHead[v];
+		this.onStack[v] = true;
+		dfs.push(v);
+		scc.push(v);
+		visited.push(v);
+		return counter;
+	}
+
+	/**
+	 * Merges the (old) components on the SCC stack down to v into v, drops the
+	 * transitions that have become internal or lead to closed components, and
+	 * checks the resulting component.
+	 */
+	private void complete(final int v, final Ints scc) {
+		boolean isCyclic = this.cyclic[v];
+		final Ints heads = new Ints();
+		int w;
+		do {
+			w = scc.pop();
+			this.onStack[w] = false;
+			heads.push(this.edgeHead[w]);
+			if (w != v) {
+				this.parent[w] = v;
+				this.memberNext[this.memberTail[v]] = w;
+				this.memberTail[v] = this.memberTail[w];
+				if (this.aeStates != null) {
+					this.aeStates[v] |= this.aeStates[w];
+				}
+				if (this.aeActions != null) {
+					this.aeActions[v] |= this.aeActions[w];
+				}
+				if (this.promises != null) {
+					this.promises[v] |= this.promises[w];
+				}
+				isCyclic = true;
+			}
+		} while (w != v);
+
+		int head = -1;
+		for (int i = 0; i < heads.size; i++) {
+			for (int e = heads.elems[i]; e != -1;) {
+				final int next = this.edgeNext[e];
+				final int t = find(this.edgeTarget[e]);
+				if (t == v) {
+					if (this.aeActions != null) {
+						this.aeActions[v] |= this.edgeActions[e];
+					}
+					freeEdge(e);
+				} else if (this.closed[t]) {
+					freeEdge(e);
+				} else {
+					this.edgeNext[e] = head;
+					head = e;
+				}
+				e = next;
+			}
+		}
+		this.edgeHead[v] = head;
+		// All successor components have been completed before v (or are
+		// closed or unknown), thus v is closed iff no transition remains.
+		this.closed[v] = head == -1;
+
+		this.cyclic[v] = isCyclic;
+		if (isCyclic && isAccepting(v)) {
+			this.counterExample = v;
+		}
+	}
+
+	private boolean isAccepting(final int v) {
+		return (this.aeStates == null || (this.aeStates[v] & this.aeStateMask) == this.aeStateMask)
+				&& (this.aeActions == null || (this.aeActions[v] & this.aeActionMask) == this.aeActionMask)
+				&& (this.promises == null || (this.promises[v] & this.promiseMask) == this.promiseMask);
+	}
+
+	private int find(int v) {
+		while (this.parent[v] != v) {
+			// Path halving
+			this.parent[v] = this.parent[this.parent[v]];
+			v = this.parent[v];
+		}
+		return v;
+	}
+
+	private void addEdge(final int from, final int to, final long actions) {
+		int e = this.freeEdge;
+		if (e != -1) {
+			this.freeEdge = this.edgeNext[e];
+		} else {
+			if (this.numEdges == this.edgeTarget.length) {
+				final int len = grow(this.edgeTarget.length);
+				this.edgeTarget = Arrays.copyOf(this.edgeTarget, len);
+				this.edgeNext = Arrays.copyOf(this.edgeNext, len);
+				if (this.edgeActions != null) {
+					this.edgeActions = Arrays.copyOf(this.edgeActions, len);
+				}
+			}
+			e = this.numEdges++;
+		}
+		this.edgeTarget[e] = to;
+		if (this.edgeActions != null) {
+			this.edgeActions[e] = actions;
+		}
+		this.edgeNext[e] = this.edgeHead[from];
+		this.edgeHead[from] = e;
+	}
+
+	private void freeEdge(final int e) {
+		this.edgeNext[e] = this.freeEdge;
+		this.freeEdge = e;
+	}
+
+	/**
+	 * @return The id of the node <<fp, tidx>>, which is created if it does not
+	 *         exist yet.
+	 */
+	private int lookup(final long fp, final int tidx) {
+		final int mask = this.slots.length - 1;
+		int i = hash(fp, tidx) & mask;
+		while (this.slots[i] != 0) {
+			final int v = this.slots[i] - 1;
+			if (this.fps[v] == fp && this.tidxs[v] == tidx) {
+				return v;
+			}
+			i = (i + 1) & mask;
+		}
+		if (this.numNodes == this.fps.length) {
+			allocate(grow(this.fps.length));
+		}
+		final int v = this.numNodes++;
+		this.fps[v] = fp;
+		this.tidxs[v] = tidx;
+		this.locs[v] = -1L;
+		this.parent[v] = v;
+		this.memberNext[v] = -1;
+		this.memberTail[v] = v;
+		this.edgeHead[v] = -1;
+		this.slots[i] = v + 1;
+		if (this.numNodes > (this.slots.length >>> 1)) {
+			rehash();
+		}
+		return v;
+	}
+
+	private static int hash(final long fp, final int tidx) {
+		final long h = (fp + tidx) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void rehash() {
+		if (this.slots.length >= (1 << 30)) {
+			throw new OutOfMemoryError("Too many nodes for the incremental SCC search");
+		}
+		this.slots = new int[this.slots.length << 1];
+		final int mask = this.slots.length - 1;
+		for (int v = 0; v < this.numNodes; v++) {
+			int i = hash(this.fps[v], this.tidxs[v]) & mask;
+			while (this.slots[i] != 0) {
+				i = (i + 1) & mask;
+			}
+			this.slots[i] = v + 1;
+		}
+	}
+
+	private static int grow(final int len) {
+		if (len >= Integer.MAX_VALUE - 8) {
+			throw new OutOfMemoryError("Too many nodes or transitions for the incremental SCC search");
+		}
+		return (int) Math.min(Integer.MAX_VALUE - 8, len * 2L);
+	}
+
+	/**
+	 * (Re-)allocates the per-node arrays (and initially all others) for the
+	 * given number of nodes.
+	 */
+	private void allocate(final int capacity) {
+		if (this.slots == null) {
+			this.slots = new int[capacity * 2];
+			this.edgeTarget = new int[capacity];
+			this.edgeNext = new int[capacity];
+			this.edgeActions = this.pem.AEAction.length > 0 ? new long[capacity] : null;
+			this.fps = new long[capacity];
+			this.tidxs = new int[capacity];
+			this.locs = new long[capacity];
+			this.parent = new int[capacity];
+			this.memberNext = new int[capacity];
+			this.memberTail = new int[capacity];
+			this.aeStates = this.pem.AEState.length > 0 ? new long[capacity] : null;
+			this.aeActions = this.pem.AEAction.length > 0 ? new long[capacity] : null;
+			this.promises = this.oos.getPromises().length > 0 ? new long[capacity] : null;
+			this.cyclic = new boolean[capacity];
+			this.closed = new boolean[capacity];
+			this.edgeHead = new int[capacity];
+			this.index = new int[capacity];
+			this.low = new int[capacity];
+			this.cursor = new int[capacity];
+			this.onStack = new boolean[capacity];
+			return;
+		}
+		this.fps = Arrays.copyOf(this.fps, capacity);
+		this.tidxs = Arrays.copyOf(this.tidxs, capacity);
+		this.locs = Arrays.copyOf(this.locs, capacity);
+		this.parent = Arrays.copyOf(this.parent, capacity);
+		this.memberNext = Arrays.copyOf(this.memberNext, capacity);
+		this.memberTail = Arrays.copyOf(this.memberTail, capacity);
+		if (this.aeStates != null) {
+			this.aeStates = Arrays.copyOf(this.aeStates, capacity);
+		}
+		if (this.aeActions != null) {
+			this.aeActions = Arrays.copyOf(this.aeActions, capacity);
+		}
+		if (this.promises != null) {
+			this.promises = Arrays.copyOf(this.promises, capacity);
+		}
+		this.cyclic = Arrays.copyOf(this.cyclic, capacity);
+		this.closed = Arrays.copyOf(this.closed, capacity);
+		this.edgeHead = Arrays.copyOf(this.edgeHead, capacity);
+		this.index = Arrays.copyOf(this.index, capacity);
+		this.low = Arrays.copyOf(this.low, capacity);
+		this.cursor = Arrays.copyOf(this.cursor, capacity);
+		this.onStack = Arrays.copyOf(this.onStack, capacity);
+	}
+
+	private void release() {
+		this.usable = false;
+		this.slots = null;
+		this.fps = null;
+		this.tidxs = null;
+		this.locs = null;
+		this.parent = null;
+		this.memberNext = null;
+		this.memberTail = null;
+		this.aeStates = null;
+		this.aeActions = null;
+		this.promises = null;
+		this.cyclic = null;
+		this.closed = null;
+		this.edgeHead = null;
+		this.edgeTarget = null;
+		this.edgeNext = null;
+		this.edgeActions = null;
+		this.index = null;
+		this.low = null;
+		this.cursor = null;
+		this.onStack = null;
+	}
+
+	private static final class Ints {
+		private int[] elems = new int[64];
+		private int size;
+
+		void push(final int v) {
+			if (this.size == this.elems.length) {
+				this.elems = Arrays.copyOf(this.elems, this.size * 2);
+			}
+			this.elems[this.size++] = v;
+		}
+
+		int pop() {
+			return this.elems[--this.size];
+		}
+
+		int peek() {
+			return this.elems[this.size - 1];
+		}
+	}
+}
@@ -9,12 +9,14 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -45,6 +47,30 @@ import util.Assert;
 
 public class LiveCheck implements ILiveCheck {
 
+	/**
+	 * The number of nodes a worker buffers before it adds them to a behavior
+	 * graph without a tableau (see LiveChecker#addNextState). Zero adds each
+	 * node right away.
+	 */
+	private static final int BUFFER_SIZE = Integer.getInteger(LiveCheck.class.getName() + ".bufferSize", 1024);
+
+	/**
+	 * Iff true, the periodic liveness checks during model checking only search
+	 * the part of the behavior graph that has been added since the previous
+	 * check (see {@link IncrementalSccSearch}). Consequently, the graph is
+	 * checked whenever it has grown instead of when it has grown by
+	 * {@link TLCGlobals#livenessThreshold}. Not used by simulation.
+	 */
+	static final boolean INCREMENTAL = Boolean.getBoolean(LiveCheck.class.getName() + ".incremental");
+
+	/**
+	 * Iff true, the solutions with a tableau share a single behavior graph (see
+	 * {@link Liveness#shareTableaux(OrderOfSolution[])}) instead of each
+	 * writing its own. The shared graph still has one node per state and
+	 * (original) tableau node.
+	 */
+	private static final boolean SHARE_GRAPH = Boolean.getBoolean(LiveCheck.class.getName() + ".shareGraph");
+
 	private final String metadir;
 	private final IBucketStatistics outDegreeGraphStats;
 	private final ILiveChecker[] checker;
@@ -62,6 +88,9 @@ public class LiveCheck implements ILiveCheck {
 	}
 
 	public LiveCheck(ITool tool, OrderOfSolution[] solutions, String mdir, IBucketStatistics bucketStatistics, IStateWriter stateWriter) throws IOException {
+		if (SHARE_GRAPH) {
+			solutions = Liveness.shareTableaux(solutions);
+		}
 		metadir = mdir;
 		outDegreeGraphStats = bucketStatistics;
 		checker = new ILiveChecker[solutions.length];
@@ -157,15 +186,24 @@ public class LiveCheck implements ILiveCheck {
 			final long sizeAtLastCheck = diskGraph.getSizeAtLastCheck();
 			final long sizeCurrently = diskGraph.size();
 			final double delta = (sizeCurrently - sizeAtLastCheck) / (sizeAtLastCheck * 1.d);
-			if (delta > TLCGlobals.livenessThreshold) {
+			if (delta > getLivenessThreshold()) {
 				return true;
 			}
 		}
 		return false;
 	}
 	
+	private static double getLivenessThreshold() {
+		return isIncremental() ? 0d : TLCGlobals.livenessThreshold;
+	}
+
+	static boolean isIncremental() {
+		return INCREMENTAL && TLCGlobals.mainChecker != null;
+	}
+
 	@Override
 	public int check(ITool tool, boolean forceCheck) throws Exception {
+		flush();
 		if (forceCheck) {
 			return check0(tool, false);
 		}
@@ -180,7 +218,7 @@ public class LiveCheck implements ILiveCheck {
 			final long sizeAtLastCheck = diskGraph.getSizeAtLastCheck();
 			final long sizeCurrently = diskGraph.size();
 			final double delta = (sizeCurrently - sizeAtLastCheck) / (sizeAtLastCheck * 1.d);
-			if (delta > TLCGlobals.livenessThreshold) {
+			if (delta > getLivenessThreshold()) {
 				return check0(tool, false);
 			}
 		}
@@ -202,6 +240,7 @@ public class LiveCheck implements ILiveCheck {
 	 */
 	protected int check0(final ITool tool, final boolean finalCheck) throws InterruptedException, IOException {
 		final long startTime = System.currentTimeMillis();
+		flush();
 		
 		// Sum up the number of nodes in all disk graphs to indicate the amount
 		// of work to be done by liveness checking.
@@ -282,8 +321,10 @@ public class LiveCheck implements ILiveCheck {
 			System.exit(1);
 		}
 		
-		// Reset after checking unless it's the final check:
-		if (finalCheck == false) {
+		// Reset after checking unless it's the final check or the checks are
+		// incremental (the LiveWorkers reset the graphs they had to search
+		// completely):
+		if (finalCheck == false && !isIncremental()) {
 			for (int i = 0; i < checker.length; i++) {
 				checker[i].getDiskGraph().makeNodePtrTbl();
 			}
@@ -366,6 +407,16 @@ public class LiveCheck implements ILiveCheck {
 		return checker.length;
 	}
 
+	/**
+	 * Adds the nodes buffered by the workers to the behavior graphs (see
+	 * {@link ILiveChecker#flush()}).
+	 */
+	private void flush() throws IOException {
+		for (int i = 0; i < checker.length; i++) {
+			checker[i].flush();
+		}
+	}
+
 	/* Close all the files for disk graphs. */
 	/* (non-Javadoc)
 	 * @see tlc2.tool.liveness.ILiveCheck#close()
@@ -381,6 +432,7 @@ public class LiveCheck implements ILiveCheck {
 	 * @see tlc2.tool.liveness.ILiveCheck#beginChkpt()
 	 */
 	public synchronized void beginChkpt() throws IOException {
+		flush();
 		for (int i = 0; i < checker.length; i++) {
 			checker[i].getDiskGraph().beginChkpt();
 		}
@@ -418,6 +470,7 @@ public class LiveCheck implements ILiveCheck {
 	 * @see tlc2.tool.liveness.ILiveCheck#calculateInDegreeDiskGraphs(tlc2.util.statistics.IBucketStatistics)
 	 */
 	public IBucketStatistics calculateInDegreeDiskGraphs(final IBucketStatistics aGraphStats) throws IOException {
+		flush();
 		for (int i = 0; i < checker.length; i++) {
 			final AbstractDiskGraph diskGraph = checker[i].getDiskGraph();
 			diskGraph.calculateInDegreeDiskGraph(aGraphStats);
@@ -429,6 +482,7 @@ public class LiveCheck implements ILiveCheck {
 	 * @see tlc2.tool.liveness.ILiveCheck#calculateOutDegreeDiskGraphs(tlc2.util.statistics.IBucketStatistics)
 	 */
 	public IBucketStatistics calculateOutDegreeDiskGraphs(final IBucketStatistics aGraphStats) throws IOException {
+		flush();
 		for (int i = 0; i < checker.length; i++) {
 			final AbstractDiskGraph diskGraph = checker[i].getDiskGraph();
 			diskGraph.calculateOutDegreeDiskGraph(aGraphStats);
@@ -442,6 +496,8 @@ public class LiveCheck implements ILiveCheck {
 		
 		protected final OrderOfSolution oos;
 
+		private IncrementalSccSearch[] searches;
+
 		public AbstractLiveChecker(OrderOfSolution oos, ILivenessStateWriter writer) {
 			this.oos = oos;
 			this.writer = writer;
@@ -454,6 +510,26 @@ public class LiveCheck implements ILiveCheck {
 			return oos;
 		}
 
+		/* (non-Javadoc)
+		 * @see tlc2.tool.liveness.ILiveChecker#getIncrementalSccSearch(int)
+		 */
+		public synchronized IncrementalSccSearch getIncrementalSccSearch(final int pemIdx) {
+			if (this.searches == null) {
+				this.searches = new IncrementalSccSearch[oos.getPems().length];
+			}
+			if (this.searches[pemIdx] == null) {
+				this.searches[pemIdx] = new IncrementalSccSearch(getDiskGraph(), oos, oos.getPems()[pemIdx]);
+			}
+			return this.searches[pemIdx];
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.liveness.ILiveChecker#flush()
+		 */
+		public void flush() throws IOException {
+			// Nodes are added right away by default.
+		}
+
 		/* (non-Javadoc)
 		 * @see tlc2.tool.liveness.ILiveChecker#close()
 		 */
@@ -469,6 +545,18 @@ public class LiveCheck implements ILiveCheck {
 
 		private final DiskGraph dgraph;
 
+		/**
+		 * The nodes each worker has created but not yet added to dgraph (see
+		 * addNextState). A buffer is only ever accessed while holding its
+		 * monitor, which has to be acquired before the one of oos.
+		 */
+		private final Queue<List<GraphNode>> buffers = new ConcurrentLinkedQueue<>();
+		private final ThreadLocal<List<GraphNode>> buffer = ThreadLocal.withInitial(() -> {
+			final List<GraphNode> nodes = new ArrayList<>(BUFFER_SIZE);
+			buffers.add(nodes);
+			return nodes;
+		});
+
 		public LiveChecker(OrderOfSolution oos, int soln, IBucketStatistics bucketStatistics, ILivenessStateWriter writer)
 			throws IOException {
 			super(oos, writer);
@@ -488,6 +576,27 @@ public class LiveCheck implements ILiveCheck {
 		 */
 		public void addNextState(ITool tool, final TLCState s0, final long fp0,
 				final SetOfStates nextStates, final BitVector checkActionResults, final boolean[] checkStateResults) throws IOException {
+			// Unless in simulation mode (mainChecker is null), a state is
+			// added exactly once with all its successors, so its node can be
+			// created without looking at dgraph. This leaves only appending
+			// the node to dgraph to be done under the oos lock, which is
+			// amortized by appending the nodes of a worker in batches.
+			// With symmetry or a view, distinct successors may share a
+			// fingerprint. Whether such a successor is added more than once
+			// depends on dgraph (see below), thus the node is created under
+			// the lock.
+			if (BUFFER_SIZE > 0 && TLCGlobals.mainChecker != null && writer.isNoop() && !tool.hasSymmetry()
+					&& tool.getViewSpec() == null) {
+				final List<GraphNode> nodes = buffer.get();
+				synchronized (nodes) {
+					nodes.add(createNode(fp0, nextStates, checkActionResults, checkStateResults));
+					if (nodes.size() >= BUFFER_SIZE) {
+						flush(nodes);
+					}
+				}
+				return;
+			}
+
 			int cnt = 0;
 			// if there is no tableau ...
 			final int succCnt = nextStates.size();
@@ -555,6 +664,44 @@ public class LiveCheck implements ILiveCheck {
 			}
 		}
 
+		private GraphNode createNode(final long fp0, final SetOfStates nextStates,
+				final BitVector checkActionResults, final boolean[] checkStateResults) {
+			final int succCnt = nextStates.size();
+			final int alen = oos.getCheckAction().length;
+			final GraphNode node0 = new GraphNode(fp0, -1);
+			node0.setCheckState(checkStateResults);
+			for (int sidx = 0; sidx < succCnt; sidx++) {
+				// The fingerprints of nextStates are distinct (no symmetry or
+				// view), so each successor is a new transition.
+				node0.addTransition(nextStates.next().fingerPrint(), -1, checkStateResults.length, alen,
+						checkActionResults, sidx * alen, succCnt - sidx);
+			}
+			nextStates.resetNext();
+			node0.realign();
+			return node0;
+		}
+
+		private void flush(final List<GraphNode> nodes) throws IOException {
+			synchronized (oos) {
+				for (int i = 0; i < nodes.size(); i++) {
+					dgraph.addNode(nodes.get(i));
+				}
+			}
+			nodes.clear();
+		}
+
+		/* (non-Javadoc)
+		 * @see tlc2.tool.liveness.LiveCheck.AbstractLiveChecker#flush()
+		 */
+		@Override
+		public void flush() throws IOException {
+			for (final List<GraphNode> nodes : buffers) {
+				synchronized (nodes) {
+					flush(nodes);
+				}
+			}
+		}
+
 		public DiskGraph getDiskGraph() {
 			return dgraph;
 		}
@@ -29,6 +29,7 @@ import tlc2.util.SynchronousDiskIntStack;
 import tlc2.util.statistics.BucketStatistics;
 import tlc2.util.statistics.IBucketStatistics;
 import tlc2.value.impl.CounterExample;
+import util.TLAFlightRecorder;
 
 /**
  * {@link LiveWorker} is doing the heavy lifting of liveness checking:
@@ -52,6 +53,13 @@ public class LiveWorker implements Callable<Boolean> {
 	public static final IBucketStatistics STATS = new BucketStatistics("Histogram SCC sizes", LiveWorker.class
 			.getPackage().getName(), "StronglyConnectedComponent sizes");
 	
+	/**
+	 * Iff true, the SCCs of a disk graph are searched by several threads
+	 * cooperatively (see {@link ParallelSccSearch}) instead of by a single
+	 * sequential Tarjan.
+	 */
+	private static final boolean PARALLEL_SCC = Boolean.getBoolean(LiveWorker.class.getName() + ".parallelScc");
+
 	private static int errFoundByThread = -1;
 	private static final Object workerLock = new Object();
 
@@ -175,6 +183,12 @@ public class LiveWorker implements Callable<Boolean> {
 		for (int j = 0; j < numOfInits; j += 2) {
 			final long state = initNodes.elementAt(j);
 			final int tidx = (int) initNodes.elementAt(j + 1);
+			if (!this.pem.appliesTo(tidx)) {
+				// The behavior graph is shared with other solutions (see
+				// Liveness#shareTableaux), whose nodes are not reachable from
+				// this init node.
+				continue;
+			}
 			final long ptr = this.dg.getLink(state, tidx);
 			// Check if the node <<state, tidx>> s is done. A node s is undone
 			// if it is an initial state which hasn't been explored yet. This is
@@ -472,6 +486,46 @@ public class LiveWorker implements Callable<Boolean> {
 		assert comStack.size() == 0;
 	}
 
+	/**
+	 * Like {@link LiveWorker#checkSccs(ITool)} but the SCC decomposition is done
+	 * by a {@link ParallelSccSearch} with the share of the TLC workers that is
+	 * not used by the other LiveWorkers. Falls back to
+	 * {@link LiveWorker#checkSccs(ITool)} if the graph does not fit into memory.
+	 */
+	private final void checkSccsParallel(final ITool tool) throws IOException, InterruptedException, ExecutionException {
+		final int parallelism = Math.max(1, TLCGlobals.getNumWorkers() / this.numWorkers);
+		final ParallelSccSearch search = new ParallelSccSearch(this.dg, this.oos, this.pem, parallelism,
+				this.isFinalCheck);
+		if (!search.build()) {
+			this.checkSccs(tool);
+			return;
+		}
+		if (search.search() && setErrFound()) {
+			this.printTrace(tool, search.getState(), search.getTidx(), search.getComponent());
+		}
+	}
+
+	/**
+	 * Searches only the components created by the nodes that have been added to
+	 * the disk graph since the previous check (see
+	 * {@link IncrementalSccSearch}). Falls back to
+	 * {@link LiveWorker#checkSccs(ITool)} if the search has given up.
+	 */
+	private final void checkSccsIncremental(final ITool tool, final IncrementalSccSearch search)
+			throws IOException, InterruptedException, ExecutionException {
+		if (!search.update()) {
+			this.checkSccs(tool);
+			// LiveCheck#check0 does not reset the graph in incremental mode.
+			if (!this.isFinalCheck) {
+				this.dg.makeNodePtrTbl();
+			}
+			return;
+		}
+		if (search.hasCounterExample() && setErrFound()) {
+			this.printTrace(tool, search.getState(), search.getTidx(), search.getComponent());
+		}
+	}
+
 	private IntStack getStack(final String metaDir, final String name) throws IOException {
 		// It is unlikely that the stacks will fit into memory if the
 		// size of the behavior graph is larger relative to the available
@@ -1277,7 +1331,15 @@ public class LiveWorker implements Callable<Boolean> {
 			for (int i = 0; i < pems.length; i++) {
 				if (!hasErrFound()) {
 					this.pem = pems[i];
-					this.checkSccs(tool);
+					final Object event = TLAFlightRecorder.beginSCCSearch();
+					if (LiveCheck.isIncremental()) {
+						this.checkSccsIncremental(tool, checker.getIncrementalSccSearch(i));
+					} else if (PARALLEL_SCC) {
+						this.checkSccsParallel(tool);
+					} else {
+						this.checkSccs(tool);
+					}
+					TLAFlightRecorder.endSCCSearch(event, this.id, i, this.dg.size(), hasErrFound(this.id));
 				}
 			}
 			this.dg.destroyCache();
@@ -5,6 +5,10 @@
 
 package tlc2.tool.liveness;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 import tla2sany.semantic.ASTConstants;
 import tla2sany.semantic.ExprNode;
 import tla2sany.semantic.ExprOrOpArgNode;
@@ -780,6 +784,94 @@ public class Liveness implements ToolGlobals, ASTConstants {
 		return oss;
 	}
 
+	/**
+	 * Combines the given {@link OrderOfSolution}s that have a tableau into a
+	 * single one, so that they share one behavior graph instead of each
+	 * building its own. The tableau of the combined OOS is the disjoint union
+	 * of their tableaux (see {@link TBGraph#TBGraph(TBGraph[])}). Since a node
+	 * of the behavior graph pairs a state with a tableau node, the components
+	 * of the behavior graph do not span the parts of the union. Each PEM is
+	 * thus restricted to the part of its original tableau (see
+	 * {@link PossibleErrorModel#appliesTo(int)}). The checkState and
+	 * checkAction bins are merged too, which evaluates and stores the checks
+	 * the OOSs have in common (e.g. fairness) only once.
+	 * <p>
+	 * The shared graph still writes one record per pair of a state and a node
+	 * of the union, i.e. a state reached by n of the original tableaux is
+	 * stored n times, once for each of them. Sharing does not reduce the
+	 * number of node records or transitions on disk. It saves the per-OOS
+	 * files, tables and locks, and the duplicate check bits and evaluations.
+	 * <p>
+	 * OOSs without a tableau are kept as they are.
+	 */
+	static OrderOfSolution[] shareTableaux(final OrderOfSolution[] oss) {
+		final List<OrderOfSolution> tableauOss = new ArrayList<>();
+		final List<OrderOfSolution> result = new ArrayList<>();
+		for (int i = 0; i < oss.length; i++) {
+			if (oss[i].hasTableau()) {
+				tableauOss.add(oss[i]);
+			} else {
+				result.add(oss[i]);
+			}
+		}
+		if (tableauOss.size() < 2) {
+			return oss;
+		}
+
+		final TBGraph[] tableaux = new TBGraph[tableauOss.size()];
+		final Vect<LiveExprNode> promises = new Vect<>();
+		for (int i = 0; i < tableauOss.size(); i++) {
+			tableaux[i] = tableauOss.get(i).getTableau();
+			final LNEven[] oosPromises = tableauOss.get(i).getPromises();
+			for (int j = 0; j < oosPromises.length; j++) {
+				addToBin(oosPromises[j], promises);
+			}
+		}
+		final LNEven[] sharedPromises = new LNEven[promises.size()];
+		for (int i = 0; i < promises.size(); i++) {
+			sharedPromises[i] = (LNEven) promises.elementAt(i);
+		}
+		final OrderOfSolution shared = new OrderOfSolution(new TBGraph(tableaux), sharedPromises);
+
+		final Vect<LiveExprNode> stateBin = new Vect<>();
+		final Vect<LiveExprNode> actionBin = new Vect<>();
+		final List<PossibleErrorModel> pems = new ArrayList<>();
+		for (int i = 0; i < tableauOss.size(); i++) {
+			final OrderOfSolution oos = tableauOss.get(i);
+			// The nodes of oos' tableau have been re-indexed by the union.
+			final BitSet tidxs = new BitSet(shared.getTableau().size());
+			for (int j = 0; j < tableaux[i].size(); j++) {
+				tidxs.set(tableaux[i].getNode(j).getIndex());
+			}
+			for (int j = 0; j < oos.getPems().length; j++) {
+				final PossibleErrorModel pem = oos.getPems()[j];
+				pems.add(new PossibleErrorModel(addToBin(pem.AEAction, oos.getCheckAction(), actionBin),
+						addToBin(pem.AEState, oos.getCheckState(), stateBin),
+						addToBin(pem.EAAction, oos.getCheckAction(), actionBin), tidxs));
+			}
+		}
+		shared.setPems(pems.toArray(new PossibleErrorModel[pems.size()]));
+		shared.setCheckState(new LiveExprNode[stateBin.size()]);
+		for (int i = 0; i < stateBin.size(); i++) {
+			shared.getCheckState()[i] = stateBin.elementAt(i);
+		}
+		shared.setCheckAction(new LiveExprNode[actionBin.size()]);
+		for (int i = 0; i < actionBin.size(); i++) {
+			shared.getCheckAction()[i] = actionBin.elementAt(i);
+		}
+
+		result.add(shared);
+		return result.toArray(new OrderOfSolution[result.size()]);
+	}
+
+	private static int[] addToBin(final int[] indices, final LiveExprNode[] checks, final Vect<LiveExprNode> bin) {
+		final int[] index = new int[indices.length];
+		for (int i = 0; i < indices.length; i++) {
+			index[i] = addToBin(checks[indices[i]], bin);
+		}
+		return index;
+	}
+
 	/**
 	 * Given a list of checks, ensures that the checks are in the bin. It
 	 * returns an array of index of the checks in the bin.
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import tlc2.util.BitVector;
+import tlc2.util.BufferedRandomAccessFile;
+
+/**
+ * A {@link MappedNodeFile} replaces the {@link BufferedRandomAccessFile} of
+ * the nodes_N file of an {@link AbstractDiskGraph} (see
+ * {@link AbstractDiskGraph#MAPPED}). The ptrs_N file is unchanged and still
+ * points to the records of this file.
+ * <p>
+ * The file is memory-mapped in segments of fixed size which are added as the
+ * file grows. A record is encoded as:
+ * <ul>
+ * <li>the number of successors as a varint,</li>
+ * <li>per successor, a varint whose lowest bit is set iff the successor's
+ * fingerprint equals the one of the previous successor (the node itself for
+ * the first successor) and whose remaining bits are the zig-zag encoded delta
+ * of the successor's tableau index to the previous one. Iff the lowest bit is
+ * not set, the eight bytes of the fingerprint follow. Fingerprints are hashes
+ * and thus do not delta-compress, whereas the successors of a node in a
+ * tableau graph mostly repeat a state with different tableau indices,</li>
+ * <li>the number of words of the node's checks as a varint followed by each
+ * word as a varint.</li>
+ * </ul>
+ * Records are appended by one writer at a time (the graph is only extended
+ * while holding the lock on its {@link OrderOfSolution}). Readers do not lock.
+ * A reader only ever reads records that end before {@link #length}, which the
+ * writer publishes after the record's bytes and segments.
+ */
+final class MappedNodeFile {
+
+	/**
+	 * Segments are at least a page (4KB) large. Each segment is a separate
+	 * mapping and the OS limits their number.
+	 */
+	private static final int SEGMENT_SHIFT = Math.min(30,
+			Math.max(12, Integer.getInteger(MappedNodeFile.class.getName() + ".segmentShift", 26)));
+	private static final int SEGMENT_SIZE = 1 << SEGMENT_SHIFT;
+	private static final long SEGMENT_MASK = SEGMENT_SIZE - 1L;
+
+	private final RandomAccessFile raf;
+	private final FileChannel channel;
+
+	private volatile MappedByteBuffer[] segments = new MappedByteBuffer[0];
+	/**
+	 * The end of the last record. It is at the same time the position at which
+	 * the next record is written.
+	 */
+	private volatile long length = 0L;
+
+	/**
+	 * Scratch buffer of the writer.
+	 */
+	private byte[] buf = new byte[64];
+	private int bufLen;
+
+	MappedNodeFile(final String fname) throws IOException {
+		this.raf = new RandomAccessFile(fname, "rw");
+		this.channel = this.raf.getChannel();
+	}
+
+	/* Writer */
+
+	/**
+	 * Appends the given node and returns its location.
+	 */
+	synchronized long append(final GraphNode node) throws IOException {
+		final int succSize = node.succSize();
+		final BitVector checks = node.checks;
+		final int words = checks.wordLength();
+		ensureCapacity(10 + succSize * 18 + words * 10);
+		this.bufLen = 0;
+
+		writeVarLong(succSize);
+		long prevFp = node.stateFP;
+		int prevTidx = node.tindex;
+		for (int i = 0; i < succSize; i++) {
+			final long fp = node.getStateFP(i);
+			final int tidx = node.getTidx(i);
+			final long delta = (long) tidx - prevTidx;
+			final long zigzag = (delta << 1) ^ (delta >> 63);
+			if (fp == prevFp) {
+				writeVarLong((zigzag << 1) | 1L);
+			} else {
+				writeVarLong(zigzag << 1);
+				writeLong(fp);
+			}
+			prevFp = fp;
+			prevTidx = tidx;
+		}
+		writeVarLong(words);
+		for (int i = 0; i < words; i++) {
+			writeVarLong(checks.getWord(i));
+		}
+
+		final long ptr = this.length;
+		put(ptr, this.buf, this.bufLen);
+		// Publish the record.
+		this.length = ptr + this.bufLen;
+		return ptr;
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (this.buf.length < capacity) {
+			this.buf = new byte[Math.max(capacity, this.buf.length * 2)];
+		}
+	}
+
+	private void writeVarLong(long value) {
+		while ((value & ~0x7FL) != 0L) {
+			this.buf[this.bufLen++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		this.buf[this.bufLen++] = (byte) value;
+	}
+
+	private void writeLong(final long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			this.buf[this.bufLen++] = (byte) (value >>> shift);
+		}
+	}
+
+	private void put(long pos, final byte[] bytes, final int len) throws IOException {
+		int off = 0;
+		while (off < len) {
+			final ByteBuffer segment = mapSegment((int) (pos >>> SEGMENT_SHIFT)).duplicate();
+			final int segOff = (int) (pos & SEGMENT_MASK);
+			final int n = Math.min(len - off, SEGMENT_SIZE - segOff);
+			segment.position(segOff);
+			segment.put(bytes, off, n);
+			off += n;
+			pos += n;
+		}
+	}
+
+	private MappedByteBuffer mapSegment(final int idx) throws IOException {
+		MappedByteBuffer[] segs = this.segments;
+		if (idx >= segs.length) {
+			final MappedByteBuffer[] newSegs = new MappedByteBuffer[idx + 1];
+			System.arraycopy(segs, 0, newSegs, 0, segs.length);
+			for (int i = segs.length; i < newSegs.length; i++) {
+				newSegs[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, ((long) i) << SEGMENT_SHIFT, SEGMENT_SIZE);
+			}
+			this.segments = segs = newSegs;
+		}
+		return segs[idx];
+	}
+
+	synchronized long getFilePointer() {
+		return this.length;
+	}
+
+	/**
+	 * Discards all records at or after pos. Mapping the file (up to pos)
+	 * makes the records of a file recovered from a checkpoint readable.
+	 */
+	synchronized void seek(final long pos) throws IOException {
+		if (pos > 0L) {
+			mapSegment((int) ((pos - 1L) >>> SEGMENT_SHIFT));
+		}
+		this.length = pos;
+	}
+
+	synchronized void reset() throws IOException {
+		seek(0L);
+	}
+
+	synchronized void force() {
+		final MappedByteBuffer[] segs = this.segments;
+		for (int i = 0; i < segs.length; i++) {
+			segs[i].force();
+		}
+	}
+
+	long length() {
+		return this.length;
+	}
+
+	synchronized void close() throws IOException {
+		force();
+		this.segments = new MappedByteBuffer[0];
+		try {
+			// Mapping the segments has grown the file to a multiple of the
+			// segment size. Some platforms refuse to truncate a file that is
+			// still mapped (the buffers are only unmapped once they are
+			// garbage collected), in which case the file keeps its size.
+			this.channel.truncate(this.length);
+		} catch (IOException e) {
+			// ignored, see above
+		}
+		this.raf.close();
+	}
+
+	/* Reader */
+
+	/**
+	 * Reads the node at location ptr. Can be called concurrently with other
+	 * readers and the writer.
+	 */
+	GraphNode read(final long stateFP, final int tidx, final long ptr) throws IOException {
+		// Read length before segments (see append).
+		final long len = this.length;
+		if (ptr >= len) {
+			throw new EOFException("Invalid file pointer: " + ptr);
+		}
+		final Cursor cursor = new Cursor(this.segments, ptr);
+
+		// Each successor takes at least one byte. A file in the format of
+		// the BufferedRandomAccessFile (e.g. of a checkpoint taken without
+		// MAPPED) fails here instead of allocating garbage.
+		final long succSize = cursor.readVarLong();
+		if (succSize < 0L || succSize > len - ptr) {
+			throw new IOException("Corrupt node record at file pointer: " + ptr);
+		}
+		final int[] nnodes = new int[(int) succSize * 3];
+		long prevFp = stateFP;
+		int prevTidx = tidx;
+		for (int i = 0; i < succSize; i++) {
+			final long v = cursor.readVarLong();
+			if ((v & 1L) == 0L) {
+				prevFp = cursor.readLong();
+			}
+			final long zigzag = v >>> 1;
+			prevTidx += (int) ((zigzag >>> 1) ^ -(zigzag & 1L));
+			nnodes[3 * i] = (int) (prevFp >>> 32);
+			nnodes[3 * i + 1] = (int) (prevFp & 0xFFFFFFFFL);
+			nnodes[3 * i + 2] = prevTidx;
+		}
+		final long words = cursor.readVarLong();
+		if (words < 0L || words > len - ptr) {
+			throw new IOException("Corrupt node record at file pointer: " + ptr);
+		}
+		final long[] checks = new long[(int) words];
+		for (int i = 0; i < checks.length; i++) {
+			checks[i] = cursor.readVarLong();
+		}
+		return new GraphNode(stateFP, tidx, nnodes, new BitVector(checks));
+	}
+
+	/**
+	 * A position in the file used by a single reader. Relies on the absolute
+	 * get of the segments only, which does not modify the (shared) buffers.
+	 */
+	private static final class Cursor {
+		private final MappedByteBuffer[] segments;
+		private MappedByteBuffer segment;
+		private int idx;
+		private int off;
+
+		Cursor(final MappedByteBuffer[] segments, final long pos) {
+			this.segments = segments;
+			this.idx = (int) (pos >>> SEGMENT_SHIFT);
+			this.off = (int) (pos & SEGMENT_MASK);
+			this.segment = segments[this.idx];
+		}
+
+		private byte get() {
+			if (this.off == SEGMENT_SIZE) {
+				this.segment = this.segments[++this.idx];
+				this.off = 0;
+			}
+			return this.segment.get(this.off++);
+		}
+
+		long readVarLong() {
+			long value = 0L;
+			for (int shift = 0;; shift += 7) {
+				final byte b = get();
+				value |= (b & 0x7FL) << shift;
+				if (b >= 0) {
+					return value;
+				}
+			}
+		}
+
+		long readLong() {
+			long value = 0L;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | (get() & 0xFFL);
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,553 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.util.BufferedRandomAccessFile;
+import tlc2.util.LongVec;
+
+/**
+ * {@link ParallelSccSearch} is an alternative to the sequential Tarjan in
+ * {@link LiveWorker} that lets several threads cooperate on the SCC
+ * decomposition of a <em>single</em> {@link AbstractDiskGraph}:
+ * <ol>
+ * <li>The nodes of the behavior graph are read from disk once (sequentially in
+ * the order of the ptr file) into an in-memory adjacency array. The results of
+ * the PEM's AEState, AEAction and promise checks are folded into bit masks on
+ * the way, which is why this only works for up to 64 of each.</li>
+ * <li>The nodes reachable from the initial nodes are determined with a
+ * parallel breadth-first search.</li>
+ * <li>The graph restricted to the transitions that satisfy the PEM's EAAction
+ * is decomposed with the Forward-Backward algorithm (see Fleischer, Hendrickson
+ * and Pinar: "On Identifying Strongly Connected Components in Parallel"),
+ * trimming trivial components first. The three sub-partitions created by each
+ * step are independent and are decomposed in parallel by a
+ * {@link ForkJoinPool}. Large frontiers of the forward and backward searches
+ * are expanded in parallel too.</li>
+ * <li>Each component is checked as soon as it has been found, on the thread
+ * that found it. The search stops once a component has been found that
+ * satisfies the PEM.</li>
+ * </ol>
+ * If more than one component satisfies the PEM, the one containing the node
+ * that comes first in the ptr file among the components found is reported.
+ * Contrary to {@link LiveWorker#checkSccs}, this does not necessarily
+ * correspond to the counterexample found by the sequential search.
+ */
+final class ParallelSccSearch {
+
+	/**
+	 * Nodes that are unreachable from the initial nodes (or have not been
+	 * colored yet).
+	 */
+	private static final int UNREACHABLE = 0;
+	/**
+	 * Nodes that have been trimmed, i.e. form a trivial component.
+	 */
+	private static final int TRIVIAL = -1;
+	/**
+	 * The color of the first partition (all reachable nodes).
+	 */
+	private static final int REACHABLE = 1;
+
+	/**
+	 * Frontiers and partitions smaller than this are processed sequentially.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 4096;
+
+	private final AbstractDiskGraph dg;
+	private final OrderOfSolution oos;
+	private final PossibleErrorModel pem;
+	private final int parallelism;
+	private final boolean isFinalCheck;
+
+	/* The in-memory graph. Node i is the i-th (valid) record in the ptr file. */
+	private int numNodes;
+	private long[] fps;
+	private int[] tidxs;
+	private long[] locs;
+	private long[] aeStates;
+	private long[] promises;
+	private int[] inits;
+	/*
+	 * The successors of node i are succs[succOffs[i]] up to (excluding)
+	 * succs[succOffs[i + 1]]. A transition that does not satisfy the PEM's
+	 * EAAction is stored as the (negative) complement of the successor.
+	 */
+	private int[] succOffs;
+	private int[] succs;
+	private long[] aeActions;
+	/* Predecessors w.r.t. the transitions that satisfy EAAction. */
+	private int[] predOffs;
+	private int[] preds;
+
+	private int[] inDegree;
+	private int[] outDegree;
+	private AtomicIntegerArray colors;
+	private final AtomicInteger nextColor = new AtomicInteger(REACHABLE + 1);
+
+	private final long aeStateMask;
+	private final long aeActionMask;
+	private final long promiseMask;
+
+	private volatile boolean found = false;
+	private int[] counterExample;
+
+	ParallelSccSearch(final AbstractDiskGraph dg, final OrderOfSolution oos, final PossibleErrorModel pem,
+			final int parallelism, final boolean isFinalCheck) {
+		this.dg = dg;
+		this.oos = oos;
+		this.pem = pem;
+		this.parallelism = parallelism;
+		this.isFinalCheck = isFinalCheck;
+		this.aeStateMask = mask(pem.AEState.length);
+		this.aeActionMask = mask(pem.AEAction.length);
+		this.promiseMask = mask(oos.getPromises().length);
+	}
+
+	private static long mask(final int len) {
+		return len >= Long.SIZE ? -1L : (1L << len) - 1L;
+	}
+
+	/**
+	 * Reads the behavior graph into memory. Overwrites the nodePtrTbl's file
+	 * pointers with links (see {@link AbstractDiskGraph#putLink(long, int, long)}),
+	 * i.e. {@link AbstractDiskGraph#makeNodePtrTbl()} has to be called before
+	 * the disk graph can be searched by {@link LiveWorker} again.
+	 *
+	 * @return false iff the graph cannot be represented in memory, in which
+	 *         case the caller has to fall back to the sequential search.
+	 */
+	boolean build() throws IOException {
+		final int aeslen = this.pem.AEState.length;
+		final int aealen = this.pem.AEAction.length;
+		final int plen = this.oos.getPromises().length;
+		if (aeslen > Long.SIZE || aealen > Long.SIZE || plen > Long.SIZE) {
+			return false;
+		}
+
+		this.dg.makeNodePtrTbl();
+
+		// A record in the ptr file is at least a long, an int and a nat.
+		final BufferedRandomAccessFile ptrRAF = this.dg.nodePtrRAF;
+		final long ptrPos = ptrRAF.getFilePointer();
+		final long ptrLen = ptrRAF.length();
+		if (ptrLen / 16L >= Integer.MAX_VALUE) {
+			return false;
+		}
+		try {
+			final int capacity = (int) (ptrLen / 16L);
+			this.fps = new long[capacity];
+			this.tidxs = new int[capacity];
+			this.locs = new long[capacity];
+
+			// Number the nodes in the order of the ptr file. If a node occurs
+			// more than once, makeNodePtrTbl has kept its last loc.
+			int n = 0;
+			ptrRAF.seek(0);
+			while (ptrRAF.getFilePointer() < ptrLen) {
+				final long fp = ptrRAF.readLong();
+				final int tidx = ptrRAF.readInt();
+				final long loc = ptrRAF.readLongNat();
+				if (this.dg.getLink(fp, tidx) == loc
+						&& this.dg.putLink(fp, tidx, AbstractDiskGraph.MAX_PTR + n) == -1) {
+					this.fps[n] = fp;
+					this.tidxs[n] = tidx;
+					this.locs[n] = loc;
+					n++;
+				}
+			}
+			ptrRAF.seek(ptrPos);
+			this.numNodes = n;
+			this.fps = Arrays.copyOf(this.fps, n);
+			this.tidxs = Arrays.copyOf(this.tidxs, n);
+			this.locs = Arrays.copyOf(this.locs, n);
+
+			final int slen = this.oos.getCheckState().length;
+			final int alen = this.oos.getCheckAction().length;
+			final int[] eaaction = this.pem.EAAction;
+			this.aeStates = aeslen > 0 ? new long[n] : null;
+			this.promises = plen > 0 ? new long[n] : null;
+			this.succOffs = new int[n + 1];
+			this.succs = new int[Math.max(16, n)];
+			this.aeActions = aealen > 0 ? new long[this.succs.length] : null;
+			int m = 0;
+			for (int v = 0; v < n; v++) {
+				final GraphNode gnode = this.dg.getNode(this.fps[v], this.tidxs[v], this.locs[v]);
+				for (int i = 0; i < aeslen; i++) {
+					if (gnode.getCheckState(this.pem.AEState[i])) {
+						this.aeStates[v] |= 1L << i;
+					}
+				}
+				if (plen > 0) {
+					final TBPar par = gnode.getTNode(this.oos.getTableau()).getPar();
+					for (int i = 0; i < plen; i++) {
+						if (par.isFulfilling(this.oos.getPromises()[i])) {
+							this.promises[v] |= 1L << i;
+						}
+					}
+				}
+				final int succCnt = gnode.succSize();
+				for (int i = 0; i < succCnt; i++) {
+					final long link = this.dg.getLink(gnode.getStateFP(i), gnode.getTidx(i));
+					if (link < AbstractDiskGraph.MAX_PTR || link >= AbstractDiskGraph.MAX_LINK) {
+						// Not (yet) a node of the graph.
+						assert !isFinalCheck || link != TableauNodePtrTable.UNDONE;
+						continue;
+					}
+					if (m == this.succs.length) {
+						if (m == Integer.MAX_VALUE - 8) {
+							return false;
+						}
+						final int len = (int) Math.min(Integer.MAX_VALUE - 8, m * 2L);
+						this.succs = Arrays.copyOf(this.succs, len);
+						if (this.aeActions != null) {
+							this.aeActions = Arrays.copyOf(this.aeActions, len);
+						}
+					}
+					final int w = (int) (link - AbstractDiskGraph.MAX_PTR);
+					if (gnode.getCheckAction(slen, alen, i, eaaction)) {
+						this.succs[m] = w;
+						for (int j = 0; j < aealen; j++) {
+							if (gnode.getCheckAction(slen, alen, i, this.pem.AEAction[j])) {
+								this.aeActions[m] |= 1L << j;
+							}
+						}
+					} else {
+						this.succs[m] = ~w;
+					}
+					m++;
+				}
+				this.succOffs[v + 1] = m;
+			}
+
+			final LongVec initNodes = this.dg.getInitNodes();
+			final int[] inits = new int[initNodes.size() / 2];
+			int k = 0;
+			for (int j = 0; j < initNodes.size(); j += 2) {
+				final int tidx = (int) initNodes.elementAt(j + 1);
+				final long link = this.dg.getLink(initNodes.elementAt(j), tidx);
+				if (link >= AbstractDiskGraph.MAX_PTR && link < AbstractDiskGraph.MAX_LINK && this.pem.appliesTo(tidx)) {
+					inits[k++] = (int) (link - AbstractDiskGraph.MAX_PTR);
+				}
+			}
+			this.inits = Arrays.copyOf(inits, k);
+
+			this.colors = new AtomicIntegerArray(n);
+			this.inDegree = new int[n];
+			this.outDegree = new int[n];
+			return true;
+		} catch (final OutOfMemoryError oom) {
+			this.fps = null;
+			this.tidxs = null;
+			this.locs = null;
+			this.aeStates = null;
+			this.promises = null;
+			this.succOffs = null;
+			this.succs = null;
+			this.aeActions = null;
+			this.colors = null;
+			this.inDegree = null;
+			this.outDegree = null;
+			System.gc();
+			MP.printWarning(EC.GENERAL, "The behavior graph does not fit into memory for the parallel SCC search. "
+					+ "Falling back to the sequential SCC search.");
+			return false;
+		}
+	}
+
+	/**
+	 * @return true iff a component has been found that satisfies the PEM
+	 *         (see {@link ParallelSccSearch#getComponent()}).
+	 */
+	boolean search() throws InterruptedException, ExecutionException {
+		final ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			pool.submit(() -> {
+				// Color all nodes reachable from the initial nodes (along any
+				// transition) with REACHABLE.
+				final int[] roots = IntStream.of(this.inits).filter(v -> this.colors.compareAndSet(v, UNREACHABLE, REACHABLE))
+						.toArray();
+				bfs(roots, v -> IntStream.range(this.succOffs[v], this.succOffs[v + 1]).map(e -> target(this.succs[e])),
+						w -> this.colors.compareAndSet(w, UNREACHABLE, REACHABLE));
+				makePredecessors();
+			}).get();
+			final int[] reachable = IntStream.range(0, this.numNodes).filter(v -> this.colors.get(v) == REACHABLE).toArray();
+			pool.invoke(new Partition(reachable, REACHABLE));
+		} finally {
+			pool.shutdown();
+		}
+		return this.found;
+	}
+
+	/**
+	 * @return The component satisfying the PEM as a table of <<fp, tidx,
+	 *         loc>>, which is the format expected by
+	 *         {@link LiveWorker#printTrace}.
+	 */
+	TableauNodePtrTable getComponent() {
+		final TableauNodePtrTable com = new TableauNodePtrTable(128);
+		for (int v : this.counterExample) {
+			com.put(this.fps[v], this.tidxs[v], this.locs[v]);
+		}
+		return com;
+	}
+
+	/**
+	 * @return The fingerprint of the node at which the trace through the
+	 *         component (see {@link ParallelSccSearch#getComponent()}) starts.
+	 */
+	long getState() {
+		return this.fps[this.counterExample[0]];
+	}
+
+	int getTidx() {
+		return this.tidxs[this.counterExample[0]];
+	}
+
+	private static int target(final int succ) {
+		return succ < 0 ? ~succ : succ;
+	}
+
+	private void makePredecessors() {
+		final int n = this.numNodes;
+		this.predOffs = new int[n + 1];
+		for (int v = 0; v < n; v++) {
+			if (this.colors.get(v) == REACHABLE) {
+				for (int e = this.succOffs[v]; e < this.succOffs[v + 1]; e++) {
+					if (this.succs[e] >= 0) {
+						this.predOffs[this.succs[e] + 1]++;
+					}
+				}
+			}
+		}
+		for (int v = 0; v < n; v++) {
+			this.predOffs[v + 1] += this.predOffs[v];
+		}
+		this.preds = new int[this.predOffs[n]];
+		final int[] pos = Arrays.copyOf(this.predOffs, n);
+		for (int v = 0; v < n; v++) {
+			if (this.colors.get(v) == REACHABLE) {
+				for (int e = this.succOffs[v]; e < this.succOffs[v + 1]; e++) {
+					if (this.succs[e] >= 0) {
+						this.preds[pos[this.succs[e]]++] = v;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Level-synchronous breadth-first search from the given roots. visit has
+	 * to atomically mark its node and answer whether it did so, which makes
+	 * it safe to expand a frontier in parallel.
+	 */
+	private void bfs(int[] frontier, final IntFunction<IntStream> next, final IntPredicate visit) {
+		while (frontier.length > 0 && !this.found) {
+			IntStream stream = IntStream.of(frontier);
+			if (frontier.length >= SEQUENTIAL_THRESHOLD) {
+				stream = stream.parallel();
+			}
+			frontier = stream.flatMap(next).filter(visit).toArray();
+		}
+	}
+
+	private IntStream eaSuccessors(final int v) {
+		return IntStream.range(this.succOffs[v], this.succOffs[v + 1]).map(e -> this.succs[e]).filter(w -> w >= 0);
+	}
+
+	private IntStream eaPredecessors(final int v) {
+		return IntStream.range(this.predOffs[v], this.predOffs[v + 1]).map(e -> this.preds[e]);
+	}
+
+	/**
+	 * The nodes of a {@link Partition} are all colored with its color, sorted in
+	 * ascending order and closed under strongly connectedness, i.e. every
+	 * component is either entirely in or entirely outside a partition.
+	 */
+	@SuppressWarnings("serial")
+	private final class Partition extends RecursiveAction {
+
+		private final int[] nodes;
+		private final int color;
+
+		Partition(final int[] nodes, final int color) {
+			this.nodes = nodes;
+			this.color = color;
+		}
+
+		@Override
+		protected void compute() {
+			if (found) {
+				return;
+			}
+			final int[] live = trim(this.nodes, this.color);
+			if (live.length == 0 || found) {
+				return;
+			}
+
+			// Forward-Backward step: The component of the pivot is the
+			// intersection of its forward and backward reachable sets (within
+			// the partition). The remaining nodes fall into three partitions
+			// (forward but not backward reachable, backward but not forward
+			// reachable, neither) that are decomposed independently.
+			final int pivot = live[0];
+			final int fwd = nextColor.getAndIncrement();
+			final int bwd = nextColor.getAndIncrement();
+			final int scc = nextColor.getAndIncrement();
+
+			colors.set(pivot, fwd);
+			bfs(new int[] { pivot }, ParallelSccSearch.this::eaSuccessors,
+					w -> colors.compareAndSet(w, this.color, fwd));
+			colors.set(pivot, scc);
+			bfs(new int[] { pivot }, ParallelSccSearch.this::eaPredecessors,
+					w -> colors.compareAndSet(w, fwd, scc) || colors.compareAndSet(w, this.color, bwd));
+			if (found) {
+				return;
+			}
+
+			final int[] com = IntStream.of(live).filter(v -> colors.get(v) == scc).toArray();
+			if (com.length > 1) {
+				check(com, scc);
+			} else if (isStuttering(pivot)) {
+				check(com, TRIVIAL);
+			}
+
+			final int[] f = IntStream.of(live).filter(v -> colors.get(v) == fwd).toArray();
+			final int[] b = IntStream.of(live).filter(v -> colors.get(v) == bwd).toArray();
+			final int[] r = IntStream.of(live).filter(v -> colors.get(v) == this.color).toArray();
+			invokeAll(new Partition(f, fwd), new Partition(b, bwd), new Partition(r, this.color));
+		}
+	}
+
+	/**
+	 * Repeatedly removes the nodes of the given partition that have no
+	 * predecessor or no successor within the partition (ignoring self loops).
+	 * Such a node is a trivial component, which is checked iff it stutters.
+	 *
+	 * @return The remaining nodes in ascending order.
+	 */
+	private int[] trim(final int[] nodes, final int color) {
+		IntStream stream = IntStream.of(nodes);
+		if (nodes.length >= SEQUENTIAL_THRESHOLD) {
+			stream = stream.parallel();
+		}
+		stream.forEach(v -> {
+			this.inDegree[v] = (int) eaPredecessors(v).filter(p -> p != v && this.colors.get(p) == color).count();
+			this.outDegree[v] = (int) eaSuccessors(v).filter(w -> w != v && this.colors.get(w) == color).count();
+		});
+
+		final int[] queue = new int[nodes.length];
+		int head = 0, tail = 0;
+		for (int v : nodes) {
+			if (this.inDegree[v] == 0 || this.outDegree[v] == 0) {
+				this.colors.set(v, TRIVIAL);
+				queue[tail++] = v;
+			}
+		}
+		while (head < tail) {
+			final int v = queue[head++];
+			for (int e = this.succOffs[v]; e < this.succOffs[v + 1]; e++) {
+				final int w = this.succs[e];
+				if (w >= 0 && w != v && this.colors.get(w) == color && --this.inDegree[w] == 0) {
+					this.colors.set(w, TRIVIAL);
+					queue[tail++] = w;
+				}
+			}
+			for (int e = this.predOffs[v]; e < this.predOffs[v + 1]; e++) {
+				final int p = this.preds[e];
+				if (p != v && this.colors.get(p) == color && --this.outDegree[p] == 0) {
+					this.colors.set(p, TRIVIAL);
+					queue[tail++] = p;
+				}
+			}
+			if (isStuttering(v)) {
+				check(new int[] { v }, TRIVIAL);
+			}
+		}
+		if (tail == 0) {
+			return nodes;
+		}
+		return IntStream.of(nodes).filter(v -> this.colors.get(v) == color).toArray();
+	}
+
+	/* Check if node v has a self loop that satisfies EAAction. */
+	private boolean isStuttering(final int v) {
+		for (int e = this.succOffs[v]; e < this.succOffs[v + 1]; e++) {
+			if (target(this.succs[e]) == v) {
+				return this.succs[e] >= 0;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the component com satisfies the PEM's AEState, AEAction and
+	 * promises (see LiveWorker#checkComponent). A trivial component consists
+	 * of a single node whose only transition within the component is its
+	 * self loop.
+	 */
+	private void check(final int[] com, final int color) {
+		synchronized (LiveWorker.STATS) {
+			LiveWorker.STATS.addSample(com.length);
+		}
+		long aeState = 0L;
+		long aeAction = 0L;
+		long promise = 0L;
+		for (int v : com) {
+			if (this.aeStates != null) {
+				aeState |= this.aeStates[v];
+			}
+			if (this.promises != null) {
+				promise |= this.promises[v];
+			}
+			if (this.aeActions != null) {
+				for (int e = this.succOffs[v]; e < this.succOffs[v + 1]; e++) {
+					final int w = this.succs[e];
+					if (w >= 0 && (color == TRIVIAL ? w == v : this.colors.get(w) == color)) {
+						aeAction |= this.aeActions[e];
+					}
+				}
+			}
+		}
+		if (aeState == this.aeStateMask && aeAction == this.aeActionMask && promise == this.promiseMask) {
+			synchronized (this) {
+				if (this.counterExample == null || com[0] < this.counterExample[0]) {
+					this.counterExample = com;
+				}
+			}
+			this.found = true;
+		}
+	}
+}
@@ -5,6 +5,8 @@
 
 package tlc2.tool.liveness;
 
+import java.util.BitSet;
+
 import tlc2.util.BitVector;
 
 /**
@@ -53,10 +55,31 @@ public class PossibleErrorModel {
 	final int[] AEState; // []<>state's (Infinitely Often states)
 	final int[] AEAction; // []<>act's (Infinitely Often actions) (Weak fairness)
 	
+	/*
+	 * The tableau nodes of the behavior graph's nodes this PEM applies to, or
+	 * null if it applies to all of them. Only PEMs of an OrderOfSolution that
+	 * shares its behavior graph with others apply to a subset (see
+	 * Liveness#shareTableaux).
+	 */
+	private final BitSet tidxs;
+	
 	public PossibleErrorModel(int[] aeAction, int[] aeState, int[] eaAction) {
+		this(aeAction, aeState, eaAction, null);
+	}
+
+	PossibleErrorModel(int[] aeAction, int[] aeState, int[] eaAction, BitSet tidxs) {
 		this.AEAction = aeAction;
 		this.AEState = aeState;
 		this.EAAction = eaAction;
+		this.tidxs = tidxs;
+	}
+	
+	/**
+	 * @return true iff this PEM has to be checked on the components of
+	 *         behavior graph nodes with the given tableau index.
+	 */
+	final boolean appliesTo(final int tidx) {
+		return this.tidxs == null || (tidx >= 0 && this.tidxs.get(tidx));
 	}
 	
 	public final boolean isEmpty() {
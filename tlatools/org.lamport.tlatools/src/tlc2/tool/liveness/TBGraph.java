@@ -72,6 +72,35 @@ public class TBGraph extends Vect<TBGraphNode> {
 		}
 	}
 	
+	/**
+	 * Creates the disjoint union of the given tableaux, which is a tableau of
+	 * the disjunction of their formulas. The initial nodes of all tableaux come
+	 * first. Re-indexes the nodes of the given tableaux, which must not be used
+	 * on their own afterwards.
+	 */
+	TBGraph(final TBGraph[] tableaux) {
+		final LNDisj disj = new LNDisj(tableaux.length);
+		for (int i = 0; i < tableaux.length; i++) {
+			disj.addDisj(tableaux[i].tf);
+		}
+		this.tf = disj;
+
+		for (int i = 0; i < tableaux.length; i++) {
+			for (int j = 0; j < tableaux[i].getInitCnt(); j++) {
+				this.addElement(tableaux[i].getNode(j));
+			}
+		}
+		this.setInitCnt(this.size());
+		for (int i = 0; i < tableaux.length; i++) {
+			for (int j = tableaux[i].getInitCnt(); j < tableaux[i].size(); j++) {
+				this.addElement(tableaux[i].getNode(j));
+			}
+		}
+		for (int i = 0; i < this.size(); i++) {
+			this.getNode(i).setIndex(i);
+		}
+	}
+	
 	/**
 	 * The method findOrCreateNode, given a list of particles, either finds the
 	 * particle in that list, or creates a new one and puts it in the list. If
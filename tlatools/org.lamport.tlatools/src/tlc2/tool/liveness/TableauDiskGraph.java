@@ -45,6 +45,11 @@ public class TableauDiskGraph extends AbstractDiskGraph {
 		super(metadir, soln, graphStats);
 		this.nodePtrTbl = new TableauNodePtrTable(255);
 	}
+
+	TableauDiskGraph(String metadir, int soln, IBucketStatistics graphStats, boolean mapped) throws IOException {
+		super(metadir, soln, graphStats, mapped);
+		this.nodePtrTbl = new TableauNodePtrTable(255);
+	}
 	
 	public final long getPtr(long fp, int tidx) {
 		return this.nodePtrTbl.get(fp, tidx);
@@ -194,7 +199,7 @@ public class TableauDiskGraph extends AbstractDiskGraph {
 
 	public final void reset() throws IOException {
 		this.nodePtrRAF.setLength(0);
-		this.nodeRAF.setLength(0);
+		resetNodeFile();
 		this.nodePtrTbl = new TableauNodePtrTable(255);
 	 }
 
@@ -238,7 +243,6 @@ public class TableauDiskGraph extends AbstractDiskGraph {
 
 		StringBuffer sb = new StringBuffer();
 		try {
-			long nodePtr = this.nodeRAF.getFilePointer();
 			long nodePtrPtr = this.nodePtrRAF.getFilePointer();
 			long len = this.nodePtrRAF.length();
 			this.nodePtrRAF.seek(0);
@@ -254,7 +258,6 @@ public class TableauDiskGraph extends AbstractDiskGraph {
 				}
 				sb.append("\n");
 			}
-			this.nodeRAF.seek(nodePtr);
 			this.nodePtrRAF.seek(nodePtrPtr);
 		} catch (IOException e) {
 			MP.printError(EC.SYSTEM_DISKGRAPH_ACCESS, e);
@@ -289,7 +292,6 @@ public class TableauDiskGraph extends AbstractDiskGraph {
 			sb.append("subgraph cluster_graph {\n"); 
 	        sb.append("color=\"white\";\n"); // no border.
 			//TODO Reading the file front to end potentially yields node duplicates in the output. Better to create a (temporary) nodeptrtable and traverse it instead.
-			long nodePtr = this.nodeRAF.getFilePointer();
 			long nodePtrPtr = this.nodePtrRAF.getFilePointer();
 			long len = this.nodePtrRAF.length();
 			this.nodePtrRAF.seek(0);
@@ -301,7 +303,6 @@ public class TableauDiskGraph extends AbstractDiskGraph {
 				sb.append(gnode.toDotViz(isInitState(gnode), true, slen, alen));
 			}
 			sb.append("}}");
-			this.nodeRAF.seek(nodePtr);
 			this.nodePtrRAF.seek(nodePtrPtr);
 		} catch (IOException e) {
 			MP.printError(EC.SYSTEM_DISKGRAPH_ACCESS, e);
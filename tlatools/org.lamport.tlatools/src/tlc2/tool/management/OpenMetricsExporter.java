@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.management;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.IWorker;
+import tlc2.tool.ModelChecker;
+import tlc2.tool.fp.DiskFPSet;
+import tlc2.tool.fp.FPSet;
+import tlc2.tool.fp.MultiFPSet;
+import tlc2.tool.liveness.AbstractDiskGraph;
+import tlc2.tool.liveness.ILiveCheck;
+
+/**
+ * {@link OpenMetricsExporter} exposes the statistics of a {@link ModelChecker}
+ * (the ones of {@link ModelCheckerMXWrapper} and the
+ * {@link tlc2.tool.fp.management.DiskFPSetMXWrapper} among others) in the
+ * OpenMetrics text format understood by Prometheus and compatible scrapers.
+ * <p>
+ * The exporter is opt-in: -Dtlc2.tool.management.OpenMetricsExporter.port=N
+ * serves the metrics at http://host:N/metrics (N = 0 picks a free port, which
+ * is reported on startup) and
+ * -Dtlc2.tool.management.OpenMetricsExporter.host=... selects the interface
+ * (loopback by default). Alternatively,
+ * -Dtlc2.tool.management.OpenMetricsExporter.file=path rewrites the file
+ * every -Dtlc2.tool.management.OpenMetricsExporter.interval=S seconds (10 by
+ * default) and once more when model checking ends, which is suitable for the
+ * textfile collector of the node exporter.
+ * <p>
+ * All values are read without synchronization with the workers and thus may be
+ * slightly stale, which is acceptable for metrics. The worker CPU time is the
+ * CPU time of the worker threads only. Since the garbage collector runs in
+ * threads of its own and a worker does not accumulate CPU time while it is
+ * stopped for a collection, tlc_states_generated_per_worker_cpu_second is a
+ * throughput that does not depend on the amount of garbage collection.
+ */
+public final class OpenMetricsExporter {
+
+	private static final String PREFIX = OpenMetricsExporter.class.getName();
+
+	public static final String CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+	private static final ThreadMXBean MX = ManagementFactory.getThreadMXBean();
+
+	/**
+	 * @return The exporter configured via the system properties or null if
+	 *         neither a port nor a file has been given.
+	 */
+	public static OpenMetricsExporter create(final ModelChecker mc) {
+		final Integer port = Integer.getInteger(PREFIX + ".port");
+		final String file = System.getProperty(PREFIX + ".file");
+		if (port == null && file == null) {
+			return null;
+		}
+		final OpenMetricsExporter exporter = new OpenMetricsExporter(mc);
+		try {
+			if (port != null) {
+				final String host = System.getProperty(PREFIX + ".host");
+				exporter.serve(host == null ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+						: new InetSocketAddress(host, port));
+			}
+			if (file != null) {
+				exporter.write(new File(file), Integer.getInteger(PREFIX + ".interval", 10));
+			}
+		} catch (IOException e) {
+			exporter.stop();
+			MP.printWarning(EC.GENERAL, "Failed to start the OpenMetrics exporter: " + e.getMessage());
+			return null;
+		}
+		return exporter;
+	}
+
+	private final ModelChecker mc;
+	private final long startTime = System.currentTimeMillis();
+	/**
+	 * The CPU time of the workers only ever grows, even once the worker threads
+	 * have terminated and their CPU time can no longer be read.
+	 */
+	private long workerCpuTime = 0L;
+
+	private HttpServer server;
+	private ScheduledExecutorService executor;
+	private File file;
+
+	OpenMetricsExporter(final ModelChecker mc) {
+		this.mc = mc;
+	}
+
+	void serve(final InetSocketAddress address) throws IOException {
+		this.server = HttpServer.create(address, 0);
+		this.server.createContext("/metrics", this::handle);
+		this.server.start();
+		MP.printMessage(EC.GENERAL, String.format("OpenMetrics exporter listening on http://%s:%s/metrics",
+				address.getHostString(), getPort()));
+	}
+
+	void write(final File file, final int interval) {
+		this.file = file;
+		this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+			final Thread t = new Thread(r, "TLC OpenMetrics Exporter");
+			t.setDaemon(true);
+			return t;
+		});
+		this.executor.scheduleWithFixedDelay(this::writeFile, 0L, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @return The port the HTTP endpoint listens on or -1 if there is none.
+	 */
+	public int getPort() {
+		return server == null ? -1 : server.getAddress().getPort();
+	}
+
+	public void stop() {
+		if (server != null) {
+			server.stop(0);
+		}
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(5L, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			// Final snapshot with the totals of the run.
+			writeFile();
+		}
+	}
+
+	private void handle(final HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			final byte[] body = collect().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			if ("HEAD".equals(exchange.getRequestMethod())) {
+				exchange.sendResponseHeaders(200, -1);
+				return;
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private void writeFile() {
+		try {
+			// Write to a temporary file first so that a reader never sees a
+			// partially written file.
+			final File tmp = new File(file.getAbsoluteFile().getParentFile(), "." + file.getName() + ".tmp");
+			Files.write(tmp.toPath(), collect().getBytes(StandardCharsets.UTF_8));
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			MP.printWarning(EC.GENERAL, "Failed to write OpenMetrics to " + file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return The current metrics in the OpenMetrics text format.
+	 */
+	public String collect() {
+		final StringBuilder buf = new StringBuilder(4096);
+
+		final long generated = mc.getStatesGenerated();
+		counter(buf, "tlc_states_generated", "Number of states generated.", generated);
+		counter(buf, "tlc_states_distinct", "Number of distinct states found.", getDistinctStates());
+		gauge(buf, "tlc_queue_states", "Number of states in the queue of unexplored states.",
+				mc.getStateQueueSize());
+		gauge(buf, "tlc_progress_depth", "Depth of the state graph explored so far.", mc.getProgress());
+
+		final DiskFPSet[] diskFPSets = getDiskFPSets();
+		if (diskFPSets.length > 0) {
+			long tblCnt = 0L, fileCnt = 0L, flushes = 0L, flushTime = 0L, memHits = 0L, diskLookups = 0L,
+					diskHits = 0L, diskSeeks = 0L;
+			double loadFactor = 0d;
+			for (DiskFPSet diskFPSet : diskFPSets) {
+				tblCnt += diskFPSet.getTblCnt();
+				fileCnt += diskFPSet.getFileCnt();
+				loadFactor = Math.max(loadFactor, diskFPSet.getLoadFactor());
+				flushes += diskFPSet.getGrowDiskMark();
+				flushTime += diskFPSet.getFlushTime();
+				memHits += diskFPSet.getMemHitCnt();
+				diskLookups += diskFPSet.getDiskLookupCnt();
+				diskHits += diskFPSet.getDiskHitCnt();
+				diskSeeks += diskFPSet.getDiskSeekCnt();
+			}
+			gauge(buf, "tlc_fpset_memory_fingerprints", "Number of fingerprints in the in-memory tables.", tblCnt);
+			gauge(buf, "tlc_fpset_disk_fingerprints", "Number of fingerprints flushed to disk.", fileCnt);
+			gauge(buf, "tlc_fpset_load_factor",
+					"Highest load of the in-memory tables (a table is flushed to disk at 1).", loadFactor);
+			counter(buf, "tlc_fpset_flushes", "Number of flushes of the in-memory tables to disk.", flushes);
+			counter(buf, "tlc_fpset_flush_seconds", "Wall clock time spent flushing to disk.", flushTime / 1000d);
+			counter(buf, "tlc_fpset_memory_hits", "Number of lookups answered by the in-memory tables.", memHits);
+			counter(buf, "tlc_fpset_disk_lookups", "Number of lookups that had to go to disk.", diskLookups);
+			counter(buf, "tlc_fpset_disk_hits", "Number of disk lookups that found the fingerprint.", diskHits);
+			counter(buf, "tlc_fpset_disk_seeks", "Number of disk seeks.", diskSeeks);
+		}
+
+		final int numWorkers = TLCGlobals.getNumWorkers();
+		gauge(buf, "tlc_workers", "Number of workers.", numWorkers);
+		final double cpuSeconds = getWorkerCpuTime() / 1e9d;
+		final double wallSeconds = (System.currentTimeMillis() - startTime) / 1000d;
+		if (cpuSeconds >= 0) {
+			counter(buf, "tlc_worker_cpu_seconds", "CPU time of the worker threads.", cpuSeconds);
+			gauge(buf, "tlc_worker_utilization",
+					"Worker CPU time divided by the wall clock time of all workers since startup.",
+					wallSeconds > 0 ? cpuSeconds / (wallSeconds * numWorkers) : 0d);
+			gauge(buf, "tlc_states_generated_per_worker_cpu_second",
+					"States generated per CPU second of the workers (excludes garbage collection).",
+					cpuSeconds > 0 ? generated / cpuSeconds : 0d);
+		}
+		counter(buf, "tlc_gc_seconds", "Accumulated (approximate) elapsed time of garbage collections.",
+				getGCTime() / 1000d);
+
+		counter(buf, "tlc_liveness_checks", "Number of periodic liveness checks.", mc.getLiveCheckCount());
+		counter(buf, "tlc_liveness_check_seconds", "Wall clock time spent in periodic liveness checks.",
+				mc.getLiveCheckTime() / 1000d);
+		gauge(buf, "tlc_liveness_runtime_ratio", "Fraction of the runtime spent checking liveness.",
+				mc.getRuntimeRatio());
+		final ILiveCheck liveCheck = mc.getLiveCheck();
+		if (liveCheck != null && liveCheck.getNumChecker() > 0) {
+			final StringBuilder nodes = new StringBuilder();
+			final StringBuilder checked = new StringBuilder();
+			for (int i = 0; i < liveCheck.getNumChecker(); i++) {
+				final AbstractDiskGraph graph = liveCheck.getChecker(i).getDiskGraph();
+				sample(nodes, "tlc_liveness_graph_nodes{property=\"" + i + "\"}", graph.size());
+				sample(checked, "tlc_liveness_graph_nodes_checked{property=\"" + i + "\"}",
+						graph.getSizeAtLastCheck());
+			}
+			header(buf, "tlc_liveness_graph_nodes", "gauge", "Number of nodes in the behavior graph.");
+			buf.append(nodes);
+			header(buf, "tlc_liveness_graph_nodes_checked", "gauge",
+					"Number of nodes of the behavior graph covered by the last liveness check.");
+			buf.append(checked);
+		}
+
+		buf.append("# EOF\n");
+		return buf.toString();
+	}
+
+	private long getDistinctStates() {
+		// Like ModelCheckerMXWrapper, avoid the locks of DiskFPSet at the
+		// price of reading dirty values.
+		final DiskFPSet[] diskFPSets = getDiskFPSets();
+		if (diskFPSets.length > 0) {
+			long size = 0L;
+			for (DiskFPSet diskFPSet : diskFPSets) {
+				size += diskFPSet.getFileCnt() + diskFPSet.getTblCnt();
+			}
+			return size;
+		}
+		return mc.theFPSet.size();
+	}
+
+	/**
+	 * @return The DiskFPSet(s) backing the model checker's {@link FPSet} (either
+	 *         directly or as the partitions of a {@link MultiFPSet}), or an empty
+	 *         array if it is not disk-based.
+	 */
+	private DiskFPSet[] getDiskFPSets() {
+		final FPSet fpSet = mc.theFPSet;
+		if (fpSet instanceof DiskFPSet) {
+			return new DiskFPSet[] { (DiskFPSet) fpSet };
+		} else if (fpSet instanceof MultiFPSet) {
+			final FPSet[] fpSets = ((MultiFPSet) fpSet).getFPSets();
+			final DiskFPSet[] diskFPSets = new DiskFPSet[fpSets.length];
+			for (int i = 0; i < fpSets.length; i++) {
+				if (!(fpSets[i] instanceof DiskFPSet)) {
+					return new DiskFPSet[0];
+				}
+				diskFPSets[i] = (DiskFPSet) fpSets[i];
+			}
+			return diskFPSets;
+		}
+		return new DiskFPSet[0];
+	}
+
+	/**
+	 * @return The accumulated CPU time of the workers in nanoseconds or -1 if
+	 *         not supported by the VM.
+	 */
+	private synchronized long getWorkerCpuTime() {
+		if (!MX.isThreadCpuTimeSupported() || !MX.isThreadCpuTimeEnabled()) {
+			return -1L;
+		}
+		final IWorker[] workers = mc.getWorkers();
+		if (workers != null) {
+			long sum = 0L;
+			for (IWorker worker : workers) {
+				if (worker instanceof Thread) {
+					sum += Math.max(0L, MX.getThreadCpuTime(((Thread) worker).getId()));
+				}
+			}
+			workerCpuTime = Math.max(workerCpuTime, sum);
+		}
+		return workerCpuTime;
+	}
+
+	private static long getGCTime() {
+		long sum = 0L;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			sum += Math.max(0L, gc.getCollectionTime());
+		}
+		return sum;
+	}
+
+	private static void header(final StringBuilder buf, final String name, final String type, final String help) {
+		buf.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+		buf.append("# HELP ").append(name).append(' ').append(help).append('\n');
+	}
+
+	private static void counter(final StringBuilder buf, final String name, final String help, final Number value) {
+		header(buf, name, "counter", help);
+		sample(buf, name + "_total", value);
+	}
+
+	private static void gauge(final StringBuilder buf, final String name, final String help, final Number value) {
+		header(buf, name, "gauge", help);
+		sample(buf, name, value);
+	}
+
+	private static void sample(final StringBuilder buf, final String name, final Number value) {
+		buf.append(name).append(' ');
+		if (value instanceof Double) {
+			buf.append(Double.toString(value.doubleValue()));
+		} else {
+			buf.append(value.longValue());
+		}
+		buf.append('\n');
+	}
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.StateVec;
+import tlc2.tool.TLCState;
+import tlc2.tool.fp.DDDFPSet;
+import util.Assert;
+import util.FileUtil;
+
+/**
+ * A {@link DDDStateQueue} implements breadth-first search with delayed
+ * duplicate detection (see {@link DDDFPSet}). The workers dequeue the states of
+ * the current level from the frontier, while their successors go to a pending
+ * queue. Both queues are {@link DiskStateQueue}s, thus states are written to
+ * and read from disk sequentially.
+ * <p>
+ * Once the frontier is empty and all workers wait, the last worker merges the
+ * {@link DDDFPSet} and moves the pending states whose fingerprints have not
+ * been visited before into the frontier, which becomes the next level.
+ */
+public class DDDStateQueue implements IStateQueue {
+
+	private final DDDFPSet fpSet;
+	private final DiskStateQueue frontier;
+	private final DiskStateQueue pending;
+
+	public DDDStateQueue(final String metadir, final DDDFPSet fpSet) {
+		this.fpSet = fpSet;
+		this.frontier = new DiskStateQueue(metadir) {
+			@Override
+			protected boolean refill() {
+				return DDDStateQueue.this.refill(this);
+			}
+		};
+		final String pendingDir = metadir + FileUtil.separator + "pending";
+		new File(pendingDir).mkdirs();
+		this.pending = new DiskStateQueue(pendingDir);
+	}
+
+	/**
+	 * Called by the last worker with the lock of frontier held, thus no other
+	 * worker accesses fpSet or pending.
+	 */
+	private boolean refill(final DiskStateQueue frontier) {
+		if (pending.isEmpty()) {
+			return false;
+		}
+		try {
+			final long[] fresh = fpSet.merge();
+			while (!pending.isEmpty()) {
+				final TLCState state = pending.dequeue();
+				if (Arrays.binarySearch(fresh, state.fingerPrint()) >= 0) {
+					frontier.enqueue(state);
+				}
+			}
+		} catch (IOException e) {
+			Assert.fail(EC.SYSTEM_ERROR_WRITING_STATES,
+					new String[] { "fingerprint", (e.getMessage() == null) ? e.toString() : e.getMessage() });
+		}
+		return !frontier.isEmpty();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#enqueue(tlc2.tool.TLCState)
+	 */
+	public void enqueue(final TLCState state) {
+		this.pending.enqueue(state);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#dequeue()
+	 */
+	public TLCState dequeue() {
+		return this.frontier.dequeue();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sEnqueue(tlc2.tool.TLCState)
+	 */
+	public void sEnqueue(final TLCState state) {
+		this.pending.sEnqueue(state);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sEnqueue(tlc2.tool.TLCState[])
+	 */
+	public void sEnqueue(final TLCState[] states) {
+		this.pending.sEnqueue(states);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sEnqueue(tlc2.tool.StateVec)
+	 */
+	public void sEnqueue(final StateVec stateVec) {
+		this.pending.sEnqueue(stateVec);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sDequeue()
+	 */
+	public TLCState sDequeue() {
+		return this.frontier.sDequeue();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sPeek()
+	 */
+	public TLCState sPeek() {
+		return this.frontier.sPeek();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#sDequeue(int)
+	 */
+	public TLCState[] sDequeue(final int cnt) {
+		return this.frontier.sDequeue(cnt);
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#finishAll()
+	 */
+	public void finishAll() {
+		this.frontier.finishAll();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#suspendAll()
+	 */
+	public boolean suspendAll() {
+		return this.frontier.suspendAll();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#resumeAll()
+	 */
+	public void resumeAll() {
+		this.frontier.resumeAll();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#resumeAllStuck()
+	 */
+	public void resumeAllStuck() {
+		this.frontier.resumeAllStuck();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#size()
+	 */
+	public long size() {
+		return this.frontier.size() + this.pending.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#isEmpty()
+	 */
+	public boolean isEmpty() {
+		return this.frontier.isEmpty() && this.pending.isEmpty();
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#beginChkpt()
+	 */
+	public void beginChkpt() throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#commitChkpt()
+	 */
+	public void commitChkpt() throws IOException {
+		// Not supported, see beginChkpt.
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#recover()
+	 */
+	public void recover() throws IOException {
+		MP.printWarning(EC.GENERAL, "Checkpointing is not implemented for " + getClass().getCanonicalName());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.queue.IStateQueue#delete()
+	 */
+	public void delete() throws IOException {
+		this.frontier.delete();
+		this.pending.delete();
+	}
+}
@@ -18,6 +18,7 @@ import tlc2.value.ValueInputStream;
 import tlc2.value.ValueOutputStream;
 import util.Assert;
 import util.FileUtil;
+import util.TLAFlightRecorder;
 
 /**
  * A {@link DiskStateQueue} uses the local hard disc as a backing store for
@@ -51,6 +52,14 @@ public class DiskStateQueue extends StateQueue {
 	protected final StatePoolCleaner cleaner;
 	private int loPool, hiPool, lastLoPool, newLastLoPool;
 	private File loFile;
+	/**
+	 * The in-memory states (enqBuf followed by deqBuf) and the indices of this
+	 * queue at the time of the last {@link #beginChkpt()}. Written to disk by
+	 * {@link #commitChkpt()}.
+	 */
+	private TLCState[] chkptStates;
+	private long chkptLen;
+	private int chkptLoPool, chkptHiPool, chkptEnqIndex, chkptDeqIndex;
 
 	// TESTING ONLY!
 	DiskStateQueue() throws IOException {
@@ -84,9 +93,11 @@ public class DiskStateQueue extends StateQueue {
 		if (this.enqIndex == this.enqBuf.length) {
 			// enqBuf is full; flush it to disk
 			try {
+				final Object event = TLAFlightRecorder.beginQueueSpill();
 				String pstr = Integer.toString(this.hiPool);
 				File file = new File(this.filePrefix + pstr);
 				this.enqBuf = this.writer.doWork(this.enqBuf, file);
+				TLAFlightRecorder.endQueueSpill(event, this.enqIndex, this.hiPool);
 				this.hiPool++;
 				this.enqIndex = 0;
 			} catch (Exception e) {
@@ -115,6 +126,7 @@ public class DiskStateQueue extends StateQueue {
 	}
 
 	private final void fillDeqBuffer() {
+		final Object event = TLAFlightRecorder.beginQueueRefill();
 		try {
 			if (this.loPool + 1 <= this.hiPool) {
 				// We are sure there are disk files.
@@ -127,6 +139,7 @@ public class DiskStateQueue extends StateQueue {
 				this.loPool++;
 				String pstr = Integer.toString(this.loPool);
 				this.loFile = new File(this.filePrefix + pstr);
+				TLAFlightRecorder.endQueueRefill(event, this.deqBuf.length, true);
 			} else {
 				// We still need to check if a file is buffered.
 				this.writer.ensureWritten();
@@ -137,10 +150,12 @@ public class DiskStateQueue extends StateQueue {
 					this.loPool++;
 					String pstr = Integer.toString(this.loPool);
 					this.loFile = new File(this.filePrefix + pstr);
+					TLAFlightRecorder.endQueueRefill(event, this.deqBuf.length, true);
 				} else {
 					// copy entries from enqBuf to deqBuf.
 					this.deqIndex = this.deqBuf.length - this.enqIndex;
 					System.arraycopy(this.enqBuf, 0, this.deqBuf, this.deqIndex, this.enqIndex);
+					TLAFlightRecorder.endQueueRefill(event, this.enqIndex, false);
 					this.enqIndex = 0;
 				}
 			}
@@ -168,24 +183,39 @@ public class DiskStateQueue extends StateQueue {
 			this.cleaner.notifyAll();
 		}
 		
-		String filename = this.filePrefix + "queue.tmp";
-		ValueOutputStream vos = new ValueOutputStream(filename);
-		vos.writeLongNat(this.len);
-		vos.writeInt(this.loPool);
-		vos.writeInt(this.hiPool);
-		vos.writeInt(this.enqIndex);
-		vos.writeInt(this.deqIndex);
-		for (int i = 0; i < this.enqIndex; i++) {
-			this.enqBuf[i].write(vos);
-		}
-		for (int i = this.deqIndex; i < this.deqBuf.length; i++) {
-			this.deqBuf[i].write(vos);
-		}
-		vos.close();
+		// Only copy the references to the states in enqBuf and deqBuf (the
+		// states on disk do not change). The buffers themselves are handed to
+		// the reader and writer threads once the workers resume, thus they
+		// cannot be written later. Serializing the states is left to
+		// commitChkpt, which does not require the workers to be suspended.
+		final int deqCnt = this.deqBuf.length - this.deqIndex;
+		this.chkptStates = new TLCState[this.enqIndex + deqCnt];
+		System.arraycopy(this.enqBuf, 0, this.chkptStates, 0, this.enqIndex);
+		System.arraycopy(this.deqBuf, this.deqIndex, this.chkptStates, this.enqIndex, deqCnt);
+		this.chkptLen = this.len;
+		this.chkptLoPool = this.loPool;
+		this.chkptHiPool = this.hiPool;
+		this.chkptEnqIndex = this.enqIndex;
+		this.chkptDeqIndex = this.deqIndex;
 		this.newLastLoPool = this.loPool - 1;
 	}
 
 	public final void commitChkpt() throws IOException {
+		final TLCState[] states = this.chkptStates;
+		this.chkptStates = null;
+		if (states != null) {
+			String filename = this.filePrefix + "queue.tmp";
+			ValueOutputStream vos = new ValueOutputStream(filename);
+			vos.writeLongNat(this.chkptLen);
+			vos.writeInt(this.chkptLoPool);
+			vos.writeInt(this.chkptHiPool);
+			vos.writeInt(this.chkptEnqIndex);
+			vos.writeInt(this.chkptDeqIndex);
+			for (int i = 0; i < states.length; i++) {
+				states[i].write(vos);
+			}
+			vos.close();
+		}
 		for (int i = this.lastLoPool; i < this.newLastLoPool; i++) {
 			String pstr = Integer.toString(i);
 			File oldPool = new File(this.filePrefix + pstr);
@@ -177,6 +177,13 @@ public abstract class StateQueue implements IStateQueue {
 			// waiting. This indicates that all work is done.
 			if (this.numWaiting >= TLCGlobals.getNumWorkers()) {
 				if (isEmpty()) {
+					if (refill()) {
+						// New states became available, wake up the other
+						// workers.
+						this.numWaiting--;
+						this.notifyAll();
+						continue;
+					}
 					this.numWaiting--;
 					return false;
 				}
@@ -202,6 +209,18 @@ public abstract class StateQueue implements IStateQueue {
 		return true;
 	}
 
+	/**
+	 * Called by the last worker when the queue is empty and all other workers
+	 * are waiting for states, i.e. when the state space exploration would
+	 * terminate. A subclass may add new states to the queue (with the lock of
+	 * the queue held) to continue instead.
+	 * 
+	 * @return true iff states have been added to the queue.
+	 */
+	protected boolean refill() {
+		return false;
+	}
+
 	/* (non-Javadoc)
 	 * @see tlc2.tool.queue.IStateQueue#finishAll()
 	 */
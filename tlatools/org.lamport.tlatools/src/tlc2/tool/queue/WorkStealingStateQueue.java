@@ -0,0 +1,637 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.StateVec;
+import tlc2.tool.TLCState;
+import tlc2.tool.Worker;
+import tlc2.util.IdThread;
+import tlc2.value.ValueInputStream;
+import tlc2.value.ValueOutputStream;
+import util.FileUtil;
+
+/**
+ * A {@link IStateQueue} that - contrary to {@link StateQueue} - does not
+ * serialize all {@link Worker}s on a single monitor. Each {@link Worker} owns a
+ * lock-free deque into which it enqueues the successor states it generates and
+ * from which it dequeues states to explore next. A {@link Worker} whose deque
+ * is empty steals states from the deques of the other {@link Worker}s. Threads
+ * other than the {@link Worker}s (e.g. the main thread during the generation of
+ * initial states or recovery) use a shared deque.
+ * <p>
+ * States are taken from the head (oldest states) of a deque by owner and thief
+ * alike, which keeps the exploration order close to breadth-first, i.e. error
+ * traces remain (almost) as short as with {@link StateQueue}.
+ * <p>
+ * The monitor of this queue is only acquired when a {@link Worker} runs out of
+ * work, i.e. to wait for new states, detect termination, or to suspend
+ * {@link Worker}s for checkpointing and liveness checking (see
+ * {@link #suspendAll()}). The semantics of {@link #finishAll()},
+ * {@link #suspendAll()} and {@link #resumeAll()} are identical to
+ * {@link StateQueue}'s.
+ * <p>
+ * The deques are kept on the heap. Once they hold more than
+ * {@link #SpillThreshold} states, newly generated states are spilled to a
+ * {@link DiskStateQueue} (in the "wsq" sub-directory of the metadir) instead.
+ * A {@link Worker} only dequeues spilled states after all deques have run dry,
+ * and then moves a batch of them into its own deque. Thus, the spilled states
+ * are explored later than with {@link StateQueue}, which makes error traces
+ * longer than the shortest ones if the frontier exceeds the threshold.
+ * <p>
+ * {@link #beginChkpt()} copies the references of all states in the deques into
+ * an array that is kept until {@link #commitChkpt()}. Together with the
+ * spilling, this bounds the additional heap required by checkpointing to
+ * (roughly) {@link #SpillThreshold} references.
+ * <p>
+ * Selected with -Dtlc2.tool.ModelChecker.WSQueue=true.
+ */
+public class WorkStealingStateQueue implements IStateQueue {
+
+	/**
+	 * The number of states kept in the on-heap deques beyond which states are
+	 * spilled to disk.
+	 */
+	private final static long SpillThreshold = Long
+			.getLong(WorkStealingStateQueue.class.getName() + ".SpillThreshold", 1L << 22);
+	/**
+	 * The number of spilled states a {@link Worker} moves into its deque at once.
+	 */
+	private final static int SpillBatch = 1024;
+
+	private final ConcurrentLinkedDeque<TLCState>[] deques;
+	/**
+	 * Used by threads that are not one of the {@link Worker}s.
+	 */
+	private final ConcurrentLinkedDeque<TLCState> shared;
+
+	/**
+	 * The number of states in all deques. A state is added to a deque before len
+	 * is incremented and removed from a deque before len is decremented. Thus,
+	 * len might temporarily be off by the number of concurrent enqueues and
+	 * dequeues.
+	 */
+	private final AtomicLong len = new AtomicLong();
+	/**
+	 * Only modified while holding the monitor of this queue but read without it
+	 * by enqueueing threads to decide if waiting {@link Worker}s have to be
+	 * notified.
+	 */
+	private volatile int numWaiting = 0;
+	private volatile boolean finish = false;
+	/**
+	 * Signals {@link Worker} that checkpointing is going happen next.
+	 */
+	private volatile boolean stop = false;
+	/**
+	 * Synchronizes between workers and checkpointing (see
+	 * {@link StateQueue#mu}).
+	 */
+	private final Object mu = new Object();
+
+	private final String diskdir;
+
+	private final long spillThreshold;
+	/**
+	 * Created lazily by the first spill (or by {@link #recover()}) because it
+	 * starts its own threads. Only accessed while holding the monitor of
+	 * spillLock.
+	 */
+	private DiskStateQueue overflow;
+	/**
+	 * The number of states in overflow. Only modified while holding the monitor
+	 * of spillLock, but read without it to decide if states have to be spilled or
+	 * if states can be dequeued from overflow.
+	 */
+	private volatile long spilled = 0L;
+	private final Object spillLock = new Object();
+
+	/**
+	 * TESTING ONLY!
+	 */
+	WorkStealingStateQueue() throws IOException {
+		this(Files.createTempDirectory("WorkStealingStateQueue").toFile().toString(), TLCGlobals.getNumWorkers());
+	}
+
+	public WorkStealingStateQueue(final String metadir) {
+		this(metadir, TLCGlobals.getNumWorkers());
+	}
+
+	@SuppressWarnings("unchecked")
+	WorkStealingStateQueue(final String metadir, final int numWorkers) {
+		this(metadir, numWorkers, SpillThreshold);
+	}
+
+	@SuppressWarnings("unchecked")
+	WorkStealingStateQueue(final String metadir, final int numWorkers, final long spillThreshold) {
+		this.diskdir = metadir;
+		this.spillThreshold = spillThreshold;
+		this.deques = new ConcurrentLinkedDeque[numWorkers];
+		for (int i = 0; i < deques.length; i++) {
+			this.deques[i] = new ConcurrentLinkedDeque<>();
+		}
+		this.shared = new ConcurrentLinkedDeque<>();
+	}
+
+	/**
+	 * @return The index of the calling {@link Worker}'s deque or -1 iff the
+	 *         calling thread is not a {@link Worker} (e.g. main thread or the
+	 *         worker to reconstruct the error trace).
+	 */
+	private final int getOwner() {
+		final int id = IdThread.GetId(-1);
+		return (0 <= id && id < deques.length) ? id : -1;
+	}
+
+	private final ConcurrentLinkedDeque<TLCState> getDeque(final int owner) {
+		return owner < 0 ? shared : deques[owner];
+	}
+
+	/* Enqueues the state. It is not thread-safe. */
+	public final void enqueue(final TLCState state) {
+		if (needsSpilling()) {
+			spill(state);
+		} else {
+			this.shared.offerLast(state);
+		}
+		this.len.incrementAndGet();
+	}
+
+	public final TLCState dequeue() {
+		final TLCState state = poll(getOwner());
+		if (state != null) {
+			this.len.decrementAndGet();
+		}
+		return state;
+	}
+
+	/* Enqueues a state. Wake up any waiting thread. */
+	public final void sEnqueue(final TLCState state) {
+		if (needsSpilling()) {
+			spill(state);
+		} else {
+			getDeque(getOwner()).offerLast(state);
+		}
+		this.len.incrementAndGet();
+		signal();
+	}
+
+	/* Enqueues a list of states. Wake up any waiting thread. */
+	public final void sEnqueue(final TLCState[] states) {
+		if (needsSpilling()) {
+			synchronized (this.spillLock) {
+				for (int i = 0; i < states.length; i++) {
+					spillInner(states[i]);
+				}
+			}
+		} else {
+			final ConcurrentLinkedDeque<TLCState> deque = getDeque(getOwner());
+			for (int i = 0; i < states.length; i++) {
+				deque.offerLast(states[i]);
+			}
+		}
+		this.len.addAndGet(states.length);
+		signal();
+	}
+
+	public final void sEnqueue(final StateVec stateVec) {
+		int cnt = 0;
+		if (needsSpilling()) {
+			synchronized (this.spillLock) {
+				for (int j = 0; j < stateVec.size(); j++) {
+					final TLCState state = stateVec.elementAt(j);
+					if (state != null) {
+						spillInner(state);
+						cnt++;
+					}
+				}
+			}
+		} else {
+			final ConcurrentLinkedDeque<TLCState> deque = getDeque(getOwner());
+			for (int j = 0; j < stateVec.size(); j++) {
+				final TLCState state = stateVec.elementAt(j);
+				if (state != null) {
+					deque.offerLast(state);
+					cnt++;
+				}
+			}
+		}
+		this.len.addAndGet(cnt);
+		signal();
+	}
+
+	/**
+	 * @return true iff the deques hold more than spillThreshold states. Racy
+	 *         like len, thus the deques might exceed the threshold by the number
+	 *         of concurrent enqueues.
+	 */
+	private final boolean needsSpilling() {
+		return this.len.get() - this.spilled >= this.spillThreshold;
+	}
+
+	private final void spill(final TLCState state) {
+		synchronized (this.spillLock) {
+			spillInner(state);
+		}
+	}
+
+	/* Only called while holding the monitor of spillLock. */
+	private final void spillInner(final TLCState state) {
+		if (this.overflow == null) {
+			this.overflow = new DiskStateQueue(getOverflowDir());
+		}
+		this.overflow.enqueue(state);
+		this.spilled++;
+	}
+
+	/**
+	 * Dequeues a batch of spilled states, returns the first and moves the rest
+	 * into the owner's deque (where other {@link Worker}s can steal them).
+	 * 
+	 * @return null iff no states have been spilled.
+	 */
+	private final TLCState pollSpilled(final int owner) {
+		if (this.spilled < 1) {
+			return null;
+		}
+		synchronized (this.spillLock) {
+			if (this.spilled < 1) {
+				return null;
+			}
+			final TLCState state = this.overflow.dequeue();
+			final long n = Math.min(SpillBatch, this.spilled);
+			final ConcurrentLinkedDeque<TLCState> deque = getDeque(owner);
+			for (long i = 1; i < n; i++) {
+				deque.offerLast(this.overflow.dequeue());
+			}
+			this.spilled -= n;
+			return state;
+		}
+	}
+
+	private final String getOverflowDir() {
+		final File dir = new File(this.diskdir + FileUtil.separator + "wsq");
+		dir.mkdirs();
+		return dir.getPath();
+	}
+
+	/**
+	 * Wakes up waiting {@link Worker}s iff there are any. The volatile read of
+	 * numWaiting happens after the increment of len. A {@link Worker} that is about
+	 * to wait increments numWaiting before it re-reads len (see
+	 * {@link #isAvail()}). Thus, either the enqueuer sees the waiting worker or the
+	 * worker sees the new state.
+	 */
+	private final void signal() {
+		if (this.numWaiting > 0 && !this.stop) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Polls the owner's deque first, then the shared deque, then tries to steal
+	 * from the other workers' deques starting with the owner's neighbor and
+	 * finally falls back to the spilled states.
+	 */
+	private final TLCState poll(final int owner) {
+		TLCState state;
+		if (owner >= 0 && (state = deques[owner].pollFirst()) != null) {
+			return state;
+		}
+		if ((state = shared.pollFirst()) != null) {
+			return state;
+		}
+		final int start = owner < 0 ? 0 : owner + 1;
+		for (int i = 0; i < deques.length; i++) {
+			final int victim = (start + i) % deques.length;
+			if (victim != owner && (state = deques[victim].pollFirst()) != null) {
+				return state;
+			}
+		}
+		return pollSpilled(owner);
+	}
+
+	private final TLCState peek() {
+		final TLCState state = shared.peekFirst();
+		if (state != null) {
+			return state;
+		}
+		for (int i = 0; i < deques.length; i++) {
+			final TLCState s = deques[i].peekFirst();
+			if (s != null) {
+				return s;
+			}
+		}
+		if (this.spilled > 0) {
+			synchronized (this.spillLock) {
+				if (this.spilled > 0) {
+					return this.overflow.peekInner();
+				}
+			}
+		}
+		return null;
+	}
+
+	/* Return the first element in the queue. Wait if empty. */
+	public final TLCState sDequeue() {
+		final int owner = getOwner();
+		while (true) {
+			if (this.finish) {
+				return null;
+			}
+			if (!this.stop) {
+				// Fast path without acquiring the monitor.
+				final TLCState state = poll(owner);
+				if (state != null) {
+					this.len.decrementAndGet();
+					return state;
+				}
+			}
+			synchronized (this) {
+				if (!isAvail()) {
+					return null;
+				}
+			}
+		}
+	}
+
+	public final TLCState sPeek() {
+		synchronized (this) {
+			if (isAvail()) {
+				return peek();
+			}
+		}
+		return null;
+	}
+
+	public final TLCState[] sDequeue(int cnt) {
+		assert cnt > 0 : "Nonpositive number of states requested.";
+		final int owner = getOwner();
+		while (true) {
+			if (this.finish) {
+				return null;
+			}
+			if (!this.stop && !isEmpty()) {
+				// in this case, casting len to int is safe
+				cnt = (int) Math.min(cnt, Math.max(1L, this.len.get()));
+				final TLCState[] states = new TLCState[cnt];
+				int idx = 0;
+				TLCState state;
+				while (idx < cnt && (state = poll(owner)) != null) {
+					states[idx++] = state;
+				}
+				if (idx > 0) {
+					this.len.addAndGet(-idx);
+					if (idx == cnt) {
+						return states;
+					}
+					final TLCState res[] = new TLCState[idx];
+					System.arraycopy(states, 0, res, 0, idx);
+					return res;
+				}
+			}
+			synchronized (this) {
+				if (!isAvail()) {
+					return null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Puts the calling {@link Worker} to sleep until (possibly) states are
+	 * available. Contrary to {@link StateQueue#isAvail()}, a return value of true
+	 * does not guarantee that states can be dequeued, because other workers might
+	 * have stolen them in the meantime. The caller is expected to retry.
+	 *
+	 * @return false iff all work is done.
+	 */
+	private final boolean isAvail() {
+		// Only called while holding the monitor of this.
+		if (this.finish) {
+			return false;
+		}
+		while (isEmpty() || this.stop) {
+			this.numWaiting++;
+			// Re-read len after numWaiting has been incremented (see signal()).
+			if (!isEmpty() && !this.stop) {
+				this.numWaiting--;
+				return true;
+			}
+			// the last worker accessing notices that all other workers are
+			// waiting. This indicates that all work is done.
+			if (this.numWaiting >= TLCGlobals.getNumWorkers()) {
+				if (isEmpty()) {
+					this.numWaiting--;
+					return false;
+				}
+				synchronized (this.mu) {
+					this.mu.notify();
+				}
+			}
+			try {
+				this.wait();
+			} catch (Exception e) {
+				MP.printError(EC.GENERAL, "making a worker wait for a state from the queue", e);
+				System.exit(1);
+			}
+			this.numWaiting--;
+			if (this.finish) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public synchronized void finishAll() {
+		this.finish = true;
+		synchronized (this.spillLock) {
+			if (this.overflow != null) {
+				this.overflow.finishAll();
+			}
+		}
+		this.notifyAll();
+		// see StateQueue#finishAll
+		synchronized (this.mu) {
+			this.mu.notify();
+		}
+	}
+
+	public final boolean suspendAll() {
+		boolean needWait = false;
+		synchronized (this) {
+			if (this.finish) {
+				return false;
+			}
+			this.stop = true;
+			needWait = needsWaiting();
+		}
+		// Wait for all worker threads to stop.
+		while (needWait) {
+			synchronized (this.mu) {
+				try {
+					// see StateQueue#suspendAll for why finish has to be
+					// re-checked while holding mu.
+					if (this.finish) {
+						return false;
+					}
+					this.mu.wait();
+				} catch (Exception e) {
+					MP.printError(EC.GENERAL, "waiting for a worker to wake up", e);
+					System.exit(1);
+				}
+			}
+			synchronized (this) {
+				if (this.finish) {
+					return false;
+				}
+				needWait = needsWaiting();
+			}
+		}
+		return true;
+	}
+
+	private boolean needsWaiting() {
+		return this.numWaiting < TLCGlobals.getNumWorkers();
+	}
+
+	public final synchronized void resumeAll() {
+		this.stop = false;
+		this.notifyAll();
+	}
+
+	public void resumeAllStuck() {
+		if (stop) {
+			synchronized (mu) {
+				mu.notifyAll();
+			}
+		}
+		if (!stop && !isEmpty() && this.numWaiting > 0) {
+			synchronized (this) {
+				this.notifyAll();
+			}
+		}
+	}
+
+	public final long size() {
+		return Math.max(0L, this.len.get());
+	}
+
+	public boolean isEmpty() {
+		return this.len.get() < 1;
+	}
+
+	/* Checkpoint. */
+
+	/**
+	 * The states of this queue at the time of the last {@link #beginChkpt()}.
+	 * Written to disk by {@link #commitChkpt()}.
+	 */
+	private TLCState[] chkpt;
+
+	/**
+	 * Only called while all {@link Worker}s are suspended (see
+	 * {@link #suspendAll()}), thus the deques do not change. Only copies the
+	 * references to the states, which is cheap compared to serializing them. The states are written to disk by {@link #commitChkpt()}
+	 * which does not require the {@link Worker}s to be suspended. The spilled
+	 * states are checkpointed by the overflow {@link DiskStateQueue}.
+	 */
+	public final void beginChkpt() throws IOException {
+		synchronized (this.spillLock) {
+			if (this.overflow != null) {
+				this.overflow.beginChkpt();
+			}
+		}
+		final List<TLCState> states = new ArrayList<>((int) Math.min(Integer.MAX_VALUE, this.len.get()));
+		states.addAll(shared);
+		for (int i = 0; i < deques.length; i++) {
+			states.addAll(deques[i]);
+		}
+		this.chkpt = states.toArray(new TLCState[states.size()]);
+	}
+
+	public final void commitChkpt() throws IOException {
+		synchronized (this.spillLock) {
+			if (this.overflow != null) {
+				this.overflow.commitChkpt();
+			}
+		}
+		final TLCState[] states = this.chkpt;
+		this.chkpt = null;
+		if (states != null) {
+			final String filename = this.diskdir + FileUtil.separator + "queue.tmp";
+			final ValueOutputStream vos = new ValueOutputStream(filename);
+			vos.writeLong(states.length);
+			for (TLCState state : states) {
+				state.write(vos);
+			}
+			vos.close();
+		}
+		final File oldChkpt = new File(this.diskdir + FileUtil.separator + "queue.chkpt");
+		final File newChkpt = new File(this.diskdir + FileUtil.separator + "queue.tmp");
+		if ((oldChkpt.exists() && !oldChkpt.delete()) || !newChkpt.renameTo(oldChkpt)) {
+			throw new IOException("WorkStealingStateQueue.commitChkpt: cannot delete " + oldChkpt);
+		}
+	}
+
+	public final void recover() throws IOException {
+		final String filename = this.diskdir + FileUtil.separator + "queue.chkpt";
+		final ValueInputStream vis = new ValueInputStream(filename);
+		final long n = vis.readLong();
+		for (long i = 0; i < n; i++) {
+			final TLCState state = TLCState.Empty.createEmpty();
+			state.read(vis);
+			this.shared.offerLast(state);
+		}
+		this.len.addAndGet(n);
+		vis.close();
+
+		final File overflowChkpt = new File(
+				this.diskdir + FileUtil.separator + "wsq" + FileUtil.separator + "queue.chkpt");
+		if (overflowChkpt.exists()) {
+			synchronized (this.spillLock) {
+				this.overflow = new DiskStateQueue(getOverflowDir());
+				this.overflow.recover();
+				this.spilled = this.overflow.size();
+			}
+			this.len.addAndGet(this.spilled);
+		}
+	}
+
+	@Override
+	public void delete() throws IOException {
+		// no-op
+	}
+}
@@ -47,6 +47,9 @@ public class BitVector implements Serializable {
 		}
 	}
    
+  /** Initialize this bit vector with the given words (not copied). */
+  public BitVector(long[] word) { this.word = word; }
+
   /** Initialize this bit vector to be a copy of <code>bv</code>. */
   public BitVector(BitVector bv) {
     int len = bv.word.length;
@@ -217,6 +220,12 @@ public class BitVector implements Serializable {
     }
   }
   
+  /** Return the number of words of this bit vector. */
+  public int wordLength() { return this.word.length; }
+
+  /** Return the <code>i</code>th word of this bit vector. */
+  public long getWord(int i) { return this.word[i]; }
+
   /** Grow this bit vector to contain at least <code>wd+1</code>
       words. */
   private void grow(int wd) {
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.util;
+
+import java.text.DecimalFormat;
+
+/**
+ * A set-associative cache of fingerprints with 2^n sets of {@link #WAYS}
+ * fingerprints each. Within a set, fingerprints are kept in least recently
+ * used order, i.e. a miss evicts the least recently used fingerprint of its
+ * set only.
+ * <p>
+ * Contrary to {@link SimpleCache}, instances are not meant to be shared: The
+ * cache is owned by a single thread and thus needs neither locks nor memory
+ * barriers. Other threads may read the statistics, which are possibly stale.
+ */
+public final class SetAssociativeCache implements Cache {
+
+	public static final int WAYS = 4;
+
+	private final long[] slots;
+	private final int mask;
+
+	private long hits = 0L;
+	private long misses = 0L;
+
+	/**
+	 * @param n Room for 2^n * {@link #WAYS} fingerprints.
+	 */
+	public SetAssociativeCache(final int n) {
+		if (n < 0 || n > 26) {
+			throw new IllegalArgumentException("n must be in [0, 26]: " + n);
+		}
+		this.mask = (1 << n) - 1;
+		this.slots = new long[(1 << n) * WAYS];
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.util.Cache#hit(long)
+	 */
+	@Override
+	public final boolean hit(final long fp) {
+		if (fp == 0L) {
+			// 0L marks an empty slot.
+			misses++;
+			return false;
+		}
+		final int base = ((int) (fp ^ (fp >>> 32)) & this.mask) * WAYS;
+		for (int i = 0; i < WAYS; i++) {
+			if (this.slots[base + i] == fp) {
+				System.arraycopy(this.slots, base, this.slots, base + 1, i);
+				this.slots[base] = fp;
+				hits++;
+				return true;
+			}
+		}
+		System.arraycopy(this.slots, base, this.slots, base + 1, WAYS - 1);
+		this.slots[base] = fp;
+		misses++;
+		return false;
+	}
+
+	/**
+	 * @return The fraction of lookups that hit the cache.
+	 */
+	@Override
+	public final double getHitRatio() {
+		final long lookups = hits + misses;
+		return lookups == 0L ? 0d : hits / (double) lookups;
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.util.Cache#getHitRatioAsString()
+	 */
+	@Override
+	public final String getHitRatioAsString() {
+		return new DecimalFormat("##0.0%").format(getHitRatio());
+	}
+
+	/* (non-Javadoc)
+	 * @see tlc2.util.Cache#getHitRate()
+	 */
+	@Override
+	public final long getHitRate() {
+		return hits;
+	}
+
+	/**
+	 * @return Absolute value for cache misses
+	 */
+	public final long getMissRate() {
+		return misses;
+	}
+}
@@ -84,6 +84,19 @@ public final class SetOfLong {
 
   public final int size() { return this.count; }
 
+  /**
+   * Copies the elements of the table into dst starting at dst[offset].
+   * Returns the index after the last element copied.
+   */
+  public final int toArray(long[] dst, int offset) {
+    if (this.hasZero) dst[offset++] = 0;
+    for (int i = 0; i < this.length; i++) {
+      long k = this.table[i];
+      if (k != 0) dst[offset++] = k;
+    }
+    return offset;
+  }
+
   public final long sizeof() { return 20 + (8 * this.length); }
 
   public final long checkFPs() {
@@ -5,7 +5,12 @@
 
 package tlc2.value.impl;
 
-import java.util.Enumeration;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 import tlc2.util.Vect;
 import tlc2.value.IMVPerm;
@@ -13,14 +18,153 @@ import tlc2.value.IValue;
 import util.Assert;
 import util.Set;
 
-public abstract class MVPerms {
-  
-  public static final IMVPerm[] permutationSubgroup(final Enumerable enumerable) {
+/**
+ * A group of permutations of model values represented by its generators.
+ * <p>
+ * Instead of materializing all elements of the group (|S|! for
+ * Permutations(S)), the group is stored as a stabilizer chain computed with
+ * (Knuth's variant of) the Schreier-Sims algorithm: For the base 0, 1, ..., n-1
+ * of model value indices, level k holds a coset representative
+ * transversal[k][j] that maps k to j and fixes the model values 0..k-1. Every
+ * element of the group is a unique product of one representative per level,
+ * which is how {@link #iterator()} enumerates the group lazily and how
+ * {@link #order()} is computed.
+ * <p>
+ * Groups whose order does not exceed {@link #Materialize} are materialized
+ * once, so that {@link #iterator()} and {@link #smallest(IValue[])} do not
+ * have to compose and allocate the permutations over and over again.
+ */
+public final class MVPerms implements Iterable<IMVPerm> {
+
+  private static final int Materialize = Integer.getInteger(MVPerms.class.getName() + ".materialize", 1 << 16);
+
+  private final IMVPerm[] generators;
+  private final int n;
+  /* transversal[k][j] maps k to j and fixes 0..k-1, or is null. */
+  private final int[][][] transversal;
+  /* The generators of the stabilizer of 0..k-1 added so far. */
+  private final List<int[]>[] gens;
+  /* The levels with more than one coset representative. */
+  private final int[] nontrivial;
+  /* The coset representatives of level nontrivial[i], the identity first. */
+  private final int[][][] reps;
+  private final IMVPerm[][] repPerms;
+  /*
+   * The permutations that are the products of the representatives of the
+   * levels nontrivial[0..i-1] for some i. The children of root are only
+   * materialized (as are the elements) if the order is at most Materialize.
+   */
+  private final Prefix root;
+  private final IMVPerm[] elements;
+
+  public MVPerms(final IMVPerm[] generators) {
+    this(generators, Materialize);
+  }
+
+  @SuppressWarnings("unchecked")
+  MVPerms(final IMVPerm[] generators, final int materialize) {
+    this.generators = generators;
+    this.n = ModelValue.mvs.length;
+    this.transversal = new int[n][n][];
+    this.gens = new List[n];
+    final int[] id = identity(n);
+    for (int k = 0; k < n; k++) {
+      this.transversal[k][k] = id;
+      this.gens[k] = new ArrayList<>();
+    }
+    for (IMVPerm g : generators) {
+      add(0, toArray((MVPerm) g));
+    }
+
+    final List<int[][]> levels = new ArrayList<>();
+    final List<Integer> ks = new ArrayList<>();
+    for (int k = 0; k < n; k++) {
+      final List<int[]> rs = new ArrayList<>();
+      for (int j = k; j < n; j++) {
+	if (this.transversal[k][j] != null) {
+	  rs.add(this.transversal[k][j]);
+	}
+      }
+      if (rs.size() > 1) {
+	levels.add(rs.toArray(new int[rs.size()][]));
+	ks.add(k);
+      }
+    }
+    this.nontrivial = new int[ks.size()];
+    this.reps = levels.toArray(new int[levels.size()][][]);
+    this.repPerms = new IMVPerm[this.reps.length][];
+    for (int i = 0; i < this.reps.length; i++) {
+      this.nontrivial[i] = ks.get(i);
+      this.repPerms[i] = new IMVPerm[this.reps[i].length];
+      for (int r = 0; r < this.reps[i].length; r++) {
+	this.repPerms[i][r] = toMVPerm(this.reps[i][r]);
+      }
+    }
+
+    this.root = new Prefix(id, null);
+    if (order().compareTo(BigInteger.valueOf(materialize)) <= 0) {
+      final List<IMVPerm> elems = new ArrayList<>();
+      materialize(this.root, 0, elems);
+      this.elements = elems.toArray(new IMVPerm[elems.size()]);
+    } else {
+      this.elements = null;
+    }
+  }
+
+  /**
+   * A product of coset representatives of the first levels. perm is null iff g
+   * is the identity.
+   */
+  private static final class Prefix {
+    private final int[] g;
+    private final IMVPerm perm;
+    private Prefix[] children;
+
+    private Prefix(final int[] g, final IMVPerm perm) {
+      this.g = g;
+      this.perm = perm;
+    }
+  }
+
+  private final Prefix[] children(final Prefix p, final int i) {
+    if (p.children != null) {
+      return p.children;
+    }
+    final int[][] rs = this.reps[i];
+    final Prefix[] res = new Prefix[rs.length];
+    // rs[0] is the identity.
+    res[0] = new Prefix(p.g, p.perm);
+    for (int r = 1; r < rs.length; r++) {
+      final int[] g = compose(p.g, rs[r]);
+      res[r] = new Prefix(g, toMVPerm(g));
+    }
+    return res;
+  }
+
+  /* Only called by the constructor, thus the tree is immutable afterwards. */
+  private final void materialize(final Prefix p, final int i, final List<IMVPerm> elems) {
+    if (i == this.nontrivial.length) {
+      if (p.perm != null) {
+	elems.add(p.perm);
+      }
+      return;
+    }
+    p.children = children(p, i);
+    for (Prefix c : p.children) {
+      materialize(c, i + 1, elems);
+    }
+  }
+
+  /**
+   * @return The generators of the group of all permutations of the functions
+   *         in enumerable, i.e. the functions themselves minus duplicates and
+   *         the identity.
+   */
+  public static final IMVPerm[] generators(final Enumerable enumerable) {
     final ValueEnumeration Enum = enumerable.elements();
-	final int sz = enumerable.size() - 1;
+    final int sz = enumerable.size() - 1;
     final Set perms = new Set(sz);
     final Vect<IMVPerm> permVec = new Vect<>(sz);
-    // Compute the group generators:
     Value elem;
     while ((elem = Enum.nextElement()) != null) {
       final FcnRcdValue fcn = (FcnRcdValue) elem.toFcnRcd();
@@ -29,8 +173,8 @@ public abstract class MVPerms {
       }
       final IMVPerm perm = new MVPerm();
       for (int i = 0; i < fcn.domain.length; i++) {
-	final IValue dval = fcn.domain[i];
-	final IValue rval = fcn.values[i];
+	final Value dval = fcn.domain[i];
+	final Value rval = fcn.values[i];
 	if ((dval instanceof ModelValue) && (rval instanceof ModelValue)) {
 	  perm.put((ModelValue)dval, (ModelValue)rval);
 	}
@@ -42,29 +186,340 @@ public abstract class MVPerms {
 	permVec.addElement(perm);
       }
     }
-    // Compute the group generated by the generators:
-    final int gsz = permVec.size();
-    int sz0 = 0;
-    while (true) {
-      final int sz1 = permVec.size();
-      for (int i = 0; i < gsz; i++) {
-	final IMVPerm perm1 = (IMVPerm)permVec.elementAt(i);
-	for (int j = sz0; j < sz1; j++) {
-		IMVPerm perm = perm1.compose((IMVPerm)permVec.elementAt(j));
-	  if (perm.size() > 0 && perms.put(perm) == null) {
-	    permVec.addElement(perm);
+    final IMVPerm[] res = new IMVPerm[permVec.size()];
+    for (int i = 0; i < res.length; i++) {
+      res[i] = permVec.elementAt(i);
+    }
+    return res;
+  }
+
+  /**
+   * @return The generators of Permutations(set), that is a transposition and a
+   *         cycle of the elements of set, without enumerating the |set|!
+   *         permutations. The result is empty if set has less than two
+   *         elements.
+   */
+  public static final IMVPerm[] symmetricGroupGenerators(final SetEnumValue set) {
+    set.normalize();
+    final int sz = set.elems.size();
+    final ModelValue[] mvs = new ModelValue[sz];
+    for (int i = 0; i < sz; i++) {
+      final Value elem = set.elems.elementAt(i);
+      if (!(elem instanceof ModelValue)) {
+	Assert.fail("Symmetry function must have model values as domain and range.");
+      }
+      mvs[i] = (ModelValue) elem;
+    }
+    if (sz < 2) {
+      return new IMVPerm[0];
+    }
+    final MVPerm transposition = new MVPerm();
+    transposition.put(mvs[0], mvs[1]);
+    transposition.put(mvs[1], mvs[0]);
+    if (sz == 2) {
+      return new IMVPerm[] { transposition };
+    }
+    final MVPerm cycle = new MVPerm();
+    for (int i = 0; i < sz; i++) {
+      cycle.put(mvs[i], mvs[(i + 1) % sz]);
+    }
+    return new IMVPerm[] { transposition, cycle };
+  }
+
+  public final IMVPerm[] getGenerators() {
+    return this.generators;
+  }
+
+  /**
+   * @return The number of elements of the group including the identity.
+   */
+  public final BigInteger order() {
+    BigInteger order = BigInteger.ONE;
+    for (int k = 0; k < n; k++) {
+      order = order.multiply(BigInteger.valueOf(levelSize(k)));
+    }
+    return order;
+  }
+
+  /**
+   * @return The orbits with more than one element, each sorted by
+   *         ModelValue#index. Two model values are in the same orbit iff a
+   *         permutation of the group maps one to the other.
+   */
+  public final ModelValue[][] orbits() {
+    final int[] parent = identity(n);
+    for (IMVPerm g : this.generators) {
+      final int[] p = toArray((MVPerm) g);
+      for (int i = 0; i < n; i++) {
+	final int a = find(parent, i);
+	final int b = find(parent, p[i]);
+	parent[Math.max(a, b)] = Math.min(a, b);
+      }
+    }
+    final List<ModelValue[]> res = new ArrayList<>();
+    for (int k = 0; k < n; k++) {
+      if (parent[k] != k) {
+	continue;
+      }
+      final List<ModelValue> orbit = new ArrayList<>();
+      for (int j = k; j < n; j++) {
+	if (find(parent, j) == k) {
+	  orbit.add(ModelValue.mvs[j]);
+	}
+      }
+      if (orbit.size() > 1) {
+	res.add(orbit.toArray(new ModelValue[orbit.size()]));
+      }
+    }
+    return res.toArray(new ModelValue[res.size()][]);
+  }
+
+  private static int find(final int[] parent, int i) {
+    while (parent[i] != i) {
+      i = parent[i];
+    }
+    return i;
+  }
+
+  /**
+   * Enumerates all elements of the group except the identity (without
+   * materializing the group if its order exceeds {@link #Materialize}).
+   */
+  @Override
+  public final Iterator<IMVPerm> iterator() {
+    if (this.elements != null) {
+      return Arrays.asList(this.elements).iterator();
+    }
+    return new Iterator<IMVPerm>() {
+      // The index of the current representative of each non-trivial level. The
+      // first combination (all representatives the identity) is skipped.
+      private final int[] idx = new int[nontrivial.length];
+      private boolean hasNext = advance();
+
+      private boolean advance() {
+	for (int i = nontrivial.length - 1; i >= 0; i--) {
+	  if (++idx[i] < reps[i].length) {
+	    return true;
 	  }
+	  idx[i] = 0;
 	}
+	return false;
       }
-      if (sz1 == permVec.size()) { break; }
-      sz0 = sz1;
+
+      @Override
+      public boolean hasNext() {
+	return hasNext;
+      }
+
+      @Override
+      public IMVPerm next() {
+	if (!hasNext) {
+	  throw new NoSuchElementException();
+	}
+	int[] g = reps[0][idx[0]];
+	for (int i = 1; i < nontrivial.length; i++) {
+	  g = compose(g, reps[i][idx[i]]);
+	}
+	hasNext = advance();
+	return toMVPerm(g);
+      }
+    };
+  }
+
+  /**
+   * @return The lexicographically smallest of the values permuted by the
+   *         elements of this group, which is values itself iff no permutation
+   *         yields smaller values.
+   *         <p>
+   *         The elements are enumerated as a tree of cosets: All elements below
+   *         a prefix p (the product of the representatives chosen for the
+   *         levels nontrivial[0..i-1]) are of the form p o s with s fixing
+   *         0..nontrivial[i]-1. A value that is invariant under the
+   *         representatives of the remaining levels is thus permuted to the same
+   *         value by all of them. If the leading values are such values and
+   *         already compare larger than the smallest values found so far, the
+   *         whole coset is skipped.
+   */
+  public final IValue[] smallest(final IValue[] values) {
+    if (this.nontrivial.length == 0) {
+      return values;
     }
-    // Finally, put all the elements in an array ready for use:
-    final IMVPerm[] res = new IMVPerm[permVec.size()];
-    final Enumeration<IMVPerm> permEnum = permVec.elements();
+    final IValue[][] min = new IValue[][] { values };
+    search(this.root, 0, values, invariance(values), min);
+    return min[0];
+  }
+
+  private final void search(final Prefix p, final int i, final IValue[] values, final int[] inv, final IValue[][] min) {
+    if (i == this.nontrivial.length) {
+      // The identity yields values, which are never smaller than min.
+      if (p.perm != null) {
+	compare(p.perm, values, min);
+      }
+      return;
+    }
+    if (p.perm != null) {
+      for (int j = 0; j < values.length && inv[j] <= i; j++) {
+	final int cmp = values[j].permute(p.perm).compareTo(min[0][j]);
+	if (cmp > 0) {
+	  return;
+	}
+	if (cmp < 0) {
+	  break;
+	}
+      }
+    }
+    for (Prefix c : children(p, i)) {
+      search(c, i + 1, values, inv, min);
+    }
+  }
+
+  /* Replaces min[0] with the values permuted by perm iff they are smaller. */
+  private static void compare(final IMVPerm perm, final IValue[] values, final IValue[][] min) {
+    for (int j = 0; j < values.length; j++) {
+      final IValue val = values[j].permute(perm);
+      final int cmp = val.compareTo(min[0][j]);
+      if (cmp > 0) {
+	return;
+      }
+      if (cmp < 0) {
+	// The values before j equal those of min.
+	final IValue[] vals = new IValue[values.length];
+	System.arraycopy(min[0], 0, vals, 0, j);
+	vals[j] = val;
+	for (int l = j + 1; l < values.length; l++) {
+	  vals[l] = values[l].permute(perm);
+	}
+	min[0] = vals;
+	return;
+      }
+    }
+  }
+
+  /**
+   * @return res[j] is the smallest i such that values[j] is invariant under the
+   *         representatives of the levels nontrivial[i..]. Only computed up to
+   *         the first value that is not invariant under the last level, because
+   *         the values are compared lexicographically.
+   */
+  private final int[] invariance(final IValue[] values) {
+    final int[] res = new int[values.length];
+    Arrays.fill(res, this.nontrivial.length);
+    for (int j = 0; j < values.length; j++) {
+      int i = this.nontrivial.length;
+      while (i > 0 && isInvariant(values[j], this.repPerms[i - 1])) {
+	i--;
+      }
+      res[j] = i;
+      if (i == this.nontrivial.length) {
+	break;
+      }
+    }
+    return res;
+  }
+
+  private static boolean isInvariant(final IValue value, final IMVPerm[] perms) {
+    // perms[0] is the identity.
+    for (int r = 1; r < perms.length; r++) {
+      if (!value.permute(perms[r]).equals(value)) {
+	return false;
+      }
+    }
+    return true;
+  }
+
+  private final int levelSize(final int k) {
+    int size = 0;
+    for (int j = k; j < n; j++) {
+      if (this.transversal[k][j] != null) {
+	size++;
+      }
+    }
+    return size;
+  }
+
+  /* Adds g, which fixes 0..k-1, to the stabilizer of 0..k-1 (Knuth's A). */
+  private final void add(final int k, final int[] g) {
+    if (k >= n || contains(k, g)) {
+      return;
+    }
+    this.gens[k].add(g);
+    for (int j = k; j < n; j++) {
+      final int[] s = this.transversal[k][j];
+      if (s != null) {
+	sift(k, compose(g, s));
+      }
+    }
+  }
+
+  /* Makes sure the coset of g, which fixes 0..k-1, is represented (Knuth's B). */
+  private final void sift(final int k, final int[] g) {
+    final int j = g[k];
+    final int[] s = this.transversal[k][j];
+    if (s == null) {
+      this.transversal[k][j] = g;
+      // gens[k] may grow while we iterate.
+      for (int i = 0; i < this.gens[k].size(); i++) {
+	sift(k, compose(this.gens[k].get(i), g));
+      }
+    } else {
+      add(k + 1, compose(invert(s), g));
+    }
+  }
+
+  private final boolean contains(int k, int[] g) {
+    for (; k < n; k++) {
+      final int[] s = this.transversal[k][g[k]];
+      if (s == null) {
+	return false;
+      }
+      g = compose(invert(s), g);
+    }
+    return true;
+  }
+
+  /* (f o g)(x) = f(g(x)) */
+  private static int[] compose(final int[] f, final int[] g) {
+    final int[] res = new int[g.length];
     for (int i = 0; i < res.length; i++) {
-      res[i] = permEnum.nextElement();
+      res[i] = f[g[i]];
     }
     return res;
   }
+
+  private static int[] invert(final int[] f) {
+    final int[] res = new int[f.length];
+    for (int i = 0; i < res.length; i++) {
+      res[f[i]] = i;
+    }
+    return res;
+  }
+
+  private static int[] identity(final int n) {
+    final int[] res = new int[n];
+    for (int i = 0; i < n; i++) {
+      res[i] = i;
+    }
+    return res;
+  }
+
+  private final int[] toArray(final MVPerm perm) {
+    final int[] res = identity(n);
+    for (int i = 0; i < n; i++) {
+      final ModelValue img = (ModelValue) perm.get(ModelValue.mvs[i]);
+      if (img != null) {
+	res[i] = img.index;
+      }
+    }
+    return res;
+  }
+
+  private static IMVPerm toMVPerm(final int[] g) {
+    final MVPerm perm = new MVPerm();
+    for (int i = 0; i < g.length; i++) {
+      if (g[i] != i) {
+	perm.put(ModelValue.mvs[i], ModelValue.mvs[g[i]]);
+      }
+    }
+    return perm;
+  }
 }
@@ -0,0 +1,410 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.value.impl;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tlc2.util.FP64;
+import tlc2.value.IValue;
+
+/**
+ * Computes the representative of a state's orbit under symmetry without
+ * applying every permutation of the symmetry group to the state.
+ * <p>
+ * The members of each symmetry set are colored by how they occur in the state
+ * (in which variable, at which position, next to which other values).  Colors
+ * are refined iteratively as in partition refinement until they become stable.
+ * Members with unique colors are mapped to the slots of their symmetry set in
+ * order of their colors.  Only if members remain indistinguishable after
+ * refinement, one of them is individualized and the search branches; the
+ * lexicographically smallest state over all leaves is the representative.
+ * Branches that are mapped onto each other by a transposition that leaves the
+ * state unchanged are skipped. For the common shape of variables indexed by
+ * (or ranging over) the symmetric model values, the cost is thus linear in the
+ * size of the state instead of |S1|! * |S2|! * ... .
+ * <p>
+ * Colors are computed from the structure of the state only and never from the
+ * identities of the symmetric model values.  Thus, the representative is
+ * identical for all states of an orbit even though it is not necessarily the
+ * lexicographically smallest state of the orbit (which is what the exhaustive
+ * loop in {@link tlc2.tool.TLCStateMut#fingerPrint()} computes).
+ * <p>
+ * The canonicalizer is only applicable if the symmetry group is the direct
+ * product of the full symmetric groups of its symmetry sets, which is the
+ * case for the symmetry sets defined with TLC!Permutations.
+ */
+public final class SymmetryCanonicalizer {
+
+	/**
+	 * -Dtlc2.value.impl.SymmetryCanonicalizer.exhaustive=true reverts to the
+	 * exhaustive enumeration of all permutations.
+	 */
+	private static final boolean EXHAUSTIVE = Boolean
+			.getBoolean(SymmetryCanonicalizer.class.getName() + ".exhaustive");
+
+	private static final long SYM = 0x9E3779B97F4A7C15L;
+	private static final long DOM = 0xC2B2AE3D27D4EB4FL;
+	private static final long RNG = 0x165667B19E3779F9L;
+	private static final long ELEM = 0x27D4EB2F165667C5L;
+	private static final long IND = 0x85EBCA77C2B2AE63L;
+
+	/**
+	 * The symmetric model values, i.e. the union of all symmetry sets.
+	 */
+	private final ModelValue[] syms;
+	/**
+	 * orbit[k] is the symmetry set of syms[k].
+	 */
+	private final int[] orbit;
+	/**
+	 * slots[o] are the members of symmetry set o ordered by ModelValue#index.
+	 */
+	private final ModelValue[][] slots;
+	/**
+	 * pos[ModelValue#index] is the index into syms or -1 if the model value is
+	 * not symmetric.
+	 */
+	private final int[] pos;
+
+	private SymmetryCanonicalizer(final ModelValue[][] slots) {
+		this.slots = slots;
+		this.pos = new int[ModelValue.mvs.length];
+		Arrays.fill(this.pos, -1);
+
+		int n = 0;
+		for (ModelValue[] s : slots) {
+			n += s.length;
+		}
+		this.syms = new ModelValue[n];
+		this.orbit = new int[n];
+		int k = 0;
+		for (int o = 0; o < slots.length; o++) {
+			for (ModelValue mv : slots[o]) {
+				this.syms[k] = mv;
+				this.orbit[k] = o;
+				this.pos[mv.index] = k++;
+			}
+		}
+	}
+
+	/**
+	 * @return A canonicalizer for the group perms, or null if perms is not the
+	 *         direct product of full symmetric groups.
+	 */
+	public static SymmetryCanonicalizer create(final MVPerms perms) {
+		if (EXHAUSTIVE || perms == null) {
+			return null;
+		}
+		final ModelValue[][] slots = perms.orbits();
+		if (slots.length == 0) {
+			return null;
+		}
+		// The group is the product of the full symmetric groups of the orbits iff
+		// its order equals the product of the factorials of the orbit sizes.
+		BigInteger product = BigInteger.ONE;
+		for (ModelValue[] o : slots) {
+			for (int i = 2; i <= o.length; i++) {
+				product = product.multiply(BigInteger.valueOf(i));
+			}
+		}
+		if (!product.equals(perms.order())) {
+			return null;
+		}
+		return new SymmetryCanonicalizer(slots);
+	}
+
+	/**
+	 * @return The representative of the orbit of vals under symmetry. The
+	 *         returned array is vals itself if vals is the representative.
+	 */
+	public final IValue[] canonicalize(final IValue[] vals) {
+		// Colors are only well-defined on normalized values (e.g. a set must not
+		// contain duplicates).
+		for (int i = 0; i < vals.length; i++) {
+			vals[i].deepNormalize();
+		}
+		final long[] colors = new long[syms.length];
+		for (int k = 0; k < colors.length; k++) {
+			colors[k] = mix(SYM + orbit[k]);
+		}
+		final IValue[][] best = new IValue[1][];
+		search(vals, refine(vals, colors), best);
+		return best[0];
+	}
+
+	private final void search(final IValue[] vals, final long[] colors, final IValue[][] best) {
+		final int[] cell = targetCell(colors);
+		if (cell == null) {
+			final IValue[] candidate = apply(vals, leafPerm(colors));
+			if (best[0] == null || compare(candidate, best[0]) < 0) {
+				best[0] = candidate;
+			}
+			return;
+		}
+		final List<ModelValue> explored = new ArrayList<>(cell.length);
+		NEXT: for (int k : cell) {
+			for (ModelValue e : explored) {
+				if (isAutomorphism(vals, e, syms[k])) {
+					// The subtree of k is the image of e's subtree under the transposition
+					// (e k), which fixes vals. Thus, both subtrees yield the same states.
+					continue NEXT;
+				}
+			}
+			explored.add(syms[k]);
+			final long[] c = colors.clone();
+			individualize(c, k);
+			search(vals, refine(vals, c), best);
+		}
+	}
+
+	/**
+	 * @return The members of the smallest (ties broken by color) set of
+	 *         symmetric model values that share both their symmetry set and
+	 *         their color, or null if all colors are unique within their
+	 *         symmetry set.
+	 */
+	private final int[] targetCell(final long[] colors) {
+		int[] res = null;
+		for (int k = 0; k < colors.length; k++) {
+			int size = 0;
+			boolean first = true;
+			for (int j = 0; j < colors.length; j++) {
+				if (orbit[j] == orbit[k] && colors[j] == colors[k]) {
+					if (j < k) {
+						first = false;
+						break;
+					}
+					size++;
+				}
+			}
+			if (!first || size < 2) {
+				continue;
+			}
+			if (res == null || size < res.length || (size == res.length
+					&& (colors[k] < colors[res[0]] || (colors[k] == colors[res[0]] && orbit[k] < orbit[res[0]])))) {
+				res = new int[size];
+				for (int j = k, i = 0; j < colors.length; j++) {
+					if (orbit[j] == orbit[k] && colors[j] == colors[k]) {
+						res[i++] = j;
+					}
+				}
+			}
+		}
+		return res;
+	}
+
+	private final void individualize(final long[] colors, final int k) {
+		long c = colors[k];
+		boolean unique;
+		do {
+			c = mix(c ^ IND);
+			unique = true;
+			for (int j = 0; j < colors.length; j++) {
+				if (j != k && orbit[j] == orbit[k] && colors[j] == c) {
+					unique = false;
+					break;
+				}
+			}
+		} while (!unique);
+		colors[k] = c;
+	}
+
+	/**
+	 * Refines colors until the number of distinct colors no longer grows.
+	 */
+	private final long[] refine(final IValue[] vals, long[] colors) {
+		int distinct = distinct(colors);
+		while (distinct < colors.length) {
+			final long[] occurrences = new long[colors.length];
+			for (int i = 0; i < vals.length; i++) {
+				walk(vals[i], mix(i + 1L), colors, occurrences);
+			}
+			final long[] next = new long[colors.length];
+			for (int k = 0; k < next.length; k++) {
+				next[k] = mix(colors[k] * 31 + occurrences[k]);
+			}
+			final int d = distinct(next);
+			if (d <= distinct) {
+				break;
+			}
+			colors = next;
+			distinct = d;
+		}
+		return colors;
+	}
+
+	/**
+	 * @return A hash of v that abstracts symmetric model values by their colors.
+	 *         If occurrences is non-null, the context ctx of every occurrence of
+	 *         a symmetric model value is added to its entry in occurrences.
+	 */
+	private final long walk(final IValue v, final long ctx, final long[] colors, final long[] occurrences) {
+		if (v instanceof ModelValue) {
+			final int k = pos[((ModelValue) v).index];
+			if (k < 0) {
+				return v.fingerPrint(FP64.New());
+			}
+			if (occurrences != null) {
+				occurrences[k] += mix(ctx);
+			}
+			return mix(SYM ^ colors[k]);
+		} else if (v instanceof IntValue || v instanceof BoolValue || v instanceof StringValue
+				|| v instanceof IntervalValue) {
+			return v.fingerPrint(FP64.New());
+		} else if (v instanceof TupleValue) {
+			final Value[] elems = ((TupleValue) v).elems;
+			long h = mix(elems.length);
+			for (int i = 0; i < elems.length; i++) {
+				h = mix(h * 31 + walk(elems[i], mix(ctx + i), colors, occurrences));
+			}
+			return h;
+		} else if (v instanceof RecordValue) {
+			final RecordValue rcd = (RecordValue) v;
+			long h = mix(rcd.names.length ^ RNG);
+			for (int i = 0; i < rcd.names.length; i++) {
+				final long name = rcd.names[i].toString().hashCode();
+				h += mix(name * 31 + walk(rcd.values[i], mix(ctx ^ name), colors, occurrences));
+			}
+			return h;
+		} else if (v instanceof FcnRcdValue) {
+			final FcnRcdValue fcn = (FcnRcdValue) v;
+			fcn.normalize();
+			if (fcn.intv != null) {
+				long h = mix(fcn.values.length ^ DOM);
+				for (int i = 0; i < fcn.values.length; i++) {
+					h = mix(h * 31 + walk(fcn.values[i], mix(ctx + i), colors, occurrences));
+				}
+				return h;
+			}
+			long h = mix(fcn.domain.length ^ DOM);
+			for (int i = 0; i < fcn.domain.length; i++) {
+				final long key = walk(fcn.domain[i], 0L, colors, null);
+				final long val = walk(fcn.values[i], mix(ctx ^ RNG ^ key), colors, occurrences);
+				if (occurrences != null) {
+					walk(fcn.domain[i], mix(ctx ^ DOM ^ val), colors, occurrences);
+				}
+				h += mix(key * 31 + val);
+			}
+			return h;
+		} else if (v instanceof SetEnumValue) {
+			final SetEnumValue set = (SetEnumValue) v;
+			set.normalize();
+			long h = mix(set.elems.size() ^ ELEM);
+			for (int i = 0; i < set.elems.size(); i++) {
+				final Value elem = set.elems.elementAt(i);
+				// The context of an element's occurrences includes the element itself
+				// to tell apart e.g. the senders of different messages in a set.
+				final long ectx = occurrences == null ? 0L : mix(ctx ^ ELEM ^ walk(elem, 0L, colors, null));
+				h += mix(walk(elem, ectx, colors, occurrences));
+			}
+			return h;
+		} else if (v instanceof Value) {
+			final Value value = (Value) v;
+			if (value instanceof Enumerable) {
+				final Value set = value.toSetEnum();
+				if (set instanceof SetEnumValue) {
+					return walk(set, ctx, colors, occurrences);
+				}
+			}
+			final Value fcn = value.toFcnRcd();
+			if (fcn instanceof FcnRcdValue) {
+				return walk(fcn, ctx, colors, occurrences);
+			}
+		}
+		// Values that cannot be inspected may contain symmetric model values, so
+		// their fingerprints are not invariant under symmetry.
+		return mix(v.getClass().getName().hashCode());
+	}
+
+	private final MVPerm leafPerm(final long[] colors) {
+		final MVPerm perm = new MVPerm();
+		for (int o = 0, k = 0; o < slots.length; o++) {
+			final int len = slots[o].length;
+			final Integer[] members = new Integer[len];
+			for (int i = 0; i < len; i++) {
+				members[i] = k + i;
+			}
+			Arrays.sort(members, (a, b) -> Long.compare(colors[a], colors[b]));
+			for (int i = 0; i < len; i++) {
+				perm.put(syms[members[i]], slots[o][i]);
+			}
+			k += len;
+		}
+		return perm;
+	}
+
+	private final boolean isAutomorphism(final IValue[] vals, final ModelValue a, final ModelValue b) {
+		final MVPerm transposition = new MVPerm();
+		transposition.put(a, b);
+		transposition.put(b, a);
+		for (int i = 0; i < vals.length; i++) {
+			if (!vals[i].permute(transposition).equals(vals[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static IValue[] apply(final IValue[] vals, final MVPerm perm) {
+		if (perm.size() == 0) {
+			return vals;
+		}
+		final IValue[] res = new IValue[vals.length];
+		for (int i = 0; i < vals.length; i++) {
+			res[i] = vals[i].permute(perm);
+		}
+		return res;
+	}
+
+	private static int compare(final IValue[] a, final IValue[] b) {
+		for (int i = 0; i < a.length; i++) {
+			final int cmp = a[i].compareTo(b[i]);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
+	}
+
+	private static int distinct(final long[] colors) {
+		final long[] sorted = colors.clone();
+		Arrays.sort(sorted);
+		int d = sorted.length > 0 ? 1 : 0;
+		for (int i = 1; i < sorted.length; i++) {
+			if (sorted[i] != sorted[i - 1]) {
+				d++;
+			}
+		}
+		return d;
+	}
+
+	// splitmix64 finalizer
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -27,6 +27,23 @@ package util;
 
 // Label is only used by Mission control but not relevant for the recording itself.
 public class TLAFlightRecorder {
+
+	/**
+	 * False on Java 1.8, which doesn't have jdk.jfr.Event. The events below that
+	 * are emitted frequently check this flag instead of catching the
+	 * NoClassDefFoundError on every invocation. Their begin methods return the
+	 * (opaque) event to be passed to the corresponding end method or null.
+	 */
+	private static final boolean JFR = isAvailable();
+
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
 	
     @jdk.jfr.Label("Progress")
     @jdk.jfr.Category({"TLC", "Progress"})
@@ -89,4 +106,234 @@ public class TLAFlightRecorder {
 		}
 		return message;
 	}
-}
\ No newline at end of file
+
+    @jdk.jfr.Label("FPSet Flush")
+    @jdk.jfr.Description("Merge of the in-memory fingerprints into the disk file of a DiskFPSet")
+    @jdk.jfr.Category({"TLC", "FPSet"})
+	private static class FPSetFlushEvent extends jdk.jfr.Event {
+		@jdk.jfr.Label("Fingerprints flushed")
+		@jdk.jfr.Unsigned
+		private long fingerprints;
+		@jdk.jfr.Label("Fingerprints on disk")
+		@jdk.jfr.Unsigned
+		private long diskFingerprints;
+		@jdk.jfr.Label("Bytes written")
+		@jdk.jfr.DataAmount
+		@jdk.jfr.Unsigned
+		private long bytes;
+		@jdk.jfr.Label("Background")
+		private boolean background;
+	}
+
+	public static Object beginFPSetFlush() {
+		if (!JFR) {
+			return null;
+		}
+		final FPSetFlushEvent e = new FPSetFlushEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void endFPSetFlush(final Object event, final long fingerprints, final long diskFingerprints,
+			final boolean background) {
+		if (event != null) {
+			final FPSetFlushEvent e = (FPSetFlushEvent) event;
+			e.fingerprints = fingerprints;
+			e.diskFingerprints = diskFingerprints;
+			e.bytes = diskFingerprints * Long.BYTES;
+			e.background = background;
+			e.commit();
+		}
+	}
+
+    @jdk.jfr.Label("FPSet Disk Lookup")
+    @jdk.jfr.Description("Lookup of a fingerprint in the disk file of a DiskFPSet")
+    @jdk.jfr.Category({"TLC", "FPSet"})
+	private static class DiskLookupEvent extends jdk.jfr.Event {
+		@jdk.jfr.Label("Found")
+		private boolean found;
+	}
+
+	public static Object beginDiskLookup() {
+		if (!JFR) {
+			return null;
+		}
+		final DiskLookupEvent e = new DiskLookupEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void endDiskLookup(final Object event, final boolean found) {
+		if (event != null) {
+			final DiskLookupEvent e = (DiskLookupEvent) event;
+			e.found = found;
+			e.commit();
+		}
+	}
+
+    @jdk.jfr.Label("Checkpoint")
+    @jdk.jfr.Description("Phase of a checkpoint: The snapshot (workers suspended) or its persistence")
+    @jdk.jfr.Category({"TLC", "Checkpoint"})
+    @jdk.jfr.StackTrace(false)
+	private static class CheckpointEvent extends jdk.jfr.Event {
+		@jdk.jfr.Label("Phase")
+		private String phase;
+	}
+
+	public static Object beginCheckpoint() {
+		if (!JFR) {
+			return null;
+		}
+		final CheckpointEvent e = new CheckpointEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void endCheckpoint(final Object event, final String phase) {
+		if (event != null) {
+			final CheckpointEvent e = (CheckpointEvent) event;
+			e.phase = phase;
+			e.commit();
+		}
+	}
+
+    @jdk.jfr.Label("State Queue Spill")
+    @jdk.jfr.Description("Hand-off of a full buffer of states to the writer of a DiskStateQueue")
+    @jdk.jfr.Category({"TLC", "StateQueue"})
+    @jdk.jfr.StackTrace(false)
+	private static class QueueSpillEvent extends jdk.jfr.Event {
+		@jdk.jfr.Label("States")
+		@jdk.jfr.Unsigned
+		private int states;
+		@jdk.jfr.Label("Pool")
+		@jdk.jfr.Unsigned
+		private int pool;
+	}
+
+	public static Object beginQueueSpill() {
+		if (!JFR) {
+			return null;
+		}
+		final QueueSpillEvent e = new QueueSpillEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void endQueueSpill(final Object event, final int states, final int pool) {
+		if (event != null) {
+			final QueueSpillEvent e = (QueueSpillEvent) event;
+			e.states = states;
+			e.pool = pool;
+			e.commit();
+		}
+	}
+
+    @jdk.jfr.Label("State Queue Refill")
+    @jdk.jfr.Description("Refill of the dequeue buffer of a DiskStateQueue from disk or from its enqueue buffer")
+    @jdk.jfr.Category({"TLC", "StateQueue"})
+    @jdk.jfr.StackTrace(false)
+	private static class QueueRefillEvent extends jdk.jfr.Event {
+		@jdk.jfr.Label("States")
+		@jdk.jfr.Unsigned
+		private int states;
+		@jdk.jfr.Label("From disk")
+		private boolean fromDisk;
+	}
+
+	public static Object beginQueueRefill() {
+		if (!JFR) {
+			return null;
+		}
+		final QueueRefillEvent e = new QueueRefillEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void endQueueRefill(final Object event, final int states, final boolean fromDisk) {
+		if (event != null) {
+			final QueueRefillEvent e = (QueueRefillEvent) event;
+			e.states = states;
+			e.fromDisk = fromDisk;
+			e.commit();
+		}
+	}
+
+    @jdk.jfr.Label("Liveness SCC Search")
+    @jdk.jfr.Description("Search for the strongly connected components of the behavior graph that violate a possible error model")
+    @jdk.jfr.Category({"TLC", "Liveness"})
+    @jdk.jfr.StackTrace(false)
+	private static class SCCSearchEvent extends jdk.jfr.Event {
+		@jdk.jfr.Label("Liveness worker")
+		@jdk.jfr.Unsigned
+		private int worker;
+		@jdk.jfr.Label("Possible error model")
+		@jdk.jfr.Unsigned
+		private int pem;
+		@jdk.jfr.Label("Behavior graph nodes")
+		@jdk.jfr.Unsigned
+		private long nodes;
+		@jdk.jfr.Label("Violation found")
+		private boolean violation;
+	}
+
+	public static Object beginSCCSearch() {
+		if (!JFR) {
+			return null;
+		}
+		final SCCSearchEvent e = new SCCSearchEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void endSCCSearch(final Object event, final int worker, final int pem, final long nodes,
+			final boolean violation) {
+		if (event != null) {
+			final SCCSearchEvent e = (SCCSearchEvent) event;
+			e.worker = worker;
+			e.pem = pem;
+			e.nodes = nodes;
+			e.violation = violation;
+			e.commit();
+		}
+	}
+
+    @jdk.jfr.Label("BFS Level")
+    @jdk.jfr.Description("The time between the first states of two consecutive levels dequeued by the breadth-first search")
+    @jdk.jfr.Category({"TLC", "Progress"})
+    @jdk.jfr.StackTrace(false)
+	private static class LevelEvent extends jdk.jfr.Event {
+		@jdk.jfr.Label("Level")
+		@jdk.jfr.Unsigned
+		private int level;
+		@jdk.jfr.Label("States Generated")
+		@jdk.jfr.Unsigned
+		private long states;
+		@jdk.jfr.Label("Distinct States Generated")
+		@jdk.jfr.Unsigned
+		private long distStates;
+		@jdk.jfr.Label("Unseen States")
+		@jdk.jfr.Unsigned
+		private long unseen;
+	}
+
+	public static Object beginLevel() {
+		if (!JFR) {
+			return null;
+		}
+		final LevelEvent e = new LevelEvent();
+		e.begin();
+		return e;
+	}
+
+	public static void endLevel(final Object event, final int level, final long states, final long distinctStates,
+			final long unseen) {
+		if (event != null) {
+			final LevelEvent e = (LevelEvent) event;
+			e.level = level;
+			e.states = states;
+			e.distStates = distinctStates;
+			e.unseen = unseen;
+			e.commit();
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import tlc2.TLC;
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.IMessagePrinterRecorder;
+import tlc2.output.MP;
+import util.FileUtil;
+import util.ToolIO;
+
+/**
+ * End-to-end benchmark that runs complete model checks (BFS, simulation, and
+ * liveness checking) of representative specs in test-model the same way the
+ * command-line does. Use it to measure changes to e.g. Tool, Worker, or FPSet
+ * that the micro-benchmarks cannot capture.
+ * <p>
+ * Each invocation is one run of TLC, thus the primary result is runs per
+ * second. The secondary results "generated" and "distinct" are the states
+ * (distinct states) generated per second. Add -prof gc to report the
+ * allocations per run (gc.alloc.rate.norm).
+ * <p>
+ * TLC keeps (some) state in static fields, which is why the runs of a trial
+ * share the JVM but each run gets its own metadir and the previous model
+ * checker is released before the next run starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class ModelCheckingBenchmark {
+
+	/*
+	 * Run with: java -jar target/benchmarks.jar -prof gc -rf json -rff
+	 * ModelCheckingBenchmark-$(date +%s)-$(git rev-parse --short HEAD).json
+	 * -jvmArgsPrepend "-Xms8192m -Xmx8192m" -jvmArgsAppend
+	 * "-Dtlc2.tool.ModelCheckingBenchmark.base=/path/to/tlatools/org.lamport.tlatools/test-model"
+	 * -p spec=mutex,queue -p workers=1,4 tlc2.tool.ModelCheckingBenchmark
+	 */
+
+	private static final String BASE_PATH = System.getProperty(ModelCheckingBenchmark.class.getName() + ".base",
+			"test-model");
+
+	/**
+	 * mutex: StarkMutex, N=3 (23k distinct states, starvation freedom)
+	 * <p>
+	 * paxos: PlusCal Paxos, 3 acceptors, 2 leaders (593k distinct states)
+	 * <p>
+	 * queue: EWD998Chan, N=3 (8k distinct states, FIFO message channels)
+	 * <p>
+	 * symmetry: Detlefs, 4 addresses and 2 processes (953k distinct states
+	 * under symmetry)
+	 * <p>
+	 * liveness: EWD840, N=4 (tableau, finds a liveness violation)
+	 * <p>
+	 * simulation: BenchmarkSpec (10000 random behaviors)
+	 */
+	@Param({ "mutex", "paxos", "queue", "symmetry", "liveness", "simulation" })
+	public String spec;
+
+	@Param({ "1" })
+	public int workers;
+
+	private File metadir;
+	private StatsRecorder recorder;
+
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class States {
+		public long generated;
+		public long distinct;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			generated = 0L;
+			distinct = 0L;
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void setup() throws IOException {
+		metadir = Files.createTempDirectory(ModelCheckingBenchmark.class.getSimpleName()).toFile();
+		recorder = new StatsRecorder();
+		MP.setRecorder(recorder);
+	}
+
+	@TearDown(Level.Invocation)
+	public void tearDown() throws IOException {
+		MP.unsubscribeRecorder(recorder);
+		// Release the model checker (and its fingerprint set and queue) of this
+		// run before the next one allocates its own.
+		TLCGlobals.mainChecker = null;
+		TLCGlobals.simulator = null;
+		System.gc();
+		FileUtil.deleteDir(metadir, true);
+	}
+
+	@Benchmark
+	public int modelCheck(final States states) {
+		final List<String> args = new ArrayList<>();
+		final String dir;
+		switch (spec) {
+		case "mutex":
+			dir = "pcal";
+			args.add("StarkMutex");
+			break;
+		case "paxos":
+			dir = "pcal";
+			args.addAll(Arrays.asList("-deadlock", "PcalPaxos"));
+			break;
+		case "queue":
+			dir = "EWD998";
+			args.addAll(Arrays.asList("-deadlock", "EWD998Chan"));
+			break;
+		case "symmetry":
+			dir = "pcal";
+			args.add("Detlefs");
+			break;
+		case "liveness":
+			dir = "CodePlexBug08";
+			args.addAll(Arrays.asList("-deadlock", "EWD840MC1"));
+			break;
+		case "simulation":
+			dir = "simulation" + File.separator + "BenchmarkSpec";
+			args.addAll(Arrays.asList("-deadlock", "-simulate", "num=10000", "-depth", "20", "-seed", "1", "-config",
+					"MCInv.cfg", "BenchmarkSpec"));
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown spec: " + spec);
+		}
+		args.addAll(0, Arrays.asList("-workers", Integer.toString(workers), "-metadir", metadir.getAbsolutePath(),
+				"-checkpoint", "0", "-noGenerateSpecTE", "-fp", "0"));
+
+		ToolIO.setUserDir(BASE_PATH + File.separator + dir);
+		final TLC tlc = new TLC();
+		if (!tlc.handleParameters(args.toArray(new String[args.size()]))) {
+			throw new IllegalArgumentException("Invalid parameters: " + args);
+		}
+		final int result = tlc.process();
+
+		states.generated += recorder.generated;
+		states.distinct += recorder.distinct;
+		return result;
+	}
+
+	private static final class StatsRecorder implements IMessagePrinterRecorder {
+		private long generated, distinct;
+
+		@Override
+		public void record(final int code, final Object... objects) {
+			if (code == EC.TLC_STATS || code == EC.TLC_STATS_DFID) {
+				generated = Long.parseLong(objects[0].toString());
+				distinct = Long.parseLong(objects[1].toString());
+			} else if (code == EC.TLC_STATS_SIMU) {
+				generated = Long.parseLong(objects[0].toString());
+			}
+		}
+	}
+}
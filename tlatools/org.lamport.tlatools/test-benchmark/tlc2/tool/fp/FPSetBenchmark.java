@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import tlc2.TLCGlobals;
+import util.FileUtil;
+
+/**
+ * Compares the {@link FPSet} implementations of
+ * {@link FPSetFactory#getImplementations()} and {@link MemFPSet} under the same
+ * multi-threaded put/contains workloads. Like TLC, the benchmark nests an
+ * implementation in a {@link MultiFPSet} of 2^fpBits partitions (-fpbits)
+ * unless the implementation is a single shared table (see
+ * {@link FPSetConfiguration#getFpBits()}). The workload is defined by:
+ * <ul>
+ * <li>fpMem: The fraction of the heap given to the FPSet (-fpmem). Like with
+ * TLC, off-heap implementations use all of -XX:MaxDirectMemorySize instead.</li>
+ * <li>fill: The number of fingerprints inserted before measuring relative to
+ * the number of fingerprints that fit into this memory. Values greater than 1
+ * force disk-based implementations to flush before and (because each miss of
+ * put inserts a new fingerprint) during the measurement.</li>
+ * <li>hitRatio: The fraction of operations with a fingerprint that is in the
+ * set.</li>
+ * </ul>
+ * Throughput is reported as operations per second, latency percentiles
+ * (p0.50, p0.90, p0.99, ...) by the SampleTime mode. The number of threads is
+ * JMH's -t (all cores by default).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class FPSetBenchmark {
+
+	/*
+	 * Run with: java -jar target/benchmarks.jar -rf json -rff
+	 * FPSetBenchmark-$(date +%s)-$(git rev-parse --short HEAD).json
+	 * -jvmArgsPrepend "-Xms1024m -Xmx1024m -XX:MaxDirectMemorySize=256m" -t 4
+	 * -p impl=OffHeapDiskFPSet,MemFPSet -p fpBits=0,1,4 tlc2.tool.fp.FPSetBenchmark
+	 */
+
+	@Param({ "MSBDiskFPSet", "LSBDiskFPSet", "OffHeapDiskFPSet", "BitstateFPSet", "CompactFPSet", "LSMFPSet",
+			"MemFPSet" })
+	public String impl;
+
+	@Param({ "1" })
+	public int fpBits;
+
+	@Param({ "0.25" })
+	public double fpMem;
+
+	@Param({ "0.5", "1.5" })
+	public double fill;
+
+	@Param({ "0.0", "0.5", "0.9" })
+	public double hitRatio;
+
+	private FPSet fpSet;
+	private File metadir;
+	/**
+	 * Fingerprints fp(0) to fp(preloaded - 1) are in the set before the
+	 * measurement starts.
+	 */
+	private long preloaded;
+	/**
+	 * The next fingerprint (index) a miss of put inserts.
+	 */
+	private final AtomicLong next = new AtomicLong();
+
+	@Setup(Level.Trial)
+	public void setup(final BenchmarkParams params) throws IOException {
+		final int threads = params.getThreads();
+		TLCGlobals.setNumWorkers(threads);
+
+		// The same configuration as TLC with -fpmem and -fpbits.
+		final FPSetConfiguration config = new FPSetConfiguration(fpMem,
+				FPSet.class.getPackage().getName() + "." + impl);
+		config.setFpBits(fpBits);
+
+		metadir = Files.createTempDirectory(FPSetBenchmark.class.getSimpleName()).toFile();
+		fpSet = FPSetFactory.getFPSet(config);
+		fpSet.init(threads, metadir.getAbsolutePath(), impl);
+
+		// Like ModelChecker inserts the initial states, preload with a single
+		// thread before the workers are registered (see OffHeapDiskFPSet, whose
+		// eviction waits for all registered workers).
+		preloaded = (long) (config.getMemoryInFingerprintCnt() * fill);
+		for (long i = 0; i < preloaded; i++) {
+			fpSet.put(fp(i));
+		}
+		next.set(preloaded);
+
+		fpSet.incWorkers(threads);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		fpSet.close();
+		FileUtil.deleteDir(metadir, true);
+	}
+
+	@State(Scope.Thread)
+	public static class Workload {
+		private final SplittableRandom rnd = new SplittableRandom(Thread.currentThread().getId());
+	}
+
+	@Benchmark
+	public boolean put(final Workload w) throws IOException {
+		if (w.rnd.nextDouble() < hitRatio) {
+			return fpSet.put(fp(w.rnd.nextLong(preloaded)));
+		}
+		return fpSet.put(fp(next.getAndIncrement()));
+	}
+
+	@Benchmark
+	public boolean contains(final Workload w) throws IOException {
+		if (w.rnd.nextDouble() < hitRatio) {
+			return fpSet.contains(fp(w.rnd.nextLong(preloaded)));
+		}
+		// Indices at or above 2^62 are never inserted.
+		return fpSet.contains(fp(w.rnd.nextLong(1L << 62, Long.MAX_VALUE)));
+	}
+
+	/**
+	 * @return A (bijectively) scrambled i, which spreads the fingerprints over
+	 *         the whole space like the fingerprints of states do.
+	 */
+	static long fp(final long i) {
+		long z = i + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		// An FPSet does not store the fingerprint 0.
+		return z == 0L ? 1L : z;
+	}
+}
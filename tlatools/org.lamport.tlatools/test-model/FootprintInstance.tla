@@ -0,0 +1,26 @@
+---- MODULE FootprintInstance ----
+EXTENDS Naturals
+
+\* TLCGet and TLCSet are called through an instance of TLC, thus their names
+\* are T!TLCGet and T!TLCSet. Their footprint is still unknown.
+T == INSTANCE TLC
+
+VARIABLES x, y, z
+
+Init == x = 0 /\ y = 0 /\ z = 0 /\ T!TLCSet(1, 0)
+
+A == x < 5 /\ x' = x + 1 /\ UNCHANGED <<y, z>>
+
+\* Independent of A and C except for its side effect on TLC register 1.
+B == y < 5 /\ y' = y + 1 /\ UNCHANGED <<x, z>> /\ T!TLCSet(1, T!TLCGet(1) + 1)
+
+C == z < 5 /\ z' = z + 1 /\ UNCHANGED <<x, y>>
+
+Next == A \/ B \/ C
+
+InvZ == z <= 5
+
+\* Violated after three steps of any action, e.g. of A, which does not change
+\* a variable InvLevel appears to read.
+InvLevel == T!TLCGet("level") < 4
+====
@@ -0,0 +1,23 @@
+---------------------------- MODULE IncrementalInvariants ----------------------------
+EXTENDS Naturals, TLC
+
+VARIABLES x, y, z
+
+Init == x = 0 /\ y = 0 /\ z = 0
+
+\* Only IncX affects InvX, which is violated after two IncY and three IncX steps.
+IncX == y = 2 /\ x' = x + 1 /\ UNCHANGED <<y, z>>
+
+IncY == y < 2 /\ y' = y + 1 /\ UNCHANGED <<x, z>>
+
+IncZ == z' = (z + 1) % 3 /\ x' = x /\ y' = y
+
+Next == IncX \/ IncY \/ IncZ
+
+InvX == x < 3
+
+InvZ == z \in 0..2
+
+\* TLCGet reads all variables.
+InvLevel == TLCGet("level") < 100
+=============================================================================
@@ -0,0 +1,18 @@
+---- MODULE PartialOrderReduction ----
+EXTENDS Naturals
+
+\* Four independent counters. Only A and B are visible to the invariant, thus
+\* partial order reduction explores C and D in a single order.
+VARIABLES a, b, c, d
+
+Init == a = 0 /\ b = 0 /\ c = 0 /\ d = 0
+
+A == a < 5 /\ a' = a + 1 /\ UNCHANGED <<b, c, d>>
+B == b < 5 /\ b' = b + 1 /\ UNCHANGED <<a, c, d>>
+C == c < 5 /\ c' = c + 1 /\ UNCHANGED <<a, b, d>>
+D(n) == d < 5 /\ d' = d + n /\ UNCHANGED <<a, b, c>>
+
+Next == A \/ B \/ C \/ \E n \in {1}: D(n)
+
+Inv == a + b < 11
+====
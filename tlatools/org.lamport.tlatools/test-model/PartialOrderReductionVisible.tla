@@ -0,0 +1,19 @@
+---- MODULE PartialOrderReductionVisible ----
+EXTENDS Naturals
+
+\* A and B write variables read by the invariant, thus they are visible and
+\* never part of a reduced ample set. If they were, the stubborn set {A} would
+\* be explored in every state where A is enabled and B would only ever happen
+\* after A, which hides the violation of Inv. C is invisible and is reduced.
+VARIABLES a, b, c
+
+Init == a = 0 /\ b = 0 /\ c = 0
+
+A == a < 3 /\ a' = a + 1 /\ UNCHANGED <<b, c>>
+B == b = 0 /\ b' = 1 /\ UNCHANGED <<a, c>>
+C == c < 3 /\ c' = c + 1 /\ UNCHANGED <<a, b>>
+
+Next == A \/ B \/ C
+
+Inv == b = 1 => a > 0
+====
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.EC.ExitStatus;
+import tlc2.tool.liveness.ModelCheckerTestCase;
+
+public class FootprintInstanceTest extends ModelCheckerTestCase {
+
+	public FootprintInstanceTest() {
+		super("FootprintInstance", ExitStatus.VIOLATION_SAFETY);
+	}
+
+	@Override
+	protected void beforeSetUp() {
+		System.setProperty(IncrementalInvariants.class.getName() + ".on", "true");
+		System.setProperty(PartialOrderReduction.class.getName() + ".enabled", "true");
+	}
+
+	@Override
+	protected boolean runWithDebugger() {
+		return false;
+	}
+
+	@Override
+	protected boolean doCoverage() {
+		return false;
+	}
+
+	@Override
+	protected boolean noGenerateSpec() {
+		return true;
+	}
+
+	@Test
+	public void testSpec() {
+		assertTrue(recorder.recorded(EC.TLC_FINISHED));
+		assertTrue(recorder.recordedWithStringValue(EC.TLC_INVARIANT_VIOLATED_BEHAVIOR, "InvLevel"));
+		assertEquals(4, recorder.getRecords(EC.TLC_STATE_PRINT2).size());
+
+		final ModelChecker mc = (ModelChecker) TLCGlobals.mainChecker;
+
+		// T!TLCGet("level") reads all variables, thus every action affects
+		// InvLevel (invariants InvZ, InvLevel). B writes all variables because
+		// of T!TLCSet.
+		assertNotNull(mc.incInv);
+		for (Action action : mc.tool.getActions()) {
+			final String name = action.getName().toString();
+			if ("A".equals(name)) {
+				assertArrayEquals(new boolean[] { false, true }, mc.incInv.getAffected(action));
+			} else {
+				assertArrayEquals(new boolean[] { true, true }, mc.incInv.getAffected(action));
+			}
+		}
+
+		// B writes TLC register 1 with T!TLCSet, thus it is dependent on A and
+		// C. Only A and C are independent.
+		assertNotNull(mc.por);
+		assertEquals(1L, mc.por.getIndependentPairCount());
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.EC.ExitStatus;
+import tlc2.tool.liveness.ModelCheckerTestCase;
+
+public class IncrementalInvariantsTest extends ModelCheckerTestCase {
+
+	public IncrementalInvariantsTest() {
+		super("IncrementalInvariants", ExitStatus.VIOLATION_SAFETY);
+	}
+
+	@Override
+	protected void beforeSetUp() {
+		System.setProperty(IncrementalInvariants.class.getName() + ".on", "true");
+	}
+
+	@Override
+	protected boolean runWithDebugger() {
+		return false;
+	}
+
+	@Override
+	protected boolean doCoverage() {
+		// Coverage counts all invariant evaluations.
+		return false;
+	}
+
+	@Override
+	protected boolean noGenerateSpec() {
+		return true;
+	}
+
+	@Test
+	public void testSpec() {
+		assertTrue(recorder.recorded(EC.TLC_FINISHED));
+		assertTrue(recorder.recordedWithStringValue(EC.TLC_INVARIANT_VIOLATED_BEHAVIOR, "InvX"));
+
+		// Init, IncY, IncY, IncX, IncX, IncX
+		final List<Object> records = recorder.getRecords(EC.TLC_STATE_PRINT2);
+		assertEquals(6, records.size());
+
+		// Invariants InvZ, InvLevel, InvX.
+		final ModelChecker mc = (ModelChecker) TLCGlobals.mainChecker;
+		assertNotNull(mc.incInv);
+		for (Action action : mc.tool.getActions()) {
+			final String name = action.getName().toString();
+			if ("IncX".equals(name)) {
+				assertArrayEquals(new boolean[] { false, true, true }, mc.incInv.getAffected(action));
+			} else if ("IncY".equals(name)) {
+				assertArrayEquals(new boolean[] { false, true, false }, mc.incInv.getAffected(action));
+			} else {
+				assertEquals("IncZ", name);
+				assertArrayEquals(new boolean[] { true, true, false }, mc.incInv.getAffected(action));
+			}
+		}
+	}
+}
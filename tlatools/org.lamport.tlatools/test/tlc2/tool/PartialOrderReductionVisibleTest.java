@@ -0,0 +1,75 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import tlc2.output.EC;
+import tlc2.output.EC.ExitStatus;
+import tlc2.tool.liveness.ModelCheckerTestCase;
+
+public class PartialOrderReductionVisibleTest extends ModelCheckerTestCase {
+
+	public PartialOrderReductionVisibleTest() {
+		super("PartialOrderReductionVisible", ExitStatus.VIOLATION_SAFETY);
+	}
+
+	@Override
+	protected void beforeSetUp() {
+		System.setProperty(PartialOrderReduction.class.getName() + ".enabled", "true");
+	}
+
+	@Override
+	protected boolean runWithDebugger() {
+		return false;
+	}
+
+	@Override
+	protected boolean noGenerateSpec() {
+		return true;
+	}
+
+	@Test
+	public void testSpec() {
+		assertTrue(recorder.recorded(EC.TLC_FINISHED));
+
+		// B is only enabled together with the (visible) action A. The reduction
+		// must not prune B in favor of A, or the violation would be missed.
+		assertTrue(recorder.recorded(EC.TLC_INVARIANT_VIOLATED_BEHAVIOR));
+
+		// The invisible action C is still reduced: A and B are only explored
+		// once C is disabled.
+		final List<String> expectedTrace = new ArrayList<String>(5);
+		expectedTrace.add("/\\ a = 0\n/\\ b = 0\n/\\ c = 0");
+		expectedTrace.add("/\\ a = 0\n/\\ b = 0\n/\\ c = 1");
+		expectedTrace.add("/\\ a = 0\n/\\ b = 0\n/\\ c = 2");
+		expectedTrace.add("/\\ a = 0\n/\\ b = 0\n/\\ c = 3");
+		expectedTrace.add("/\\ a = 0\n/\\ b = 1\n/\\ c = 3");
+		assertTraceWith(recorder.getRecords(EC.TLC_STATE_PRINT2), expectedTrace);
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.checkpoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import tlc2.TLC;
+import tlc2.TLCGlobals;
+import tlc2.TestMPRecorder;
+import tlc2.output.EC;
+import tlc2.output.MP;
+import tlc2.tool.ModelChecker;
+import tlc2.tool.fp.FPSetFactory;
+import tlc2.tool.fp.MSBDiskFPSet;
+import tlc2.tool.liveness.ModelCheckerTestCase;
+import tlc2.tool.queue.DiskStateQueue;
+import util.ToolIO;
+
+/**
+ * Recovers from a checkpoint that has been persisted in the background (see
+ * {@link ModelChecker#CONCURRENT_CHECKPOINT}) while the workers continued to
+ * explore the state space.
+ */
+public class CheckpointConcurrentlyTest extends ModelCheckerTestCase {
+
+	private final TestMPRecorder first = new TestMPRecorder();
+
+	public CheckpointConcurrentlyTest() {
+		super("CheckpointConcurrently", "checkpoint");
+	}
+
+	@Override
+	protected void beforeSetUp() {
+		System.setProperty(ModelChecker.class.getName() + ".concurrentCheckpoint", Boolean.TRUE.toString());
+		System.setProperty(ModelChecker.class.getName() + ".vetoCleanup", Boolean.TRUE.toString());
+		System.setProperty(TLC.class.getName() + ".progressInterval", "1"); // one second
+		// A small buffer makes the DiskStateQueue swap states to disk, i.e. the
+		// checkpoint covers states in memory and on disk.
+		System.setProperty(DiskStateQueue.class.getName() + ".BufSize", "64");
+		// OffHeapDiskFPSet does not support two model checker runs in one VM.
+		System.setProperty(FPSetFactory.IMPL_PROPERTY, MSBDiskFPSet.class.getName());
+
+		// The first run takes a single (forced) checkpoint after about a second,
+		// which is persisted in the background while the run continues to
+		// completion. Without -checkpoint, no other checkpoint is taken.
+		TLCGlobals.forceChkpt();
+		try {
+			ToolIO.setUserDir(BASE_PATH + path);
+			MP.setRecorder(first);
+			final TLC tlc = new TLC();
+			tlc.handleParameters(new String[] { "-deadlock", "-noGenerateSpecTE", "-fp", "0", "-workers", "1", "-checkpoint",
+					"0", spec });
+			tlc.process();
+		} catch (Exception e) {
+			fail(e.getMessage());
+		}
+
+		// The second run recovers from the checkpoint of the first one (the
+		// parameter of TLC_CHECKPOINT_START is the metadir).
+		final List<Object> chkpts = first.getRecords(EC.TLC_CHECKPOINT_START);
+		if (chkpts == null) {
+			fail("The first run has not taken a checkpoint.");
+		}
+		extraArguments = new String[] { "-recover", ((String[]) chkpts.get(0))[0] };
+	}
+
+	@Override
+	protected boolean noGenerateSpec() {
+		return true;
+	}
+
+	@Override
+	protected boolean runWithDebugger() {
+		return false;
+	}
+
+	@Override
+	protected boolean doDump() {
+		return false;
+	}
+
+	@Override
+	protected boolean doDumpTrace() {
+		return false;
+	}
+
+	@Test
+	public void testSpec() {
+		assertTrue(ModelChecker.CONCURRENT_CHECKPOINT);
+
+		// The first run has finished after the checkpoint has been completed.
+		assertTrue(first.recorded(EC.TLC_FINISHED));
+		assertEquals(1, first.getRecords(EC.TLC_CHECKPOINT_START).size());
+		assertEquals(1, first.getRecords(EC.TLC_CHECKPOINT_END).size());
+		assertTrue(first.recordedWithStringValues(EC.TLC_STATS, "1281601", "641601", "0"));
+
+		// The second run recovered from the checkpoint and found the states the
+		// first run found after the checkpoint.
+		assertTrue(recorder.recorded(EC.TLC_CHECKPOINT_RECOVER_START));
+		assertTrue(recorder.recorded(EC.TLC_CHECKPOINT_RECOVER_END));
+		assertTrue(recorder.recorded(EC.TLC_FINISHED));
+		assertFalse(recorder.recorded(EC.GENERAL));
+		final List<Object> stats = recorder.getRecords(EC.TLC_STATS);
+		assertEquals(1, stats.size());
+		final String[] values = (String[]) stats.get(0);
+		assertEquals("641601", values[1]);
+		assertEquals("0", values[2]);
+	}
+}
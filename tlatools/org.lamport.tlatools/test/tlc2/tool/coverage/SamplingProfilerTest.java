@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.coverage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import tlc2.output.EC;
+import tlc2.output.EC.ExitStatus;
+import tlc2.tool.liveness.ModelCheckerTestCase;
+
+public class SamplingProfilerTest extends ModelCheckerTestCase {
+
+	private File prefix;
+
+	public SamplingProfilerTest() {
+		super("PartialOrderReduction", ExitStatus.VIOLATION_DEADLOCK);
+	}
+
+	@Override
+	protected void beforeSetUp() {
+		try {
+			prefix = new File(Files.createTempDirectory("SamplingProfilerTest").toFile(), "PartialOrderReduction");
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		// Sample every evaluation.
+		System.setProperty(SamplingProfiler.class.getName() + ".rate", "1");
+		System.setProperty(SamplingProfiler.class.getName() + ".out", prefix.getAbsolutePath());
+	}
+
+	@Override
+	protected boolean checkDeadLock() {
+		return true;
+	}
+
+	@Override
+	protected boolean runWithDebugger() {
+		return false;
+	}
+
+	@Override
+	protected boolean noGenerateSpec() {
+		return true;
+	}
+
+	@Test
+	public void testSpec() throws IOException {
+		assertTrue(recorder.recorded(EC.TLC_FINISHED));
+		assertTrue(recorder.recorded(EC.TLC_DEADLOCK_REACHED));
+
+		final Matcher m = Pattern.compile("Sampling profiler: (\\d+) of (\\d+) next-state evaluations sampled.*")
+				.matcher(getSummary());
+		assertTrue(m.matches());
+		assertEquals(m.group(2), m.group(1));
+
+		final File wall = new File(prefix.getAbsolutePath() + ".wall.collapsed");
+		assertTrue(wall.isFile());
+
+		final Set<String> roots = new HashSet<>();
+		final Set<String> stacks = new HashSet<>();
+		final List<String> lines = Files.readAllLines(wall.toPath());
+		assertTrue(lines.size() > 0);
+		for (String line : lines) {
+			assertTrue(line, line.matches("[^ ]+ \\d+"));
+			final String stack = line.substring(0, line.indexOf(' '));
+			stacks.add(stack);
+			roots.add(stack.split(";")[0]);
+		}
+		// The actions are the roots of the stacks...
+		assertTrue(roots.toString(), new HashSet<>(Arrays.asList("A", "B", "C", "D")).containsAll(roots));
+		// ...and the invariant checked for their successor states a child frame.
+		assertTrue(stacks.toString(), stacks.contains("A;Inv"));
+	}
+
+	private String getSummary() {
+		for (Object record : recorder.getRecords(EC.GENERAL)) {
+			final String msg = ((String[]) record)[0];
+			if (msg.startsWith("Sampling profiler:")) {
+				return msg;
+			}
+		}
+		return "";
+	}
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BitstateFPSetTest {
+
+	@Before
+	public void setup() {
+		Assume.assumeTrue(LongArray.isSupported());
+	}
+
+	@Test
+	public void testPutContains() throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1 << 17); // 1mb, 2^23 bits
+		final BitstateFPSet fpSet = new BitstateFPSet(fpSetConfig, 3);
+		fpSet.init(1, null, null);
+
+		final int n = 10000;
+		Random random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			final long fp = random.nextLong();
+			assertFalse(fpSet.contains(fp));
+			assertFalse(fpSet.put(fp));
+			assertTrue(fpSet.contains(fp));
+		}
+		assertEquals(n, fpSet.size());
+
+		random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			assertTrue(fpSet.put(random.nextLong()));
+		}
+		assertEquals(n, fpSet.size());
+
+		// With ~800 bits per state the coverage is (almost) perfect.
+		assertTrue(fpSet.getCoverage() > 0.99999d);
+		assertTrue(fpSet.getOmissionProbability() < 1E-6);
+	}
+
+	@Test
+	public void testSaturation() throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(8); // 64 bytes, 512 bits
+		final BitstateFPSet fpSet = new BitstateFPSet(fpSetConfig, 2);
+		fpSet.init(1, null, null);
+
+		final Random random = new Random(4711L);
+		for (int i = 0; i < 1000; i++) {
+			fpSet.put(random.nextLong());
+		}
+		// Some fingerprints have been wrongly reported as seen.
+		assertTrue(fpSet.size() < 1000);
+		assertTrue(fpSet.getCoverage() < 1d);
+		assertTrue(fpSet.getOmissionProbability() > 0.5d);
+	}
+
+	@Test
+	public void testFactory() throws IOException {
+		final FPSetConfiguration fpSetConfig = new FPSetConfiguration(1d, BitstateFPSet.class.getName());
+		assertFalse(FPSetFactory.allocatesOnHeap(BitstateFPSet.class.getName()));
+		assertFalse(fpSetConfig.allowsNesting());
+		assertTrue(FPSetFactory.getFPSet(fpSetConfig) instanceof BitstateFPSet);
+	}
+}
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class BlockedBloomFilterTest {
+
+	@Test
+	public void testNoFalseNegatives() {
+		final BlockedBloomFilter filter = new BlockedBloomFilter(1024L * 1024L);
+		assertEquals(1024L * 1024L * 8L, filter.size());
+
+		Random random = new Random(4711L);
+		for (int i = 0; i < 100000; i++) {
+			filter.put(random.nextLong());
+		}
+		random = new Random(4711L);
+		for (int i = 0; i < 100000; i++) {
+			assertTrue(filter.mightContain(random.nextLong()));
+		}
+	}
+
+	@Test
+	public void testFalsePositiveRate() {
+		// ~10 bits per fingerprint.
+		final int n = 1 << 16;
+		final BlockedBloomFilter filter = new BlockedBloomFilter(n * 10L / 8L);
+
+		final Random random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			filter.put(random.nextLong());
+		}
+		int falsePositives = 0;
+		for (int i = 0; i < n; i++) {
+			if (filter.mightContain(random.nextLong())) {
+				falsePositives++;
+			}
+		}
+		// A standard Bloom filter has ~1% false positives at 10 bits per
+		// fingerprint, blocking costs a little.
+		assertTrue(String.valueOf(falsePositives), falsePositives < n * 0.03d);
+	}
+
+	@Test
+	public void testSingleBlock() {
+		final BlockedBloomFilter filter = new BlockedBloomFilter(1L);
+		assertEquals(512L, filter.size());
+		assertFalse(filter.mightContain(42L));
+		filter.put(42L);
+		assertTrue(filter.mightContain(42L));
+	}
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class BloomFilterDiskFPSetTest {
+
+	@BeforeClass
+	public static void setup() {
+		// 1 MB
+		System.setProperty(DiskFPSet.class.getName() + ".bloomFilter", "1");
+	}
+
+	private interface Factory {
+		DiskFPSet create() throws IOException;
+	}
+
+	@Test
+	public void testOffHeapDiskFPSet() throws IOException {
+		doTest(new Factory() {
+			public DiskFPSet create() throws IOException {
+				final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+				fpSetConfig.setMemoryInFingerprintCnt(1024);
+				return new OffHeapDiskFPSet(fpSetConfig);
+			}
+		});
+	}
+
+	@Test
+	public void testMSBDiskFPSet() throws IOException {
+		doTest(new Factory() {
+			public DiskFPSet create() throws IOException {
+				return new MSBDiskFPSet(new FPSetConfiguration());
+			}
+		});
+	}
+
+	@Test
+	public void testLSBDiskFPSet() throws IOException {
+		doTest(new Factory() {
+			public DiskFPSet create() throws IOException {
+				return new LSBDiskFPSet(new FPSetConfiguration());
+			}
+		});
+	}
+
+	private void doTest(final Factory factory) throws IOException {
+		final DiskFPSet fpSet = factory.create();
+		fpSet.init(1, createTmpDir(), "bloom");
+		assertEquals(0d, fpSet.getBloomFilterFalsePositiveRate(), 0d);
+
+		final Random random = new Random(4711L);
+		final List<Long> fps = put(fpSet, random, 10000);
+
+		// All fingerprints have been flushed to disk and have to be found.
+		fpSet.forceFlush();
+		fpSet.put(random.nextLong() & DiskFPSet.FLUSHED_MASK);
+		for (Long fp : fps) {
+			assertTrue(fpSet.contains(fp));
+		}
+
+		// The majority of new fingerprints does not go to disk.
+		final long lookups = fpSet.getDiskLookupCnt();
+		for (int i = 0; i < 10000; i++) {
+			assertFalse(fpSet.contains(random.nextLong() & DiskFPSet.FLUSHED_MASK));
+		}
+		assertTrue(fpSet.getBloomFilterSkipCnt() > 9900L);
+		assertTrue(fpSet.getDiskLookupCnt() - lookups < 100L);
+		assertTrue(fpSet.getBloomFilterFalsePositiveRate() < 0.01d);
+	}
+
+	@Test
+	public void testRecover() throws IOException {
+		final String metadir = createTmpDir();
+		final DiskFPSet fpSet = new MSBDiskFPSet(new FPSetConfiguration());
+		fpSet.init(1, metadir, "original");
+		final List<Long> fps = put(fpSet, new Random(4711L), 1000);
+		fpSet.beginChkpt("chkpt");
+		fpSet.commitChkpt("chkpt");
+
+		// The filter of the recovered set is populated from the checkpoint.
+		final DiskFPSet recovered = new MSBDiskFPSet(new FPSetConfiguration());
+		recovered.init(1, metadir, "recovered");
+		recovered.recover("chkpt");
+		for (Long fp : fps) {
+			assertTrue(recovered.contains(fp));
+		}
+		assertEquals(0L, recovered.getBloomFilterSkipCnt());
+	}
+
+	private static List<Long> put(final DiskFPSet fpSet, final Random random, final int n) throws IOException {
+		final List<Long> fps = new ArrayList<>();
+		for (int i = 0; i < n; i++) {
+			if (i % 1000 == 0) {
+				// Flush to disk multiple times.
+				fpSet.forceFlush();
+			}
+			final long fp = random.nextLong() & DiskFPSet.FLUSHED_MASK;
+			assertFalse(fpSet.put(fp));
+			fps.add(fp);
+		}
+		return fps;
+	}
+
+	private static String createTmpDir() {
+		final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "BloomFilterDiskFPSetTest"
+				+ System.nanoTime();
+		new File(tmpdir).mkdirs();
+		return tmpdir;
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactFPSetTest {
+
+	@Before
+	public void setup() {
+		Assume.assumeTrue(LongArray.isSupported());
+	}
+
+	@Test
+	public void testPutContains32() throws IOException {
+		testPutContains(2);
+	}
+
+	@Test
+	public void testPutContains21() throws IOException {
+		testPutContains(3);
+	}
+
+	private void testPutContains(final int slotsPerWord) throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1 << 14); // 128kb, 2^11 buckets
+		final CompactFPSet fpSet = new CompactFPSet(fpSetConfig, slotsPerWord);
+		fpSet.init(1, null, null);
+		assertEquals(11 + (64 / slotsPerWord) - 2, fpSet.getFingerprintBits());
+
+		// 80% of the slots, i.e. two (three) times more fingerprints than a table
+		// of full fingerprints of the same size holds.
+		final int n = (int) ((1 << 14) * slotsPerWord * .8d);
+		Random random = new Random(4711L);
+		long cnt = 0L;
+		for (int i = 0; i < n; i++) {
+			final long fp = random.nextLong();
+			// Two distinct fingerprints might collide after compaction (especially
+			// for 21 bit slots).
+			if (!fpSet.put(fp)) {
+				cnt++;
+			}
+			assertTrue(fpSet.contains(fp));
+		}
+		assertEquals(cnt, fpSet.size());
+		assertTrue(n - cnt < 10);
+
+		random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			assertTrue(fpSet.put(random.nextLong()));
+		}
+		assertEquals(cnt, fpSet.size());
+		assertTrue(fpSet.checkFPs() > 0L);
+	}
+
+	@Test
+	public void testOverflow() throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(8); // A single bucket.
+		final CompactFPSet fpSet = new CompactFPSet(fpSetConfig, 2);
+		fpSet.init(1, null, null);
+
+		final int n = 1000;
+		Random random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			assertFalse(fpSet.put(random.nextLong()));
+		}
+		assertEquals(n, fpSet.size());
+		assertEquals(1d, fpSet.getLoadFactor(), 0d);
+
+		random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			final long fp = random.nextLong();
+			assertTrue(fpSet.contains(fp));
+			assertTrue(fpSet.put(fp));
+		}
+		assertEquals(n, fpSet.size());
+	}
+
+	@Test
+	public void testCheckFPs() throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(1 << 13); // 2^10 buckets
+		final CompactFPSet fpSet = new CompactFPSet(fpSetConfig, 2);
+		fpSet.init(1, null, null);
+
+		assertEquals(Long.MAX_VALUE, fpSet.checkFPs());
+
+		// The least significant bits that are not stored.
+		final int ignored = Long.SIZE - fpSet.getFingerprintBits();
+		final long fp = 0xCAFEBABEDEADBEEFL;
+		assertFalse(fpSet.put(fp));
+		assertFalse(fpSet.put(fp + (5L << ignored)));
+		assertFalse(fpSet.put(fp - (17L << ignored)));
+		assertEquals(5L, fpSet.checkFPs());
+
+		// Fingerprints with identical prefixes are indistinguishable.
+		assertTrue(fpSet.put(fp ^ 1L));
+		assertEquals(3, fpSet.size());
+
+		// The distance across adjacent quotients.
+		final long quotient = 1L << (Long.SIZE - 10);
+		assertFalse(fpSet.put(quotient - (1L << ignored)));
+		assertFalse(fpSet.put(quotient + (2L << ignored)));
+		assertEquals(3L, fpSet.checkFPs());
+	}
+
+	@Test
+	public void testFactory() throws IOException {
+		final FPSetConfiguration fpSetConfig = new FPSetConfiguration(1d, CompactFPSet.class.getName());
+		assertFalse(FPSetFactory.allocatesOnHeap(CompactFPSet.class.getName()));
+		assertFalse(fpSetConfig.allowsNesting());
+		assertTrue(FPSetFactory.getFPSet(fpSetConfig) instanceof CompactFPSet);
+	}
+}
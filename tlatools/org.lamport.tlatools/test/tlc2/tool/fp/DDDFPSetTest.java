@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DDDFPSetTest {
+
+	private static DDDFPSet create(final String name) throws IOException {
+		final DDDFPSet fpSet = new DDDFPSet(new DummyFPSetConfiguration());
+		fpSet.init(1, createTmpDir(), name);
+		return fpSet;
+	}
+
+	@Test
+	public void testMerge() throws IOException {
+		final DDDFPSet fpSet = create("merge");
+
+		// First level: all fingerprints are fresh.
+		assertFalse(fpSet.put(3L));
+		assertFalse(fpSet.put(1L));
+		assertFalse(fpSet.put(2L));
+		assertTrue(fpSet.put(2L));
+		assertEquals(3L, fpSet.size());
+		assertArrayEquals(new long[] { 1L, 2L, 3L }, fpSet.merge());
+		assertEquals(3L, fpSet.size());
+		assertEquals(0L, fpSet.windowSize());
+
+		// Second level: duplicates of the first level are only detected by
+		// the merge.
+		assertFalse(fpSet.put(2L));
+		assertFalse(fpSet.put(-1L));
+		assertFalse(fpSet.put(4L));
+		assertFalse(fpSet.put(3L));
+		assertEquals(7L, fpSet.size());
+		assertArrayEquals(new long[] { -1L, 4L }, fpSet.merge());
+		assertEquals(5L, fpSet.size());
+
+		// An empty level.
+		assertArrayEquals(new long[0], fpSet.merge());
+		assertEquals(5L, fpSet.size());
+		fpSet.close();
+	}
+
+	@Test
+	public void testPutContains() throws IOException {
+		final DDDFPSet fpSet = create("putContains");
+
+		final int n = 100000;
+		final int levels = 5;
+		final Random random = new Random(4711L);
+		final long[] fps = new long[n * levels];
+		for (int i = 0; i < fps.length; i++) {
+			fps[i] = random.nextLong();
+		}
+		for (int l = 0; l < levels; l++) {
+			// Each level revisits the fingerprints of the previous one.
+			for (int i = Math.max(0, l - 1) * n; i < (l + 1) * n; i++) {
+				fpSet.put(fps[i]);
+				assertTrue(fpSet.contains(fps[i]));
+			}
+			final long[] fresh = fpSet.merge();
+			assertEquals(n, fresh.length);
+			final long[] expected = Arrays.copyOfRange(fps, l * n, (l + 1) * n);
+			Arrays.sort(expected);
+			assertArrayEquals(expected, fresh);
+		}
+		assertEquals(fps.length, fpSet.size());
+		for (int i = 0; i < fps.length; i++) {
+			assertTrue(fpSet.contains(fps[i]));
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertFalse(fpSet.contains(random.nextLong()));
+		}
+		fpSet.close();
+	}
+
+	@Test
+	public void testZero() throws IOException {
+		final DDDFPSet fpSet = create("zero");
+		assertFalse(fpSet.contains(0L));
+		assertFalse(fpSet.put(0L));
+		assertTrue(fpSet.put(0L));
+		assertArrayEquals(new long[] { 0L }, fpSet.merge());
+		assertTrue(fpSet.contains(0L));
+		assertFalse(fpSet.put(0L));
+		assertArrayEquals(new long[0], fpSet.merge());
+		fpSet.close();
+	}
+
+	@Test
+	public void testCheckFPs() throws IOException {
+		final DDDFPSet fpSet = create("checkFPs");
+		assertEquals(Long.MAX_VALUE, fpSet.checkFPs());
+		fpSet.put(Long.MIN_VALUE + 1);
+		fpSet.put(42L);
+		fpSet.merge();
+		fpSet.put(47L);
+		fpSet.put(Long.MAX_VALUE);
+		assertEquals(5L, fpSet.checkFPs());
+		fpSet.close();
+	}
+
+	private static String createTmpDir() {
+		final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "DDDFPSetTest"
+				+ System.nanoTime();
+		new File(tmpdir).mkdirs();
+		return tmpdir;
+	}
+}
@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class DeltaCheckpointDiskFPSetTest {
+
+	private static final String CHKPT = "chkpt";
+
+	@BeforeClass
+	public static void setup() {
+		System.setProperty(DiskFPSet.class.getName() + ".deltaCheckpoint", Boolean.TRUE.toString());
+	}
+
+	private interface Factory {
+		DiskFPSet create() throws IOException;
+	}
+
+	@Test
+	public void testOffHeapDiskFPSet() throws IOException {
+		doTest(new Factory() {
+			public DiskFPSet create() throws IOException {
+				final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+				fpSetConfig.setMemoryInFingerprintCnt(1024);
+				return new OffHeapDiskFPSet(fpSetConfig);
+			}
+		});
+	}
+
+	@Test
+	public void testMSBDiskFPSet() throws IOException {
+		doTest(new Factory() {
+			public DiskFPSet create() throws IOException {
+				return new MSBDiskFPSet(new FPSetConfiguration());
+			}
+		});
+	}
+
+	@Test
+	public void testLSBDiskFPSet() throws IOException {
+		doTest(new Factory() {
+			public DiskFPSet create() throws IOException {
+				return new LSBDiskFPSet(new FPSetConfiguration());
+			}
+		});
+	}
+
+	private void doTest(final Factory factory) throws IOException {
+		final String metadir = createTmpDir();
+		final Random random = new Random(4711L);
+		final List<Long> fps = new ArrayList<>();
+
+		final DiskFPSet fpSet = factory.create();
+		assertTrue(fpSet.deltaChkpt);
+		fpSet.init(1, metadir, "original");
+
+		// First checkpoint, a delta with all fingerprints.
+		put(fpSet, random, fps, 1000);
+		fpSet.beginChkpt(CHKPT);
+		fpSet.commitChkpt(CHKPT);
+		assertEquals(1000 * FPSet.LongSize, new File(metadir, CHKPT + ".fp.0.delta").length());
+
+		// Second checkpoint only contains the fingerprints added since the first one.
+		put(fpSet, random, fps, 500);
+		fpSet.beginChkpt(CHKPT);
+		fpSet.commitChkpt(CHKPT);
+		assertEquals(500 * FPSet.LongSize, new File(metadir, CHKPT + ".fp.1.delta").length());
+
+		// Not part of any checkpoint.
+		final List<Long> lost = new ArrayList<>();
+		put(fpSet, random, lost, 100);
+		// Do not close the fpSets: OffHeapDiskFPSet evicts all instances at once.
+
+		// Recover the chain and extend it by a third delta.
+		final DiskFPSet recovered = factory.create();
+		recovered.init(1, metadir, "recovered");
+		recovered.recover(CHKPT);
+		assertEquals(fps.size(), recovered.size());
+		for (Long fp : fps) {
+			assertTrue(recovered.contains(fp));
+		}
+		for (Long fp : lost) {
+			assertFalse(recovered.contains(fp));
+		}
+		put(recovered, random, fps, 100);
+		recovered.beginChkpt(CHKPT);
+		recovered.commitChkpt(CHKPT);
+		assertEquals(100 * FPSet.LongSize, new File(metadir, CHKPT + ".fp.2.delta").length());
+
+		final DiskFPSet again = factory.create();
+		again.init(1, metadir, "again");
+		again.recover(CHKPT);
+		assertEquals(fps.size(), again.size());
+		for (Long fp : fps) {
+			assertTrue(again.contains(fp));
+		}
+	}
+
+	private static void put(final DiskFPSet fpSet, final Random random, final List<Long> fps, final int n)
+			throws IOException {
+		for (int i = 0; i < n; i++) {
+			if (i % 100 == 0) {
+				// Flush to disk multiple times in between two checkpoints.
+				fpSet.forceFlush();
+			}
+			final long fp = random.nextLong() & DiskFPSet.FLUSHED_MASK;
+			assertFalse(fpSet.put(fp));
+			fps.add(fp);
+		}
+	}
+
+	private static String createTmpDir() {
+		final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "DeltaCheckpointDiskFPSetTest"
+				+ System.nanoTime();
+		new File(tmpdir).mkdirs();
+		return tmpdir;
+	}
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import tlc2.tool.fp.OffHeapDiskFPSet.Indexer;
+import tlc2.tool.fp.OffHeapDiskFPSet.SortingIterator;
+import util.TLCRuntime;
+
+public class DoubleBufferedOffHeapDiskFPSetTest {
+
+	private static final String DOUBLE_BUFFER = OffHeapDiskFPSet.class.getName() + ".doubleBuffer";
+
+	@Before
+	public void setup() {
+		Assume.assumeTrue(TLCRuntime.getInstance().getArchitecture() == TLCRuntime.ARCH.x86_64);
+		System.setProperty(DOUBLE_BUFFER, Boolean.TRUE.toString());
+	}
+
+	@After
+	public void tearDown() {
+		System.clearProperty(DOUBLE_BUFFER);
+	}
+
+	@Test
+	public void testPutContains() throws IOException {
+		final DiskFPSet fpSet = create(1024);
+
+		// Fills the tables many times over which causes evictions.
+		final Random random = new Random(4711L);
+		final List<Long> fps = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			final long fp = random.nextLong() & DiskFPSet.FLUSHED_MASK;
+			assertFalse(fpSet.put(fp));
+			fps.add(fp);
+		}
+		assertTrue(fpSet.getGrowDiskMark() > 1);
+		assertEquals(fps.size(), fpSet.size());
+
+		for (Long fp : fps) {
+			assertTrue(fpSet.contains(fp));
+			assertTrue(fpSet.put(fp));
+		}
+		assertTrue(fpSet.checkInvariant(fps.size()));
+	}
+
+	@Test
+	public void testLookupWhileFlushing() throws Exception {
+		final DiskFPSet fpSet = create(1024);
+
+		final Random random = new Random(1234L);
+		final List<Long> fps = new ArrayList<>();
+		for (int i = 0; i < 400; i++) {
+			final long fp = random.nextLong() & DiskFPSet.FLUSHED_MASK;
+			assertFalse(fpSet.put(fp));
+			fps.add(fp);
+		}
+		fpSet.forceFlush();
+		fpSet.contains(1L); // contains triggers eviction
+		assertEquals(1, fpSet.getGrowDiskMark());
+		
+		// The table is merged in the background (and installed by the next
+		// eviction). Meanwhile, its fingerprints are found in memory.
+		final Field flushing = OffHeapDiskFPSet.class.getDeclaredField("flushing");
+		flushing.setAccessible(true);
+		assertNotNull(flushing.get(fpSet));
+		assertEquals(0L, fpSet.getTblCnt());
+		for (Long fp : fps) {
+			assertTrue(fpSet.contains(fp));
+			assertTrue(fpSet.put(fp));
+		}
+		
+		for (int i = 0; i < 400; i++) {
+			final long fp = random.nextLong() & DiskFPSet.FLUSHED_MASK;
+			assertFalse(fpSet.put(fp));
+			fps.add(fp);
+		}
+		assertEquals(fps.size(), fpSet.size());
+		
+		// Flushes synchronously after the background merge has been installed.
+		assertTrue(fpSet.checkInvariant(fps.size()));
+		assertEquals(fps.size(), fpSet.getFileCnt());
+		for (Long fp : fps) {
+			assertTrue(fpSet.contains(fp));
+		}
+	}
+
+	@Test
+	public void testSortingIterator() throws Exception {
+		doTestSortingIterator(1024);
+	}
+
+	@Test
+	public void testSortingIteratorNonPowerOfTwo() throws Exception {
+		doTestSortingIterator(1000);
+	}
+
+	private void doTestSortingIterator(final long positions) throws Exception {
+		System.clearProperty(DOUBLE_BUFFER);
+		final DiskFPSet fpSet = create(positions);
+		
+		// A high load factor yields long runs of collisions, some of which wrap
+		// around the end of the table.
+		final Random random = new Random(815L);
+		final List<Long> fps = new ArrayList<>();
+		for (int i = 0; i < positions * 0.9; i++) {
+			final long fp = random.nextLong() & DiskFPSet.FLUSHED_MASK;
+			assertFalse(fpSet.put(fp));
+			fps.add(fp);
+		}
+		Collections.sort(fps);
+
+		final LongArray array = (LongArray) get(fpSet, "array");
+		final Indexer indexer = (Indexer) get(fpSet, "indexer");
+		final int probeLimit = (int) get(fpSet, "PROBE_LIMIT");
+		
+		final SortingIterator itr = new SortingIterator(array, fps.size(), indexer, probeLimit);
+		for (Long fp : fps) {
+			assertTrue(itr.hasNext());
+			assertEquals(fp.longValue(), itr.next());
+		}
+		assertFalse(itr.hasNext());
+	}
+
+	private static Object get(final DiskFPSet fpSet, final String name) throws Exception {
+		final Field field = OffHeapDiskFPSet.class.getDeclaredField(name);
+		field.setAccessible(true);
+		return field.get(fpSet);
+	}
+
+	private static DiskFPSet create(final long positions) throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		fpSetConfig.setMemoryInFingerprintCnt(positions);
+		final DiskFPSet fpSet = new OffHeapDiskFPSet(fpSetConfig);
+		
+		final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator
+				+ "DoubleBufferedOffHeapDiskFPSetTest" + System.nanoTime();
+		new File(tmpdir).mkdirs();
+		fpSet.init(1, tmpdir, "fp");
+		return fpSet;
+	}
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.fp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class LSMFPSetTest {
+
+	private static LSMFPSet create(final String name) throws IOException {
+		return create(createTmpDir(), name);
+	}
+
+	private static LSMFPSet create(final String metadir, final String name) throws IOException {
+		final DummyFPSetConfiguration fpSetConfig = new DummyFPSetConfiguration();
+		// The smallest memtable possible (16 slots per segment).
+		fpSetConfig.setMemoryInFingerprintCnt(1);
+		final LSMFPSet fpSet = new LSMFPSet(fpSetConfig);
+		fpSet.init(1, metadir, name);
+		return fpSet;
+	}
+
+	@Test
+	public void testPutContains() throws IOException {
+		final LSMFPSet fpSet = create("putContains");
+
+		// ~24 memtables, i.e. runs of three levels.
+		final int n = 300000;
+		Random random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			final long fp = random.nextLong();
+			assertFalse(fpSet.put(fp));
+			assertTrue(fpSet.contains(fp));
+		}
+		assertEquals(n, fpSet.size());
+
+		random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			assertTrue(fpSet.put(random.nextLong()));
+		}
+		assertEquals(n, fpSet.size());
+
+		// checkFPs writes the memtable and waits for all merges.
+		assertTrue(fpSet.checkFPs() > 0L);
+		final int[] runsPerLevel = fpSet.getRunsPerLevel();
+		assertTrue(runsPerLevel.length > 2);
+		for (int runs : runsPerLevel) {
+			assertTrue(runs < 4);
+		}
+		random = new Random(4711L);
+		for (int i = 0; i < n; i++) {
+			assertTrue(fpSet.contains(random.nextLong()));
+		}
+		for (int i = 0; i < 10000; i++) {
+			assertFalse(fpSet.contains(random.nextLong()));
+		}
+		fpSet.close();
+	}
+
+	@Test
+	public void testZero() throws IOException {
+		final LSMFPSet fpSet = create("zero");
+		assertFalse(fpSet.contains(0L));
+		assertFalse(fpSet.put(0L));
+		assertTrue(fpSet.put(0L));
+		assertTrue(fpSet.contains(0L));
+		fpSet.close();
+	}
+
+	@Test
+	public void testCheckFPs() throws IOException {
+		final LSMFPSet fpSet = create("checkFPs");
+		assertEquals(Long.MAX_VALUE, fpSet.checkFPs());
+		fpSet.put(Long.MIN_VALUE + 1);
+		fpSet.put(42L);
+		fpSet.put(47L);
+		fpSet.put(Long.MAX_VALUE);
+		assertEquals(5L, fpSet.checkFPs());
+		fpSet.close();
+	}
+
+	@Test
+	public void testConcurrentPut() throws Exception {
+		final LSMFPSet fpSet = create("concurrent");
+
+		// All threads insert the same fingerprints.
+		final int numThreads = 4;
+		final int n = 100000;
+		final ExecutorService es = Executors.newFixedThreadPool(numThreads);
+		final List<Future<Integer>> futures = new ArrayList<>();
+		for (int t = 0; t < numThreads; t++) {
+			futures.add(es.submit(new Callable<Integer>() {
+				public Integer call() throws Exception {
+					final Random random = new Random(4711L);
+					int inserted = 0;
+					for (int i = 0; i < n; i++) {
+						if (!fpSet.put(random.nextLong())) {
+							inserted++;
+						}
+					}
+					return inserted;
+				}
+			}));
+		}
+		int inserted = 0;
+		for (Future<Integer> future : futures) {
+			inserted += future.get();
+		}
+		es.shutdown();
+		assertEquals(n, inserted);
+		assertEquals(n, fpSet.size());
+		fpSet.close();
+	}
+
+	@Test
+	public void testCheckpoint() throws IOException {
+		final String metadir = createTmpDir();
+		final LSMFPSet fpSet = create(metadir, "original");
+		final Random random = new Random(4711L);
+		final List<Long> fps = new ArrayList<>();
+		for (int i = 0; i < 50000; i++) {
+			final long fp = random.nextLong();
+			fpSet.put(fp);
+			fps.add(fp);
+		}
+		fpSet.beginChkpt("chkpt");
+		fpSet.commitChkpt("chkpt");
+
+		// Not part of the checkpoint.
+		final long lost = random.nextLong();
+		fpSet.put(lost);
+
+		final LSMFPSet recovered = create(metadir, "recovered");
+		recovered.recover("chkpt");
+		assertEquals(fps.size(), recovered.size());
+		for (Long fp : fps) {
+			assertTrue(recovered.contains(fp));
+		}
+		assertFalse(recovered.contains(lost));
+
+		// A second checkpoint replaces the first one.
+		for (int i = 0; i < 50000; i++) {
+			final long fp = random.nextLong();
+			recovered.put(fp);
+			fps.add(fp);
+		}
+		recovered.beginChkpt("chkpt");
+		recovered.commitChkpt("chkpt");
+
+		final LSMFPSet again = create(metadir, "again");
+		again.recover("chkpt");
+		assertEquals(fps.size(), again.size());
+		for (Long fp : fps) {
+			assertTrue(again.contains(fp));
+		}
+		fpSet.close();
+		recovered.close();
+		again.close();
+	}
+
+	@Test
+	public void testFactory() throws IOException {
+		final FPSetConfiguration fpSetConfig = new FPSetConfiguration(1d, LSMFPSet.class.getName());
+		assertTrue(FPSetFactory.allocatesOnHeap(LSMFPSet.class.getName()));
+		assertFalse(fpSetConfig.allowsNesting());
+		assertTrue(FPSetFactory.getFPSet(fpSetConfig) instanceof LSMFPSet);
+	}
+
+	private static String createTmpDir() {
+		final String tmpdir = System.getProperty("java.io.tmpdir") + File.separator + "LSMFPSetTest"
+				+ System.nanoTime();
+		new File(tmpdir).mkdirs();
+		return tmpdir;
+	}
+}
@@ -0,0 +1,80 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import tlc2.util.statistics.FixedSizedBucketStatistics;
+import tlc2.util.statistics.IBucketStatistics;
+
+/**
+ * Runs the tests of {@link TableauDiskGraphTest} against a
+ * {@link TableauDiskGraph} backed by a {@link MappedNodeFile}.
+ */
+public class MappedTableauDiskGraphTest extends TableauDiskGraphTest {
+
+	private static final IBucketStatistics GRAPH_STATS = new FixedSizedBucketStatistics("Test Dummy", 16);
+
+	/* (non-Javadoc)
+	 * @see tlc2.tool.liveness.TableauDiskGraphTest#getDiskGraph()
+	 */
+	protected AbstractDiskGraph getDiskGraph() throws IOException {
+		return new TableauDiskGraph(createTempDirectory().getAbsolutePath(), 1, GRAPH_STATS, true);
+	}
+
+	@Test
+	public void testSmallerOnDisk() throws IOException {
+		final AbstractDiskGraph mapped = getDiskGraph();
+		final AbstractDiskGraph raf = new TableauDiskGraph(createTempDirectory().getAbsolutePath(), 1, GRAPH_STATS, false);
+
+		for (long fp = 1; fp <= 100; fp++) {
+			for (int tidx = 0; tidx < 4; tidx++) {
+				// The successors repeat a state with different tableau indices.
+				final GraphNode node = new GraphNode(fp, tidx);
+				for (int succTidx = 0; succTidx < 4; succTidx++) {
+					node.addTransition(fp + 1, succTidx, 1, 0, null, 0, 1);
+				}
+				mapped.addNode(node);
+				raf.addNode(node);
+			}
+		}
+		assertTrue(mapped.getSizeOnDisk() < raf.getSizeOnDisk());
+
+		for (long fp = 1; fp <= 100; fp++) {
+			for (int tidx = 0; tidx < 4; tidx++) {
+				final GraphNode expected = raf.getNode(fp, tidx);
+				final GraphNode actual = mapped.getNode(fp, tidx);
+				assertEquals(expected.succSize(), actual.succSize());
+				for (int i = 0; i < expected.succSize(); i++) {
+					assertEquals(expected.getStateFP(i), actual.getStateFP(i));
+					assertEquals(expected.getTidx(i), actual.getTidx(i));
+				}
+			}
+		}
+	}
+}
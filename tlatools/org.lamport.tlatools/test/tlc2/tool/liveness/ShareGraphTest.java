@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.liveness;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.EC.ExitStatus;
+
+/**
+ * Same spec as {@link OneBitMutexNoSymmetryTest}, whose two solutions with a
+ * tableau share a single behavior graph (see
+ * {@link Liveness#shareTableaux(OrderOfSolution[])}).
+ */
+public class ShareGraphTest extends ModelCheckerTestCase {
+
+	public ShareGraphTest() {
+		super("OneBitMutexNoSymmetryMC", "symmetry" + File.separator + "OneBitMutex", ExitStatus.VIOLATION_LIVENESS);
+	}
+
+	@Override
+	protected void beforeSetUp() {
+		System.setProperty(LiveCheck.class.getName() + ".shareGraph", "true");
+	}
+
+	@Test
+	public void testSpec() {
+		assertTrue(recorder.recorded(EC.TLC_FINISHED));
+		assertTrue(recorder.recordedWithStringValues(EC.TLC_STATS, "244", "127", "0"));
+		assertFalse(recorder.recorded(EC.GENERAL));
+
+		// A single graph with both tableaux' nodes instead of two graphs.
+		assertTrue(recorder.recordedWithStringValue(EC.TLC_LIVE_IMPLIED, "2"));
+		assertTrue(recorder.recordedWithStringValues(EC.TLC_CHECKING_TEMPORAL_PROPS, "complete", "127", ""));
+		assertNodeAndPtrSizes(23400L, 7456L);
+		assertFalse(new File(TLCGlobals.mainChecker.metadir + File.separator + "nodes_1").exists());
+
+		// Assert it has found the temporal violation and also a counter example
+		assertTrue(recorder.recorded(EC.TLC_TEMPORAL_PROPERTY_VIOLATED));
+		assertTrue(recorder.recorded(EC.TLC_COUNTER_EXAMPLE));
+
+		// Assert the error trace ends in a lasso
+		assertTrue(recorder.recorded(EC.TLC_STATE_PRINT2));
+		assertTrue(recorder.recorded(EC.TLC_BACK_TO_STATE));
+	}
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.management;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import tlc2.TLCGlobals;
+import tlc2.output.EC;
+import tlc2.output.EC.ExitStatus;
+import tlc2.tool.ModelChecker;
+import tlc2.tool.liveness.ModelCheckerTestCase;
+
+public class OpenMetricsExporterTest extends ModelCheckerTestCase {
+
+	public OpenMetricsExporterTest() {
+		super("EWD840MC1", "CodePlexBug08", ExitStatus.VIOLATION_LIVENESS);
+	}
+
+	@Test
+	public void testHttp() throws IOException {
+		assertTrue(recorder.recordedWithStringValues(EC.TLC_STATS, "15986", "1566", "0"));
+
+		final OpenMetricsExporter exporter = new OpenMetricsExporter((ModelChecker) TLCGlobals.mainChecker);
+		exporter.serve(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		try {
+			final URL url = new URL("http://localhost:" + exporter.getPort() + "/metrics");
+			final HttpURLConnection con = (HttpURLConnection) url.openConnection();
+			assertEquals(200, con.getResponseCode());
+			assertEquals(OpenMetricsExporter.CONTENT_TYPE, con.getContentType());
+			final String body;
+			try (InputStream in = con.getInputStream()) {
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				final byte[] buf = new byte[4096];
+				int n;
+				while ((n = in.read(buf)) != -1) {
+					out.write(buf, 0, n);
+				}
+				body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+			}
+			assertMetrics(body);
+
+			final HttpURLConnection post = (HttpURLConnection) url.openConnection();
+			post.setRequestMethod("POST");
+			assertEquals(405, post.getResponseCode());
+		} finally {
+			exporter.stop();
+		}
+	}
+
+	@Test
+	public void testFile() throws IOException {
+		final File file = File.createTempFile("tlc", ".prom");
+		file.deleteOnExit();
+
+		final OpenMetricsExporter exporter = new OpenMetricsExporter((ModelChecker) TLCGlobals.mainChecker);
+		exporter.write(file, 60);
+		exporter.stop();
+
+		assertMetrics(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+	}
+
+	private static void assertMetrics(final String body) {
+		assertTrue(body, body.endsWith("# EOF\n"));
+
+		final Map<String, String> samples = new HashMap<>();
+		for (String line : body.split("\n")) {
+			if (line.startsWith("#")) {
+				continue;
+			}
+			final int idx = line.lastIndexOf(' ');
+			samples.put(line.substring(0, idx), line.substring(idx + 1));
+		}
+		assertEquals("15986", samples.get("tlc_states_generated_total"));
+		assertEquals("1566", samples.get("tlc_states_distinct_total"));
+		assertEquals("0", samples.get("tlc_queue_states"));
+		assertEquals("1566", samples.get("tlc_liveness_graph_nodes{property=\"0\"}"));
+		assertTrue(samples.containsKey("tlc_liveness_checks_total"));
+		assertTrue(samples.containsKey("tlc_worker_cpu_seconds_total"));
+		assertTrue(samples.containsKey("tlc_gc_seconds_total"));
+		assertTrue(samples.containsKey("tlc_fpset_disk_lookups_total"));
+		assertTrue(body.contains("# TYPE tlc_states_generated counter\n"));
+		assertTrue(body.contains("# TYPE tlc_queue_states gauge\n"));
+	}
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.tool.queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tlc2.TLCGlobals;
+import tlc2.tool.TLCState;
+import tlc2.util.IdThread;
+
+public class WorkStealingStateQueueTest extends StateQueueTest {
+
+	@Before
+	public void setUp() throws Exception {
+		sQueue = new WorkStealingStateQueue();
+	}
+
+	@Test
+	public void testWorkersStealAndTerminate() throws Exception {
+		workersStealAndTerminate(Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testWorkersStealAndTerminateSpilled() throws Exception {
+		workersStealAndTerminate(8L);
+	}
+
+	private void workersStealAndTerminate(final long spillThreshold) throws Exception {
+		final int numWorkers = 4;
+		final int initial = 16;
+		final int successors = 3;
+		final int maxDepth = 5;
+		
+		final int numWorkersBefore = TLCGlobals.getNumWorkers();
+		TLCGlobals.setNumWorkers(numWorkers);
+		try {
+			final WorkStealingStateQueue queue = new WorkStealingStateQueue(
+					Files.createTempDirectory("WorkStealingStateQueueTest").toString(), numWorkers, spillThreshold);
+			// Use the fingerprint to encode the depth of a state.
+			for (int i = 0; i < initial; i++) {
+				queue.enqueue(new DummyTLCState(0L));
+			}
+
+			final AtomicLong dequeued = new AtomicLong();
+			final Set<Integer> busy = ConcurrentHashMap.newKeySet();
+			final IdThread[] workers = new IdThread[numWorkers];
+			for (int i = 0; i < numWorkers; i++) {
+				workers[i] = new IdThread(() -> {
+					TLCState state;
+					while ((state = queue.sDequeue()) != null) {
+						busy.add(IdThread.GetId());
+						dequeued.incrementAndGet();
+						final long depth = state.fingerPrint();
+						if (depth < maxDepth) {
+							for (int j = 0; j < successors; j++) {
+								queue.sEnqueue(new DummyTLCState(depth + 1));
+							}
+						}
+					}
+					queue.finishAll();
+				}, "TestWorker-" + i, i);
+				workers[i].start();
+			}
+			for (IdThread worker : workers) {
+				worker.join();
+			}
+
+			long expected = 0;
+			long level = initial;
+			for (int d = 0; d <= maxDepth; d++) {
+				expected += level;
+				level *= successors;
+			}
+			assertEquals(expected, dequeued.get());
+			assertEquals(0L, queue.size());
+			assertTrue(queue.isEmpty());
+			assertNull(queue.sDequeue());
+			assertEquals(numWorkers, busy.size());
+		} finally {
+			TLCGlobals.setNumWorkers(numWorkersBefore);
+		}
+	}
+
+	@Test
+	public void testCheckpointRecover() throws Exception {
+		final String dir = Files.createTempDirectory("WorkStealingStateQueueTest").toString();
+		final WorkStealingStateQueue queue = new WorkStealingStateQueue(dir, 1);
+		// Sets TLCState.Empty for recovery.
+		queue.sEnqueue(new DummyTLCState());
+		for (int i = 1; i < 10; i++) {
+			final DummyTLCState state = new DummyTLCState(i);
+			state.uid = i;
+			queue.sEnqueue(state);
+		}
+		// No workers to suspend.
+		queue.beginChkpt();
+		queue.commitChkpt();
+
+		final WorkStealingStateQueue recovered = new WorkStealingStateQueue(dir, 1);
+		recovered.recover();
+		assertEquals(10L, recovered.size());
+	}
+
+	@Test
+	public void testSpill() throws Exception {
+		final String dir = Files.createTempDirectory("WorkStealingStateQueueTest").toString();
+		final WorkStealingStateQueue queue = new WorkStealingStateQueue(dir, 1, 16L);
+		// Sets TLCState.Empty to read the spilled states back in.
+		queue.sEnqueue(new DummyTLCState());
+		// Exceeds DiskStateQueue's buffers, thus states are written to disk.
+		final int n = 3 * 8192;
+		for (int i = 1; i < n; i++) {
+			final DummyTLCState state = new DummyTLCState(i);
+			state.uid = i;
+			queue.sEnqueue(state);
+		}
+		assertEquals(n, queue.size());
+		assertTrue(new File(dir, "wsq").isDirectory());
+
+		int cnt = 0;
+		while (queue.dequeue() != null) {
+			cnt++;
+		}
+		assertEquals(n, cnt);
+		assertTrue(queue.isEmpty());
+		queue.finishAll();
+	}
+
+	@Test
+	public void testSpillCheckpointRecover() throws Exception {
+		final String dir = Files.createTempDirectory("WorkStealingStateQueueTest").toString();
+		final WorkStealingStateQueue queue = new WorkStealingStateQueue(dir, 1, 4L);
+		// Sets TLCState.Empty for recovery.
+		queue.sEnqueue(new DummyTLCState());
+		for (int i = 1; i < 10; i++) {
+			final DummyTLCState state = new DummyTLCState(i);
+			state.uid = i;
+			queue.sEnqueue(state);
+		}
+		assertNotNull(queue.dequeue());
+		assertNotNull(queue.dequeue());
+		// No workers to suspend.
+		queue.beginChkpt();
+		queue.commitChkpt();
+		queue.finishAll();
+
+		final WorkStealingStateQueue recovered = new WorkStealingStateQueue(dir, 1, 4L);
+		recovered.recover();
+		assertEquals(8L, recovered.size());
+		int cnt = 0;
+		while (recovered.dequeue() != null) {
+			cnt++;
+		}
+		assertEquals(8, cnt);
+		recovered.finishAll();
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SetAssociativeCacheTest {
+
+	@Test
+	public void testHit() {
+		final SetAssociativeCache cache = new SetAssociativeCache(4);
+		assertFalse(cache.hit(42L));
+		assertTrue(cache.hit(42L));
+		assertTrue(cache.hit(42L));
+		assertFalse(cache.hit(43L));
+		assertEquals(2L, cache.getHitRate());
+		assertEquals(2L, cache.getMissRate());
+		assertEquals(.5d, cache.getHitRatio(), 0d);
+	}
+
+	@Test
+	public void testZero() {
+		// 0L marks an empty slot and thus must never hit.
+		final SetAssociativeCache cache = new SetAssociativeCache(0);
+		assertFalse(cache.hit(0L));
+		assertFalse(cache.hit(0L));
+	}
+
+	@Test
+	public void testLRUEviction() {
+		// A single set.
+		final SetAssociativeCache cache = new SetAssociativeCache(0);
+		for (long fp = 1; fp <= SetAssociativeCache.WAYS; fp++) {
+			assertFalse(cache.hit(fp));
+		}
+		// Touch 1 to make 2 the least recently used.
+		assertTrue(cache.hit(1L));
+		assertFalse(cache.hit(SetAssociativeCache.WAYS + 1));
+
+		assertFalse(cache.hit(2L)); // evicted, re-inserted evicting 3
+		assertTrue(cache.hit(1L));
+		assertTrue(cache.hit(SetAssociativeCache.WAYS + 1));
+		assertFalse(cache.hit(3L));
+	}
+
+	@Test
+	public void testSets() {
+		// Fingerprints of different sets do not evict each other.
+		final SetAssociativeCache cache = new SetAssociativeCache(1);
+		for (long fp = 2; fp <= 2 * SetAssociativeCache.WAYS; fp += 2) {
+			assertFalse(cache.hit(fp));
+		}
+		for (long fp = 1; fp <= 2 * SetAssociativeCache.WAYS; fp += 2) {
+			assertFalse(cache.hit(fp));
+		}
+		for (long fp = 1; fp <= 2 * SetAssociativeCache.WAYS; fp++) {
+			assertTrue(cache.hit(fp));
+		}
+	}
+}
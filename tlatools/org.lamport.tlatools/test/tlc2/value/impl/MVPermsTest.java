@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.value.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import tlc2.value.IMVPerm;
+import tlc2.value.IValue;
+
+public class MVPermsTest {
+
+	private static ModelValue[] a;
+	private static ModelValue[] b;
+
+	@BeforeClass
+	public static void setup() {
+		a = new ModelValue[5];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = (ModelValue) ModelValue.make("a" + i);
+		}
+		b = new ModelValue[3];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = (ModelValue) ModelValue.make("b" + i);
+		}
+		ModelValue.setValues();
+	}
+
+	@Test
+	public void testSymmetricGroups() {
+		final IMVPerm[] ga = MVPerms.symmetricGroupGenerators(new SetEnumValue(a, false));
+		final IMVPerm[] gb = MVPerms.symmetricGroupGenerators(new SetEnumValue(b, false));
+		assertEquals(2, ga.length);
+		assertEquals(2, gb.length);
+
+		final MVPerms group = new MVPerms(new IMVPerm[] { ga[0], ga[1], gb[0], gb[1] });
+		assertEquals(BigInteger.valueOf(120 * 6), group.order());
+		assertArrayEquals(new ModelValue[][] { a, b }, group.orbits());
+
+		// The lazy enumeration yields every element but the identity exactly once.
+		final Set<IMVPerm> elements = new HashSet<>();
+		for (IMVPerm perm : group) {
+			assertTrue(perm.size() > 0);
+			assertTrue(elements.add(perm));
+		}
+		assertEquals(120 * 6 - 1, elements.size());
+	}
+
+	@Test
+	public void testLarge() {
+		final ModelValue[] c = new ModelValue[12];
+		for (int i = 0; i < c.length; i++) {
+			c[i] = (ModelValue) ModelValue.make("c" + i);
+		}
+		ModelValue.setValues();
+
+		// 12! elements are never materialized.
+		final MVPerms group = new MVPerms(MVPerms.symmetricGroupGenerators(new SetEnumValue(c, false)));
+		assertEquals(BigInteger.valueOf(479001600L), group.order());
+		assertArrayEquals(new ModelValue[][] { c }, group.orbits());
+		assertTrue(group.iterator().hasNext());
+	}
+
+	@Test
+	public void testCyclicGroup() {
+		// a0 -> a1 -> a2 -> a3 -> a0 generates 4 permutations.
+		final MVPerm rot = new MVPerm();
+		for (int i = 0; i < 4; i++) {
+			rot.put(a[i], a[(i + 1) % 4]);
+		}
+		final MVPerms group = new MVPerms(new IMVPerm[] { rot });
+		assertEquals(BigInteger.valueOf(4), group.order());
+		assertArrayEquals(new ModelValue[][] { { a[0], a[1], a[2], a[3] } }, group.orbits());
+
+		final Set<IMVPerm> elements = new HashSet<>();
+		group.forEach(elements::add);
+		assertEquals(3, elements.size());
+		assertTrue(elements.contains(rot));
+		assertTrue(elements.contains(rot.compose(rot)));
+		assertTrue(elements.contains(rot.compose(rot).compose(rot)));
+	}
+
+	@Test
+	public void testTrivialGroup() {
+		assertEquals(0, MVPerms.symmetricGroupGenerators(new SetEnumValue(new ModelValue[] { a[0] }, false)).length);
+
+		final MVPerms group = new MVPerms(new IMVPerm[0]);
+		assertEquals(BigInteger.ONE, group.order());
+		assertEquals(0, group.orbits().length);
+		assertFalse(group.iterator().hasNext());
+	}
+
+	@Test
+	public void testSmallest() {
+		final IMVPerm[] ga = MVPerms.symmetricGroupGenerators(new SetEnumValue(a, false));
+		final IMVPerm[] gb = MVPerms.symmetricGroupGenerators(new SetEnumValue(b, false));
+		final IMVPerm[] generators = new IMVPerm[] { ga[0], ga[1], gb[0], gb[1] };
+		smallest(new MVPerms(generators));
+		// Neither the elements nor the cosets are materialized.
+		smallest(new MVPerms(generators, 0));
+
+		final MVPerm rot = new MVPerm();
+		for (int i = 0; i < a.length; i++) {
+			rot.put(a[i], a[(i + 1) % a.length]);
+		}
+		smallest(new MVPerms(new IMVPerm[] { rot }));
+		smallest(new MVPerms(new IMVPerm[] { rot }, 0));
+	}
+
+	private static void smallest(final MVPerms group) {
+		final Random rnd = new Random(4711);
+		for (int i = 0; i < 500; i++) {
+			// The leading model values allow to skip cosets.
+			final Value[] seq = new Value[rnd.nextInt(4)];
+			for (int j = 0; j < seq.length; j++) {
+				seq[j] = a[rnd.nextInt(a.length)];
+			}
+			final IValue[] state = new IValue[] { a[rnd.nextInt(a.length)], b[rnd.nextInt(b.length)],
+					new TupleValue(seq), IntValue.gen(rnd.nextInt(3)) };
+
+			IValue[] min = state;
+			for (IMVPerm perm : group) {
+				final IValue[] vals = new IValue[state.length];
+				for (int j = 0; j < vals.length; j++) {
+					vals[j] = state[j].permute(perm);
+				}
+				for (int j = 0; j < vals.length; j++) {
+					final int cmp = vals[j].compareTo(min[j]);
+					if (cmp < 0) {
+						min = vals;
+					}
+					if (cmp != 0) {
+						break;
+					}
+				}
+			}
+			assertArrayEquals(min, group.smallest(state));
+		}
+	}
+}
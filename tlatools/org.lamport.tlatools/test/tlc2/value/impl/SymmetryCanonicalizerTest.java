@@ -0,0 +1,181 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package tlc2.value.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import tlc2.util.FP64;
+import tlc2.value.IMVPerm;
+import tlc2.value.IValue;
+import util.UniqueString;
+
+public class SymmetryCanonicalizerTest {
+
+	private static ModelValue[] a;
+	private static ModelValue[] b;
+	private static MVPerms group;
+	private static List<IMVPerm> perms;
+
+	@BeforeClass
+	public static void setup() {
+		a = new ModelValue[4];
+		for (int i = 0; i < a.length; i++) {
+			a[i] = (ModelValue) ModelValue.make("a" + i);
+		}
+		b = new ModelValue[2];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = (ModelValue) ModelValue.make("b" + i);
+		}
+		ModelValue.setValues();
+
+		// Permutations(A) \cup Permutations(B)
+		final List<IMVPerm> generators = new ArrayList<>();
+		generators.addAll(Arrays.asList(MVPerms.symmetricGroupGenerators(new SetEnumValue(a, false))));
+		generators.addAll(Arrays.asList(MVPerms.symmetricGroupGenerators(new SetEnumValue(b, false))));
+		group = new MVPerms(generators.toArray(new IMVPerm[0]));
+		perms = new ArrayList<>();
+		group.forEach(perms::add);
+	}
+
+	@Test
+	public void testNotFullSymmetricGroup() {
+		// The cyclic group generated by the rotation a0 -> a1 -> a2 -> a0.
+		final MVPerm rot = new MVPerm();
+		rot.put(a[0], a[1]);
+		rot.put(a[1], a[2]);
+		rot.put(a[2], a[0]);
+		assertNull(SymmetryCanonicalizer.create(new MVPerms(new IMVPerm[] { rot })));
+		assertNull(SymmetryCanonicalizer.create(null));
+		assertNotNull(SymmetryCanonicalizer.create(group));
+	}
+
+	@Test
+	public void testRepresentativeIsIdempotent() {
+		final SymmetryCanonicalizer canonicalizer = SymmetryCanonicalizer.create(group);
+		final Random rnd = new Random(4711);
+		for (int i = 0; i < 200; i++) {
+			final IValue[] rep = canonicalizer.canonicalize(randomState(rnd));
+			assertArrayEquals(rep, canonicalizer.canonicalize(rep));
+		}
+	}
+
+	@Test
+	public void testSameOrbitsAsExhaustive() {
+		final SymmetryCanonicalizer canonicalizer = SymmetryCanonicalizer.create(group);
+		final Random rnd = new Random(4711);
+
+		// The representatives of canonicalizer and the exhaustive search differ,
+		// but they have to induce the same equivalence classes.
+		final Map<Long, Long> fastToExhaustive = new HashMap<>();
+		final Map<Long, Long> exhaustiveToFast = new HashMap<>();
+		for (int i = 0; i < 2000; i++) {
+			IValue[] state = randomState(rnd);
+			if (i % 2 == 1) {
+				// Every other state is a random permutation of a random state to make
+				// sure orbits are hit more than once.
+				state = permute(state, perms.get(rnd.nextInt(perms.size())));
+			}
+			final long fast = fingerprint(canonicalizer.canonicalize(state));
+			final long exhaustive = fingerprint(exhaustive(state));
+
+			final Long e = fastToExhaustive.putIfAbsent(fast, exhaustive);
+			assertEquals(exhaustive, e == null ? exhaustive : e.longValue());
+			final Long f = exhaustiveToFast.putIfAbsent(exhaustive, fast);
+			assertEquals(fast, f == null ? fast : f.longValue());
+
+			for (IMVPerm perm : perms) {
+				assertEquals(fast, fingerprint(canonicalizer.canonicalize(permute(state, perm))));
+			}
+		}
+	}
+
+	/*
+	 * pc \in [A -> 0..2], msgs \subseteq A \X A, owner \in B, seq \in Seq(A \cup B),
+	 * rcd \in [src: A, dst: B].
+	 */
+	private static IValue[] randomState(final Random rnd) {
+		final Value[] pcs = new Value[a.length];
+		for (int i = 0; i < pcs.length; i++) {
+			// Mostly identical to exercise the search for ties.
+			pcs[i] = IntValue.gen(rnd.nextInt(4) == 0 ? rnd.nextInt(3) : 0);
+		}
+		final Value[] msgs = new Value[rnd.nextInt(4)];
+		for (int i = 0; i < msgs.length; i++) {
+			msgs[i] = new TupleValue(a[rnd.nextInt(a.length)], a[rnd.nextInt(a.length)]);
+		}
+		final Value[] seq = new Value[rnd.nextInt(3)];
+		for (int i = 0; i < seq.length; i++) {
+			seq[i] = rnd.nextBoolean() ? a[rnd.nextInt(a.length)] : b[rnd.nextInt(b.length)];
+		}
+		final Value rcd = new RecordValue(new UniqueString[] { UniqueString.of("src"), UniqueString.of("dst") },
+				new Value[] { a[rnd.nextInt(a.length)], b[rnd.nextInt(b.length)] }, false);
+		return new IValue[] { new FcnRcdValue(a.clone(), pcs, false), new SetEnumValue(msgs, false),
+				b[rnd.nextInt(b.length)], new TupleValue(seq), rcd };
+	}
+
+	private static IValue[] exhaustive(final IValue[] state) {
+		IValue[] min = state;
+		for (IMVPerm perm : perms) {
+			final IValue[] vals = permute(state, perm);
+			for (int j = 0; j < vals.length; j++) {
+				final int cmp = vals[j].compareTo(min[j]);
+				if (cmp < 0) {
+					min = vals;
+				}
+				if (cmp != 0) {
+					break;
+				}
+			}
+		}
+		return min;
+	}
+
+	private static IValue[] permute(final IValue[] state, final IMVPerm perm) {
+		final IValue[] res = new IValue[state.length];
+		for (int i = 0; i < state.length; i++) {
+			res[i] = state[i].permute(perm);
+		}
+		return res;
+	}
+
+	private static long fingerprint(final IValue[] state) {
+		long fp = FP64.New();
+		for (IValue v : state) {
+			fp = v.fingerPrint(fp);
+		}
+		return fp;
+	}
+}
@@ -0,0 +1,83 @@
+/*******************************************************************************
+ * Copyright (c) 2026 Microsoft Research. All rights reserved. 
+ *
+ * The MIT License (MIT)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy 
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ * of the Software, and to permit persons to whom the Software is furnished to do
+ * so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software. 
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS
+ * FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR
+ * COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN
+ * AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ ******************************************************************************/
+package util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TLAFlightRecorderTest {
+
+	@Test
+	public void testEvents() throws IOException {
+		final Path file = Files.createTempFile("TLAFlightRecorderTest", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable("util.TLAFlightRecorder$FPSetFlushEvent");
+			recording.enable("util.TLAFlightRecorder$QueueRefillEvent");
+			recording.enable("util.TLAFlightRecorder$LevelEvent");
+			recording.start();
+
+			TLAFlightRecorder.endFPSetFlush(TLAFlightRecorder.beginFPSetFlush(), 42L, 4242L, true);
+			TLAFlightRecorder.endQueueRefill(TLAFlightRecorder.beginQueueRefill(), 23, false);
+			TLAFlightRecorder.endLevel(TLAFlightRecorder.beginLevel(), 7, 100L, 50L, 10L);
+			// A null event, i.e. JFR not available, is ignored.
+			TLAFlightRecorder.endLevel(null, 8, 200L, 100L, 20L);
+
+			recording.stop();
+			recording.dump(file);
+		}
+
+		final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		Files.delete(file);
+		assertEquals(3, events.size());
+		for (RecordedEvent e : events) {
+			final String name = e.getEventType().getName();
+			if (name.endsWith("FPSetFlushEvent")) {
+				assertEquals(42L, e.getLong("fingerprints"));
+				assertEquals(4242L, e.getLong("diskFingerprints"));
+				assertEquals(4242L * Long.BYTES, e.getLong("bytes"));
+				assertTrue(e.getBoolean("background"));
+			} else if (name.endsWith("QueueRefillEvent")) {
+				assertEquals(23, e.getInt("states"));
+				assertFalse(e.getBoolean("fromDisk"));
+			} else {
+				assertTrue(name.endsWith("LevelEvent"));
+				assertEquals(7, e.getInt("level"));
+				assertEquals(100L, e.getLong("states"));
+				assertEquals(50L, e.getLong("distStates"));
+				assertEquals(10L, e.getLong("unseen"));
+			}
+		}
+	}
+}